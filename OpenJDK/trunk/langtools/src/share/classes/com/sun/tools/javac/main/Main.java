@@ -182,6 +182,11 @@ public class Main {
      */
     public Set<File> filenames = null; // XXX sb protected
 
+    /** True if processArgs found that none of the files given need to be
+     * processed (e.g. in an incremental run), so that having no files to
+     * compile is not an error */
+    protected boolean nothingToDo = false; // OPENJML - added
+
     /** List of class files names passed on the command line
      */
     public ListBuffer<String> classnames = null; // XXX sb protected
@@ -446,6 +451,7 @@ public class Main {
                     // null signals an error in options, abort
                     return Result.CMDERR;
                 } else if (files.isEmpty() && fileObjects.isEmpty() && classnames.isEmpty()) {
+                    if (nothingToDo) return Result.OK; // OPENJML - added
                     // it is allowed to compile nothing if just asking for help or version info
                     if (options.isSet(HELP)
                         || options.isSet(X)
@@ -90,6 +90,8 @@ NAME=openjml-${VERSION}.zip
 	cp ${TEMPJAR}/VERSION_INFO temp
 	cp jSMTLIB.jar temp
 	cp otherlibs/*.jar temp
+	echo "   " Generating the extension index
+	java -cp temp org.jmlspecs.openjml.Extensions temp/org/jmlspecs/openjml/ext/extensions.index || exit 1
 	mkdir -p temp/specs; chmod -R u+rwx,a+rx temp
 	cp -r ${SPECS}/specs/* temp/specs
 	echo "   " Creating jmlspecs.jar
@@ -8,17 +8,27 @@ package com.sun.tools.javac.main;
 import static com.sun.tools.javac.code.Flags.UNATTRIBUTED;
 import static com.sun.tools.javac.main.Option.PROC;
 
+import java.io.InputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.processing.Processor;
 import javax.tools.JavaFileObject;
 
+import org.jmlspecs.openjml.Dependencies;
+import org.jmlspecs.openjml.DependencyIndex;
 import org.jmlspecs.openjml.IJmlClauseKind.ModifierKind;
 import org.jmlspecs.openjml.JmlClearTypes;
 import org.jmlspecs.openjml.JmlOption;
@@ -27,6 +37,8 @@ import org.jmlspecs.openjml.JmlSpecs;
 import org.jmlspecs.openjml.JmlTokenKind;
 import org.jmlspecs.openjml.JmlTree;
 import org.jmlspecs.openjml.Main;
+import org.jmlspecs.openjml.Nowarns;
+import org.jmlspecs.openjml.Timings;
 import org.jmlspecs.openjml.Utils;
 import org.jmlspecs.openjml.JmlSpecs.TypeSpecs;
 import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
@@ -41,6 +53,7 @@ import org.jmlspecs.openjml.sa.MethodDependencies;
 import org.jmlspecs.openjml.strongarm.InferenceType;
 import org.jmlspecs.openjml.strongarm.JmlInfer;
 import org.jmlspecs.openjml.strongarm.JmlInferPostConditions;
+import org.jmlspecs.openjml.vistors.JmlTreeScanner;
 import org.jmlspecs.openjml.vistors.JmlUseSubstitutions;
 
 import com.sun.tools.javac.code.Attribute;
@@ -59,12 +72,17 @@ import com.sun.tools.javac.comp.Resolve;
 import com.sun.tools.javac.jvm.ClassReader;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.comp.CompileStates.CompileState;
+import com.sun.tools.javac.util.BaseFileManager;
+import com.sun.tools.javac.file.BaseFileObject;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCAnnotation;
 import com.sun.tools.javac.tree.JCTree.JCClassDecl;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
 import com.sun.tools.javac.tree.JCTree.JCImport;
+import com.sun.tools.javac.util.Abort;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.util.ListBuffer;
@@ -110,6 +128,8 @@ public class JmlCompiler extends JavaCompiler {
         this.utils = Utils.instance(context);
         this.verbose |= utils.jmlverbose >= Utils.JMLVERBOSE; // Only used in JavaCompiler
         this.resolver = JmlResolve.instance(context);
+        // Made now, so that it sees every diagnostic of the compilation
+        if (JmlOption.isOption(context, JmlOption.INCREMENTAL)) DependencyIndex.instance(context);
     }
     
     /** A flag that controls whether to get specs during a parse or not (if false 
@@ -142,7 +162,12 @@ public class JmlCompiler extends JavaCompiler {
     public JCCompilationUnit parse(JavaFileObject fileobject, CharSequence content) {
         // TODO: Use a TaskEvent and a TaskListener here?
         if (utils.jmlverbose >= Utils.JMLVERBOSE) context.get(Main.IProgressListener.class).report(2,"parsing " + fileobject.toUri() );
+        Timings timings = Timings.instance(context);
+        long start = timings.start();
+        // The nowarn annotations of an earlier parse of the file no longer apply
+        Nowarns.instance(context).clear(fileobject);
         JCCompilationUnit cu = super.parse(fileobject,content);
+        timings.record("parse", null, null, start);
         if (inSequence) {
             return cu;
         }
@@ -221,8 +246,11 @@ public class JmlCompiler extends JavaCompiler {
     /*@Nullable*/
     public JmlCompilationUnit parseSpecs(Symbol.TypeSymbol typeSymbol) {
         String typeName = typeSymbol.flatName().toString();
+        Timings timings = Timings.instance(context);
+        long start = timings.start();
         JavaFileObject f = JmlSpecs.instance(context).findAnySpecFile(typeName);
         /*@Nullable*/ JmlCompilationUnit speccu = parseSingleFile(f);
+        timings.record("specs", typeName, "class", start);
         if (speccu != null) {
             Symbol.PackageSymbol p = typeSymbol.packge();
             String specpid = speccu.pid == null ? "unnamed package" : speccu.pid.toString();
@@ -265,11 +293,45 @@ public class JmlCompiler extends JavaCompiler {
         }
     }
     
+    /** The contents of files being read ahead of parsing by parseFiles, as
+     * raw bytes, by file object; null when no read-ahead is in progress */
+    protected Map<JavaFileObject,Future<byte[]>> readAhead = null;
+    
+    /** The files still to be read ahead, in parsing order */
+    protected java.util.Deque<JavaFileObject> readAheadPending = null;
+    
+    /** The pool reading files ahead, while a read-ahead is in progress */
+    protected ExecutorService readAheadPool = null;
+    
+    /** The most files read, or being read, ahead of the parser at once;
+     * this bounds the memory held by contents not yet parsed */
+    protected int readAheadWindow;
+    
     /** Parses the list of file objects (using parse(fileobject)), returning a list of JmlCompilationUnits;
-     * parsing a source file will cause a search for and parsing of the specification file */
+     * parsing a source file will cause a search for and parsing of the specification file.
+     * <P>
+     * With -parseThreads greater than 1, the files are read from disk on that
+     * many threads ahead of the parser, at most twice that many files ahead.
+     * The parsing itself stays on this thread, in order: the scanner and
+     * parser factories, the name table and the Log of a context are not
+     * thread-safe. Decoding and caching of the contents are also left to this
+     * thread (in readSource), so any diagnostics appear just as in a
+     * sequential run.
+     */
     @Override
     public List<JCCompilationUnit> parseFiles(Iterable<JavaFileObject> fileObjects) {
-        List<JCCompilationUnit> list = super.parseFiles(fileObjects);
+        ExecutorService pool = startReadAhead(fileObjects);
+        List<JCCompilationUnit> list;
+        try {
+            list = super.parseFiles(fileObjects);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+                readAhead = null;
+                readAheadPending = null;
+                readAheadPool = null;
+            }
+        }
         for (JCCompilationUnit cu: list) {
             JmlCompilationUnit jcu = (JmlCompilationUnit)cu;
             // Note - can certainly have modes 2 and 6 at this point.
@@ -280,6 +342,88 @@ public class JmlCompiler extends JavaCompiler {
         return list;
     }
     
+    /** Starts reading the given files on a pool of threads, returning the
+     * pool, or null if read-ahead is not enabled */
+    protected /*@ nullable */ ExecutorService startReadAhead(Iterable<JavaFileObject> fileObjects) {
+        int threads = 1;
+        String v = JmlOption.value(context, JmlOption.PARSE_THREADS);
+        if (v != null && !v.isEmpty()) {
+            try {
+                threads = Integer.parseInt(v);
+            } catch (NumberFormatException e) {
+                log.warning("jml.message", "Expected an integer for " + JmlOption.PARSE_THREADS.optionName() + ": " + v);
+            }
+        }
+        if (threads <= 1 || !(fileManager instanceof BaseFileManager)) return null;
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "openjml-read-ahead");
+            t.setDaemon(true);
+            return t;
+        });
+        readAhead = new HashMap<JavaFileObject,Future<byte[]>>();
+        readAheadPending = new java.util.ArrayDeque<JavaFileObject>();
+        readAheadPool = pool;
+        readAheadWindow = 2*threads;
+        BaseFileManager fm = (BaseFileManager)fileManager;
+        java.util.Set<JavaFileObject> seen = new java.util.HashSet<JavaFileObject>();
+        for (JavaFileObject f: fileObjects) {
+            // Only file manager objects read their content through its cache;
+            // the cache is consulted here, on this thread
+            if (!(f instanceof BaseFileObject) || !seen.add(f) || fm.getCachedContent(f) != null) continue;
+            readAheadPending.add(f);
+        }
+        fillReadAhead();
+        return pool;
+    }
+    
+    /** Starts reading pending files until readAheadWindow files are read,
+     * or being read, ahead of the parser */
+    protected void fillReadAhead() {
+        while (readAhead.size() < readAheadWindow && !readAheadPending.isEmpty()) {
+            JavaFileObject f = readAheadPending.removeFirst();
+            readAhead.put(f, readAheadPool.submit(() -> {
+                if ("file".equals(f.toUri().getScheme())) return Files.readAllBytes(Paths.get(f.toUri()));
+                try (InputStream in = f.openInputStream()) {
+                    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+                    byte[] buf = new byte[8192];
+                    int n;
+                    while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+                    return out.toByteArray();
+                }
+            }));
+        }
+    }
+    
+    /** Overridden to use the contents read ahead by parseFiles, if any: they
+     * are decoded and placed in the file manager's cache, from which the
+     * normal reading of the file then takes them, and the next file is
+     * started in their place. If reading ahead failed,
+     * the file is read as usual, so errors are reported as usual. */
+    @Override
+    public CharSequence readSource(JavaFileObject filename) {
+        if (readAhead == null) return super.readSource(filename);
+        Future<byte[]> f = readAhead.remove(filename);
+        if (f == null) {
+            // A file parsed before its turn is not read ahead any more
+            readAheadPending.remove(filename);
+        } else {
+            fillReadAhead();
+            BaseFileManager fm = (BaseFileManager)fileManager;
+            try {
+                byte[] bytes = f.get();
+                JavaFileObject prev = log.useSource(filename);
+                try {
+                    fm.cache(filename, fm.decode(ByteBuffer.wrap(bytes), false));
+                } finally {
+                    log.useSource(prev);
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                // Read it directly below
+            }
+        }
+        return super.readSource(filename);
+    }
+    
     private int nestingLevel = 0;
 
     /** Parses and enters specs for binary classes, given a ClassSymbol.  This is 
@@ -430,7 +574,7 @@ public class JmlCompiler extends JavaCompiler {
         ListBuffer<Pair<Env<AttrContext>, JCClassDecl>> results = new ListBuffer<>();
         
         if (envs.isEmpty()) {
-        	if (utils.esc) context.get(Main.IProgressListener.class).report(1,"Operation not performed because of parse or type errors");
+        	if (utils.esc && !escPipelined) context.get(Main.IProgressListener.class).report(1,"Operation not performed because of parse or type errors");
         	return results;
         }
         
@@ -449,6 +593,11 @@ public class JmlCompiler extends JavaCompiler {
             return results; // Empty list - do nothing more
         } else if (utils.esc) {
             JmlEsc esc = JmlEsc.instance(context);
+            if (escPipelined) {
+                // Counts are initialized and reported by compile2
+                for (Env<AttrContext> env: envs) esc(env);
+                return results;
+            }
         	try {
                 esc.initCounts();
         	    for (Env<AttrContext> env: envs) esc(env);
@@ -490,10 +639,18 @@ public class JmlCompiler extends JavaCompiler {
     @Override
     public Queue<Env<AttrContext>> attribute(Queue<Env<AttrContext>> envs) {
         ListBuffer<Env<AttrContext>> results = new ListBuffer<>();
+        boolean incremental = JmlOption.isOption(context, JmlOption.INCREMENTAL);
+        Timings timings = Timings.instance(context);
         while (!envs.isEmpty()) {
-            Env<AttrContext> env = attribute(envs.remove());
+            Env<AttrContext> next = envs.remove();
+            long start = timings.start();
+            Env<AttrContext> env = attribute(next);
+            if (timings.enabled()) timings.record("attribute", className(next), "class", start);
                 
-            if (env != null) results.append(env);
+            if (env != null) {
+                results.append(env);
+                if (incremental) recordDependencies(env);
+            }
         }
         ((JmlAttr)attr).completeTodo();
         
@@ -535,6 +692,61 @@ public class JmlCompiler extends JavaCompiler {
         return stopIfError(CompileState.ATTR, results);
     }
 
+    /** Records in Dependencies the source and specification files that the
+     * (attributed) class of the given env refers to, for -incremental; the
+     * files referred to by the specifications in a separate specification
+     * file are recorded as its own dependencies, the source file depending
+     * on the specification file. */
+    protected void recordDependencies(Env<AttrContext> env) {
+        final JavaFileObject source = env.toplevel.sourcefile;
+        if (source.getKind() != JavaFileObject.Kind.SOURCE) return;
+        Set<JavaFileObject> used = used(env.tree);
+        if (env.tree instanceof JmlClassDecl && ((JmlClassDecl)env.tree).sym != null) {
+            // The class's own specification file
+            TypeSpecs tspecs = JmlSpecs.instance(context).get(((JmlClassDecl)env.tree).sym);
+            if (tspecs != null && tspecs.file != null) used.add(tspecs.file);
+        }
+        Dependencies.instance(context).dependsOn(source, used);
+        DependencyIndex.instance(context).attributed(source);
+        JmlCompilationUnit specsUnit = ((JmlCompilationUnit)env.toplevel).specsCompilationUnit;
+        if (specsUnit != null && specsUnit.sourcefile != null && !Utils.ifSourcesEqual(specsUnit.sourcefile, source)) {
+            Dependencies.instance(context).dependsOn(source, specsUnit.sourcefile);
+            Set<JavaFileObject> specsUsed = used(specsUnit);
+            specsUsed.removeIf(f -> Utils.ifSourcesEqual(f, source));
+            Dependencies.instance(context).dependsOn(specsUnit.sourcefile, specsUsed);
+            DependencyIndex.instance(context).attributed(specsUnit.sourcefile);
+        }
+    }
+
+    /** Returns the source and specification files of the top-level classes
+     * (other than those in jars or class files) that the tree refers to */
+    protected Set<JavaFileObject> used(JCTree tree) {
+        final Set<JavaFileObject> used = new HashSet<JavaFileObject>();
+        final JmlSpecs specs = JmlSpecs.instance(context);
+        JmlTreeScanner scanner = new JmlTreeScanner() {
+            void use(Symbol sym) {
+                // Find the top-level class that declares sym
+                while (sym != null && sym.owner != null && !(sym.owner instanceof Symbol.PackageSymbol)) sym = sym.owner;
+                if (!(sym instanceof ClassSymbol)) return;
+                ClassSymbol c = (ClassSymbol)sym;
+                if (c.sourcefile != null && c.sourcefile.getKind() == JavaFileObject.Kind.SOURCE) used.add(c.sourcefile);
+                TypeSpecs tspecs = specs.get(c);
+                if (tspecs != null && tspecs.file != null) used.add(tspecs.file);
+            }
+            @Override
+            public void visitIdent(JCIdent that) {
+                use(that.sym);
+            }
+            @Override
+            public void visitSelect(JCFieldAccess that) {
+                use(that.sym);
+                super.visitSelect(that);
+            }
+        };
+        scanner.scan(tree);
+        return used;
+    }
+
     /** Overridden to remove binary/spec entries from the list of Envs after processing */
     @Override
     protected void flow(Env<AttrContext> env, Queue<Env<AttrContext>> results) {
@@ -543,7 +755,26 @@ public class JmlCompiler extends JavaCompiler {
             if (utils.rac) CompileStates.instance(context).put(env,CompileState.FLOW);
             return;
         }
+        Timings timings = Timings.instance(context);
+        long start = timings.start();
         super.flow(env,results);
+        if (timings.enabled()) timings.record("flow", className(env), "class", start);
+    }
+    
+    /** The name of the class of the env, for -timings */
+    protected static String className(Env<AttrContext> env) {
+        return env.enclClass != null && env.enclClass.sym != null ? env.enclClass.sym.flatName().toString()
+                : env.toplevel.sourcefile.getName();
+    }
+    
+    /** Overridden to record the time taken, for -timings */
+    @Override
+    public List<JCCompilationUnit> enterTrees(List<JCCompilationUnit> roots) {
+        Timings timings = Timings.instance(context);
+        long start = timings.start();
+        List<JCCompilationUnit> result = super.enterTrees(roots);
+        timings.record("enter", null, null, start);
+        return result;
     }
     
     @Override
@@ -721,10 +952,73 @@ public class JmlCompiler extends JavaCompiler {
     }
 
 
+    /** True while compile2 is running ESC class by class (-escPipeline) */
+    protected boolean escPipelined = false;
+    
     // FIXME - we are overriding to only allow SIMPLE compile policy
     public void compile2(CompilePolicy compPolicy) {
         //super.compile2(CompilePolicy.BY_TODO);
-        super.compile2(CompilePolicy.SIMPLE);
+        boolean completed = false;
+        try {
+            if (utils.esc && JmlOption.isOption(context, JmlOption.ESC_PIPELINE)) {
+                compilePipelined();
+                super.compile2(CompilePolicy.SKIP); // For the final reporting
+            } else {
+                super.compile2(CompilePolicy.SIMPLE);
+            }
+            completed = true;
+        } finally {
+            if (JmlOption.isOption(context, JmlOption.INCREMENTAL)) {
+                DependencyIndex.instance(context).save(Dependencies.instance(context), completed && errorCount() == 0);
+            }
+            JmlSpecs.instance(context).saveSpecsIndex();
+            Timings.instance(context).write();
+        }
+    }
+    
+    /** Runs ESC on each class as soon as it (and the classes whose attribution
+     * it caused) has been attributed and flow-checked, rather than after all
+     * classes have been; this is the -escPipeline policy. As with the usual
+     * policy, no ESC results are reported if there are any parse or type
+     * errors: the diagnostics of each class's ESC are held back until every
+     * class has been attributed, then reported in order, or dropped (with
+     * the summary) if any errors have been reported. What ESC writes
+     * straight to the log's writers, such as progress output, is not held
+     * back.
+     */
+    protected void compilePipelined() {
+        JmlEsc esc = JmlEsc.instance(context);
+        escPipelined = true;
+        java.util.List<Log.DeferredDiagnosticHandler> results = new java.util.ArrayList<>();
+        try {
+            esc.initCounts();
+            while (!todo.isEmpty() && !shouldStop(CompileState.ATTR)) {
+                ListBuffer<Env<AttrContext>> one = new ListBuffer<>();
+                one.append(todo.remove());
+                Queue<Env<AttrContext>> envs = flow(attribute(one));
+                if (envs.isEmpty()) continue;
+                Log.DeferredDiagnosticHandler h = new Log.DeferredDiagnosticHandler(log);
+                try {
+                    desugar(envs);
+                } finally {
+                    log.popDiagnosticHandler(h);
+                    results.add(h);
+                }
+            }
+        } catch (PropagatedException e) {
+            // cancelation
+        } catch (Abort e) {
+            // as in JavaCompiler.compile2
+        } finally {
+            escPipelined = false;
+            if (errorCount() > 0) {
+                context.get(Main.IProgressListener.class).report(1,"Operation not performed because of parse or type errors");
+            } else {
+                for (Log.DeferredDiagnosticHandler h: results) h.reportDeferredDiagnostics();
+                String summary = esc.reportCounts();
+                if (utils.jmlverbose >= Utils.PROGRESS && !Utils.testingMode) log.note("jml.message", summary);
+            }
+        }
     }
     
 }
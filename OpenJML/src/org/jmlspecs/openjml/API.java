@@ -256,7 +256,7 @@ public class API implements IAPI {
     
     @Override
     public void clearTypes(Collection<? extends JCCompilationUnit> trees) {
-        //for (JCCompilationUnit t: trees) new JmlClearTypes(context).scan(t);
+        for (JCCompilationUnit t: trees) new JmlClearTypes(context()).scan(t);
     }
 
 
@@ -0,0 +1,435 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+import org.jmlspecs.openjml.IAPI.IProofResultListener;
+import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
+import org.jmlspecs.openjml.JmlTree.JmlCompilationUnit;
+import org.jmlspecs.openjml.proverinterface.IProverResult;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.util.BaseFileManager;
+
+/** A long-lived verification server: it keeps one compilation context (an
+ * IAPI object) across requests, so that library classes, their specifications
+ * and the JIT-compiled tool itself stay warm.
+ * <P>
+ * The server is started with the options to use for every request, e.g.
+ * <PRE>
+ * java org.jmlspecs.openjml.Daemon [-port N] [openjml options]
+ * </PRE>
+ * Without -port it reads requests from standard input and writes responses to
+ * standard output; with -port it accepts connections on that port of the
+ * loopback interface, one at a time. Each request is one line of JSON:
+ * <PRE>
+ * {"id":1, "command":"check", "files":["src/A.java", ...]}
+ * {"id":2, "command":"esc",   "files":["src/A.java", ...]}
+ * {"id":3, "command":"reset"}
+ * {"id":4, "command":"exit"}
+ * </PRE>
+ * and each response is a sequence of lines of JSON, each with the id of the
+ * request: "diagnostic" and "proof" events as they occur, then a "done" event
+ * with the number of errors (or an "error" event if the request could not be
+ * carried out). The errors counted include those reported when the files were
+ * last checked, though a file that has not changed is not checked again and
+ * its diagnostics are not sent again; files with errors are not proved.
+ * <P>
+ * Source files are re-parsed only when they change (by modification time).
+ * When a file has changed, the types of all the source files held by the
+ * server are cleared (by API.clearTypes), along with the index of the specs
+ * path, and those files are parsed (which replaces their nowarn annotations)
+ * and checked again, since any of them may depend on the changed one; the
+ * library classes and specifications are kept. The "reset" command discards
+ * the whole context.
+ */
+public class Daemon {
+
+    /** The options given when the server was started, used for every context */
+    final protected String[] options;
+
+    /** The current compilation context */
+    protected IAPI api;
+
+    /** The source files held in the current context, by canonical path */
+    final protected Map<String,Unit> units = new LinkedHashMap<String,Unit>();
+
+    /** Where responses are written */
+    protected PrintWriter out;
+
+    /** The id of the request being processed */
+    protected JsonElement currentId;
+
+    /** The number of error diagnostics reported for the current request,
+     * other than those kept with the units or in loadErrors */
+    protected int errors;
+
+    /** The number of error diagnostics reported, while the units were last
+     * parsed and typechecked, that are not in the file of any unit */
+    protected int loadErrors;
+
+    /** True while units are being parsed and typechecked */
+    protected boolean loading;
+
+    /** The unit of each source file object parsed */
+    final protected Map<JavaFileObject,Unit> sources = new IdentityHashMap<JavaFileObject,Unit>();
+
+    final protected Gson gson = new Gson();
+
+    /** A source file held by the server */
+    static protected class Unit {
+        final File file;
+        long modified;
+        JmlCompilationUnit tree;
+        /** The number of errors reported in the file when it was last parsed and typechecked */
+        int errors;
+        Unit(File file) { this.file = file; }
+    }
+
+    /** A source file whose content is read, with the given encoding, when it
+     * is created. Each version of a file is a distinct object, so that the
+     * compiler does not mistake a changed file for one it has already read. */
+    static protected class SnapshotFileObject extends SimpleJavaFileObject {
+        final protected String content;
+
+        protected SnapshotFileObject(File file, Charset encoding) throws IOException {
+            super(file.toURI(), Kind.SOURCE);
+            this.content = new String(Files.readAllBytes(file.toPath()), encoding);
+        }
+
+        @Override
+        public String getName() {
+            return new File(toUri()).getPath();
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    public Daemon(String[] options) {
+        this.options = options;
+    }
+
+    /** Creates the compilation context, with listeners that turn diagnostics
+     * and proof results into events of the current request */
+    protected void newContext() throws Exception {
+        units.clear();
+        sources.clear();
+        loadErrors = 0;
+        DiagnosticListener<JavaFileObject> diagListener = new DiagnosticListener<JavaFileObject>() {
+            @Override
+            public void report(Diagnostic<? extends JavaFileObject> d) {
+                if (d.getKind() == Diagnostic.Kind.ERROR) {
+                    Unit u = d.getSource() == null ? null : sources.get(d.getSource());
+                    if (u != null) u.errors++;
+                    else if (loading) loadErrors++;
+                    else errors++;
+                }
+                JsonObject e = event("diagnostic");
+                e.addProperty("kind", d.getKind().toString());
+                if (d.getSource() != null) e.addProperty("file", d.getSource().getName());
+                if (d.getLineNumber() != Diagnostic.NOPOS) {
+                    e.addProperty("line", d.getLineNumber());
+                    e.addProperty("column", d.getColumnNumber());
+                }
+                e.addProperty("code", d.getCode());
+                e.addProperty("message", d.getMessage(Locale.getDefault()));
+                send(e);
+            }
+        };
+        api = Factory.makeAPI(new PrintWriter(new OutputStreamWriter(System.err), true), diagListener, null, options);
+        api.setProofResultListener(new IProofResultListener() {
+            @Override
+            public void reportProofResult(MethodSymbol msym, IProverResult result) {
+                JsonObject e = event("proof");
+                e.addProperty("method", Utils.instance(api.context()).qualifiedMethodSig(msym));
+                e.addProperty("result", result.result().toString());
+                if (result.prover() != null) e.addProperty("prover", result.prover());
+                send(e);
+            }
+        });
+    }
+
+    protected JsonObject event(String kind) {
+        JsonObject e = new JsonObject();
+        if (currentId != null) e.add("id", currentId);
+        e.addProperty("event", kind);
+        return e;
+    }
+
+    protected synchronized void send(JsonObject e) {
+        out.println(gson.toJson(e));
+        out.flush();
+    }
+
+    /** Brings the given files up to date in the context, returning the trees
+     * for them; returns null (after sending an error event) if a file cannot
+     * be read. */
+    protected List<JmlCompilationUnit> load(List<File> files) throws IOException {
+        // Find out whether anything has changed
+        boolean changed = false;
+        Map<String,File> requested = new LinkedHashMap<String,File>();
+        for (File f: files) {
+            if (!f.isFile()) {
+                JsonObject e = event("error");
+                e.addProperty("message", "No such file: " + f);
+                send(e);
+                return null;
+            }
+            String key = f.getCanonicalPath();
+            requested.put(key, f);
+            Unit u = units.get(key);
+            if (u == null) continue;
+            if (u.modified != f.lastModified()) changed = true;
+        }
+        Iterator<Unit> iter = units.values().iterator();
+        while (iter.hasNext()) {
+            Unit u = iter.next();
+            if (!u.file.isFile()) {
+                changed = true;
+                iter.remove();
+            } else if (u.modified != u.file.lastModified()) {
+                changed = true;
+            }
+        }
+
+        // A change invalidates all the source units held, since they may depend on it
+        List<Unit> toParse = new ArrayList<Unit>();
+        if (changed) {
+            List<JCTree.JCCompilationUnit> old = new ArrayList<JCTree.JCCompilationUnit>();
+            for (Unit u: units.values()) {
+                if (u.tree != null) old.add(u.tree);
+                u.tree = null;
+                toParse.add(u);
+            }
+            api.clearTypes(old);
+            sources.clear();
+            loadErrors = 0;
+            // Specification files may have come or gone along with the change
+            JmlSpecs.instance(api.context()).invalidateSpecsIndex(null);
+        }
+        for (Map.Entry<String,File> e: requested.entrySet()) {
+            if (!units.containsKey(e.getKey())) {
+                Unit u = new Unit(e.getValue());
+                units.put(e.getKey(), u);
+                toParse.add(u);
+            }
+        }
+
+        if (!toParse.isEmpty()) {
+            Charset encoding = encoding();
+            JavaFileObject[] jfos = new JavaFileObject[toParse.size()];
+            for (int i = 0; i < jfos.length; i++) {
+                Unit u = toParse.get(i);
+                u.modified = u.file.lastModified();
+                u.errors = 0;
+                jfos[i] = new SnapshotFileObject(u.file, encoding);
+                sources.put(jfos[i], u);
+            }
+            loading = true;
+            try {
+                // parseFiles need not return a tree for each file, nor in order
+                List<JmlCompilationUnit> trees = api.parseFiles(jfos);
+                for (JmlCompilationUnit t: trees) {
+                    Unit u = sources.get(t.sourcefile);
+                    if (u != null) u.tree = t;
+                }
+                api.typecheck(trees);
+            } finally {
+                loading = false;
+            }
+        }
+
+        List<JmlCompilationUnit> result = new ArrayList<JmlCompilationUnit>();
+        for (String key: requested.keySet()) {
+            Unit u = units.get(key);
+            if (u.tree != null) result.add(u.tree);
+        }
+        return result;
+    }
+
+    /** The encoding with which the compiler reads source files (-encoding) */
+    protected Charset encoding() {
+        JavaFileManager fm = api.context().get(JavaFileManager.class);
+        if (fm instanceof BaseFileManager) {
+            try {
+                return Charset.forName(((BaseFileManager)fm).getEncodingName());
+            } catch (IllegalArgumentException e) {
+                // An unknown encoding has already been reported as an error by the compiler
+            }
+        }
+        return Charset.defaultCharset();
+    }
+
+    /** The number of errors held against the given trees: those in their
+     * files and those of the last load not in the file of any unit */
+    protected int heldErrors(List<JmlCompilationUnit> trees) {
+        int n = loadErrors;
+        for (JmlCompilationUnit cu: trees) {
+            Unit u = sources.get(cu.sourcefile);
+            if (u != null) n += u.errors;
+        }
+        return n;
+    }
+
+    /** Carries out one request; returns false if the server should stop */
+    protected boolean process(String line) {
+        JsonObject request;
+        try {
+            request = new JsonParser().parse(line).getAsJsonObject();
+        } catch (RuntimeException e) {
+            currentId = null;
+            JsonObject ev = event("error");
+            ev.addProperty("message", "Malformed request: " + e.getMessage());
+            send(ev);
+            return true;
+        }
+        currentId = request.get("id");
+        errors = 0;
+        int held = 0;
+        String command = request.has("command") ? request.get("command").getAsString() : "";
+        try {
+            switch (command) {
+                case "exit":
+                    send(event("done"));
+                    return false;
+                case "reset":
+                    newContext();
+                    break;
+                case "check":
+                case "esc": {
+                    List<File> files = new ArrayList<File>();
+                    if (request.has("files")) {
+                        JsonArray a = request.getAsJsonArray("files");
+                        for (JsonElement f: a) files.add(new File(f.getAsString()));
+                    }
+                    List<JmlCompilationUnit> trees = load(files);
+                    if (trees == null) return true;
+                    held = heldErrors(trees);
+                    if (command.equals("esc") && errors == 0 && loadErrors == 0) {
+                        for (JmlCompilationUnit cu: trees) {
+                            // Units with errors are not attributed well enough to be proved
+                            Unit u = sources.get(cu.sourcefile);
+                            if (u != null && u.errors != 0) continue;
+                            for (JCTree t: cu.defs) {
+                                if (t instanceof JmlClassDecl && ((JmlClassDecl)t).sym != null) {
+                                    api.doESC(((JmlClassDecl)t).sym);
+                                }
+                            }
+                        }
+                    }
+                    break;
+                }
+                default: {
+                    JsonObject ev = event("error");
+                    ev.addProperty("message", "Unknown command: " + command);
+                    send(ev);
+                    return true;
+                }
+            }
+            JsonObject done = event("done");
+            done.addProperty("errors", errors + held);
+            send(done);
+        } catch (Exception e) {
+            JsonObject ev = event("error");
+            ev.addProperty("message", e.toString());
+            send(ev);
+            // The context may be in an inconsistent state; start afresh next time
+            try { newContext(); } catch (Exception ee) { /* reported on the next request */ }
+        }
+        return true;
+    }
+
+    /** Serves requests from the given reader until it is exhausted or an
+     * exit request is received; returns false after an exit request. */
+    public boolean serve(BufferedReader in, Writer w) throws IOException {
+        out = new PrintWriter(w);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.trim().isEmpty()) continue;
+            if (!process(line)) return false;
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        int port = -1;
+        List<String> opts = new ArrayList<String>(Arrays.asList(args));
+        int k = opts.indexOf("-port");
+        if (k >= 0 && k+1 < opts.size()) {
+            port = Integer.parseInt(opts.get(k+1));
+            opts.remove(k+1);
+            opts.remove(k);
+        }
+        Daemon daemon = new Daemon(opts.toArray(new String[opts.size()]));
+        try {
+            daemon.out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            daemon.newContext();
+            if (port < 0) {
+                daemon.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                        new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            } else {
+                try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+                    boolean more = true;
+                    while (more) {
+                        try (Socket s = server.accept()) {
+                            more = daemon.serve(new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8)),
+                                    new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("OpenJML daemon failed: " + e);
+            System.exit(3);
+        }
+        System.exit(0);
+    }
+}
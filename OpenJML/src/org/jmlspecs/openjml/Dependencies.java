@@ -18,14 +18,13 @@ import org.jmlspecs.annotation.Nullable;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.List;
 
+/** This class records, for one compilation context, which source files
+ * depend on which others; the dependencies are recorded as the files are
+ * attributed (with -incremental). They are carried from one run to the next
+ * by the DependencyIndex, which is saved in a file, rather than being kept in
+ * memory across compilation contexts.
+ */
 public class Dependencies {
-    // FIXME - The computing and handling of dependencies needs reworking.
-    // The map in this class is static, because otherwise the information
-    // is lost from one compilation context to another.  However, this way it
-    // keeps accumulating information forever and will hold on to everything else
-    // in the system, and run out of memory.  Need a better solution.
-    // OK for command-line tools but not for the api or Eclipse.
-    // 
 
     /** The key to use to retrieve the instance of this class from the Context object. */
     /*@ non_null */
@@ -55,7 +54,6 @@ public class Dependencies {
      */
     protected Dependencies(@NonNull Context context) {
         context.put(dependenciesKey, this); // register itself
-        if (dependsOnMap == null) dependsOnMap = new HashMap<JavaFileObject, Set<JavaFileObject>>();
         // NOTE: Although you might get away with it, the goal is to have
         // this class be independent of all the other tools
     }
@@ -64,7 +62,13 @@ public class Dependencies {
      * 
      */
     @NonNull
-    static protected Map<JavaFileObject,Set<JavaFileObject>> dependsOnMap = null;
+    protected Map<JavaFileObject,Set<JavaFileObject>> dependsOnMap = new HashMap<JavaFileObject, Set<JavaFileObject>>();
+    
+    /** The map holding the set of things that a given object depends on
+     * (the inverse of dependsOnMap).
+     */
+    @NonNull
+    protected Map<JavaFileObject,Set<JavaFileObject>> usesMap = new HashMap<JavaFileObject, Set<JavaFileObject>>();
     
     /** Record that item a needs to be recompiled if b changes */
     public void dependsOn(@NonNull JavaFileObject a, @NonNull JavaFileObject b) {
@@ -72,6 +76,9 @@ public class Dependencies {
         Set<JavaFileObject> t = dependsOnMap.get(b);
         if (t == null) dependsOnMap.put(b, t = new HashSet<JavaFileObject>());
         t.add(a);
+        t = usesMap.get(a);
+        if (t == null) usesMap.put(a, t = new HashSet<JavaFileObject>());
+        t.add(b);
     }
     
     /** Record that item a needs to be recompiled if anything in array b changes */
@@ -94,4 +101,10 @@ public class Dependencies {
     public @Nullable Set<JavaFileObject> getAffected(@NonNull JavaFileObject a) {
         return dependsOnMap.get(a);
     }
+    
+    /** Returns the Set of items that the argument depends on.
+     * A null result is equivalent to an empty set. */
+    public @Nullable Set<JavaFileObject> getUses(@NonNull JavaFileObject a) {
+        return usesMap.get(a);
+    }
 }
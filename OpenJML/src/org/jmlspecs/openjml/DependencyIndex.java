@@ -0,0 +1,367 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.JCDiagnostic;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Options;
+
+/** The file-level dependency index used by -incremental. It is kept in the
+ * file {@link #fileName} in the output directory (-d), or in the current
+ * directory if there is none, and records for each source or specification
+ * file that has been processed
+ * <UL>
+ * <LI>its modification time when it was last processed without warnings or
+ * errors against it, separately for each profile (the command, such as check
+ * or esc, together with the options that can change its results), and
+ * <LI>the files it depended on then (as recorded in Dependencies while the
+ * file was attributed).
+ * </UL>
+ * From these the index computes the reverse dependencies: given the files
+ * named for a run, those that have changed (or were never processed
+ * successfully), together with the named files that depend on them directly
+ * or indirectly, are the ones to process again; the others are skipped.
+ * <P>
+ * So switching from check to esc, or changing an option such as -timeout,
+ * processes the files again, and a file whose proofs failed is processed
+ * again on the next run even if nothing has changed.
+ * <P>
+ * Files are identified by canonical path, so only files in the file system
+ * (not in jars) take part.
+ */
+public class DependencyIndex {
+
+    /** The name of the file holding the index */
+    public static final String fileName = "openjml.deps";
+
+    /** The key used to register an instance of DependencyIndex in the compilation context */
+    protected static final Context.Key<DependencyIndex> dependencyIndexKey =
+        new Context.Key<DependencyIndex>();
+
+    /** The method used to obtain the singleton instance of DependencyIndex for this compilation context */
+    public static DependencyIndex instance(Context context) {
+        DependencyIndex instance = context.get(dependencyIndexKey);
+        if (instance == null) {
+            instance = new DependencyIndex(context);
+            context.put(dependencyIndexKey,instance);
+        }
+        return instance;
+    }
+
+    final protected Context context;
+
+    /** The file holding the index */
+    final protected File file;
+
+    /** The index, as read from the file and then updated: for a file with
+     * canonical path p and the profile r of a run, p.stamp#r is the
+     * modification time at which it was last processed without warnings or
+     * errors, p.seen#r the modification time it had when files depending on
+     * it were last processed (if that is not its stamp), and p.uses the files
+     * it depends on, one per line */
+    final protected Properties props = new Properties();
+
+    /** The files attributed in this run, by canonical path */
+    final protected Map<String,JavaFileObject> attributed = new LinkedHashMap<String,JavaFileObject>();
+
+    /** The files (by canonical path) against which a warning or an error has
+     * been reported in this run */
+    final protected Set<String> reported = new HashSet<String>();
+
+    /** The options that do not change the results of a run (only what is
+     * shown, or how fast it is), and so are not part of its profile */
+    protected static final Set<String> unprofiled = new HashSet<String>(Arrays.asList(
+            JmlOption.INCREMENTAL.optionName(),
+            JmlOption.VERBOSENESS.optionName(), JmlOption.QUIET.optionName(),
+            JmlOption.NORMAL.optionName(), JmlOption.PROGRESS.optionName(),
+            JmlOption.JMLVERBOSE.optionName(), JmlOption.JMLDEBUG.optionName(),
+            JmlOption.SKIPPED.optionName(), JmlOption.SHOW.optionName(),
+            JmlOption.SHOW_OPTIONS.optionName(), JmlOption.TIMINGS.optionName(),
+            JmlOption.BENCHMARKS.optionName(), JmlOption.PARSE_THREADS.optionName(),
+            JmlOption.SPECS_INDEX_FILE.optionName(), JmlOption.SOLVER_STATISTICS.optionName(),
+            JmlOption.ESC_PIPELINE.optionName(), JmlOption.ESC_BOUNDED_MEMORY.optionName(),
+            JmlOption.ESC_AUTO_SPLIT_FILE.optionName()));
+
+    /** The profile of this run: the command, and a hash of the values of the
+     * options that can change its results */
+    final protected String profile;
+
+    protected DependencyIndex(Context context) {
+        this.context = context;
+        Options options = Options.instance(context);
+        String dir = options.get("-d");
+        this.file = new File(dir == null ? "." : dir, fileName);
+        this.profile = profile(options);
+        try {
+            load(file, props);
+        } catch (IOException e) {
+            Log.instance(context).warning("jml.message", "Could not read the dependency index " + file + ": " + e);
+            props.clear();
+        }
+        new Reported(Log.instance(context));
+    }
+
+    /** Returns the profile of a run with the given options; it contains no
+     * period, so that the path of a key is what precedes its last period */
+    protected static String profile(Options options) {
+        StringBuilder sb = new StringBuilder();
+        for (String key: new TreeSet<String>(options.keySet())) {
+            if (!key.startsWith("-") || unprofiled.contains(key)) continue;
+            String v = options.get(key);
+            if (v == null || v.isEmpty() || v.equals("null")) continue; // Not set
+            if (key.endsWith("path")) {
+                // A repeated element of a path changes nothing
+                v = String.join(File.pathSeparator, new LinkedHashSet<String>(Arrays.asList(v.split(File.pathSeparator))));
+            }
+            sb.append(key).append('=').append(v).append('\n');
+        }
+        String command = options.get(JmlOption.COMMAND.optionName());
+        return (command == null ? "check" : command.replace('.', '_')) + "-" + Integer.toHexString(sb.toString().hashCode());
+    }
+
+    /** Notes the files against which warnings and errors are reported, and
+     * passes the diagnostics on */
+    protected class Reported extends Log.DiagnosticHandler {
+        Reported(Log log) {
+            install(log);
+        }
+
+        @Override
+        public void report(JCDiagnostic diag) {
+            Diagnostic.Kind kind = diag.getKind();
+            if (kind == Diagnostic.Kind.ERROR || kind == Diagnostic.Kind.WARNING || kind == Diagnostic.Kind.MANDATORY_WARNING) {
+                JavaFileObject f = diag.getSource();
+                String p = f == null ? null : path(f);
+                if (p != null) reported.add(p);
+            }
+            prev.report(diag);
+        }
+    }
+
+    /** The key of the stamp of the file for this profile */
+    protected String stampKey(String path) {
+        return path + ".stamp#" + profile;
+    }
+
+    /** The key of the time the file was seen as a dependency, for this profile */
+    protected String seenKey(String path) {
+        return path + ".seen#" + profile;
+    }
+
+    /** Reads the index in the given file, if it exists, into props */
+    protected static void load(File file, Properties props) throws IOException {
+        if (!file.exists()) return;
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+    }
+
+    /** Returns the files (by canonical path) that depend, directly or
+     * indirectly, on any of the given files, according to the index kept in
+     * the given directory; the given files themselves are not included unless
+     * they depend on one another. This lets a caller that knows which files
+     * have changed (such as an IDE builder) find the others to process. */
+    public static Set<String> dependents(File dir, Collection<File> changed) {
+        Properties props = new Properties();
+        try {
+            load(new File(dir, fileName), props);
+        } catch (IOException e) {
+            // No usable index: nothing is known to depend on anything
+        }
+        Set<String> result = new LinkedHashSet<String>();
+        Deque<String> todo = new ArrayDeque<String>();
+        for (File f: changed) {
+            String p = path(f);
+            if (p != null) todo.add(p);
+        }
+        close(reverse(props), todo, result);
+        return result;
+    }
+
+    /** The reverse dependencies recorded in props: for each file, the files
+     * that use it */
+    protected static Map<String,Set<String>> reverse(Properties props) {
+        Map<String,Set<String>> affects = new HashMap<String,Set<String>>();
+        for (String key: props.stringPropertyNames()) {
+            if (!key.endsWith(".uses")) continue;
+            String uses = props.getProperty(key);
+            if (uses.isEmpty()) continue;
+            String p = key.substring(0, key.length() - ".uses".length());
+            for (String u: uses.split("\n")) {
+                Set<String> s = affects.get(u);
+                if (s == null) affects.put(u, s = new HashSet<String>());
+                s.add(p);
+            }
+        }
+        return affects;
+    }
+
+    /** Adds to 'affected' the files that depend, directly or indirectly, on
+     * those in 'todo' (which is emptied) */
+    protected static void close(Map<String,Set<String>> affects, Deque<String> todo, Set<String> affected) {
+        while (!todo.isEmpty()) {
+            Set<String> s = affects.get(todo.remove());
+            if (s == null) continue;
+            for (String p: s) if (affected.add(p)) todo.add(p);
+        }
+    }
+
+    /** The canonical path of the file, or null if it is not a file in the file system */
+    //@ nullable
+    public static String path(File f) {
+        if (!f.isFile()) return null;
+        try {
+            return f.getCanonicalPath();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** The canonical path of the file object, or null if it is not a file in the file system */
+    //@ nullable
+    public static String path(JavaFileObject f) {
+        return path(new File(f.getName()));
+    }
+
+    /** True if the file has not been processed, with this profile, without
+     * warnings or errors at its current modification time */
+    protected boolean unchecked(String path) {
+        return !Long.toString(new File(path).lastModified()).equals(props.getProperty(stampKey(path)));
+    }
+
+    /** True if the file has changed since the files depending on it were
+     * processed with this profile */
+    protected boolean changed(String path) {
+        return unchecked(path) && !Long.toString(new File(path).lastModified()).equals(props.getProperty(seenKey(path)));
+    }
+
+    /** Returns the paths of the files recorded in the index */
+    protected Set<String> recorded() {
+        Set<String> paths = new HashSet<String>();
+        for (String key: props.stringPropertyNames()) {
+            paths.add(key.substring(0, key.lastIndexOf('.')));
+        }
+        return paths;
+    }
+
+    /** Returns the subset of the given files that must be processed: those
+     * that have changed, and those that depend, directly or indirectly, on a
+     * changed file (whether or not that file is among those given). A file
+     * that is not in the file system is always processed. The order of the
+     * files is kept. */
+    public List<File> select(Collection<File> files) {
+        // The reverse dependencies, and the changed files
+        Map<String,Set<String>> affects = reverse(props);
+        Deque<String> todo = new ArrayDeque<String>();
+        Set<String> affected = new HashSet<String>();
+        for (String p: recorded()) {
+            if (!new File(p).isFile()) {
+                // Removed since the last run; it affects the files that used it
+                for (String key: props.stringPropertyNames()) {
+                    if (key.lastIndexOf('.') == p.length() && key.startsWith(p)) props.remove(key);
+                }
+                todo.add(p);
+            } else if (changed(p) && affected.add(p)) {
+                todo.add(p);
+            }
+        }
+        Map<File,String> paths = new HashMap<File,String>();
+        for (File f: files) {
+            String p = path(f);
+            if (p == null) continue;
+            paths.put(f, p);
+            // A specification file is not itself attributed; it is processed
+            // with the source file it belongs to, which depends on it
+            boolean process = p.endsWith(Strings.specsSuffix) ? changed(p) : unchecked(p);
+            if (process && affected.add(p)) todo.add(p);
+        }
+        close(affects, todo, affected);
+
+        List<File> result = new ArrayList<File>();
+        for (File f: files) {
+            String p = paths.get(f);
+            if (p == null || affected.contains(p)) result.add(f);
+        }
+        return result;
+    }
+
+    /** Notes that the given source file has been attributed in this run */
+    public void attributed(JavaFileObject f) {
+        String p = path(f);
+        if (p != null) attributed.put(p, f);
+    }
+
+    /** Records the dependencies of the files attributed in this run and
+     * writes the index. A file's modification time is recorded only if the
+     * run finished without errors (so that every attributed file was
+     * processed to the end) and no warning or error was reported against the
+     * file; otherwise the file is processed again on the next run (along with
+     * the files that depend on it). */
+    public void save(Dependencies dependencies, boolean noErrors) {
+        for (Map.Entry<String,JavaFileObject> e: attributed.entrySet()) {
+            String p = e.getKey();
+            Set<String> uses = new LinkedHashSet<String>();
+            Set<JavaFileObject> u = dependencies.getUses(e.getValue());
+            if (u != null) {
+                for (JavaFileObject f: u) {
+                    String up = path(f);
+                    if (up != null && !up.equals(p)) uses.add(up);
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            for (String up: uses) {
+                if (sb.length() != 0) sb.append('\n');
+                sb.append(up);
+                // A dependency that was not itself processed is recorded as it
+                // is now, so that a later change to it is noticed, unless
+                // something was reported against it
+                if (!attributed.containsKey(up) && changed(up)) {
+                    if (noErrors && !reported.contains(up)) {
+                        props.setProperty(seenKey(up), Long.toString(new File(up).lastModified()));
+                    } else {
+                        props.remove(seenKey(up));
+                    }
+                }
+            }
+            props.setProperty(p + ".uses", sb.toString());
+            if (noErrors && !reported.contains(p)) {
+                props.setProperty(stampKey(p), Long.toString(new File(p).lastModified()));
+                props.remove(seenKey(p));
+            } else {
+                props.remove(stampKey(p));
+            }
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            props.store(out, "OpenJML dependency index");
+        } catch (IOException e) {
+            Log.instance(context).warning("jml.message", "Could not write the dependency index " + file + ": " + e);
+        }
+    }
+}
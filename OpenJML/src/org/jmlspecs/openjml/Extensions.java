@@ -4,7 +4,13 @@
  */
 package org.jmlspecs.openjml;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -13,10 +19,11 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.nio.charset.StandardCharsets;
 
 import org.eclipse.core.runtime.Platform;
 import org.jmlspecs.annotation.Nullable;
@@ -138,7 +145,15 @@ public class Extensions {
             
             };
     
-    static public Map<String,IJmlClauseKind> allKinds = new HashMap<>();
+    // Each compilation context registers the extensions again, possibly while
+    // another context (in another thread) is looking them up
+    static public Map<String,IJmlClauseKind> allKinds = new ConcurrentHashMap<>();
+    
+    /** The resource listing the built-in extension classes, one fully-qualified
+     * name per line, in registration order; it is generated when the release
+     * is built (by running main) so that the classpath need not be scanned at
+     * startup. */
+    static public final String extensionIndex = "org/jmlspecs/openjml/ext/extensions.index";
 
     // This static method runs through all the extension classes and adds
     // appropriate information to the HashMap above, so extensions can be 
@@ -148,7 +163,7 @@ public class Extensions {
     public static void register(Context context) {
         Package p = Package.getPackage("org.jmlspecs.openjml.ext");
         try {
-            registerPackage(context,p);
+            if (!registerFromIndex(context)) registerPackage(context,p);
         } catch (java.io.IOException e) {
             throw new RuntimeException(e);
         }
@@ -187,6 +202,59 @@ public class Extensions {
         }
     }
     
+    /** Registers the classes listed in the extension index, if there is one;
+     * returns false if there is no index, in which case the classes must be
+     * found by findClasses.
+     */
+    public static boolean registerFromIndex(Context context) throws java.io.IOException {
+        ClassLoader loader = Extensions.class.getClassLoader();
+        InputStream in = loader == null ? null : loader.getResourceAsStream(extensionIndex);
+        if (in == null) return false;
+        boolean verbose = Utils.instance(context).jmlverbose >= Utils.JMLDEBUG;
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                try {
+                    Class<?> c = Class.forName(line);
+                    if (!registerClass(context,c) && verbose) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Failed to register " + line);
+                } catch (Exception e) {
+                    if (verbose) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Failed to register " + line);
+                }
+            }
+        }
+        if (verbose) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Registered extensions from " + extensionIndex);
+        return true;
+    }
+    
+    /** Writes the extension index for the built-in extension package to the
+     * file named by the argument; this is run as part of building a release,
+     * with the compiled classes on the classpath. */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: java org.jmlspecs.openjml.Extensions <output file>");
+            System.exit(2);
+        }
+        String packageName = "org.jmlspecs.openjml.ext";
+        java.util.List<String> names = findClassNames(packageName, new int[1]);
+        File out = new File(args[0]);
+        if (out.getParentFile() != null) out.getParentFile().mkdirs();
+        try (PrintWriter w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8))) {
+            w.println("# Generated by org.jmlspecs.openjml.Extensions - do not edit");
+            for (String name: new java.util.LinkedHashSet<String>(names)) {
+                String fullname = packageName + "." + name;
+                try {
+                    Class<?> c = Class.forName(fullname, false, Extensions.class.getClassLoader());
+                    if (Modifier.isAbstract(c.getModifiers()) || !JmlExtension.class.isAssignableFrom(c)) continue;
+                    w.println(fullname);
+                } catch (Throwable e) {
+                    // Not a loadable class - skip it, as findClasses does
+                }
+            }
+        }
+    }
+    
     public static boolean registerClass(Context context, Class<?> cce) {
         if (!JmlExtension.class.isAssignableFrom(cce)) return false; // Extension classes must inherit from JmlExtensionn
         @SuppressWarnings("unchecked")
@@ -210,9 +278,51 @@ public class Extensions {
     //    the plug-in ID as a literal; this approach won't work and may fail
     //    catastrophically when used outside of Eclipse.
     public static java.util.List<Class<?>> findClasses(Context context, Package p) throws java.io.IOException {
+        String packageName = p.getName();
+        int[] method = { -1 };
+        java.util.List<String> foundClassNames = findClassNames(packageName, method);
+        int methodThatWorked = method[0];
+        ArrayList<Class<?>> classes = new ArrayList<Class<?>>();
+        if (foundClassNames.isEmpty()) {
+            //System.out.println("LAST RESORT EXTENSION");
+            // Last resort
+            Log.instance(context).warning("jml.internal.notsobad","Last resort loading of extensions");
+            for (Class<?> cl : extensions) {
+                try {
+                    registerClass(context,cl);
+                    if (Utils.instance(context).jmlverbose >= Utils.JMLDEBUG) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Registered extensions using technique " + methodThatWorked);
+                    classes.add(cl);
+                } catch (Exception e) {
+                    if (Utils.instance(context).jmlverbose >= Utils.JMLDEBUG) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Failed to register " + cl.getName());
+                }
+            }
+
+        } else {
+        
+            for (String name: foundClassNames) {
+                String fullname = packageName + "." + name;
+                try {
+                    Class<?> c = Class.forName(fullname);
+                    if (Modifier.isAbstract(c.getModifiers())) continue;
+                    registerClass(context,c);
+                    if (Utils.instance(context).jmlverbose >= Utils.JMLDEBUG) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Registered extensions using technique " + methodThatWorked);
+                    classes.add(c);
+                } catch (Exception e) {
+                    // Just skip if there is any exception, such as a
+                    // Class or Method not found.
+                    if (Utils.instance(context).jmlverbose >= Utils.JMLDEBUG) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Failed to register " + fullname);
+                }
+            }
+        }
+        return classes;
+    }
+    
+    /** Finds the simple names of the classes in the given package, by the
+     * methods described above; method[0] is set to the number of the method
+     * that found them. */
+    public static java.util.List<String> findClassNames(String packageName, int[] method) throws java.io.IOException {
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         assert classLoader != null;
-        String packageName = p.getName();
         String path = packageName.replace('.', '/');
         ArrayList<String> foundClassNames = new ArrayList<String>();
         int methodThatWorked = -1;
@@ -290,39 +400,8 @@ public class Extensions {
                 // This will happen if we are not in a plug-in
             }
         }
-        ArrayList<Class<?>> classes = new ArrayList<Class<?>>();
-        if (foundClassNames.isEmpty()) {
-            //System.out.println("LAST RESORT EXTENSION");
-            // Last resort
-            Log.instance(context).warning("jml.internal.notsobad","Last resort loading of extensions");
-            for (Class<?> cl : extensions) {
-                try {
-                    registerClass(context,cl);
-                    if (Utils.instance(context).jmlverbose >= Utils.JMLDEBUG) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Registered extensions using technique " + methodThatWorked);
-                    classes.add(cl);
-                } catch (Exception e) {
-                    if (Utils.instance(context).jmlverbose >= Utils.JMLDEBUG) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Failed to register " + cl.getName());
-                }
-            }
-
-        } else {
-        
-            for (String name: foundClassNames) {
-                String fullname = packageName + "." + name;
-                try {
-                    Class<?> c = Class.forName(fullname);
-                    if (Modifier.isAbstract(c.getModifiers())) continue;
-                    registerClass(context,c);
-                    if (Utils.instance(context).jmlverbose >= Utils.JMLDEBUG) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Registered extensions using technique " + methodThatWorked);
-                    classes.add(c);
-                } catch (Exception e) {
-                    // Just skip if there is any exception, such as a
-                    // Class or Method not found.
-                    if (Utils.instance(context).jmlverbose >= Utils.JMLDEBUG) Log.instance(context).getWriter(Log.WriterKind.NOTICE).println("Failed to register " + fullname);
-                }
-            }
-        }
-        return classes;
+        method[0] = methodThatWorked;
+        return foundClassNames;
     }
     
 }
@@ -15,7 +15,6 @@ import static org.jmlspecs.openjml.JmlTokenKind.ENDJMLCOMMENT;
 import java.lang.reflect.Constructor;
 import java.util.function.Function;
 
-import org.jmlspecs.annotation.NonNull;
 import org.jmlspecs.annotation.Nullable;
 import org.jmlspecs.openjml.JmlTree.JmlAbstractStatement;
 import org.jmlspecs.openjml.JmlTree.JmlMethodInvocation;
@@ -24,14 +23,12 @@ import org.jmlspecs.openjml.JmlTree.JmlSingleton;
 import org.jmlspecs.openjml.JmlTree.JmlSource;
 
 import com.sun.tools.javac.code.Kinds;
-import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.comp.Attr;
 import com.sun.tools.javac.comp.AttrContext;
 import com.sun.tools.javac.comp.Env;
 import com.sun.tools.javac.comp.JmlAttr;
 import com.sun.tools.javac.parser.JmlParser;
-import com.sun.tools.javac.parser.JmlScanner;
 import com.sun.tools.javac.parser.JmlToken;
 import com.sun.tools.javac.parser.JmlTokenizer;
 import com.sun.tools.javac.parser.Tokens.TokenKind;
@@ -41,11 +38,8 @@ import com.sun.tools.javac.tree.JCTree.JCModifiers;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.util.ListBuffer;
-import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Name;
 import com.sun.tools.javac.util.Names;
-import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
-import com.sun.tools.javac.util.Log.WriterKind;
 
 /** Objects of this type represents kinds of JML clauses and statements, for example,
  *  requires clauses or the \old expression. Instances represent kinds of clauses,
@@ -98,85 +92,9 @@ public abstract class IJmlClauseKind {
      */
     public boolean freshExpressionAllowed() { return false; }
     
-    // The following fields are initialized on demand when parsing or typechecking
-    // They are not necessarily available when an instanceof IJmlClauseKind is created
-    
-    /** The compilation context */
-    protected /*@ non_null */ Context context;
-    //@ public constraint context == \old(context);
-
-    /** The parser in use, set when clause instances are being created */
-    protected /*@ non_null */ JmlParser parser;
-    
-    /** The scanner in use, set when clause instances are being created */
-    protected /*@ non_null */ JmlScanner scanner;
-    
-    /** The symbol table, set when the context is set */
-    protected Symtab syms;
-    
-    /** Set when the context is set */
-    protected Log log;
-    
-    /** Writes an error message to the log, using the given DiagnosticPosition
-     * (typically gotten from tree.pos()), 
-     * a key (as in the file org.jmlspecs.openjml.messages.properties)
-     * and arguments for that key
-     * @param pos the DiagnosticPosition used to identify the relevant location in the source file
-     * @param key the resource key holding the error message
-     * @param args (non-null) arguments for the key - there must be at least as many arguments as there are place-holders in the key string
-     */
-    public void error(DiagnosticPosition pos, String key, Object ... args) {
-        log.error(pos,key,args);
-    }
-    
-    /**
-     * Creates an error message for which the source is a range of characters,
-     * from begin up to and not including end; the identified line is that of
-     * the begin position.
-     */
-    public void error(int begin, int end, String key, Object... args) {
-        log.error(new JmlTokenizer.DiagnosticPositionSE(begin, end - 1), key,
-                args); // TODO - not unicode friendly
-    }
-
-    /** Writes a warning message to the log, using the given DiagnosticPosition
-     * (typically gotten from tree.pos()), a key (as in the file org.jmlspecs.openjml.messages.resources)
-     * and arguments for that key
-     * @param pos the DiagnosticPosition used to identify the relevant location in the source file
-     * @param key the resource key holding the error message
-     * @param args (non-null) arguments for the key - there must be at least as many arguments as there are place-holders in the key string
-     */
-    public void warning(DiagnosticPosition pos, String key, Object ... args) {
-        log.warning(pos,key,args);
-    }
-    
-    /**
-     * Creates a warning message for which the source is a range of characters,
-     * from begin up to and not including end; the identified line is that of
-     * the begin position.
-     */
-    public void warning(int begin, int end, String key, Object... args) {
-        log.warning(new JmlTokenizer.DiagnosticPositionSE(begin, end - 1), key,
-                args); // TODO - not unicode friendly
-    }
-
-    /** Writes an informational message to the log's noticeWriter (as with
-     * println).  To be used for informational or debugging information.
-     * @param msg the String to write
-     */
-    public void info(@NonNull String msg) {
-        log.getWriter(WriterKind.NOTICE).println(msg);
-    }
-    
-    /** Sets the end position of the given tree node to be the end position of
-     * the previously scanned token.
-     * @param <T> the type of the node being set
-     * @param tree the node whose end position is being set
-     * @return returns the same node
-     */
-    public <T extends JCTree> T toP(T tree) {
-        return parser.toP(tree);
-    }
+    // There is just one object for each kind, shared by all compilation
+    // contexts, so it holds no state of any one of them: the parser, or the
+    // JmlAttr, given to each method is the source of the context in use.
 
     /** Called by JmlParser when it sees the initial token for this extension.
      * The derived class implementation is responsible to scan tokens using
@@ -189,22 +107,14 @@ public abstract class IJmlClauseKind {
      */
     abstract public JCTree parse(JCModifiers mods, String keyword, IJmlClauseKind clauseKind, JmlParser parser);
     
-    protected void init(JmlParser parser) {
-        Context c = this.context = parser.context;
-        this.syms = Symtab.instance(c);
-        this.log = Log.instance(c);
-        this.parser = parser;
-        this.scanner = parser.getScanner();
-    }
-
-    protected void wrapup(JCTree statement, IJmlClauseKind clauseType, boolean parseSemicolon) {
-        wrapup(statement,clauseType,parseSemicolon, true);
+    protected void wrapup(JmlParser parser, JCTree statement, IJmlClauseKind clauseType, boolean parseSemicolon) {
+        wrapup(parser,statement,clauseType,parseSemicolon, true);
     }
     
-    protected void wrapup(JCTree statement, IJmlClauseKind clauseType, boolean parseSemicolon, boolean requireSemicolon) {
+    protected void wrapup(JmlParser parser, JCTree statement, IJmlClauseKind clauseType, boolean parseSemicolon, boolean requireSemicolon) {
         parser.toP(statement);
         if (statement instanceof JmlSource) {
-            ((JmlSource)statement).setSource(Log.instance(context).currentSourceFile());
+            ((JmlSource)statement).setSource(parser.log.currentSourceFile());
         }
         //ste.line = log.currentSource().getLineNumber(pos);
         if (!parseSemicolon) {
@@ -222,9 +132,9 @@ public abstract class IJmlClauseKind {
 //            }
         } else if (parser.token().ikind == ENDJMLCOMMENT) {
             // FIXME - why -2 here
-            if (requireSemicolon) log.warning(parser.pos()-2, "jml.missing.semi", clauseType.name());
+            if (requireSemicolon) parser.log.warning(parser.pos()-2, "jml.missing.semi", clauseType.name());
         } else if (parser.token().kind != SEMI) {
-            error(parser.pos(), parser.endPos(), "jml.bad.construct", clauseType.name() + " statement");
+            parser.jmlerror(parser.pos(), parser.endPos(), "jml.bad.construct", clauseType.name() + " statement");
             parser.skipThroughSemi();
         } else {
             parser.nextToken(); // advance to the token after the semi
@@ -238,14 +148,14 @@ public abstract class IJmlClauseKind {
     abstract public Type typecheck(JmlAttr attr, JCTree tree, Env<AttrContext> env);
     
     /** returns true if strict adherence to JML is required (language option is jml) */
-    public boolean requireStrictJML() {
+    public boolean requireStrictJML(Context context) {
         return JmlOption.langJML.equals(JmlOption.value(context, JmlOption.LANG));
     }
     
     /** Issue warning if strictness is required -- e.g. call this if an extension is being used */
     public void strictCheck(JmlParser parser, JCTree e) {
-        if (requireStrictJML()) {
-            Log.instance(context).warning(e.pos(),"jml.not.strict",name());
+        if (requireStrictJML(parser.context)) {
+            parser.log.warning(e.pos(),"jml.not.strict",name());
         }
     }
 
@@ -258,10 +168,6 @@ public abstract class IJmlClauseKind {
         public MethodClauseKind(String keyword) { super(keyword); }
         public boolean preAllowed() { return !isPreconditionClause(); }
         public boolean isPreconditionClause() { return false; }
-        @Override
-        public void init(JmlParser parser) {
-            super.init(parser);
-        }
     }
     
     /** Base class for kinds of clauses in method specifications (e.g. requires) */
@@ -277,10 +183,6 @@ public abstract class IJmlClauseKind {
         public boolean oldNoLabelAllowed() { return true; }
         public boolean preOrOldWithLabelAllowed() { return true; }
         public boolean preAllowed() { return true; }
-        @Override
-        public void init(JmlParser parser) {
-            super.init(parser);
-        }
     }
     
     /** The kind of line annotations */
@@ -316,10 +218,6 @@ public abstract class IJmlClauseKind {
     /** The base class for the kind of type clauses (e.g. invariant) */
     public static abstract class TypeClause extends IJmlClauseKind {
         public TypeClause(String keyword) { super(keyword); }
-        @Override
-        public void init(JmlParser parser) {
-            super.init(parser);
-        }
     }
 
     /** A base class for JML extensions that do not fit into other categories */
@@ -347,7 +245,6 @@ public abstract class IJmlClauseKind {
          * such as that the number of arguments is correct.
          */
         public JCExpression parse(JCModifiers mods, String name, IJmlClauseKind kind, JmlParser parser) {
-            init(parser);
             int startx = parser.pos();
             JmlTokenKind jt = parser.jmlTokenKind();
             parser.nextToken();
@@ -356,7 +253,7 @@ public abstract class IJmlClauseKind {
             } else {
                 int preferredPos = parser.pos(); // points at the left-paren
                 List<JCExpression> args = parser.arguments();
-                JmlMethodInvocation t = toP(parser.maker().at(preferredPos).JmlMethodInvocation(this, args));
+                JmlMethodInvocation t = parser.toP(parser.maker().at(preferredPos).JmlMethodInvocation(this, args));
                 t.startpos = startx;
                 t.token = jt; // FIXME - replace using jt with a kind
                 checkParse(parser,t);
@@ -372,7 +269,7 @@ public abstract class IJmlClauseKind {
          */
         public void checkNumberArgs(JmlParser parser, JmlMethodInvocation e, Function<Integer,Boolean> f, String key, Object ... messageArgs) {
             if (!f.apply(e.args.size())) {
-                error(e.pos, parser.getEndPos(e), key, messageArgs);
+                parser.jmlerror(e.pos, parser.getEndPos(e), key, messageArgs);
             }
         }
 
@@ -403,7 +300,6 @@ public abstract class IJmlClauseKind {
         
         @Override
         public JCTree parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             IJmlClauseKind jt = parser.jmlTokenClauseKind();
             int p = parser.pos();
             String stringRep = parser.getScanner().chars();
@@ -433,7 +329,6 @@ public abstract class IJmlClauseKind {
         
         @Override
         public JCExpression parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             IJmlClauseKind jt = parser.jmlTokenClauseKind();
             int p = parser.pos();
             String stringRep = parser.getScanner().chars();
@@ -501,16 +396,16 @@ public abstract class IJmlClauseKind {
      * Parses a list of method-name; returns a possibly empty list; does not
      * parse the terminating semicolon
      */
-    public List<JmlMethodSig> parseMethodNameList() {
+    public List<JmlMethodSig> parseMethodNameList(JmlParser parser) {
         ListBuffer<JmlMethodSig> sigs = new ListBuffer<JmlMethodSig>();
         while (true) {
-            JmlMethodSig m = parseMethodName();
+            JmlMethodSig m = parseMethodName(parser);
             if (m == null) {
                 parser.skipToCommaOrParenOrSemi();
             } else {
                 sigs.append(m);
             }
-            toP(m);
+            parser.toP(m);
             if (parser.token().kind != COMMA) break;
             parser.nextToken();
         }
@@ -518,7 +413,7 @@ public abstract class IJmlClauseKind {
     }
 
     /** Parses a method-name */
-    public JmlMethodSig parseMethodName() {
+    public JmlMethodSig parseMethodName(JmlParser parser) {
         int initpos = parser.pos();
         int p = initpos;
         Name n = null;
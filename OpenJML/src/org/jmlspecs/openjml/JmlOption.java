@@ -52,6 +52,8 @@ public class JmlOption implements IOption {
     public static final JmlOption LANG = new JmlOption("-lang",true,"jml+","Set the language variant to use: " + langJML + ", " + langJavelyn + ", or " + langPlus + " (the default)",null);
     public static final JmlOption EXTENSIONS = new JmlOption("-extensions",true,null,"Extension packages and classes (comma-separated qualified names)",null);
 
+    public static final JmlOption PARSE_THREADS = new JmlOption("-parseThreads",true,"1","The number of threads reading source files ahead of the parser (1 means no read-ahead)",null);
+    public static final JmlOption INCREMENTAL = new JmlOption("-incremental",false,false,"Process only the given files that have changed since they were last processed without warnings or errors by the same command and options, and those that depend on them",null);
     public static final JmlOption STOPIFERRORS = new JmlOption("-stopIfParseErrors",false,false,"When enabled, stops after parsing if any files have parsing errors",null);
 
     public static final JmlOption METHOD = new JmlOption("-method",true,null,"Comma-separated list of method name patterns on which to run ESC",null);
@@ -69,6 +71,7 @@ public class JmlOption implements IOption {
     public static final JmlOption CHECK_ACCESSIBLE = new JmlOption("-checkAccessible",false,false,"When on (the default), JML accessible clauses are checked",null);
     public static final JmlOption SPECS = new JmlOption("-specspath",true,null,"Specifies the directory path to search for specification files",null);
     public static final JmlOption CHECKSPECSPATH = new JmlOption("-checkSpecsPath",false,true,"When on (the default), warnings for non-existent specification path directories are issued",null);
+    public static final JmlOption SPECS_INDEX_FILE = new JmlOption("-specsIndexFile",true,null,"A file in which to keep the listing of the specification path directories between runs",null);
     public static final JmlOption PURITYCHECK = new JmlOption("-purityCheck",false,false,"When on (off by default), warnings for use of impure methods from system libraries are issued",null);
     public static final JmlOption INTERNALSPECS = new JmlOption("-internalSpecs",false,true,"When on (the default), automatically appends the internal specs directory to the specification path",null);
     public static final JmlOption INTERNALRUNTIME = new JmlOption("-internalRuntime",false,true,"When on (the default), automatically appends the internal JML runtime library to the classpath",null);
@@ -84,6 +87,7 @@ public class JmlOption implements IOption {
     public static final JmlOption SKIPPED = new JmlOption("-skipped",false,true,"Shows methods whose proofs are skipped",null);
     public static final JmlOption JMLVERBOSE = new JmlOption("-jmlverbose",false,false,"Like -verbose, but only jml information and not as much","-verboseness="+Utils.JMLVERBOSE);
     public static final JmlOption JMLDEBUG = new JmlOption("-jmldebug",false,false,"When on, the program emits lots of output (includes -progress)","-verboseness="+Utils.JMLDEBUG);
+    public static final JmlOption TIMINGS = new JmlOption("-timings",true,null,"Writes the time spent in each phase, per class and method, and heap use, as JSON to this file",null);
     public static final JmlOption SHOW_OPTIONS = new JmlOption("-showOptions",true, "none","When enabled, the values of options and properties are printed, for debugging",null);
     
     public static final JmlOption JMLTESTING = new JmlOption("-jmltesting",false,false,"Only used to generate tracing information during testing",null);
@@ -92,6 +96,22 @@ public class JmlOption implements IOption {
     public static final JmlOption SPLIT = new JmlOption("-split",true,"","Split proof into sections",null);
     public static final JmlOption ESC_BV = new JmlOption("-escBV",true,"auto","ESC: If enabled, use bit-vector arithmetic (auto, true, false)",null);
     public static final JmlOption ESC_TRIGGERS = new JmlOption("-triggers",false,true,"ESC: Enable quantifier triggers in SMT encoding (default true)",null);
+    public static final JmlOption SOLVER_PROFILE = new JmlOption("-solverProfile",true,"","ESC: The named solver tuning profile to use, e.g. triggers, mbqi or lazy-qi for z3 (default: triggers when -triggers is on)",null);
+    public static final JmlOption SOLVER_CHANNEL = new JmlOption("-solverChannel",false,false,"ESC: Read the responses of the solver with OpenJML's own byte-level reader rather than with jSMTLIB's (reaches into jSMTLIB's solver objects; also used whenever -solverDeadline or -solverMemory is set)",null);
+    public static final JmlOption SOLVER_DEADLINE = new JmlOption("-solverDeadline",true,"","ESC: The longest time, in seconds, to wait for any one response of a solver before killing it (default, with -solverChannel: twice the -timeout plus 10 seconds if -timeout is set, else no limit; 0 for no limit)",null);
+    public static final JmlOption SOLVER_MEMORY = new JmlOption("-solverMemory",true,"0","ESC: The largest resident memory, in MB, a solver may use before it is killed (0 for no limit; enforced on Linux)",null);
+    public static final JmlOption SOLVER_RETRIES = new JmlOption("-solverRetries",true,"1","ESC: The number of times, per method, a proof attempt whose solver was killed or died is retried, each time on a fresh solver with a different random seed (only solvers read through a SolverChannel are known to have failed)",null);
+    public static final JmlOption SOLVER_STATISTICS = new JmlOption("-solverStatistics",false,false,"ESC: Ask the solver for its statistics after each query and record them with each method's result",null);
+    public static final JmlOption ESC_CSE = new JmlOption("-escCSE",false,false,"ESC: Bind repeated subterms of the SMT encoding with let expressions",null);
+    public static final JmlOption ESC_STREAM = new JmlOption("-escStreamSMT",false,false,"ESC: Send the SMT translation to the solver block by block, as it is produced",null);
+    public static final JmlOption ESC_SLICE = new JmlOption("-escSlice",false,false,"ESC: Slice each proof to the cone of influence of its assertions, dropping the blocks, definitions, declarations and background assertions they do not depend on",null);
+    public static final JmlOption ESC_AUTO_SPLIT = new JmlOption("-escAutoSplit",true,"","ESC: If a proof takes longer than this fraction of the timeout (e.g. 0.25), split the method at its next top-level if or switch and prove the parts",null);
+    public static final JmlOption ESC_AUTO_SPLIT_FILE = new JmlOption("-escAutoSplitFile",true,"","ESC: File in which the split points chosen by -escAutoSplit are kept for later runs",null);
+    public static final JmlOption ESC_PIPELINE = new JmlOption("-escPipeline",false,false,"ESC: Check each class as soon as it is attributed, instead of after all classes are attributed",null);
+    public static final JmlOption ESC_BOUNDED_MEMORY = new JmlOption("-escBoundedMemory",false,false,"ESC: Release each method's translations once its result is reported, and report peak and retained memory",null);
+    public static final JmlOption ESC_ASSERTION_THREADS = new JmlOption("-escAssertionThreads",true,"1","ESC: The number of solvers checking groups of the assertions of a method separately, in parallel, each on a slice of the method for its group (1 means each method is checked as a whole)",null);
+    public static final JmlOption ESC_TRIVIAL = new JmlOption("-escTrivial",false,false,"ESC: Remove the assertions that hold trivially before translating to SMT, proving methods with none left without starting a solver",null);
+    public static final JmlOption ESC_VERDICT_ONLY = new JmlOption("-escVerdictOnly",false,false,"ESC: Report only whether each method is valid and, if not, the first invalid assertion found, without counterexamples or traces",null);
     public static final JmlOption ESC_EXIT_INFO = new JmlOption("-escExitInfo",false,true,"ESC: Show exit location for postconditions (default true)",null);
     public static final JmlOption ESC_MAX_WARNINGS = new JmlOption("-escMaxWarnings",true,"all","ESC: Maximum number of warnings to find per method",null);
     public static final JmlOption MAXWARNINGSPATH = new JmlOption("-escMaxWarningsPath",false,false,"ESC: If true, find all counterexample paths to each invalid assert",null);
@@ -15,6 +15,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -251,6 +252,11 @@ public class JmlSpecs {
      */
     protected LinkedList<Dir> specsDirs = null;
     
+    /** The index of the files in specsDirs, built on first use; it is rebuilt
+     * whenever the specs path or the set of mock files changes.
+     */
+    protected SpecsPathIndex specsIndex = null;
+    
     
     /** Creates an instance in association with the given Context; 
      * the specs path is initialized by an explicit call of initializeSpecsPath;
@@ -441,6 +447,7 @@ public class JmlSpecs {
         PrintWriter noticeWriter = log.getWriter(WriterKind.NOTICE);
 
         specsDirs = new LinkedList<Dir>();
+        specsIndex = null;
         List<String> todo = new LinkedList<String>();
         for (int i = 0; i<specsPathArray.length; i++) {
             String s = specsPathArray[i];
@@ -557,6 +564,36 @@ public class JmlSpecs {
      */
     public void addMockFile(String name, JavaFileObject jfo) {
         mockFiles.put(name,jfo);
+        specsIndex = null;
+    }
+    
+    /** Returns the index of the files on the current specs path, building it
+     * if necessary.
+     */
+    public SpecsPathIndex specsIndex() {
+        List<Dir> dirs = getSpecsPath();
+        if (specsIndex == null || !specsIndex.isFor(dirs)) {
+            if (specsIndex != null) specsIndex.save();
+            String f = JmlOption.value(context,JmlOption.SPECS_INDEX_FILE);
+            specsIndex = new SpecsPathIndex(dirs, f == null || f.isEmpty() ? null : new File(f), log);
+        }
+        return specsIndex;
+    }
+    
+    /** Discards what the index knows of the given package (forward-slash
+     * separated, e.g. "java/lang"), or of all packages if the argument is
+     * null; to be called when specification files may have been added to or
+     * removed from the specs path.
+     */
+    public void invalidateSpecsIndex(/*@ nullable */ String packagePath) {
+        if (specsIndex == null) return;
+        if (packagePath == null) specsIndex.invalidate();
+        else specsIndex.invalidate(packagePath);
+    }
+    
+    /** Saves the specs path index to the -specsIndexFile, if there is one */
+    public void saveSpecsIndex() {
+        if (specsIndex != null) specsIndex.save();
     }
     
     /** Creates an appropriate kind of Dir object given the String format of
@@ -613,6 +650,17 @@ public class JmlSpecs {
          * @return a JavaFileObject for that file
          */
         abstract public /*@Nullable*/JavaFileObject findAnySuffixFile(String filePath);
+        
+        /** Adds to the argument the names (with suffix) of the files with a
+         * JML suffix in the given package directory of this directory (but
+         * not in its subdirectories).
+         * @param packagePath the package directory, relative to this
+         * directory: forward-slash separated and ending with a slash, or empty
+         * @return false if the directory cannot be listed
+         */
+        public boolean listPackage(String packagePath, Collection<String> names) {
+            return false;
+        }
     }
     
     /** This class handles mock directories - data that appear to be files
@@ -650,6 +698,17 @@ public class JmlSpecs {
             return null; 
         }
         
+        @Override
+        public boolean listPackage(String packagePath, Collection<String> names) {
+            String prefix = name + "/" + packagePath;
+            for (String s: mockFiles.keySet()) {
+                if (s.startsWith(prefix) && s.indexOf('/', prefix.length()) < 0 && SpecsPathIndex.covers(s)) {
+                    names.add(s.substring(prefix.length()));
+                }
+            }
+            return true;
+        }
+        
     }
     
     /** This class represents conventional file system directories */
@@ -696,6 +755,21 @@ public class JmlSpecs {
             }
             return null;
         }
+        
+        @Override
+        public boolean listPackage(String packagePath, Collection<String> names) {
+            String[] files = packageDir(packagePath).list();
+            if (files == null) return true; // No such directory
+            for (String f: files) {
+                if (SpecsPathIndex.covers(f)) names.add(f);
+            }
+            return true;
+        }
+        
+        /** The directory of the given package (see listPackage) */
+        public File packageDir(String packagePath) {
+            return packagePath.isEmpty() ? dir : new File(dir, packagePath);
+        }
     }
     
     /** This class represents .jar (and .zip) files and subdirectories within them */
@@ -714,6 +788,9 @@ public class JmlSpecs {
         /** The directory path within the jar file */
         protected RelativePath.RelativeDirectory internalDir;
         
+        /** The archive file itself */
+        protected File jarFile;
+        
         /** Creates a Dir object representing the content or a subdirectory of
          * a Jar file.
          * @param zip the absolute or relative path to the jar file itself
@@ -721,6 +798,7 @@ public class JmlSpecs {
          * if the top-level is desired, not null)
          */
         public JarDir(String zip, String name) {
+            this.jarFile = new File(zip);
             try {
                 this.zipArchive = new ZipArchive(((JavacFileManager)context.get(JavaFileManager.class)),new ZipFile(zip));
             } catch (IOException e) {
@@ -762,6 +840,17 @@ public class JmlSpecs {
             }
             return null; 
         }
+        
+        @Override
+        public boolean listPackage(String packagePath, Collection<String> names) {
+            if (zipArchive == null) return true;
+            List<String> files = zipArchive.getFiles(new RelativePath.RelativeDirectory(internalDir, packagePath));
+            if (files == null) return true;
+            for (String f: files) {
+                if (SpecsPathIndex.covers(f)) names.add(f);
+            }
+            return true;
+        }
     }
     
     
@@ -793,11 +882,10 @@ public class JmlSpecs {
     //@ nullable
     public JavaFileObject findAnySpecFile(String className) {
         String s = className.replace('.','/');
+        SpecsPathIndex index = specsIndex();
         for (String suffix : Strings.suffixes){ 
-            for (Dir dir: getSpecsPath()) {
-                JavaFileObject j = dir.findFile(s + suffix);
-                if (j != null) return j;
-            }
+            JavaFileObject j = index.findFile(s + suffix);
+            if (j != null) return j;
         }
         return null;
     }
@@ -810,6 +898,7 @@ public class JmlSpecs {
      */
     //@ nullable
     public JavaFileObject findSpecificSpecFile(String filename) {
+        if (SpecsPathIndex.covers(filename)) return specsIndex().findFile(filename);
         for (Dir dir: getSpecsPath()) {
             JavaFileObject j = dir.findFile(filename);
             if (j != null) return j;
@@ -633,33 +633,17 @@ public class Main extends com.sun.tools.javac.main.Main {
         return newargs.toArray(new String[newargs.size()]);
     }
     
-    // TODO _ document
-    public java.util.List<String> computeDependencyClosure(java.util.List<String> files) {
-        // fill out dependencies
-        java.util.List<String> newargs = new ArrayList<String>();
-//        Dependencies d = Dependencies.instance(context);
-        Set<String> done = new HashSet<String>();
-        java.util.List<String> todo = new LinkedList<String>();
-        //JavacFileManager jfm = (JavacFileManager)context.get(JavaFileManager.class);; // FIXME - this causes Lint to be initialized before the Java options are registered
-        for (String s: files) {
-            // FIXME - don't hardcode this list of suffixes here
-            if (Utils.instance(context).hasValidSuffix(s)) {
-                todo.add(s);
-            }
-        }
-        while (!todo.isEmpty()) {
-            String o = todo.remove(0);
-            if (done.contains(o)) continue;
-            done.add(o);
-//            if (o.getName().endsWith(".java")) newargs.add("C:" + o.toUri().getPath()); // FIXME - a hack to get the full path
-            if (o.endsWith(".java")) newargs.add(o); // FIXME FOR REAL - this needs to be made sane
-//            Set<JavaFileObject> affected = d.getAffected(o);
-//            if (affected != null) {
-//                todo.addAll(affected);
-//                //Log.instance(context).noticeWriter.println("Adding " + affected.size() + " dependencies for " + o);
-//            }
+    /** Returns those of the given files that need to be processed by an
+     * -incremental run: the files that have changed since they were last
+     * processed without errors, and the files that depend on a changed file,
+     * according to the DependencyIndex kept from earlier runs.
+     */
+    public java.util.List<File> computeDependencyClosure(Collection<File> files) {
+        java.util.List<File> selected = DependencyIndex.instance(context).select(files);
+        if (Utils.instance(context).jmlverbose >= Utils.PROGRESS) {
+            Log.instance(context).getWriter(WriterKind.NOTICE).println("Processing " + selected.size() + " of " + files.size() + " files (-incremental)");
         }
-        return newargs;
+        return selected;
     }
     
     /** Processes a single JML command-line option and any arguments.
@@ -863,7 +847,7 @@ public class Main extends com.sun.tools.javac.main.Main {
                 int k = t.indexOf(":");
                 if (k > 0) { 
                     try {
-                        MethodProverSMT.startFeasibilityCheck = Integer.parseInt(t.substring(k+1));
+                        utils.startFeasibilityCheck = Integer.parseInt(t.substring(k+1));
                     } catch (Exception e) {
                         // continue
                     }
@@ -1012,8 +996,12 @@ public class Main extends com.sun.tools.javac.main.Main {
         if (filenames == null) filenames = new TreeSet<File>(); // needed when called from the API
         Collection<File> files = super.processArgs(args,classNames);
         if (files != null) files.addAll(jmlfiles);
-        //args.addAll(computeDependencyClosure(files));
         if (!setupOptions()) return null;
+        nothingToDo = false;
+        if (files != null && !files.isEmpty() && JmlOption.isOption(context, JmlOption.INCREMENTAL)) {
+            files = computeDependencyClosure(files);
+            nothingToDo = files.isEmpty();
+        }
 
         String showOptions = JmlOption.value(context,JmlOption.SHOW_OPTIONS);
         if (showOptions != null && !showOptions.equals("none")) {  // FIXME - review and explain this
@@ -4,8 +4,15 @@
  */
 package org.jmlspecs.openjml;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import javax.tools.JavaFileObject;
 
@@ -61,8 +68,36 @@ public class Nowarns {
     /** The usual compilation context. */
     protected Context context;
     
-    /** The collection of nowarn annotation items. */
-    protected Collection<Item> nowarns = new ArrayList<Item>();
+    /** The nowarn annotations of one source file */
+    protected static class FileItems {
+        /** A source object for the file, used to compute line numbers */
+        final DiagnosticSource source;
+        /** The labels of the annotations on each line; a null label suppresses everything */
+        final Map<Integer,Set<String>> lines = new HashMap<Integer,Set<String>>();
+        
+        FileItems(DiagnosticSource source) {
+            this.source = source;
+        }
+    }
+    
+    /** The recorded nowarn annotations, by the source object they were
+     * recorded with; a lookup by source object matches only that object */
+    protected Map<DiagnosticSource,FileItems> nowarns = new HashMap<DiagnosticSource,FileItems>();
+    
+    /** The same records, by file (see fileKey); a lookup by file object
+     * matches the records of every source object for the same file, as
+     * Utils.ifSourcesEqual does */
+    protected Map<Object,List<FileItems>> byFile = new HashMap<Object,List<FileItems>>();
+    
+    /** The labels of annotations that apply to all sources */
+    protected Set<String> globalLabels = new HashSet<String>();
+    
+    /** True if there is an annotation that applies to all sources and labels */
+    protected boolean globalAll = false;
+    
+    /** The keys computed so far, by file object; the file objects are weakly
+     * held, so that this cache does not keep them alive */
+    protected Map<JavaFileObject,Object> keys = new WeakHashMap<JavaFileObject,Object>();
 
     /** Constructor for the (singleton) instance of the Nowarns object; users
      * should not call this - use instance(context).
@@ -71,28 +106,76 @@ public class Nowarns {
         this.context = context;
     }
     
+    /** Returns the key for the given file: its canonical path, or the object
+     * itself if that cannot be had */
+    protected Object fileKey(JavaFileObject file) {
+        Object key = keys.get(file);
+        if (key == null) {
+            try {
+                key = new File(file.getName()).getCanonicalPath();
+            } catch (IOException e) {
+                key = file;
+            }
+            keys.put(file, key);
+        }
+        return key;
+    }
+    
+    /** Discards the annotations recorded for the given file, which is about
+     * to be parsed again */
+    public void clear(JavaFileObject file) {
+        if (nowarns.isEmpty()) return;
+        List<FileItems> list = byFile.remove(fileKey(file));
+        if (list != null) for (FileItems f: list) nowarns.remove(f.source);
+    }
+    
     /** Add a new occurrence of an annotation to the record. */
     public void addItem(DiagnosticSource file, int pos, String label) {
-        nowarns.add(new Item(file,file.getLineNumber(pos),label));
+        add(new Item(file,file.getLineNumber(pos),label));
+    }
+    
+    /** Adds the given record to the index */
+    protected void add(Item item) {
+        if (item.source == null) {
+            if (item.label == null) globalAll = true;
+            else globalLabels.add(item.label);
+            return;
+        }
+        FileItems f = nowarns.get(item.source);
+        if (f == null) {
+            nowarns.put(item.source, f = new FileItems(item.source));
+            if (item.source.getFile() != null) {
+                Object key = fileKey(item.source.getFile());
+                List<FileItems> list = byFile.get(key);
+                if (list == null) byFile.put(key, list = new ArrayList<FileItems>(1));
+                list.add(f);
+            }
+        }
+        Set<String> labels = f.lines.get(item.line);
+        if (labels == null) f.lines.put(item.line, labels = new HashSet<String>());
+        labels.add(item.label);
+    }
+    
+    /** True if an annotation applying to all sources suppresses the label */
+    protected boolean suppressGlobally(String label) {
+        return globalAll || globalLabels.contains(label);
+    }
+    
+    /** True if the annotations of f suppress the label on the given line */
+    protected static boolean suppress(FileItems f, int line, String label) {
+        if (f == null) return false;
+        Set<String> labels = f.lines.get(line);
+        return labels != null && (labels.contains(null) || labels.contains(label));
     }
     
     /** Check the set of annotations to see if a particular warning should be
      * suppressed
      * @return true if there is a recorded annotation with the given source, position and label
      */
-    // FIXME - this is an inefficient lookup, and in the following method
     public boolean suppress(DiagnosticSource file, int pos, String label) {
-        int line = file.getLineNumber(pos);
-        for (Item i: nowarns) {
-            if (i.label != null && !label.equals(i.label)) {
-                // continue
-            } else if (i.source == null) {
-                return true; // FIXME - don't we check the line number? what use case is this?
-            } else {
-                if (file.equals(i.source) && line == i.line) return true; 
-            }
-        }
-        return false;
+        if (suppressGlobally(label)) return true;
+        if (nowarns.isEmpty()) return false;
+        return suppress(nowarns.get(file), file.getLineNumber(pos), label);
     }
 
     /** Check the set of annotations to see if a particular warning should be
@@ -100,14 +183,12 @@ public class Nowarns {
      * @return true if there is a recorded annotation with the given source, position and label
      */
     public boolean suppress(JavaFileObject file, int pos, String label) {
-        for (Item i: nowarns) {
-            if (i.label != null && !label.equals(i.label)) {
-                // continue
-            } else if (i.source == null) {
-                return true;
-            } else {
-                if (Utils.ifSourcesEqual(file, i.source.getFile()) && i.source.getLineNumber(pos) == i.line) return true; 
-            }
+        if (suppressGlobally(label)) return true;
+        if (nowarns.isEmpty()) return false;
+        List<FileItems> list = byFile.get(fileKey(file));
+        if (list == null) return false;
+        for (FileItems f: list) {
+            if (suppress(f, f.source.getLineNumber(pos), label)) return true;
         }
         return false;
     }
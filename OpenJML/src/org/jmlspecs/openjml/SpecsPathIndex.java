@@ -0,0 +1,209 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.JmlSpecs.Dir;
+import org.jmlspecs.openjml.JmlSpecs.FileSystemDir;
+
+import com.sun.tools.javac.util.Log;
+
+/** An index of the files with JML suffixes in the directories of the specs
+ * path, so that finding a specification file is a hash lookup rather than a
+ * probe of each directory in turn. The index is built lazily, a package at a
+ * time: the first lookup of a file in a package lists that package's
+ * directory (and not its subdirectories) in each element of the specs path,
+ * and records for each file name the first element that holds it; later
+ * lookups in the same package use that record. So only the packages for
+ * which specifications are actually sought are ever listed.
+ * <P>
+ * The listings are kept until invalidate is called, for one package or for
+ * all of them (see JmlSpecs.invalidateSpecsIndex), after which they are made
+ * again when next needed.
+ * <P>
+ * If a file name is given (-specsIndexFile), the listings of package
+ * directories in the file system are saved in it (by save) and reused by
+ * later runs as long as the directory's modification time is unchanged;
+ * adding or removing a file changes the time of its directory. The listings
+ * of jars come from the table of contents that is read when the jar is
+ * opened, so they are not saved.
+ */
+public class SpecsPathIndex {
+
+    /** The directories of the specs path, in order */
+    final protected List<Dir> dirs;
+
+    /** What is known of one package */
+    static protected class PackageListing {
+        /** Whether each directory could be listed; one that could not is
+         * probed on each lookup, as before */
+        final boolean[] listed;
+
+        /** For each file name, the position in 'dirs' of the first listed
+         * directory holding it */
+        final Map<String,Integer> first = new HashMap<String,Integer>();
+
+        PackageListing(int n) {
+            listed = new boolean[n];
+        }
+    }
+
+    /** The packages listed so far, by package path (forward-slash separated
+     * and ending with a slash, or empty) */
+    final protected Map<String,PackageListing> packages = new HashMap<String,PackageListing>();
+
+    /** The file objects found so far, by path */
+    final protected Map<String,JavaFileObject> found = new HashMap<String,JavaFileObject>();
+
+    /** The file in which listings are saved, or null */
+    /*@ nullable */ final protected File saved;
+
+    /** The saved listings, as read from 'saved' and then updated: for a
+     * file-system directory d and package path p, the property d!p holds the
+     * modification time of the package directory followed by the names of its
+     * files, separated by tabs */
+    final protected Properties props = new Properties();
+
+    /** True if props has changed since it was read */
+    protected boolean changed = false;
+
+    final protected Log log;
+
+    /** Creates an index of the given directories, reusing and updating the
+     * listings saved in 'saved' if it is not null.
+     */
+    public SpecsPathIndex(List<Dir> dirs, /*@ nullable */ File saved, Log log) {
+        this.dirs = new ArrayList<Dir>(dirs);
+        this.saved = saved;
+        this.log = log;
+        if (saved != null && saved.exists()) {
+            try (InputStream in = new FileInputStream(saved)) {
+                props.load(in);
+            } catch (IOException e) {
+                log.warning("jml.message", "Could not read the specs path index " + saved + ": " + e);
+                props.clear();
+            }
+        }
+    }
+
+    /** Returns the listing of the given package, making it if necessary */
+    protected PackageListing listing(String packagePath) {
+        PackageListing p = packages.get(packagePath);
+        if (p != null) return p;
+        p = new PackageListing(dirs.size());
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < dirs.size(); i++) {
+            Dir d = dirs.get(i);
+            names.clear();
+            if (saved != null && d instanceof FileSystemDir) {
+                p.listed[i] = listSaved((FileSystemDir)d, packagePath, names);
+            } else {
+                p.listed[i] = d.listPackage(packagePath, names);
+            }
+            for (String n: names) {
+                if (!p.first.containsKey(n)) p.first.put(n, i);
+            }
+        }
+        packages.put(packagePath, p);
+        return p;
+    }
+
+    /** Lists the package directory of d, using the saved listing if it is
+     * still valid and saving a new one otherwise */
+    private boolean listSaved(FileSystemDir d, String packagePath, List<String> names) {
+        String key = d.name() + "!" + packagePath;
+        String time = Long.toString(d.packageDir(packagePath).lastModified());
+        String v = props.getProperty(key);
+        if (v != null) {
+            String[] parts = v.split("\t");
+            if (parts[0].equals(time)) {
+                for (int i = 1; i < parts.length; i++) names.add(parts[i]);
+                return true;
+            }
+        }
+        if (!d.listPackage(packagePath, names)) return false;
+        StringBuilder sb = new StringBuilder(time);
+        for (String n: names) sb.append('\t').append(n);
+        props.setProperty(key, sb.toString());
+        changed = true;
+        return true;
+    }
+
+    /** Discards the listing of the given package (forward-slash separated,
+     * with or without a final slash) and the files found in it */
+    public void invalidate(String packagePath) {
+        String p = packagePath.isEmpty() || packagePath.endsWith("/") ? packagePath : packagePath + "/";
+        packages.remove(p);
+        found.keySet().removeIf(f -> f.startsWith(p) && f.indexOf('/', p.length()) < 0);
+    }
+
+    /** Discards all listings and the files found */
+    public void invalidate() {
+        packages.clear();
+        found.clear();
+    }
+
+    /** Writes the saved listings to the -specsIndexFile, if there is one and
+     * they have changed */
+    public void save() {
+        if (saved == null || !changed) return;
+        try (OutputStream out = new FileOutputStream(saved)) {
+            props.store(out, "OpenJML specs path index");
+            changed = false;
+        } catch (IOException e) {
+            log.warning("jml.message", "Could not write the specs path index " + saved + ": " + e);
+        }
+    }
+
+    /** True if the index is for the given directories (the same objects, in
+     * the same order) */
+    public boolean isFor(List<Dir> dirs) {
+        if (dirs.size() != this.dirs.size()) return false;
+        int i = 0;
+        for (Dir d: dirs) if (d != this.dirs.get(i++)) return false;
+        return true;
+    }
+
+    /** True if the index can answer lookups of the given path, that is, if
+     * it has a JML suffix */
+    public static boolean covers(String filePath) {
+        for (String suffix: Strings.suffixes) if (filePath.endsWith(suffix)) return true;
+        return false;
+    }
+
+    /** Returns the file with the given path from the first directory of the
+     * specs path that holds it, or null if there is none */
+    //@ nullable
+    public JavaFileObject findFile(String filePath) {
+        JavaFileObject j = found.get(filePath);
+        if (j != null) return j;
+        int slash = filePath.lastIndexOf('/');
+        PackageListing p = listing(filePath.substring(0, slash+1));
+        Integer k = p.first.get(filePath.substring(slash+1));
+        int limit = k == null ? dirs.size() : k;
+        for (int i = 0; i < limit; i++) {
+            if (p.listed[i]) continue;
+            j = dirs.get(i).findFile(filePath);
+            if (j != null) return j;
+        }
+        if (k == null) return null;
+        j = dirs.get(k).findFile(filePath);
+        if (j != null) found.put(filePath, j);
+        return j;
+    }
+}
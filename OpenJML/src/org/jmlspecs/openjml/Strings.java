@@ -121,6 +121,10 @@ public class Strings {
     /** A property name prefix for specifying information about provers */
     static public final String proverPropertyPrefix = "openjml.prover."; //$NON-NLS-1$
     
+    /** A property name prefix for defining solver tuning profiles (-solverProfile):
+     * openjml.solverProfile.<prover>.<name> holds the SMT-LIB commands of the profile */
+    static public final String solverProfilePropertyPrefix = "openjml.solverProfile."; //$NON-NLS-1$
+    
     /** The property name to specify a default prover */
     static public final String defaultProverProperty = "openjml.defaultProver"; //$NON-NLS-1$
     
@@ -0,0 +1,215 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+
+/** Collects the time spent in each phase of a run, for -timings=file, and
+ * writes it to that file as JSON when the run ends:
+ * <PRE>
+ * { "version": 1,
+ *   "startupMillis": ...,  // from JVM start until the compiler was set up
+ *   "wallMillis": ...,     // from then until the end of the run
+ *   "peakHeapBytes": ...,  // the largest heap use during the run
+ *   "phases": { "parse": {"count": n, "millis": t}, ... },
+ *   "subjects": [ {"name": "p.C", "kind": "class", "peakHeapBytes": ...,
+ *                  "phases": {"attribute": {"count": n, "millis": t}, ...}}, ... ] }
+ * </PRE>
+ * The phases are parse, enter, specs (finding and parsing specification
+ * files), attribute and flow (per class), and for ESC, assertionAdder (per
+ * class), basicBlock, smtTranslate, solver and counterexample (per method).
+ * Phases nest where the compiler nests them (specification files are read
+ * while attributing, for instance), so the times of different phases are not
+ * additive. When the SMT translation is streamed to the solver (-escStreamSMT)
+ * the translation is counted as solver time.
+ * <P>
+ * Heap use is taken from the peak usage of the JVM's heap memory pools,
+ * which are reset at the start and end of each phase, so that a subject's
+ * peak is the high-water mark reached while its phases ran (summed over the
+ * pools, so it may overstate the true peak a little). Resetting the pools
+ * affects anything else in the JVM that reads their peaks.
+ * <P>
+ * When -timings is not given, start() and record() do nothing.
+ */
+public class Timings {
+
+    /** The key used to register an instance of Timings in the compilation context */
+    protected static final Context.Key<Timings> timingsKey =
+        new Context.Key<Timings>();
+
+    /** The method used to obtain the singleton instance of Timings for this compilation context */
+    public static Timings instance(Context context) {
+        Timings instance = context.get(timingsKey);
+        if (instance == null) {
+            instance = new Timings(context);
+            context.put(timingsKey,instance);
+        }
+        return instance;
+    }
+
+    /** Accumulated time of one phase */
+    static protected class Total {
+        int count;
+        long nanos;
+    }
+
+    /** The times recorded for one class or method */
+    static protected class Subject {
+        final String kind;
+        final Map<String,Total> phases = new LinkedHashMap<String,Total>();
+        long peakHeap;
+        Subject(String kind) { this.kind = kind; }
+    }
+
+    final protected Context context;
+
+    /** The file to write, or null if timings are not being collected */
+    final protected String file;
+
+    /** JVM uptime when this object was created, in milliseconds */
+    final protected long startupMillis;
+
+    /** When this object was created */
+    final protected long startNanos = System.nanoTime();
+
+    final protected Map<String,Total> phases = new LinkedHashMap<String,Total>();
+
+    /** The classes and methods for which times were recorded, by name, in order of first record */
+    final protected Map<String,Subject> subjects = new LinkedHashMap<String,Subject>();
+
+    protected long peakHeap;
+
+    /** The phases begun by start() and not yet recorded, innermost last,
+     * each as its start time and the peak heap use seen while it ran */
+    final protected List<long[]> open = new ArrayList<long[]>();
+
+    protected Timings(Context context) {
+        this.context = context;
+        String f = JmlOption.value(context, JmlOption.TIMINGS);
+        this.file = f == null || f.isEmpty() ? null : f;
+        this.startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /** True if timings are being collected */
+    public boolean enabled() {
+        return file != null;
+    }
+
+    /** Returns the start time to pass to record() */
+    public long start() {
+        if (file == null) return 0;
+        foldPeak();
+        long start = System.nanoTime();
+        open.add(new long[]{start, 0});
+        return start;
+    }
+
+    /** Records that the given phase, begun at 'start' (from start()), has
+     * ended; 'subject' is the qualified name of the class or method it was
+     * for, or null if it was not for a particular one, and 'kind' says which. */
+    public void record(String phase, /*@ nullable */ String subject, String kind, long start) {
+        if (file == null) return;
+        long nanos = System.nanoTime() - start;
+        foldPeak();
+        long heap = 0;
+        for (int i = open.size()-1; i >= 0; i--) {
+            if (open.get(i)[0] != start) continue;
+            heap = open.get(i)[1];
+            // Phases begun inside this one and never recorded are dropped
+            open.subList(i, open.size()).clear();
+            break;
+        }
+        add(phases, phase, nanos);
+        if (subject != null) {
+            Subject s = subjects.get(subject);
+            if (s == null) subjects.put(subject, s = new Subject(kind));
+            add(s.phases, phase, nanos);
+            s.peakHeap = Math.max(s.peakHeap, heap);
+        }
+    }
+
+    /** Adds the peak heap use since the last call to the peaks of the run
+     * and of each open phase, and resets the peaks of the heap pools */
+    protected void foldPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isValid()) continue;
+            MemoryUsage u = pool.getPeakUsage();
+            if (u != null) peak += u.getUsed();
+            pool.resetPeakUsage();
+        }
+        peakHeap = Math.max(peakHeap, peak);
+        for (long[] p: open) p[1] = Math.max(p[1], peak);
+    }
+
+    /** The peak heap use, in bytes, seen since timings began, or 0 if they are
+     * not being collected */
+    public long peakHeap() {
+        return peakHeap;
+    }
+
+    private static void add(Map<String,Total> map, String phase, long nanos) {
+        Total t = map.get(phase);
+        if (t == null) map.put(phase, t = new Total());
+        t.count++;
+        t.nanos += nanos;
+    }
+
+    private static JsonObject json(Map<String,Total> map) {
+        JsonObject o = new JsonObject();
+        for (Map.Entry<String,Total> e: map.entrySet()) {
+            JsonObject t = new JsonObject();
+            t.addProperty("count", e.getValue().count);
+            t.addProperty("millis", e.getValue().nanos/1e6);
+            o.add(e.getKey(), t);
+        }
+        return o;
+    }
+
+    /** Writes the timings to the -timings file, if there is one */
+    public void write() {
+        if (file == null) return;
+        foldPeak();
+        JsonObject root = new JsonObject();
+        root.addProperty("version", 1);
+        root.addProperty("startupMillis", startupMillis);
+        root.addProperty("wallMillis", (System.nanoTime() - startNanos)/1e6);
+        root.addProperty("peakHeapBytes", peakHeap);
+        root.add("phases", json(phases));
+        JsonArray list = new JsonArray();
+        for (Map.Entry<String,Subject> e: subjects.entrySet()) {
+            JsonObject s = new JsonObject();
+            s.addProperty("name", e.getKey());
+            s.addProperty("kind", e.getValue().kind);
+            s.addProperty("peakHeapBytes", e.getValue().peakHeap);
+            s.add("phases", json(e.getValue().phases));
+            list.add(s);
+        }
+        root.add("subjects", list);
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(root, w);
+        } catch (IOException e) {
+            Log.instance(context).warning("jml.message", "Could not write the timings file " + file + ": " + e);
+        }
+    }
+}
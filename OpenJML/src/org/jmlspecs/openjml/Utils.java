@@ -151,6 +151,9 @@ public class Utils {
 
     /** Global utility value that enables printing of debugging or trace information. */
     public int jmlverbose = 0; 
+    
+    /** The first feasibility check to make (from -checkFeasibility=debug:n) -- purely for debugging */
+    public int startFeasibilityCheck = 0;
     static public final int QUIET = 0;
     static public final int NORMAL = 1;
     static public final int PROGRESS = 2;
@@ -0,0 +1,201 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.esc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jmlspecs.annotation.NonNull;
+import org.jmlspecs.openjml.JmlOption;
+import org.jmlspecs.openjml.JmlTree.JmlIfStatement;
+import org.jmlspecs.openjml.JmlTree.JmlMethodDecl;
+import org.jmlspecs.openjml.JmlTree.JmlSwitchStatement;
+import org.jmlspecs.openjml.Utils;
+
+import com.sun.tools.javac.tree.JCTree.JCBlock;
+import com.sun.tools.javac.tree.JCTree.JCStatement;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+
+/** This class implements automatic splitting of proofs (-escAutoSplit). When
+ * a proof attempt for a method (or for one split of it) runs out of time,
+ * the next top-level if or switch statement of the method body that is not
+ * yet a split point is made one, just as if it were preceded by a
+ * //@ split
+ * statement, and the affected split is translated again; the resulting
+ * sub-splits are then proved in turn.
+ * <P>
+ * The split points chosen during a proof are kept in a set that belongs to
+ * that proof (see newSplits) and are passed to the translation; the method's
+ * AST is not changed, so a later or concurrent proof of the same method
+ * starts from just the split statements written in the source.
+ * <P>
+ * The split points chosen for each method are recorded, and if
+ * -escAutoSplitFile is given, saved to that file and read back on the next
+ * run, so that a later proof of the method starts from the splits that
+ * were needed before.
+ */
+public class AutoSplitter {
+
+    /** The key used to register an instance of AutoSplitter in the compilation context */
+    protected static final Context.Key<AutoSplitter> autoSplitterKey =
+        new Context.Key<AutoSplitter>();
+
+    /** The method used to obtain the singleton instance of AutoSplitter for this compilation context */
+    public static AutoSplitter instance(Context context) {
+        AutoSplitter instance = context.get(autoSplitterKey);
+        if (instance == null) {
+            instance = new AutoSplitter(context);
+            context.put(autoSplitterKey,instance);
+        }
+        return instance;
+    }
+
+    @NonNull final protected Context context;
+
+    @NonNull final protected Utils utils;
+
+    /** The split points chosen so far, by method signature, as a
+     * comma-separated list of indices into splitPoints(method) */
+    final protected Properties record = new Properties();
+
+    /** The file in which the record is kept, or null */
+    protected File file = null;
+
+    /** True if the record has changed since it was read */
+    protected boolean changed = false;
+
+    protected AutoSplitter(Context context) {
+        this.context = context;
+        this.utils = Utils.instance(context);
+        String name = JmlOption.value(context, JmlOption.ESC_AUTO_SPLIT_FILE);
+        if (name != null && !name.isEmpty()) {
+            file = new File(name);
+            if (file.exists()) {
+                try (InputStream in = new FileInputStream(file)) {
+                    record.load(in);
+                } catch (IOException e) {
+                    Log.instance(context).warning("jml.message", "Could not read the split record " + file + ": " + e);
+                }
+            }
+        }
+    }
+
+    /** Returns the fraction of the timeout after which a proof attempt is
+     * abandoned in favor of splitting, or 0 if automatic splitting is off */
+    public double fraction() {
+        String v = JmlOption.value(context, JmlOption.ESC_AUTO_SPLIT);
+        if (v == null || v.isEmpty()) return 0;
+        try {
+            double d = Double.parseDouble(v);
+            return d > 0 && d <= 1 ? d : 0;
+        } catch (NumberFormatException e) {
+            Log.instance(context).warning("jml.message", "Expected a number between 0 and 1 for -escAutoSplit: " + v);
+            return 0;
+        }
+    }
+
+    /** The if and switch statements at the top level of the method body
+     * (including within nested plain blocks), in textual order; these are the
+     * candidate split points. */
+    public static List<JCStatement> splitPoints(JmlMethodDecl m) {
+        List<JCStatement> list = new ArrayList<JCStatement>();
+        if (m.body != null) collect(m.body, list);
+        return list;
+    }
+
+    private static void collect(JCBlock block, List<JCStatement> list) {
+        for (JCStatement s: block.stats) {
+            if (s instanceof JmlIfStatement || s instanceof JmlSwitchStatement) list.add(s);
+            else if (s instanceof JCBlock) collect((JCBlock)s, list);
+        }
+    }
+
+    /** Returns an empty set of chosen split points, for one proof */
+    public static Set<JCStatement> newSplits() {
+        return Collections.newSetFromMap(new IdentityHashMap<JCStatement,Boolean>());
+    }
+
+    /** True if the statement is a split point, either in the source or as chosen for this proof */
+    public static boolean isSplit(JCStatement s, Set<JCStatement> chosen) {
+        if (chosen.contains(s)) return true;
+        return s instanceof JmlIfStatement ? ((JmlIfStatement)s).split : ((JmlSwitchStatement)s).split;
+    }
+
+    /** True if the method has a candidate split point that is not yet used */
+    public boolean canSplit(JmlMethodDecl m, Set<JCStatement> chosen) {
+        for (JCStatement s: splitPoints(m)) if (!isSplit(s, chosen)) return true;
+        return false;
+    }
+
+    /** Adds to the chosen split points those recorded for this method by
+     * earlier proofs; returns true if any was not already a split point. */
+    public boolean restore(JmlMethodDecl m, Set<JCStatement> chosen) {
+        String v = record.getProperty(utils.qualifiedMethodSig(m.sym));
+        if (v == null || v.isEmpty()) return false;
+        List<JCStatement> points = splitPoints(m);
+        boolean any = false;
+        for (String n: v.split(",")) {
+            try {
+                int k = Integer.parseInt(n.trim());
+                if (k < points.size() && !isSplit(points.get(k), chosen)) {
+                    chosen.add(points.get(k));
+                    any = true;
+                }
+            } catch (NumberFormatException e) {
+                // skip - the record is advisory
+            }
+        }
+        return any;
+    }
+
+    /** Adds the next unused candidate of the method to the chosen split
+     * points, records it, and translates the given split again. Returns the
+     * keys that have replaced 'key', in order, or an empty list if there was
+     * nothing to split or the split point is not reached in this split (in
+     * which case 'key' has been translated again as it was). */
+    public List<String> split(JmlMethodDecl m, Set<JCStatement> chosen, JmlAssertionAdder assertionAdder, Translations t, String key) {
+        List<String> result = new LinkedList<String>();
+        List<JCStatement> points = splitPoints(m);
+        int k = 0;
+        while (k < points.size() && isSplit(points.get(k), chosen)) k++;
+        if (k == points.size()) return result;
+        chosen.add(points.get(k));
+        String sig = utils.qualifiedMethodSig(m.sym);
+        String v = record.getProperty(sig);
+        record.setProperty(sig, v == null || v.isEmpty() ? Integer.toString(k) : v + "," + k);
+        changed = true;
+
+        List<String> keys = new LinkedList<String>();
+        keys.add(key);
+        assertionAdder.retranslate(m, t, keys, chosen);
+        for (String s: t.keys()) {
+            if (s.startsWith(key) && !s.equals(key)) result.add(s);
+        }
+        return result;
+    }
+
+    /** Writes the record to the -escAutoSplitFile, if there is one and it has changed */
+    public void save() {
+        if (file == null || !changed) return;
+        try (OutputStream out = new FileOutputStream(file)) {
+            record.store(out, "Split points chosen by -escAutoSplit");
+            changed = false;
+        } catch (IOException e) {
+            Log.instance(context).warning("jml.message", "Could not write the split record " + file + ": " + e);
+        }
+    }
+}
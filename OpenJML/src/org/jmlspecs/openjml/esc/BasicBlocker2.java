@@ -7,7 +7,6 @@ package org.jmlspecs.openjml.esc;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -35,6 +34,7 @@ import static org.jmlspecs.openjml.ext.Functional.*;
 import org.jmlspecs.openjml.ext.EndStatement;
 import org.jmlspecs.openjml.ext.Operators;
 import org.jmlspecs.openjml.ext.QuantifiedExpressions;
+import org.jmlspecs.openjml.utils.PersistentHashMap;
 import org.jmlspecs.openjml.vistors.JmlTreeScanner;
 
 import com.sun.tools.javac.code.*;
@@ -244,6 +244,13 @@ public class BasicBlocker2 extends BasicBlockerParent<BasicProgram.BasicBlock,Ba
      * of the label.
      */
     @NonNull final protected Map<Name,VarMap> labelmaps = new HashMap<Name,VarMap>();
+    
+    /** The names (at incarnation 0) of variables whose first use was not a
+     * definition. Every VarMap (in blockmaps, labelmaps or created later) that has
+     * no explicit entry for such a variable implicitly maps it to this name, so
+     * a newly seen variable does not have to be back-filled into every saved map.
+     */
+    @NonNull final protected Map<VarSymbol,Name> firstNames = new HashMap<VarSymbol,Name>();
         
     /** Contains names for which a declaration has been issued. */
     final protected Set<Name> isDefined = new HashSet<Name>();
@@ -307,6 +314,7 @@ public class BasicBlocker2 extends BasicBlockerParent<BasicProgram.BasicBlock,Ba
         this.background = new LinkedList<JCExpression>();
         this.blockmaps.clear();
         this.labelmaps.clear();
+        this.firstNames.clear();
         this.bimap.clear();
         this.pathmap.clear();
         this.heapVar = treeutils.makeIdent(0,assertionAdder.heapSym);
@@ -790,7 +798,9 @@ public class BasicBlocker2 extends BasicBlockerParent<BasicProgram.BasicBlock,Ba
                 combined.putAll(m);
             }
             //combined.everythingSAversion = maxe;
-            for (VarSymbol sym: combined.keySet()) {
+            // Symbols that are only implicitly present (via firstNames) in every
+            // preceding map are at incarnation 0 everywhere and need no merging
+            for (VarSymbol sym: combined.explicitKeySet()) {
                 if (sym.owner instanceof Symbol.ClassSymbol) {
                     // If the symbol is owned by a class, then it is implicitly part of each VarMap,
                     // even if it is not explicitly listed.
@@ -2197,43 +2207,43 @@ public class BasicBlocker2 extends BasicBlockerParent<BasicProgram.BasicBlock,Ba
     // The class is intentionally not static - so it can use encodedName
     public class VarMap {
         // The maps allow VarSymbol or TypeSymbol (for TypeVar)
-        private Map<VarSymbol,Long> mapSAVersion = new HashMap<VarSymbol,Long>();
-        private Map<TypeSymbol,Long> maptypeSAVersion = new HashMap<TypeSymbol,Long>();
-        private Map<Symbol,Name> mapname = new HashMap<Symbol,Name>();
+        // They are persistent maps, so copy() shares structure rather than cloning;
+        // the fields are replaced (not mutated) on each update.
+        private PersistentHashMap<VarSymbol,Long> mapSAVersion = PersistentHashMap.empty();
+        private PersistentHashMap<TypeSymbol,Long> maptypeSAVersion = PersistentHashMap.empty();
+        private PersistentHashMap<Symbol,Name> mapname = PersistentHashMap.empty();
         
-        /** Returns a copy of the map */
+        /** Returns a copy of the map; this is a constant-time operation */
         public VarMap copy() {
             VarMap v = new VarMap();
-            v.mapSAVersion.putAll(this.mapSAVersion);
-            v.maptypeSAVersion.putAll(this.maptypeSAVersion);
-            v.mapname.putAll(this.mapname);
+            v.mapSAVersion = this.mapSAVersion;
+            v.maptypeSAVersion = this.maptypeSAVersion;
+            v.mapname = this.mapname;
             return v;
         }
         
-        /** Returns the name for a variable symbol as stored in this map */
+        /** Returns the name for a variable symbol as stored in this map, 
+         * or its first-use name if it has no explicit entry */
         public /*@Nullable*/ Name getName(VarSymbol vsym) {
             Name s = mapname.get(vsym);
+            if (s == null) s = firstNames.get(vsym);
             return s;
         }
         
         /** Returns the name for a variable symbol as stored in this map, creating (and
          * storing) one if it is not present. */
         public /*@NonNull*/ Name getCurrentName(VarSymbol vsym) {
-            Name s = mapname.get(vsym);
+            Name s = getName(vsym);
             if (vsym == syms.lengthVar) return vsym.name;
             if (s == null) {
-                // If there was no mapping at all, we add the name to 
-                // all existing maps, with an incarnation number of 0.
-                // This makes sure that any maps at labels have a definition
-                // of the variable.
+                // If there was no mapping at all, we record the name as the 
+                // first-use name, with an incarnation number of 0. That makes it
+                // implicitly present in all existing (and future) maps that do
+                // not have their own entry, so that any maps at labels have 
+                // a definition of the variable.
                 // FIXME - this does not handle a havoc between labels, 
                 s = encodedName(vsym,vsym.pos);
-                for (VarMap map: blockmaps.values()) {
-                    if (map.mapname.get(vsym) == null) map.putSAVersion(vsym,s,0L);
-                }
-                for (VarMap map: labelmaps.values()) {
-                    if (map.mapname.get(vsym) == null) map.putSAVersion(vsym,s,0L);
-                }
+                firstNames.put(vsym,s);
 
                 if (isDefined.add(s)) {
                     JCIdent idd = treeutils.makeIdent(vsym.pos,s,vsym);
@@ -2268,16 +2278,13 @@ public class BasicBlocker2 extends BasicBlockerParent<BasicProgram.BasicBlock,Ba
         public Long getSAVersionNum(VarSymbol vsym) {
             Long i = mapSAVersion.get(vsym);
             if (i == null) {
-                Name n = encodedName(vsym,0L);
-                for (VarMap map: blockmaps.values()) {
-                    map.putSAVersion(vsym,n,0L);
-                }
-                for (VarMap map: labelmaps.values()) {
-                    map.putSAVersion(vsym,n,0L);
-                }
-                if (isDefined.add(n)) {
-                    JCIdent id = treeutils.makeIdent(vsym.pos,n,vsym);
-                    addDeclaration(id);
+                if (!firstNames.containsKey(vsym)) {
+                    Name n = encodedName(vsym,0L);
+                    firstNames.put(vsym,n);
+                    if (isDefined.add(n)) {
+                        JCIdent id = treeutils.makeIdent(vsym.pos,n,vsym);
+                        addDeclaration(id);
+                    }
                 }
                 i = 0L;
             }
@@ -2289,49 +2296,61 @@ public class BasicBlocker2 extends BasicBlockerParent<BasicProgram.BasicBlock,Ba
         public Long getSAVersionNum(TypeSymbol vsym) {
             Long i = maptypeSAVersion.get(vsym);
             if (i == null) {
-                maptypeSAVersion.put(vsym,(i=0L));
+                maptypeSAVersion = maptypeSAVersion.put(vsym,(i=0L));
             }
             return i;
         }
         
         /** Stores a new SA version of a symbol, with a custom name */
         public void putSAVersion(VarSymbol vsym, Name s, long version) {
-            mapSAVersion.put(vsym,version);
-            mapname.put(vsym,s);
+            mapSAVersion = mapSAVersion.put(vsym,version);
+            mapname = mapname.put(vsym,s);
         }
         
         /** Stores a new SA version of a symbol */
         public Name putSAVersion(VarSymbol vsym, long version) {
             Name s = encodedName(vsym,version);
-            mapSAVersion.put(vsym,version);
-            mapname.put(vsym,s);
+            mapSAVersion = mapSAVersion.put(vsym,version);
+            mapname = mapname.put(vsym,s);
             return s;
         }
         
         /** Stores a new SA version of a type symbol */
         public void putSAVersion(TypeSymbol vsym, Name s) {
-            maptypeSAVersion.put(vsym,0L);
-            mapname.put(vsym,s);
+            maptypeSAVersion = maptypeSAVersion.put(vsym,0L);
+            mapname = mapname.put(vsym,s);
         }
 
         /** Adds everything in the argument map into the receiver's map */
         public void putAll(VarMap m) {
-            mapSAVersion.putAll(m.mapSAVersion);
-            maptypeSAVersion.putAll(m.maptypeSAVersion);
-            mapname.putAll(m.mapname);
+            mapSAVersion = mapSAVersion.putAll(m.mapSAVersion);
+            maptypeSAVersion = maptypeSAVersion.putAll(m.maptypeSAVersion);
+            mapname = mapname.putAll(m.mapname);
         }
         
-        /** Removes a symbol from the map, as when it goes out of scope or
-         * when a temporary variable is no longer needed. */
+        /** Removes a symbol's explicit entry from the map, as when it goes out 
+         * of scope or when a temporary variable is no longer needed. A symbol
+         * that has a first-use name reverts to that name, at incarnation 0. */
         public Long remove(Symbol v) {
-            mapname.remove(v);
-            return mapSAVersion.remove(v);
+            Long old = mapSAVersion.get(v);
+            mapname = mapname.remove(v);
+            mapSAVersion = mapSAVersion.remove(v);
+            return old;
         }
         
-        /** Returns the Set of all variable Symbols that are in the map;
+        /** Returns the Set of all variable Symbols that are in the map, including
+         * those only implicitly present through a first-use name;
          * note that variables that are in scope but have not been used
          * will not necessarily be present in the map. */
         public Set<VarSymbol> keySet() {
+            if (firstNames.isEmpty()) return mapSAVersion.keySet();
+            Set<VarSymbol> keys = new HashSet<VarSymbol>(firstNames.keySet());
+            keys.addAll(mapSAVersion.keySet());
+            return keys;
+        }
+        
+        /** Returns the Set of variable Symbols that have an explicit entry in this map */
+        public Set<VarSymbol> explicitKeySet() {
             return mapSAVersion.keySet();
         }
         
@@ -2347,17 +2366,13 @@ public class BasicBlocker2 extends BasicBlockerParent<BasicProgram.BasicBlock,Ba
         public String toString() {
             StringBuilder s = new StringBuilder();
             s.append("[");
-            Iterator<Map.Entry<VarSymbol,Long>> entries = mapSAVersion.entrySet().iterator();
-            while (entries.hasNext()) {
-                Map.Entry<VarSymbol,Long> entry = entries.next();
+            for (Map.Entry<VarSymbol,Long> entry: mapSAVersion) {
                 s.append(entry.getKey());
                 s.append("=");
                 s.append(entry.getValue());
                 s.append(",");
             }
-            Iterator<Map.Entry<TypeSymbol,Long>> entriest = maptypeSAVersion.entrySet().iterator();
-            while (entries.hasNext()) {
-                Map.Entry<TypeSymbol,Long> entry = entriest.next();
+            for (Map.Entry<TypeSymbol,Long> entry: maptypeSAVersion) {
                 s.append(entry.getKey());
                 s.append("=");
                 s.append(entry.getValue());
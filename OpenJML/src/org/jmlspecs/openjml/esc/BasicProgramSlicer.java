@@ -0,0 +1,418 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.esc;
+
+import static org.jmlspecs.openjml.ext.StatementExprExtensions.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jmlspecs.annotation.Nullable;
+import org.jmlspecs.openjml.JmlTree;
+import org.jmlspecs.openjml.JmlTree.JmlStatementExpr;
+import org.jmlspecs.openjml.JmlTree.JmlVariableDecl;
+import org.jmlspecs.openjml.vistors.JmlTreeScanner;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCStatement;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+
+/** This class implements a cone-of-influence slice of a BasicProgram for a
+ * chosen set of assertions (by default, all of them):
+ * <UL>
+ * <LI>blocks that are not reachable from the start block, or from which no
+ * block holding a chosen assertion can be reached, are removed; such a block
+ * checks nothing, so its block equation is true on every path;
+ * <LI>the assertions that are not chosen become assumptions, as they are
+ * checked elsewhere (see sliceFor);
+ * <LI>the definitions, declarations and background assertions that the
+ * chosen assertions do not (transitively) depend on are removed; since the
+ * SMT translation declares only the types that occur in what it translates,
+ * the type axioms shrink accordingly;
+ * <LI>optionally, so are the assumptions of the remaining blocks that the
+ * chosen assertions do not depend on.
+ * </UL>
+ * Dependence is by name: a definition (or a declaration with an initializer
+ * in a block) is kept if the name it defines is live, and then the names in
+ * its value are live too; an assumption or background assertion is kept if it
+ * mentions any live name (or no names at all), and then all its names are
+ * live. This errs on the side of keeping too much.
+ * <P>
+ * Removing an assumption that shares no names with the chosen assertions
+ * cannot make an invalid assertion appear valid. It can make a valid one
+ * appear invalid only if the removed assumptions are themselves inconsistent,
+ * that is, if they made the path to the assertion infeasible. The feasibility
+ * checks look for exactly that, through assertions that name nothing but the
+ * assume-check variable, so assumptions must be kept whenever feasibility is
+ * to be checked with the sliced program.
+ */
+public class BasicProgramSlicer {
+
+    /** Collects the names used in a tree */
+    static protected class NameCollector extends JmlTreeScanner {
+        final public Set<Name> names = new HashSet<Name>();
+
+        @Override
+        public void visitIdent(JCIdent that) {
+            names.add(that.name);
+        }
+
+        @Override
+        public void visitSelect(JCFieldAccess that) {
+            names.add(that.name);
+            super.visitSelect(that);
+        }
+
+        @Override
+        public void visitJmlVariableDecl(JmlVariableDecl that) {
+            names.add(that.name);
+            super.visitJmlVariableDecl(that);
+        }
+
+        static public Set<Name> collect(JCTree tree) {
+            NameCollector c = new NameCollector();
+            c.scan(tree);
+            return c.names;
+        }
+    }
+
+    /** Something that is kept only if the slice depends on it: a background
+     * assertion, or an assumption in a block. */
+    static protected class Item {
+        final Set<Name> names;
+        boolean kept;
+        Item(Set<Name> names) {
+            this.names = names;
+            this.kept = names.isEmpty(); // e.g. assume false
+        }
+    }
+
+    /** If true, the assumptions in the remaining blocks that the chosen
+     * assertions do not depend on are removed as well */
+    public boolean pruneAssumptions;
+
+    /** The number of items removed by the most recent slice, by kind */
+    public int removedBlocks, removedDefinitions, removedDeclarations, removedBackground, removedAssumptions;
+
+    /** Creates a slicer; assumptions are kept unless pruneAssumptions is set */
+    public BasicProgramSlicer(boolean pruneAssumptions) {
+        this.pruneAssumptions = pruneAssumptions;
+    }
+
+    /** Slices the given program in place, for checking all of its assertions */
+    public void slice(BasicProgram program) {
+        slice(program, null);
+    }
+
+    /** Returns a copy of the program sliced for checking just the given
+     * assertions, which are statements of its blocks; the program itself is
+     * not changed. In the copy the other assertions are assumptions, which
+     * is sound as long as they are checked by some other query. The copy
+     * shares its statements and expressions with the program, apart from the
+     * assumptions made from assertions.
+     */
+    public BasicProgram sliceFor(Context context, BasicProgram program, Collection<JmlStatementExpr> targets) {
+        BasicProgram copy = new BasicProgram(context);
+        copy.startId = program.startId;
+        copy.methodDecl = program.methodDecl;
+        copy.assumeCheckVar = program.assumeCheckVar;
+        copy.assumptionsToCheck.addAll(program.assumptionsToCheck);
+        copy.definitions.addAll(program.definitions);
+        copy.declarations.addAll(program.declarations);
+        copy.background.addAll(program.background);
+        Set<JmlStatementExpr> chosen = Collections.newSetFromMap(new IdentityHashMap<JmlStatementExpr,Boolean>());
+        chosen.addAll(targets);
+        JmlTree.Maker M = JmlTree.Maker.instance(context);
+        Map<BasicProgram.BasicBlock,BasicProgram.BasicBlock> copies = new HashMap<BasicProgram.BasicBlock,BasicProgram.BasicBlock>();
+        for (BasicProgram.BasicBlock b: program.blocks()) {
+            BasicProgram.BasicBlock bb = copy.newBlock(b.id);
+            bb.unique = b.unique;
+            bb.sourceId = b.sourceId;
+            bb.methodInfoMap = b.methodInfoMap;
+            for (JCStatement st: b.statements()) {
+                if (st instanceof JmlStatementExpr && isAssertion((JmlStatementExpr)st) && !chosen.contains(st)) {
+                    JmlStatementExpr s = (JmlStatementExpr)st;
+                    JmlStatementExpr a = M.at(s.pos).JmlExpressionStatement(assumeID, assumeClause, s.label, s.expression);
+                    a.source = s.source;
+                    a.associatedPos = s.associatedPos;
+                    a.associatedSource = s.associatedSource;
+                    st = a;
+                }
+                bb.statements().add(st);
+            }
+            copies.put(b, bb);
+            copy.blocks().add(bb);
+        }
+        for (BasicProgram.BasicBlock b: program.blocks()) {
+            BasicProgram.BasicBlock bb = copies.get(b);
+            for (BasicProgram.BasicBlock f: b.followers()) bb.followers().add(copies.get(f));
+            for (BasicProgram.BasicBlock p: b.preceders()) bb.preceders().add(copies.get(p));
+        }
+        slice(copy, chosen);
+        return copy;
+    }
+
+    /** Divides the assertions of the program into at most 'count' groups, to
+     * be checked by separate queries, each made by sliceFor. The cone of an
+     * assertion is the set of blocks from which its block can be reached,
+     * which is what a slice for it keeps; the assertions are taken in order
+     * of decreasing cone, each opening a new group while there are fewer than
+     * 'count' of them and otherwise joining the group whose cone it enlarges
+     * least (the smallest of those, if there is a tie). So assertions on
+     * separate branches tend to fall in separate groups, and assertions in
+     * the same place are spread over the groups. The groups are returned in
+     * the order of their first assertions, each in program order.
+     * Returns null if the program has check statements, whose verdicts
+     * (satisfiability of each of them) are not those of assertions.
+     */
+    //@ nullable
+    static public List<List<JmlStatementExpr>> partition(BasicProgram program, int count) {
+        List<BasicProgram.BasicBlock> blocks = program.blocks();
+        Map<BasicProgram.BasicBlock,Integer> index = new HashMap<BasicProgram.BasicBlock,Integer>();
+        for (BasicProgram.BasicBlock b: blocks) index.put(b, index.size());
+        final List<JmlStatementExpr> asserts = new ArrayList<JmlStatementExpr>();
+        final List<BitSet> cones = new ArrayList<BitSet>();
+        for (BasicProgram.BasicBlock b: blocks) {
+            BitSet cone = null;
+            for (JCStatement st: b.statements()) {
+                if (!(st instanceof JmlStatementExpr)) continue;
+                JmlStatementExpr s = (JmlStatementExpr)st;
+                if (s.clauseType == checkClause) return null;
+                if (s.clauseType != assertClause) continue;
+                if (cone == null) {
+                    cone = new BitSet(blocks.size());
+                    Deque<BasicProgram.BasicBlock> todo = new ArrayDeque<BasicProgram.BasicBlock>();
+                    todo.add(b);
+                    cone.set(index.get(b));
+                    while (!todo.isEmpty()) {
+                        for (BasicProgram.BasicBlock p: todo.remove().preceders()) {
+                            Integer i = index.get(p);
+                            if (i != null && !cone.get(i)) { cone.set(i); todo.add(p); }
+                        }
+                    }
+                }
+                asserts.add(s);
+                cones.add(cone);
+            }
+        }
+        List<Integer> order = new ArrayList<Integer>(asserts.size());
+        for (int i = 0; i < asserts.size(); i++) order.add(i);
+        Collections.sort(order, (i, j) -> cones.get(j).cardinality() - cones.get(i).cardinality());
+
+        List<BitSet> groupCones = new ArrayList<BitSet>();
+        List<BitSet> members = new ArrayList<BitSet>();
+        for (int i: order) {
+            BitSet cone = cones.get(i);
+            int best = -1, bestAdded = 0;
+            if (groupCones.size() >= count) {
+                for (int g = 0; g < groupCones.size(); g++) {
+                    BitSet added = (BitSet)cone.clone();
+                    added.andNot(groupCones.get(g));
+                    int n = added.cardinality();
+                    if (best < 0 || n < bestAdded || (n == bestAdded
+                            && members.get(g).cardinality() < members.get(best).cardinality())) {
+                        best = g;
+                        bestAdded = n;
+                    }
+                }
+            }
+            if (best < 0) {
+                best = groupCones.size();
+                groupCones.add(new BitSet(blocks.size()));
+                members.add(new BitSet(asserts.size()));
+            }
+            groupCones.get(best).or(cone);
+            members.get(best).set(i);
+        }
+        Collections.sort(members, (a, b) -> a.nextSetBit(0) - b.nextSetBit(0));
+        List<List<JmlStatementExpr>> groups = new ArrayList<List<JmlStatementExpr>>(members.size());
+        for (BitSet m: members) {
+            List<JmlStatementExpr> group = new ArrayList<JmlStatementExpr>(m.cardinality());
+            for (int i = m.nextSetBit(0); i >= 0; i = m.nextSetBit(i+1)) group.add(asserts.get(i));
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /** True for the statements that are checked: assert and check statements */
+    static protected boolean isAssertion(JmlStatementExpr s) {
+        return s.clauseType == assertClause || s.clauseType == checkClause;
+    }
+
+    /** Slices the given program in place, for checking the given assertions,
+     * or all of them if the argument is null; any other assertions must
+     * already have been made assumptions. */
+    protected void slice(BasicProgram program, @Nullable Set<JmlStatementExpr> targets) {
+        removedBlocks = removedDefinitions = removedDeclarations = removedBackground = removedAssumptions = 0;
+
+        // Blocks reachable from the start block
+        BasicProgram.BasicBlock startBlock = program.startBlock();
+        Set<BasicProgram.BasicBlock> reachable = new HashSet<BasicProgram.BasicBlock>();
+        Deque<BasicProgram.BasicBlock> todo = new ArrayDeque<BasicProgram.BasicBlock>();
+        todo.add(startBlock);
+        while (!todo.isEmpty()) {
+            BasicProgram.BasicBlock b = todo.remove();
+            if (reachable.add(b)) todo.addAll(b.followers());
+        }
+
+        // Of those, the blocks from which an assertion being checked can be reached
+        List<JmlStatementExpr> asserts = new ArrayList<JmlStatementExpr>();
+        Set<BasicProgram.BasicBlock> live = new HashSet<BasicProgram.BasicBlock>();
+        for (BasicProgram.BasicBlock b: program.blocks()) {
+            if (!reachable.contains(b)) continue;
+            for (JCStatement st: b.statements()) {
+                if (st instanceof JmlStatementExpr && isAssertion((JmlStatementExpr)st)
+                        && (targets == null || targets.contains(st))) {
+                    asserts.add((JmlStatementExpr)st);
+                    if (live.add(b)) todo.add(b);
+                }
+            }
+        }
+        while (!todo.isEmpty()) {
+            BasicProgram.BasicBlock b = todo.remove();
+            for (BasicProgram.BasicBlock p: b.preceders()) {
+                if (reachable.contains(p) && live.add(p)) todo.add(p);
+            }
+        }
+        live.add(startBlock);
+        Iterator<BasicProgram.BasicBlock> biter = program.blocks().iterator();
+        while (biter.hasNext()) {
+            BasicProgram.BasicBlock b = biter.next();
+            if (!live.contains(b)) {
+                biter.remove();
+                removedBlocks++;
+            } else {
+                b.preceders().retainAll(live);
+                b.followers().retainAll(live);
+            }
+        }
+
+        // The names the checked assertions depend on, directly or through
+        // definitions, assumptions and background assertions
+        Set<Name> liveNames = new HashSet<Name>();
+        Deque<Name> pending = new ArrayDeque<Name>();
+        NameCollector roots = new NameCollector();
+        for (BasicProgram.BasicBlock b: program.blocks()) {
+            roots.names.add(b.id().name);
+            if (!pruneAssumptions) {
+                for (JCStatement s: b.statements()) roots.scan(s);
+            }
+        }
+        if (pruneAssumptions) {
+            for (JmlStatementExpr s: asserts) roots.scan(s);
+        }
+        if (program.assumeCheckVar != null) roots.names.add(program.assumeCheckVar.name);
+        for (Map.Entry<JCExpression,String> e: program.assumptionsToCheck) roots.scan(e.getKey());
+        for (Name n: roots.names) if (liveNames.add(n)) pending.add(n);
+
+        // Definitions, by the name defined; declarations with initializers
+        // in the blocks are definitions too
+        Map<Name,List<JCTree>> definitionsOf = new HashMap<Name,List<JCTree>>();
+        for (BasicProgram.Definition d: program.definitions()) {
+            addTo(definitionsOf, d.id.name, d.value);
+        }
+        // Assumptions and background assertions, by the names they mention
+        Map<Name,List<Item>> itemsUsing = new HashMap<Name,List<Item>>();
+        Map<JCStatement,Item> statementItems = new IdentityHashMap<JCStatement,Item>();
+        if (pruneAssumptions) {
+            for (BasicProgram.BasicBlock b: program.blocks()) {
+                for (JCStatement st: b.statements()) {
+                    if (st instanceof JmlVariableDecl) {
+                        JmlVariableDecl d = (JmlVariableDecl)st;
+                        if (d.init != null) addTo(definitionsOf, d.name, d.init);
+                    } else if (st instanceof JmlStatementExpr && ((JmlStatementExpr)st).clauseType == assumeClause) {
+                        Item item = new Item(NameCollector.collect(((JmlStatementExpr)st).expression));
+                        statementItems.put(st, item);
+                        for (Name n: item.names) addTo(itemsUsing, n, item);
+                    }
+                }
+            }
+        }
+        List<JCExpression> background = program.background();
+        List<Item> backgroundItems = new ArrayList<Item>(background.size());
+        for (JCExpression e: background) {
+            Item item = new Item(NameCollector.collect(e));
+            backgroundItems.add(item);
+            for (Name n: item.names) addTo(itemsUsing, n, item);
+        }
+
+        while (!pending.isEmpty()) {
+            Name n = pending.remove();
+            List<JCTree> defs = definitionsOf.get(n);
+            if (defs != null) {
+                for (JCTree d: defs) {
+                    for (Name nn: NameCollector.collect(d)) if (liveNames.add(nn)) pending.add(nn);
+                }
+            }
+            List<Item> uses = itemsUsing.get(n);
+            if (uses != null) {
+                for (Item item: uses) {
+                    if (item.kept) continue;
+                    item.kept = true;
+                    for (Name nn: item.names) if (liveNames.add(nn)) pending.add(nn);
+                }
+            }
+        }
+
+        Iterator<BasicProgram.Definition> diter = program.definitions().iterator();
+        while (diter.hasNext()) {
+            if (!liveNames.contains(diter.next().id.name)) {
+                diter.remove();
+                removedDefinitions++;
+            }
+        }
+        Iterator<JCIdent> iiter = program.declarations.iterator();
+        while (iiter.hasNext()) {
+            if (!liveNames.contains(iiter.next().name)) {
+                iiter.remove();
+                removedDeclarations++;
+            }
+        }
+        List<JCExpression> kept = new ArrayList<JCExpression>(background.size());
+        for (int i = 0; i < background.size(); i++) {
+            if (backgroundItems.get(i).kept) kept.add(background.get(i));
+        }
+        removedBackground = background.size() - kept.size();
+        background.clear();
+        background.addAll(kept);
+        if (pruneAssumptions) {
+            for (BasicProgram.BasicBlock b: program.blocks()) {
+                Iterator<JCStatement> siter = b.statements().iterator();
+                while (siter.hasNext()) {
+                    JCStatement st = siter.next();
+                    Item item = statementItems.get(st);
+                    boolean unused = item != null ? !item.kept
+                            : st instanceof JmlVariableDecl && !liveNames.contains(((JmlVariableDecl)st).name);
+                    if (unused) {
+                        siter.remove();
+                        removedAssumptions++;
+                    }
+                }
+            }
+        }
+    }
+
+    static private <T> void addTo(Map<Name,List<T>> map, Name n, T t) {
+        List<T> list = map.get(n);
+        if (list == null) map.put(n, list = new LinkedList<T>());
+        list.add(t);
+    }
+}
@@ -27,6 +27,11 @@ public class BiMap<T1,T2> {
         return reverse.get(t);
     }
     
+    public void remove(T1 t1) {
+        T2 t2 = forward.remove(t1);
+        if (t2 != null && reverse.get(t2) == t1) reverse.remove(t2);
+    }
+    
     public void clear() {
         forward.clear();
         reverse.clear();
@@ -384,6 +384,78 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         currentSplit = split;
     }
     
+    /** When non-null, the next method translated completes these Translations
+     * rather than starting a new set */
+    protected Translations pendingTranslations = null;
+    
+    /** Translates the given method again for each of the given split keys,
+     * replacing their earlier translations (and feasibility checks) in t.
+     * This is used when split points have been added to the method since
+     * it was first translated; a key that now reaches a new split point is
+     * replaced in t by its sub-keys.
+     */
+    public void retranslate(JmlMethodDecl m, Translations t, java.util.Collection<String> keys) {
+        retranslate(m, t, keys, java.util.Collections.<JCStatement>emptySet());
+    }
+
+    /** As above, but with the given if and switch statements of the method
+     * also treated as split points (see AutoSplitter) */
+    public void retranslate(JmlMethodDecl m, Translations t, java.util.Collection<String> keys, java.util.Set<JCStatement> splitPoints) {
+        for (String k: keys) {
+            t.splits.put(k, null);
+            assumeChecks.remove(assumeKey(m,k));
+        }
+        pendingTranslations = t;
+        extraSplitPoints = splitPoints;
+        try {
+            convert(m);
+        } finally {
+            pendingTranslations = null;
+            extraSplitPoints = java.util.Collections.<JCStatement>emptySet();
+        }
+    }
+
+    /** Statements to be treated as split points, besides those marked by a
+     * split statement, during a retranslation */
+    protected java.util.Set<JCStatement> extraSplitPoints = java.util.Collections.<JCStatement>emptySet();
+
+    /** Discards the translations of the given method and their feasibility
+     * checks; used (with -escBoundedMemory) once the method's proof result
+     * has been reported, since nothing refers to them afterwards. */
+    public void releaseMethod(JmlMethodDecl m) {
+        Translations t = methodBiMap.getf(m);
+        if (t == null) return;
+        for (String k: t.splits.keySet()) assumeChecks.remove(assumeKey(m,k));
+        t.splits.clear();
+        methodBiMap.remove(m);
+    }
+
+    /** Discards all the trees and maps built while translating; the adder
+     * must not be used afterwards. */
+    public void releaseTranslations() {
+        exprBiMap.clear();
+        pathMap.clear();
+        methodBiMap.clear();
+        classBiMap.clear();
+        treeMap.clear();
+        assumeChecks.clear();
+        preconditions.clear();
+        exceptionSymbols.clear();
+        terminationSymbols.clear();
+        oldHeapMethods.clear();
+        constants.clear();
+        dynamicTypes.clear();
+        wellDefinedCheck.clear();
+        showExpressions.clear();
+        overriddenCache.clear();
+        parentTypes.clear();
+        parentTypesWithEnclosing.clear();
+        invariantClauses.clear();
+        invariantParents.clear();
+        translations = null;
+        classDefs = null;
+    }
+
     /** The counter used to make uniquely named variables for preconditions,
      * unique within a method body. */
     int precount = 0;
@@ -1609,9 +1681,7 @@ public class JmlAssertionAdder extends JmlTreeScanner {
     }
     
     public IArithmeticMode pushArithMode() {
-        Arithmetic.Math.instance(context).rac = rac; // FIXME - HACK FOR NOW
         IArithmeticMode saved = currentArithmeticMode;
-        Arithmetic.Math.instance(context).rac = rac; // FIXME - HACK FOR NOW
         currentArithmeticMode = Arithmetic.Math.instance(context).defaultArithmeticMode(
                 methodDecl != null ? methodDecl.sym : classDecl.sym,true);
         return saved;
@@ -1700,7 +1770,6 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         JCExpression savedc = this.condition;
         try {
             if (!translatingJML) {  // FIXME - not sure about this translatingJML guard
-                Arithmetic.Math.instance(context).rac = rac; // FIXME - HACK FOR NOW
                 currentArithmeticMode = Arithmetic.Math.instance(context).defaultArithmeticMode(
                         methodDecl != null ? methodDecl.sym : classDecl.sym,true);
                 if (condition == null) condition = treeutils.trueLit;
@@ -1936,8 +2005,8 @@ public class JmlAssertionAdder extends JmlTreeScanner {
     
     // FIXME - this is a hack - fix and document
     // These are used so that we don't send repeated notImplemented messages
-    static Set<String> racMessages = new HashSet<String>();
-    static Set<String> escMessages = new HashSet<String>();
+    final protected Set<String> racMessages = new HashSet<String>();
+    final protected Set<String> escMessages = new HashSet<String>();
     
     /** Issues a diagnostic message (note) containing the message in the given
      * exception.
@@ -2141,7 +2210,7 @@ public class JmlAssertionAdder extends JmlTreeScanner {
     protected void addAssumeCheck(JCTree item, ListBuffer<JCStatement> list, String description) {
         addAssumeCheck(item,list,description,treeutils.trueLit);
     }
-    public static boolean useAssertCount = true;
+    public boolean useAssertCount = true;
     
     /** Creates a statement at which we can check feasibility */
     protected void addAssumeCheck(JCTree item, ListBuffer<JCStatement> list, String description, JCExpression predicate) {
@@ -2754,7 +2823,7 @@ public class JmlAssertionAdder extends JmlTreeScanner {
                                 isConstructor, assume, contextIsStatic, ctype,
                                 csym);
                         // Do the actual invariants
-                        for (JmlTypeClause clause : tspecs.clauses) {
+                        for (JmlTypeClauseExpr clause : invariantClauses(csym, tspecs)) {
                             if (!utils.visible(classDecl.sym, csym, clause.modifiers.flags/*, methodDecl.mods.flags*/)) continue;
                             JmlTypeClauseExpr t;
                             DiagnosticPosition cpos = clause;
@@ -2762,54 +2831,52 @@ public class JmlAssertionAdder extends JmlTreeScanner {
                             boolean clauseIsFinal = (clause.modifiers.flags & Flags.FINAL) != 0;
                             currentStatements = clauseIsStatic? staticStats : instanceStats;
                             // FIXME - guard against the receiver being null for non-static invariants
-                            if (clause.clauseType == invariantClause) {
-                                // invariants on both pre and post for all classes of parameters and return value
-                                // Pre and post conditions:
-                                //      helper - no invariants for class of method
-                                //      non-helper constructor - invariants only on post
-                                //      non-helper method - invariants on pre and post
-                                // Calling a method - caller invariants
-                                //      same as pre and postconditions, except
-                                //      when a constructor is calling super(), no invariants of containing class are assumed in post
-                                // Calling a method - callee invariants
-                                //      callee is helper - no invariants in pre or post for class containing method
-                                //      callee is super() - invariants of super class on post
-                                //      callee is constructor - invariants on post
-                                //      callee is method - invariants on pre and post
-                                if (contextIsStatic && !clauseIsStatic) continue;
-                                if (clauseIsFinal && !assume) continue;
-                                if (clauseIsFinal && !contextIsStatic && clauseIsStatic) continue;
-                                if (isHelper && (!clauseIsFinal || !assume)) continue;
-                                if (isSuper && !isPost) continue;
-                                boolean doit = false;
-                                if (!isConstructor || isPost) doit = true; // pre and postcondition case
-                                if (isConstructor ) {
-                                    if (clauseIsStatic) doit = true;
-                                    if (utils.findMod(classDecl.mods, Modifiers.CAPTURED) != null) doit = true;
-                                    // FIXME - should not use erasure here, but pasrameterized dtypes do not seem to work
-                                    // properly even if ctype is obtrained by collecting super classes and super interfaces of basetype
-                                    boolean b = !types.isAssignable(types.erasure(basetype),types.erasure(ctype));
-                                    if (b) doit = true;
-                                }
-                                if (doit) {
-                                    //JavaFileObject prevSource = log.useSource(clause.source());
-                                    try {
-                                        t = (JmlTypeClauseExpr)convertCopy(clause); // FIXME - why copy the clause
-                                        addTraceableComment(t.expression,clause.toString());
-                                        JCExpression e = convertJML(t.expression,treeutils.trueLit,isPost);
-                                        if (assume) addAssume(pos,invariantLabel,
-                                                e,
-                                                cpos,clause.source, invariantDescription);
-                                        else  addAssert(pos,invariantLabel,
-                                                e,
-                                                cpos,clause.source, invariantDescription);
-                                    } catch (NoModelMethod e) {
-                                        //                                              log.error(clause.pos, "jml.message", e.getMessage());
-                                    } catch (JmlNotImplementedException e) {
-                                        notImplemented(clause.clauseType.name() + " clause containing ", e, clause.source());
-                                    } finally {
-                                        //log.useSource(prevSource);
-                                    }
+                            // invariants on both pre and post for all classes of parameters and return value
+                            // Pre and post conditions:
+                            //      helper - no invariants for class of method
+                            //      non-helper constructor - invariants only on post
+                            //      non-helper method - invariants on pre and post
+                            // Calling a method - caller invariants
+                            //      same as pre and postconditions, except
+                            //      when a constructor is calling super(), no invariants of containing class are assumed in post
+                            // Calling a method - callee invariants
+                            //      callee is helper - no invariants in pre or post for class containing method
+                            //      callee is super() - invariants of super class on post
+                            //      callee is constructor - invariants on post
+                            //      callee is method - invariants on pre and post
+                            if (contextIsStatic && !clauseIsStatic) continue;
+                            if (clauseIsFinal && !assume) continue;
+                            if (clauseIsFinal && !contextIsStatic && clauseIsStatic) continue;
+                            if (isHelper && (!clauseIsFinal || !assume)) continue;
+                            if (isSuper && !isPost) continue;
+                            boolean doit = false;
+                            if (!isConstructor || isPost) doit = true; // pre and postcondition case
+                            if (isConstructor ) {
+                                if (clauseIsStatic) doit = true;
+                                if (utils.findMod(classDecl.mods, Modifiers.CAPTURED) != null) doit = true;
+                                // FIXME - should not use erasure here, but pasrameterized dtypes do not seem to work
+                                // properly even if ctype is obtrained by collecting super classes and super interfaces of basetype
+                                boolean b = !types.isAssignable(types.erasure(basetype),types.erasure(ctype));
+                                if (b) doit = true;
+                            }
+                            if (doit) {
+                                //JavaFileObject prevSource = log.useSource(clause.source());
+                                try {
+                                    t = convertCopy(clause); // FIXME - why copy the clause
+                                    addTraceableComment(t.expression,clause.toString());
+                                    JCExpression e = convertJML(t.expression,treeutils.trueLit,isPost);
+                                    if (assume) addAssume(pos,invariantLabel,
+                                            e,
+                                            cpos,clause.source, invariantDescription);
+                                    else  addAssert(pos,invariantLabel,
+                                            e,
+                                            cpos,clause.source, invariantDescription);
+                                } catch (NoModelMethod e) {
+                                    //                                              log.error(clause.pos, "jml.message", e.getMessage());
+                                } catch (JmlNotImplementedException e) {
+                                    notImplemented(clause.clauseType.name() + " clause containing ", e, clause.source());
+                                } finally {
+                                    //log.useSource(prevSource);
                                 }
                             }
                         }
@@ -2928,10 +2995,66 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         }        
     }
     
+    /** The invariant clauses of a class, as collected by invariantClauses */
+    static protected class InvariantClauses {
+        /** The TypeSpecs the list was collected from */
+        final JmlSpecs.TypeSpecs tspecs;
+        /** Its list of clauses, and their number, when the list was collected */
+        final ListBuffer<JmlTypeClause> clauses;
+        final int size;
+        final java.util.List<JmlTypeClauseExpr> invariants = new ArrayList<>();
+        InvariantClauses(JmlSpecs.TypeSpecs tspecs) {
+            this.tspecs = tspecs;
+            this.clauses = tspecs.clauses;
+            this.size = tspecs.clauses.size();
+        }
+        /** True if the list was collected from the given specs as they are now */
+        boolean isFor(JmlSpecs.TypeSpecs tspecs) {
+            return tspecs == this.tspecs && tspecs.clauses == clauses && clauses.size() == size;
+        }
+    }
+
+    /** The invariant clauses of each class for which invariants have been added */
+    final protected Map<ClassSymbol,InvariantClauses> invariantClauses = new HashMap<>();
+
+    /** The super classes and interfaces of each type symbol, as given by
+     * utils.parents(tsym, false), for which recursive invariants have been added */
+    final protected Map<TypeSymbol,java.util.List<ClassSymbol>> invariantParents = new HashMap<>();
+
+    /** Returns the invariant clauses (only) of the given class, in order;
+     * the list is collected once per class, or again if the class's specs
+     * have been replaced (as when they are reset and read again) or clauses
+     * have been added to them since. Invariants are added at each method
+     * entry and exit, call and field access, so this saves going through all
+     * the type clauses each time; the clauses themselves are still translated
+     * at each use, since the translation depends on the receiver and the
+     * state in which they are evaluated. */
+    protected java.util.List<JmlTypeClauseExpr> invariantClauses(ClassSymbol csym, JmlSpecs.TypeSpecs tspecs) {
+        InvariantClauses inv = invariantClauses.get(csym);
+        if (inv == null || !inv.isFor(tspecs)) {
+            inv = new InvariantClauses(tspecs);
+            for (JmlTypeClause t: tspecs.clauses) {
+                if (t.clauseType == invariantClause) inv.invariants.add((JmlTypeClauseExpr)t);
+            }
+            invariantClauses.put(csym, inv);
+        }
+        return inv.invariants;
+    }
+
+    /** Returns utils.parents(tsym, false), computed once per type symbol */
+    protected java.util.List<ClassSymbol> invariantParents(TypeSymbol tsym) {
+        java.util.List<ClassSymbol> list = invariantParents.get(tsym);
+        if (list == null) {
+            list = utils.parents(tsym, false);
+            invariantParents.put(tsym, list);
+        }
+        return list;
+    }
+
     protected void addRecInvariants(boolean assume, boolean staticOnly, boolean fieldInvariants, boolean helper, DiagnosticPosition d, TypeSymbol tsym, JCExpression currentThis) {
         JCExpression saved = currentThisExpr;
         currentThisExpr = currentThis;
-        for (ClassSymbol csym: utils.parents(tsym, false)) {
+        for (ClassSymbol csym: invariantParents(tsym)) {
             //if (esc) addNullnessAndTypeConditionsForFields(csym,false);
             // The following call adds in the nullness and type conditions of all fields
             addInvariants(assume,d,staticOnly,fieldInvariants,helper,csym,currentThis);
@@ -2943,7 +3066,7 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         JCExpression saved = currentThisExpr;
         currentThisExpr = currentThis;
         boolean staticOnly = utils.isJMLStatic(d.sym);
-        for (ClassSymbol csym: utils.parents(d.type.tsym, false)) {
+        for (ClassSymbol csym: invariantParents(d.type.tsym)) {
             //if (esc) addNullnessAndTypeConditionsForFields(csym,false);
             // The following call adds in the nullness and type conditions of all fields
             addInvariants(assume,d,staticOnly,false,false,csym,currentThis);
@@ -2971,14 +3094,13 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         } while (cs != null) ;
         ListBuffer<JCStatement> check = pushBlock();
         try {
-            for (JmlTypeClause t: specs.getSpecs(csym).clauses) {
-                if (t.clauseType != invariantClause) continue;
+            for (JmlTypeClauseExpr t: invariantClauses(csym, specs.getSpecs(csym))) {
                 if (staticOnly && !utils.isJMLStatic(t.modifiers,csym)) continue;
                 if (helper && (t.modifiers.flags & Flags.FINAL) == 0) continue;
                 if (!assume && (t.modifiers.flags & Flags.FINAL) != 0) continue;
                 JavaFileObject prev = log.useSource(t.source);
                 try {
-                    JCExpression e = convertJML( convertCopy((JmlTypeClauseExpr)t).expression); // FIXME - really need the convertCopy?
+                    JCExpression e = convertJML( convertCopy(t).expression); // FIXME - really need the convertCopy?
                     if (!utils.isJMLStatic(t.modifiers,csym)) {
                         JCExpression ee = treeutils.makeNotNull(pos,convertCopy(currentThis));
                         e = treeutils.makeImplies(pos, ee, e);
@@ -3862,12 +3984,11 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         if (startInvariants(csym,methodDecl)) return;
         //if (csym.toString().contains("SassyOption")) System.out.println("START SassyOption " + (scount++));
         try {
-        for (JmlTypeClause t : tspecs.clauses) {
-            if (t.clauseType != invariantClause) continue; 
+        for (JmlTypeClauseExpr t : invariantClauses(csym, tspecs)) {
             if (!utils.isJMLStatic(t.modifiers,csym)) continue;
             if (!utils.jmlvisible(null, methodDecl.sym.owner, csym, t.modifiers.flags, methodDecl.mods.flags)) continue;
             addAssume(methodDecl,Label.INVARIANT_ENTRANCE,
-                    convertJML( convertCopy((JmlTypeClauseExpr)t).expression), // FIXME - really need the convertCopy?
+                    convertJML( convertCopy(t).expression), // FIXME - really need the convertCopy?
                     t,t.source(),
                     utils.qualifiedMethodSig(methodDecl.sym));
         }
@@ -5839,7 +5960,7 @@ public class JmlAssertionAdder extends JmlTreeScanner {
     //OK
     @Override
     public void visitSwitch(JCSwitch that) {
-        boolean split = that instanceof JmlSwitchStatement && ((JmlSwitchStatement)that).split;
+        boolean split = that instanceof JmlSwitchStatement && (((JmlSwitchStatement)that).split || extraSplitPoints.contains(that));
         JCExpression switchExpr = that.selector;
         if (!pureCopy) {
             addStat(traceableComment(that,that,"switch " + that.getExpression() + " ...","Selection"));
@@ -5863,7 +5984,7 @@ public class JmlAssertionAdder extends JmlTreeScanner {
             }
             if (!split || currentSplit == null || rac || infer) {
                 JCSwitch sw = M.at(that).Switch(selector, null);
-                ((JmlSwitchStatement)sw).split = ((JmlSwitchStatement)that).split;
+                ((JmlSwitchStatement)sw).split = split;
                 // record the translation from old to new AST before translating the body
                 treeMap.put(that,sw);
                 ListBuffer<JCCase> cases = new ListBuffer<JCCase>();
@@ -6283,7 +6404,7 @@ public class JmlAssertionAdder extends JmlTreeScanner {
     // OK
     @Override
     public void visitIf(JCIf that) {
-        boolean split = that instanceof JmlIfStatement && ((JmlIfStatement)that).split;
+        boolean split = that instanceof JmlIfStatement && (((JmlIfStatement)that).split || extraSplitPoints.contains(that));
         if (pureCopy) {
             JCExpression cond = convertExpr(that.cond);
             JCStatement thenpart = convert(that.thenpart);
@@ -6291,7 +6412,7 @@ public class JmlAssertionAdder extends JmlTreeScanner {
             JCStatement elsepart = convert(that.elsepart);
 
             JmlIfStatement st = (JmlIfStatement)M.at(that).If(cond,thenpart,elsepart).setType(that.type);
-            st.split = ((JmlIfStatement)that).split;
+            st.split = split;
             result = addStat( st );
         }
         else {
@@ -15255,7 +15376,8 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         boolean saved = translatingJML;
         JmlMethodDecl savedMD = methodDecl;
         methodDecl = that;
-        Translations t = new Translations(context);
+        Translations t = pendingTranslations != null ? pendingTranslations : new Translations(context);
+        pendingTranslations = null;
         methodBiMap.put(that,t);
         try {
             // FIXME - implemente constructors - need super calls.
@@ -18011,11 +18133,26 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         }
     }
     
+    /** The results of parents(Type,boolean), by type, for each value of includeEnclosing */
+    final protected Map<Type,java.util.List<Type>> parentTypes = new HashMap<>();
+    final protected Map<Type,java.util.List<Type>> parentTypesWithEnclosing = new HashMap<>();
+
     /** Returns a list of super classes and interfaces, as types;
      * the order is that interfaces come before classes and super classes/interfaces come before derived ones,
-     * with the argument type last.
+     * with the argument type last. The list is computed once for each Type
+     * object and may be modified by the caller.
      */
-    public java.util.List<Type> parents(Type ct, boolean includeEnclosing) { // FIXME - not implemented for includeEnclosing = true // FIXME - unify this with the methods in Utils.
+    public java.util.List<Type> parents(Type ct, boolean includeEnclosing) {
+        Map<Type,java.util.List<Type>> cache = includeEnclosing ? parentTypesWithEnclosing : parentTypes;
+        java.util.List<Type> list = cache.get(ct);
+        if (list == null) {
+            list = findParentTypes(ct, includeEnclosing);
+            cache.put(ct, list);
+        }
+        return new LinkedList<Type>(list);
+    }
+
+    protected java.util.List<Type> findParentTypes(Type ct, boolean includeEnclosing) { // FIXME - not implemented for includeEnclosing = true // FIXME - unify this with the methods in Utils.
 
         java.util.List<Type> classes = new LinkedList<Type>();
         Type cc = ct.unannotatedType();
@@ -18143,7 +18280,28 @@ public class JmlAssertionAdder extends JmlTreeScanner {
         return false;
     }
 
+    /** The methods found by parents(MethodSymbol,Type), by method and receiver
+     * class; the result depends only on those two, but finding it means
+     * looking through every member of every supertype, which otherwise is
+     * repeated at each call of the method and each assignment checked against
+     * the frame conditions. */
+    final protected Map<MethodSymbol,Map<TypeSymbol,java.util.List<Pair<MethodSymbol,Type>>>> overriddenCache = new HashMap<>();
+
+    /** Returns the given method and the methods it overrides or that override
+     * it, in the supertypes of classType (including classType itself), each
+     * with the type that declares it; the list may be modified by the caller. */
     public java.util.List<Pair<MethodSymbol,Type>> parents(MethodSymbol m, Type classType) {
+        Map<TypeSymbol,java.util.List<Pair<MethodSymbol,Type>>> byClass = overriddenCache.get(m);
+        if (byClass == null) overriddenCache.put(m, byClass = new HashMap<>());
+        java.util.List<Pair<MethodSymbol,Type>> methods = byClass.get(classType.tsym);
+        if (methods == null) {
+            methods = findParents(m, classType);
+            byClass.put(classType.tsym, methods);
+        }
+        return new LinkedList<Pair<MethodSymbol,Type>>(methods);
+    }
+
+    protected java.util.List<Pair<MethodSymbol,Type>> findParents(MethodSymbol m, Type classType) {
         java.util.List<Pair<MethodSymbol,Type>> methods = new LinkedList<Pair<MethodSymbol,Type>>();
         if (utils.isJMLStatic(m)) {
             methods.add(pair(m,m.owner.type)); 
@@ -4,9 +4,15 @@
  */
 package org.jmlspecs.openjml.esc;
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -22,6 +28,7 @@ import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
 import org.jmlspecs.openjml.JmlTree.JmlMethodDecl;
 import org.jmlspecs.openjml.Main;
 import org.jmlspecs.openjml.Strings;
+import org.jmlspecs.openjml.Timings;
 import org.jmlspecs.openjml.Utils;
 import org.jmlspecs.openjml.proverinterface.IProverResult;
 import org.jmlspecs.openjml.proverinterface.ProverResult;
@@ -108,10 +115,15 @@ public class JmlEsc extends JmlTreeScanner {
         this.verbose = escdebug || JmlOption.isOption(context,"-verbose") // The Java verbose option
                 || utils.jmlverbose >= Utils.JMLVERBOSE;
         this.assertionAdder = new JmlAssertionAdder(context, true, false);
+        // The types may have changed since the last compilation unit was checked
+        TypeHierarchyAxioms.instance(context).clear();
         try {
             // FIXME - would prefer for esc to just translate the methods that are to be proved
             // We convert the whole tree first
+            Timings timings = Timings.instance(context);
+            long start = timings.start();
             assertionAdder.convert(tree); // get at the converted tree through the map
+            if (timings.enabled()) timings.record("assertionAdder", tree instanceof JmlClassDecl ? ((JmlClassDecl)tree).sym.flatName().toString() : null, "class", start);
             // And then we walk the tree to see which items are to be proved
             tree.accept(this);
         } catch (PropagatedException | Main.JmlCanceledException e) {
@@ -126,6 +138,12 @@ public class JmlEsc extends JmlTreeScanner {
             if (tree instanceof JCCompilationUnit) info = "compilation unit " + (((JCCompilationUnit)tree).sourcefile.toString());
             log.error("jml.internal","Should not be catching a " + e.getClass().getName() + " in JmlEsc.check: "+ e.toString() + " while translating " + info);
             e.printStackTrace();
+        } finally {
+            if (boundedMemory() && assertionAdder != null) {
+                // Nothing refers to the translation of this tree once its methods are proved
+                assertionAdder.releaseTranslations();
+                assertionAdder = null;
+            }
         }
     }
     
@@ -220,6 +238,9 @@ public class JmlEsc extends JmlTreeScanner {
             throw e;
         } finally {
             Main.instance(context).popOptions();
+            if (boundedMemory() && assertionAdder != null) {
+                assertionAdder.releaseMethod(methodDecl);
+            }
         }
         return;        
     }
@@ -347,6 +368,12 @@ public class JmlEsc extends JmlTreeScanner {
                     + (Utils.testingMode ? "" : String.format(" [%4.2f secs]", (duration/1000.0)))
                     );
             count(res.result(), methodDecl.sym);
+            if (res.solverStatistics() != null) {
+                double n = res.solverStatistics().max("quant-instantiations");
+                if (n >= 0) instantiations.put(utils.qualifiedMethodSig(methodDecl.sym), n);
+            }
+            solverRetries += res.retries();
+            solverKills += res.kills();
             
         } catch (Main.JmlCanceledException | PropagatedException e) {
             res = new ProverResult(proverToUse,ProverResult.CANCELLED,methodDecl.sym); // FIXME - I think two ProverResult.CANCELLED are being reported
@@ -391,13 +418,49 @@ public class JmlEsc extends JmlTreeScanner {
     
     private long startTime;
     
+    /** The number of methods (or splits) proved without a solver, and of
+     * assertions removed as trivially valid (with -escTrivial) */
+    public int trivialMethods;
+    public int trivialAssertions;
+    
+    /** The number of quantifier instantiations the solver reported for each
+     * method, by method signature (with -solverStatistics) */
+    public Map<String,Double> instantiations = new HashMap<>();
+    
+    /** The number of proof attempts retried, and of solvers killed, because
+     * of solvers that hung, used too much memory or died */
+    public int solverRetries;
+    public int solverKills;
+    
     public void initCounts() {
         classes = classesOK = classesModel = methodsModel = 0;
         counts.clear();
         modelcounts.clear();
+        trivialMethods = trivialAssertions = 0;
+        instantiations.clear();
+        solverRetries = solverKills = 0;
         startTime = System.currentTimeMillis();
     }
     
+    /** True if translations are released as soon as they are no longer needed (-escBoundedMemory) */
+    public boolean boundedMemory() {
+        return JmlOption.isOption(context, JmlOption.ESC_BOUNDED_MEMORY);
+    }
+    
+    /** Returns the heap use, in bytes, summed over the heap memory pools:
+     * the peak use since the JVM started if 'peak' is true, and otherwise the
+     * use just after the most recent collection of each pool (what survived
+     * it), as far as the JVM tracks that. Neither forces a collection. */
+    public static long heapMemory(boolean peak) {
+        long sum = 0;
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isValid()) continue;
+            MemoryUsage u = peak ? pool.getPeakUsage() : pool.getCollectionUsage();
+            if (u != null) sum += u.getUsed();
+        }
+        return sum;
+    }
+    
     public void count(IProverResult.Kind r, MethodSymbol sym) {
         if (utils.isModel(sym) || utils.isModel(sym.owner)) {
             modelcounts.put(r, modelvalue(r) + 1);
@@ -460,6 +523,28 @@ public class JmlEsc extends JmlTreeScanner {
         s.append(" Model methods: " + modelvalue(IProverResult.UNSAT) + " proved of " + allmodelvalue() + Strings.eol);
         long duration = System.currentTimeMillis() - startTime;
         s.append(" DURATION: " + String.format("%12.1f",(duration/1000.0)) + " secs" + Strings.eol);
+        if (JmlOption.isOption(context, JmlOption.ESC_TRIVIAL)) {
+            s.append(" Trivially valid: " + trivialMethods + " proofs without a solver, " + trivialAssertions + " assertions removed" + Strings.eol);
+        }
+        if (solverRetries != 0 || solverKills != 0) {
+            s.append(" Solvers killed: " + solverKills + ", proof attempts retried: " + solverRetries + Strings.eol);
+        }
+        if (!instantiations.isEmpty()) {
+            // The methods most likely to have matching loops
+            List<Map.Entry<String,Double>> list = new ArrayList<>(instantiations.entrySet());
+            list.sort((a,b) -> Double.compare(b.getValue(), a.getValue()));
+            s.append(" Most quantifier instantiations:" + Strings.eol);
+            for (Map.Entry<String,Double> e: list.subList(0, Math.min(5, list.size()))) {
+                s.append(String.format("  %12.0f  %s", e.getValue(), e.getKey()) + Strings.eol);
+            }
+        }
+        if (boundedMemory()) {
+            long mb = 1024*1024;
+            // -timings resets the peaks of the heap pools, keeping the peak itself
+            long peak = Math.max(heapMemory(true), Timings.instance(context).peakHeap());
+            s.append(" Peak memory:     " + (peak/mb) + " MB" + Strings.eol);
+            s.append(" Retained memory: " + (heapMemory(false)/mb) + " MB (after the last collection)" + Strings.eol);
+        }
         return s.toString();
     }
     
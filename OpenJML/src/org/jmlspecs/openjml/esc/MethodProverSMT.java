@@ -5,14 +5,23 @@ import java.io.PrintWriter;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import javax.tools.JavaFileObject;
 
@@ -26,10 +35,14 @@ import org.jmlspecs.openjml.ext.Operators;
 import org.jmlspecs.openjml.ext.SignalsClauseExtension;
 import org.jmlspecs.openjml.ext.SignalsOnlyClauseExtension;
 import static org.jmlspecs.openjml.ext.StatementExprExtensions.*;
+import org.jmlspecs.openjml.proverinterface.AssertionTimes;
 import org.jmlspecs.openjml.proverinterface.IProverResult;
 import org.jmlspecs.openjml.proverinterface.IProverResult.Span;
 import org.jmlspecs.openjml.vistors.JmlTreeScanner;
 import org.jmlspecs.openjml.proverinterface.ProverResult;
+import org.jmlspecs.openjml.proverinterface.SolverStatistics;
+import org.jmlspecs.openjml.utils.SolverChannel;
+import org.jmlspecs.openjml.utils.SolverSupervisor;
 import org.smtlib.IAttributeValue;
 import org.smtlib.ICommand;
 import org.smtlib.IExpr;
@@ -115,9 +128,6 @@ public class MethodProverSMT {
      */
     public IProverResult.IFactory factory;
     
-    /** Starting feasibility check -- purely for debugging */
-    static public int startFeasibilityCheck = 0;
-    
     /** The interface for new ITracer factories */
     public interface ITracerFactory {
         public ITracer makeTracer(Context context, SMT smt, ISolver solver, Map<JCTree,String> cemap, BiMap<JCTree,JCExpression> jmap);
@@ -149,6 +159,14 @@ public class MethodProverSMT {
     /** Just for debugging esc */
     public static boolean escdebug = false; // May be set externally to enable debugging while testing
     
+    // jSMTLIB's solver processes (used with -no-solverChannel) are read by
+    // blocking reads; the settings are the same for every compilation context,
+    // so they are made once, here
+    static {
+        org.smtlib.SolverProcess.useMultiThreading = false;
+        org.smtlib.SolverProcess.useNotifyWait = false;
+    }
+    
     /** true if trace information with respect to the basic block program is to be output
      *  (for debugging only) - set when prove() is called */
     protected boolean showBBTrace;
@@ -182,8 +200,6 @@ public class MethodProverSMT {
     
     /** Returns the prover exec specified by the options */
     public /*@ nullable */ String pickProverExec(String proverToUse) {
-        org.smtlib.SolverProcess.useMultiThreading = false;
-        org.smtlib.SolverProcess.useNotifyWait = false;
         String exec = JmlOption.value(context, JmlOption.PROVEREXEC);
         if (exec == null || exec.isEmpty()) exec = JmlOption.value(context, Strings.proverPropertyPrefix + proverToUse);
         if (exec == null || exec.isEmpty()) {
@@ -216,14 +232,394 @@ public class MethodProverSMT {
         return exec;
     }
     
+    /** Creates and starts a solver; its responses are read by a SolverChannel
+     * if useChannel(). Returns null if the solver fails to start.
+     * A solver with a SolverChannel is watched by the SolverSupervisor, which
+     * kills it if it goes past the limits of -solverDeadline or -solverMemory.
+     * To be called on the main thread, since it reads options and may log
+     * warnings. */
+    public /*@ nullable */ ISolver startSolver(SMT smt, String proverToUse, String exec) {
+        ISolver s = startSolver(smt, proverToUse, exec, solverWatch(smt));
+        warnUnwatched();
+        return s;
+    }
+    
+    /** Creates and starts a solver as above, with limits read beforehand by
+     * solverWatch; it logs nothing, so it may be called on any thread. */
+    protected /*@ nullable */ ISolver startSolver(SMT smt, String proverToUse, String exec, /*@ nullable */ SolverWatch watch) {
+        if (watch != null) {
+            ISolver s = SolverChannel.startSolver(smt, proverToUse, exec);
+            SolverChannel c = SolverChannel.of(s);
+            if (c != null) {
+                channels.add(c);
+                SolverSupervisor.instance().watch(c, watch.deadline, watch.memory);
+            } else if (s != null) {
+                unwatchedSolver = proverToUse;
+            }
+            return s;
+        }
+        return smt.startSolver(smt.smtConfig, proverToUse, exec);
+    }
+    
+    /** The limits within which the SolverSupervisor keeps a solver */
+    static protected class SolverWatch {
+        final double deadline;
+        final long memory;
+        SolverWatch(double deadline, long memory) {
+            this.deadline = deadline;
+            this.memory = memory;
+        }
+    }
+    
+    /** The limits for solvers configured by smt, or null if solvers are not
+     * connected through a SolverChannel (and so not watched) */
+    //@ nullable
+    protected SolverWatch solverWatch(SMT smt) {
+        if (!useChannel()) return null;
+        return new SolverWatch(solverDeadline(smt), (long)numericOption(JmlOption.SOLVER_MEMORY, 0));
+    }
+    
+    /** Gives, once, the warning that a solver could not be connected through
+     * a SolverChannel, if startSolver has found one; called on the main
+     * thread, since solvers may be started on the threads that check groups
+     * of assertions */
+    protected void warnUnwatched() {
+        String prover = unwatchedSolver;
+        if (prover != null && !warnedUnwatched) {
+            warnedUnwatched = true;
+            log.warning("jml.message", "The solver " + prover + " cannot be connected through a SolverChannel, so it is not watched for -solverDeadline or -solverMemory, nor retried");
+        }
+    }
+    
+    /** The solver last found by startSolver not to be connectable through a
+     * SolverChannel, or null */
+    protected volatile String unwatchedSolver;
+    
+    /** True once the warning that a solver cannot be watched has been given */
+    protected boolean warnedUnwatched;
+    
+    /** Whether solvers are connected through a SolverChannel: if
+     * -solverChannel is on, or if -solverDeadline or -solverMemory is set,
+     * since only solvers with a channel can be watched by the
+     * SolverSupervisor (and retried when they fail) */
+    protected boolean useChannel() {
+        return JmlOption.isOption(context, JmlOption.SOLVER_CHANNEL)
+                || numericOption(JmlOption.SOLVER_DEADLINE, 0) > 0
+                || numericOption(JmlOption.SOLVER_MEMORY, 0) > 0;
+    }
+    
+    /** The longest wait, in seconds, for a response of a solver configured
+     * by smt: the value of -solverDeadline, or by default twice the solver's
+     * timeout plus 10 seconds; 0 for no limit */
+    protected double solverDeadline(SMT smt) {
+        String v = JmlOption.value(context, JmlOption.SOLVER_DEADLINE);
+        if (v == null || v.isEmpty()) return smt.smtConfig.timeout > 0 ? 2*smt.smtConfig.timeout + 10 : 0;
+        return numericOption(JmlOption.SOLVER_DEADLINE, 0);
+    }
+    
+    /** The value of a numeric option, or the given default if it is not a number */
+    protected double numericOption(JmlOption option, double defaultValue) {
+        String v = JmlOption.value(context, option);
+        try {
+            return v == null || v.isEmpty() ? defaultValue : Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            log.warning("jml.message", "Expected a number for " + option.optionName() + ": " + v);
+            return defaultValue;
+        }
+    }
+    
+    /** The channels of the solvers started for the current proof */
+    final protected List<SolverChannel> channels = Collections.synchronizedList(new ArrayList<SolverChannel>());
+    
+    /** The number of channels started before the current proof attempt */
+    protected int attemptChannels;
+    
+    /** The number of times the current proof has been retried after its
+     * solver failed */
+    protected int retries;
+    
+    /** The random seed for the solvers of the next proof attempt, or 0 for
+     * the configured one */
+    protected int retrySeed;
+    
+    /** If a solver of the current proof attempt failed - the solver of the
+     * method or that of a group of its assertions was killed by the
+     * SolverSupervisor or died - and -solverRetries allows another attempt,
+     * exits the solvers and prepares to make the proof attempt again, on
+     * fresh solvers with a different random seed, returning true; the caller
+     * then repeats the split. */
+    protected boolean retry(/*@ nullable */ ISolver solver, SMT smt, JmlMethodDecl methodDecl, String splitkey) {
+        String failure = null;
+        synchronized (channels) {
+            for (SolverChannel c: channels.subList(attemptChannels, channels.size())) {
+                failure = c.failure();
+                if (failure != null) break;
+            }
+        }
+        if (failure == null) return false;
+        boolean again = retries < numericOption(JmlOption.SOLVER_RETRIES, 1);
+        if (utils.jmlverbose >= Utils.PROGRESS) {
+            log.getWriter(WriterKind.NOTICE).println("The solver for " + utils.qualifiedMethodSig(methodDecl.sym)
+                    + (splitkey.isEmpty() ? "" : " (split " + splitkey + ")") + " " + failure
+                    + (again ? "; retrying on a fresh solver" : ""));
+        }
+        if (!again) return false;
+        retries++;
+        retrySeed = smt.smtConfig.seed + retries;
+        if (solver != null) solver.exit();
+        if (groups != null) {
+            closeGroups(groups);
+            groups = null;
+        }
+        return true;
+    }
+    
+    /** Passes on the diagnostics of a proof attempt's verdict, feasibility
+     * checks and counterexamples, except those an earlier attempt at the same
+     * split already passed on: a solver may fail part way through these
+     * queries, after some of their findings are reported, and the attempt is
+     * then made again from the start. */
+    static protected class Unrepeated extends Log.DiagnosticHandler {
+        /** The diagnostics passed on, as kind, source, position and message */
+        final Set<String> reported;
+        Unrepeated(Log log, Set<String> reported) {
+            this.reported = reported;
+            install(log);
+        }
+
+        @Override
+        public void report(JCDiagnostic diag) {
+            String key = diag.getKind() + " " + diag.getSource() + " " + diag.getStartPosition() + " " + diag.getMessage(null);
+            if (reported.add(key)) prev.report(diag);
+        }
+    }
+    
     protected ISolver solver = null;
     protected ISolver solver2 = null;
     protected boolean aborted = false;
     
     public void abort() {
+        aborted = true;
         if (solver != null) solver.forceExit();
         if (solver2 != null) solver2.forceExit();
-        aborted = true;
+        List<AssertionGroup> g = groups;
+        if (g != null) for (AssertionGroup a: g) {
+            ISolver s = a.solver;
+            if (s != null) s.forceExit();
+        }
+    }
+
+    /** A group of the assertions of a method, checked by a separate solver
+     * query when -escAssertionThreads is more than 1 */
+    static protected class AssertionGroup {
+        final String name;
+        final List<JmlStatementExpr> asserts;
+        /** The program sliced for checking just this group's assertions */
+        BasicProgram program;
+        /** The query made from program */
+        ICommand.IScript script;
+        SMTTranslator smttrans;
+        /** The configuration of this group's solver */
+        SMT smt;
+        /** What this group's solver logs */
+        final DeferredLog messages = new DeferredLog();
+        /** The solver, while it is still needed */
+        volatile ISolver solver;
+        IResponse response;
+        double seconds;
+        AssertionGroup(String name, List<JmlStatementExpr> asserts) {
+            this.name = name;
+            this.asserts = asserts;
+        }
+    }
+
+    /** Keeps what a solver running off the main thread logs, since the
+     * listeners of the OpenJML log may only be used from the main thread,
+     * until forward is called */
+    static protected class DeferredLog implements org.smtlib.Log.IListener {
+        final private List<Consumer<org.smtlib.Log>> messages = new ArrayList<Consumer<org.smtlib.Log>>();
+        private org.smtlib.Log target;
+
+        synchronized private void add(Consumer<org.smtlib.Log> message) {
+            if (target != null) message.accept(target);
+            else messages.add(message);
+        }
+
+        /** Logs the messages kept so far to the given log, and the later ones
+         * straight to it; to be called on the main thread */
+        synchronized public void forward(org.smtlib.Log log) {
+            target = log;
+            for (Consumer<org.smtlib.Log> m: messages) m.accept(log);
+            messages.clear();
+        }
+
+        @Override public void logOut(String msg) { add(l -> l.logOut(msg)); }
+        @Override public void logOut(IResponse result) { add(l -> l.logOut(result)); }
+        @Override public void logError(String msg) { add(l -> l.logError(msg)); }
+        @Override public void logError(IError result) { add(l -> l.logError(result)); }
+        @Override public void logDiag(String msg) { add(l -> l.logDiag(msg)); }
+        @Override public void indent(String chars) { add(l -> l.indent(chars)); }
+    }
+
+    /** The groups of assertions of the method being proved, if they are
+     * being checked separately */
+    protected volatile List<AssertionGroup> groups = null;
+
+    /** The value of -escAssertionThreads, as last read by assertionGroups */
+    protected int assertionThreads = 1;
+
+    /** Returns the groups of assertions of the program, as made by
+     * BasicProgramSlicer.partition, in the order of their first assertions,
+     * if they are to be checked separately; otherwise returns null. They are
+     * not if -escAssertionThreads is 1, if there would be only one group, or
+     * if the program has check statements (which cannot be turned into
+     * assumptions, since their conditions are not assumed after them). A
+     * group is named by the labels of its assertions. */
+    //@ nullable
+    protected List<AssertionGroup> assertionGroups(BasicProgram program) {
+        String v = JmlOption.value(context, JmlOption.ESC_ASSERTION_THREADS);
+        assertionThreads = 1;
+        if (v != null && !v.isEmpty()) {
+            try {
+                assertionThreads = Integer.parseInt(v);
+            } catch (NumberFormatException e) {
+                log.warning("jml.message", "Expected an integer for " + JmlOption.ESC_ASSERTION_THREADS.optionName() + ": " + v);
+            }
+        }
+        if (assertionThreads <= 1) return null;
+        List<List<JmlStatementExpr>> parts = BasicProgramSlicer.partition(program, assertionThreads);
+        if (parts == null || parts.size() < 2) return null;
+        List<AssertionGroup> list = new ArrayList<AssertionGroup>(parts.size());
+        Set<String> names = new HashSet<String>();
+        for (List<JmlStatementExpr> part: parts) {
+            Set<String> labels = new LinkedHashSet<String>();
+            for (JmlStatementExpr s: part) labels.add(s.label == null ? "assertion" : s.label.info());
+            String name = String.join(",", labels);
+            for (int i = 2; !names.add(name); i++) name = String.join(",", labels) + "#" + i;
+            list.add(new AssertionGroup(name, part));
+        }
+        return list;
+    }
+
+    /** Translates the query of each group, from a slice of the program in
+     * which the assertions of the other groups are assumptions; that is
+     * sound since the queries together check every assertion on every path
+     * on which the assertions before it hold. The program is not changed. */
+    protected void translateGroups(List<AssertionGroup> groups, BasicProgram program, SMT smt, JmlMethodDecl methodDecl, boolean useBV) {
+        BasicProgramSlicer slicer = new BasicProgramSlicer(false);
+        for (AssertionGroup g: groups) {
+            g.program = slicer.sliceFor(context, program, g.asserts);
+            g.smttrans = getTranslator(context, methodDecl.sym.toString());
+            g.script = g.smttrans.convert(g.program,smt,useBV);
+        }
+    }
+
+    /** Returns a copy of smt for the solver of a group: the solvers of the
+     * groups run at once, so each has a configuration of its own, with its
+     * own log (which keeps its messages in g.messages) and log file. */
+    protected SMT groupSMT(SMT smt, AssertionGroup g, int number) throws CloneNotSupportedException {
+        SMT gsmt = new SMT();
+        gsmt.props = smt.props;
+        SMT.Configuration c = smt.smtConfig.clone();
+        c.utils = new org.smtlib.Utils(c);
+        c.log = new org.smtlib.Log(c);
+        c.log.clearListeners();
+        c.log.addListener(g.messages);
+        if (c.logfile != null) c.logfile = c.logfile + "." + number;
+        gsmt.smtConfig = c;
+        return gsmt;
+    }
+
+    /** Runs the queries of the groups on up to assertionThreads solvers at
+     * once, and returns the group whose result is to be reported first: the
+     * first whose query failed, or else the first found satisfiable, or else
+     * the first not found unsatisfiable; returns null if every query was
+     * unsatisfiable. The solvers of the unsatisfiable queries are closed; the
+     * others are left open for the counterexamples to be read. What the
+     * solvers logged is passed on to smt's log. */
+    //@ nullable
+    protected AssertionGroup checkGroups(List<AssertionGroup> groups, SMT smt, String proverToUse, String exec) throws Exception {
+        IResponse unsat = smt.smtConfig.responseFactory.unsat();
+        IResponse sat = smt.smtConfig.responseFactory.sat();
+        for (int i = 0; i < groups.size(); i++) groups.get(i).smt = groupSMT(smt, groups.get(i), i+1);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(assertionThreads, groups.size()), r -> {
+            Thread t = new Thread(r, "openjml-assertion-check");
+            t.setDaemon(true);
+            return t;
+        });
+        // The options are read here, since reading them may log warnings,
+        // which must not be done on the pool's threads
+        SolverWatch watch = solverWatch(smt);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (AssertionGroup g: groups) {
+                futures.add(pool.submit(() -> {
+                    if (aborted) return;
+                    long start = System.nanoTime();
+                    ISolver s = startSolver(g.smt,proverToUse,exec,watch);
+                    if (s == null) {
+                        g.response = smt.smtConfig.responseFactory.error("The solver could not be started: " + exec);
+                        return;
+                    }
+                    g.solver = s;
+                    g.response = g.script.execute(s);
+                    g.seconds = (System.nanoTime() - start)/1e9;
+                    if (g.response.equals(unsat)) {
+                        g.solver = null;
+                        s.exit();
+                    }
+                }));
+            }
+            for (Future<?> f: futures) f.get();
+        } catch (ExecutionException e) {
+            // The groups are closed by the caller, once it has asked retry
+            // whether a solver failed
+            throw e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+        } finally {
+            pool.shutdownNow();
+            for (AssertionGroup g: groups) g.messages.forward(smt.smtConfig.log);
+            warnUnwatched();
+        }
+        if (aborted) {
+            closeGroups(groups);
+            throw new Main.JmlCanceledException("Aborted by user");
+        }
+        for (AssertionGroup g: groups) if (g.response.isError()) return g;
+        for (AssertionGroup g: groups) if (g.response.equals(sat)) return g;
+        for (AssertionGroup g: groups) if (!g.response.equals(unsat)) return g;
+        return null;
+    }
+
+    /** Closes the solvers of the groups that are still open */
+    protected void closeGroups(List<AssertionGroup> groups) {
+        for (AssertionGroup g: groups) {
+            ISolver s = g.solver;
+            g.solver = null;
+            if (s != null) s.exit();
+        }
+    }
+
+    /** Reports the first invalid assertion found by the query of a group
+     * other than the one reported by prove, and adds its counterexample to
+     * the result */
+    protected void reportGroup(AssertionGroup g, ProverResult pr, BasicBlocker2 basicBlocker,
+            SMT smt, JmlMethodDecl methodDecl, boolean methodIsStatic, boolean showTrace, boolean keepValues) {
+        boolean verdictOnly = JmlOption.isOption(context, JmlOption.ESC_VERDICT_ONLY);
+        Map<JCTree,String> cemap = verdictOnly ? new HashMap<JCTree,String>()
+                : constructCounterexample(jmlesc.assertionAdder,basicBlocker,g.smttrans,smt,g.solver);
+        BiMap<JCTree,JCExpression> jmap = verdictOnly ? new BiMap<JCTree,JCExpression>()
+                : jmlesc.assertionAdder.exprBiMap.compose(basicBlocker.bimap);
+        tracer = tracerFactory.makeTracer(context,smt,g.solver,cemap,jmap);
+        tracer.appendln(JmlTree.eol + "TRACE of " + utils.qualifiedMethodSig(methodDecl.sym));
+        if (!verdictOnly) populateConstantMap(smt, g.solver, cemap, g.smttrans, methodIsStatic);
+        path = new ArrayList<IProverResult.Span>();
+        JCExpression pathCondition = reportInvalidAssertion(
+                g.program,smt,g.solver,methodDecl,cemap,jmap,
+                jmlesc.assertionAdder.pathMap, basicBlocker.pathmap);
+        if (showTrace && !verdictOnly) log.getWriter(WriterKind.NOTICE).println(tracer.text());
+        if (pathCondition != null) {
+            pr.add(new Counterexample(tracer.text(), keepValues ? cemap : new HashMap<JCTree,String>(), path));
+        }
     }
 
     /** The entry point to initiate proving a method. In the current implementation
@@ -236,14 +632,30 @@ public class MethodProverSMT {
      * -trace, -subexpressions, -show as well as debugging and verbosity flags.
      */
     public IProverResult prove(JmlMethodDecl methodDecl, String proverToUse) {
-        escdebug = escdebug || utils.jmlverbose >= Utils.JMLDEBUG;
-        boolean verbose = escdebug || JmlOption.isOption(context,"-verbose") // The Java verbose option
+        retries = 0;
+        retrySeed = 0;
+        channels.clear();
+        IProverResult result = proveSplits(methodDecl, proverToUse);
+        int kills = 0;
+        synchronized (channels) {
+            for (SolverChannel c: channels) if (c.wasKilled()) kills++;
+            channels.clear();
+        }
+        if (result instanceof ProverResult) ((ProverResult)result).setSupervision(retries, kills);
+        return result;
+    }
+    
+    /** Proves each split of the method in turn, for prove() */
+    protected IProverResult proveSplits(JmlMethodDecl methodDecl, String proverToUse) {
+        boolean debug = escdebug || utils.jmlverbose >= Utils.JMLDEBUG;
+        boolean verbose = debug || JmlOption.isOption(context,"-verbose") // The Java verbose option
                 || utils.jmlverbose >= Utils.JMLVERBOSE;
         this.showSubexpressions = verbose || JmlOption.isOption(context,JmlOption.SUBEXPRESSIONS);
         boolean methodIsStatic = utils.isJMLStatic(methodDecl.sym);
         boolean showTrace = this.showSubexpressions || JmlOption.isOption(context,JmlOption.TRACE);
         boolean showCounterexample = JmlOption.isOption(context,JmlOption.COUNTEREXAMPLE);
-        this.showBBTrace = escdebug;
+        boolean boundedMemory = JmlOption.isOption(context,JmlOption.ESC_BOUNDED_MEMORY);
+        this.showBBTrace = debug;
         log.useSource(methodDecl.sourcefile);
         int prevErrors = log.nerrors;
 
@@ -274,7 +686,29 @@ public class MethodProverSMT {
         String splitlist = JmlOption.value(context,JmlOption.SPLIT);
         String[] splits = splitlist.split(",");
         Translations translations = jmlesc.assertionAdder.methodBiMap.getf(methodDecl);
-        for (String splitkey: translations.keys()) {
+        
+        // Automatic splitting is not combined with an explicit choice of splits
+        AutoSplitter autoSplitter = splitlist.isEmpty() ? AutoSplitter.instance(context) : null;
+        double autoSplitFraction = autoSplitter == null ? 0 : autoSplitter.fraction();
+        if (autoSplitFraction == 0) autoSplitter = null;
+        // The split points chosen automatically during this proof
+        Set<JCStatement> autoSplits = AutoSplitter.newSplits();
+        if (autoSplitter != null && autoSplitter.restore(methodDecl, autoSplits)) {
+            // Start from the split points that earlier runs needed
+            List<String> keys = new ArrayList<String>(translations.splits.keySet());
+            keys.remove(Strings.feas_preOnly);
+            jmlesc.assertionAdder.retranslate(methodDecl, translations, keys, autoSplits);
+        }
+        // Splits for which the full timeout is to be used
+        Set<String> fullTimeout = new HashSet<String>();
+        
+        java.util.Deque<String> splitsToDo = new java.util.ArrayDeque<String>(translations.keys());
+        // The diagnostics reported by the attempts at each split
+        Map<String,Set<String>> reportedBySplit = new HashMap<String,Set<String>>();
+        try {
+        attempts: while (!splitsToDo.isEmpty()) {
+        String splitkey = splitsToDo.removeFirst();
+        attemptChannels = channels.size();
         if (splitkey.equals(Strings.feas_preOnly)) {
             if (proofResultAccumulated.isSat()) continue;
         }
@@ -333,6 +767,15 @@ public class MethodProverSMT {
                 // FIXME  - issue a warning
             }
         }
+        if (retrySeed != 0) {
+            smt.smtConfig.seed = retrySeed;
+            retrySeed = 0;
+        }
+        // If this proof attempt can still be split, it gets only part of the
+        // timeout, and running out of time is not reported
+        boolean mayResplit = autoSplitter != null && !splitkey.equals(Strings.feas_preOnly)
+                && !fullTimeout.contains(splitkey) && autoSplitter.canSplit(methodDecl, autoSplits);
+        if (mayResplit && smt.smtConfig.timeout > 0) smt.smtConfig.timeout *= autoSplitFraction;
 
         // Add a listener for errors and start the solver.
         // The listener is set to use the defaultPrinter for printing 
@@ -346,12 +789,68 @@ public class MethodProverSMT {
         BasicProgram program;
         Date start;
         double duration = 0;
-        ICommand.IScript script;
+        ICommand.IScript script = null;
         boolean usePushPop = true; // FIXME - false is not working yet
+        // When streaming, the translation is sent to the solver as it is
+        // produced, so the solver is started before translating
+        boolean streaming = usePushPop && JmlOption.isOption(context, JmlOption.ESC_STREAM);
+        SMTStream stream = null;
+        Timings timings = Timings.instance(context);
+        String timingName = timings.enabled() ? utils.qualifiedMethodSig(methodDecl.sym) : null;
+        SolverStatistics stats = JmlOption.isOption(context, JmlOption.SOLVER_STATISTICS) ? new SolverStatistics() : null;
+        // The feasibility checks, if any, are made after a valid proof, on its solver
+        boolean doit = false;
+        if (Strings.feas_preOnly.equals(splitkey) && Strings.feasibilityContains(Strings.feas_preOnly,context)) {
+            doit = true;
+        }
+        boolean checkFeasibility = doit || !Strings.feasibilityContains(Strings.feas_none,context);
         {
             // now convert to basic block form
+            long phaseStart = timings.start();
             basicBlocker = new BasicBlocker2(context);
             program = basicBlocker.convertMethodBody(newblock, methodDecl, denestedSpecs, currentClassDecl, jmlesc.assertionAdder);
+            if (JmlOption.isOption(context, JmlOption.ESC_SLICE)) {
+                // Assumptions may be dropped only if no feasibility check is made with this script
+                boolean prune = Strings.feasibilityContains(Strings.feas_none,context) && !splitkey.equals(Strings.feas_preOnly);
+                BasicProgramSlicer slicer = new BasicProgramSlicer(prune);
+                slicer.slice(program);
+                if (utils.jmlverbose >= Utils.JMLVERBOSE) {
+                    log.getWriter(WriterKind.NOTICE).println("Slicing removed " + slicer.removedBlocks + " blocks, "
+                            + slicer.removedDefinitions + " definitions, " + slicer.removedDeclarations + " declarations, "
+                            + slicer.removedBackground + " background assertions, " + slicer.removedAssumptions + " assumptions");
+                }
+            }
+            if (JmlOption.isOption(context, JmlOption.ESC_TRIVIAL)) {
+                TrivialAssertions trivial = new TrivialAssertions(
+                        Strings.feasibilityContains(Strings.feas_none,context) && !splitkey.equals(Strings.feas_preOnly));
+                int remaining = trivial.simplify(program);
+                jmlesc.trivialAssertions += trivial.removed;
+                if (utils.jmlverbose >= Utils.JMLVERBOSE) {
+                    log.getWriter(WriterKind.NOTICE).println("Removed " + trivial.removed + " trivially valid assertions, leaving " + remaining);
+                }
+                // With nothing left to prove and no feasibility checks to make,
+                // the method is valid without starting a solver
+                if (remaining == 0 && !splitkey.equals(Strings.feas_preOnly)) {
+                    java.util.List<JmlStatementExpr> checks = Strings.feasibilityContains(Strings.feas_none,context) ? null
+                            : jmlesc.assertionAdder.getAssumeChecks(methodDecl, splitkey);
+                    if (checks == null || checks.isEmpty()) {
+                        timings.record("basicBlock", timingName, "method", phaseStart);
+                        jmlesc.trivialMethods++;
+                        if (utils.jmlverbose >= Utils.PROGRESS) {
+                            log.getWriter(WriterKind.NOTICE).println("All assertions of " + utils.qualifiedMethodSig(methodDecl.sym)
+                                    + (splitkey.isEmpty() ? "" : " (split " + splitkey + ")") + " hold trivially");
+                        }
+                        IProverResult trivialResult = factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.UNSAT,new Date());
+                        numberAccumulated++;
+                        if (proofResultAccumulated == null || proofResultAccumulated.result() == IProverResult.UNSAT) {
+                            proofResultAccumulated = trivialResult;
+                        }
+                        continue;
+                    }
+                }
+            }
+            timings.record("basicBlock", timingName, "method", phaseStart);
+            groups = streaming ? null : assertionGroups(program);
             if (printBB) {
                 log.getWriter(WriterKind.NOTICE).println(Strings.empty);
                 log.getWriter(WriterKind.NOTICE).println(separator);
@@ -361,7 +860,9 @@ public class MethodProverSMT {
             }
 
             // convert the basic block form to SMT
-            try {
+            phaseStart = timings.start();
+            if (!streaming) try {
+                boolean useBV = methodDecl.usedBitVectors;
                 try {
                     if (utils.jmlverbose >= Utils.PROGRESS && methodDecl.usedBitVectors && !JmlOption.value(context, JmlOption.ESC_BV).equals("true")) {
                         log.note("jml.message", "Using bit-vector arithmetic");
@@ -375,7 +876,9 @@ public class MethodProverSMT {
                         log.note("jml.message", "Switching to bit-vector arithmetic");
                     }
                     script = new SMTTranslator(context, methodDecl.sym.toString()).convert(program,smt,true);
+                    useBV = true;
                 }
+                if (groups != null) translateGroups(groups, program, smt, methodDecl, useBV);
                 if (printSMT) {
                     try {
                         log.getWriter(WriterKind.NOTICE).println(Strings.empty);
@@ -396,12 +899,17 @@ public class MethodProverSMT {
                 JCDiagnostic d = log.factory().warning(log.currentSource(), null, "jml.internal", "Failed to convert to SMT: " + e);
                 log.report(d);
                 return factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.ERROR,new Date()).setOtherInfo(d);
+            } finally {
+                if (!streaming) timings.record("smtTranslate", timingName, "method", phaseStart);
             }
             // Starts the solver (and it waits for input)
+            phaseStart = timings.start();
             start = new Date();
             setBenchmark(proverToUse,methodDecl.name.toString(),smt.smtConfig);
-            solver = smt.startSolver(smt.smtConfig,proverToUse,exec);
-            if (solver == null) { 
+            // With groups, the solver for the whole program is started only if it is needed
+            boolean grouped = !streaming && groups != null;
+            solver = grouped ? null : startSolver(smt,proverToUse,exec);
+            if (!grouped && solver == null) { 
             	//log.error("jml.solver.failed.to.start",exec);
                 JCDiagnostic d = log.factory().error(log.currentSource(), null, "jml.solver.failed.to.start",exec);
                 log.report(d);
@@ -410,11 +918,91 @@ public class MethodProverSMT {
             	// Try the prover
             	if (verbose) log.getWriter(WriterKind.NOTICE).println("EXECUTION"); //$NON-NLS-1$
             	try {
-            		solverResponse = script.execute(solver); // Note - the solver knows the smt configuration
+            	    if (grouped) {
+            	        AssertionGroup first = checkGroups(groups, smt, proverToUse, exec);
+            	        solverResponse = smt.smtConfig.responseFactory.unsat();
+            	        if (first == null && checkFeasibility) {
+            	            // Every group is valid. A solver is given the whole
+            	            // program, short of its check-sat, so that the
+            	            // feasibility checks can be made as usual.
+            	            solver = startSolver(smt,proverToUse,exec);
+            	            if (solver == null) {
+            	                JCDiagnostic d = log.factory().error(log.currentSource(), null, "jml.solver.failed.to.start",exec);
+            	                log.report(d);
+            	                return factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.ERROR,start).setOtherInfo(d);
+            	            }
+            	            List<ICommand> commands = script.commands();
+            	            for (ICommand c: commands.subList(0, commands.size()-1)) {
+            	                IResponse r = c.execute(solver);
+            	                if (r.isError()) { solverResponse = r; break; }
+            	            }
+            	        } else if (first != null) {
+            	            // The group's query and program are continued as if they were the whole
+            	            solver = first.solver;
+            	            first.solver = null;
+            	            smttrans = first.smttrans;
+            	            script = first.script;
+            	            program = first.program;
+            	            solverResponse = first.response;
+            	            if (solver == null) {
+            	                JCDiagnostic d = log.factory().error(log.currentSource(), null, "jml.esc.badscript", methodDecl.getName(), smt.smtConfig.defaultPrinter.toString(solverResponse));
+            	                log.report(d);
+            	                closeGroups(groups);
+            	                return factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.ERROR,start).setOtherInfo(d);
+            	            }
+            	        }
+            	    } else if (!streaming) {
+            	        solverResponse = script.execute(solver); // Note - the solver knows the smt configuration
+            	    } else {
+            	        PrintWriter tee = null;
+            	        if (printSMT) {
+            	            log.getWriter(WriterKind.NOTICE).println(Strings.empty);
+            	            log.getWriter(WriterKind.NOTICE).println(separator);
+            	            log.getWriter(WriterKind.NOTICE).println(Strings.empty);
+            	            log.getWriter(WriterKind.NOTICE).println("SMT TRANSLATION OF " + utils.qualifiedMethodSig(methodDecl.sym));
+            	            tee = new PrintWriter(log.getWriter(WriterKind.NOTICE));
+            	        }
+            	        try {
+            	            if (utils.jmlverbose >= Utils.PROGRESS && methodDecl.usedBitVectors && !JmlOption.value(context, JmlOption.ESC_BV).equals("true")) {
+            	                log.note("jml.message", "Using bit-vector arithmetic");
+            	            }
+            	            stream = new SMTStream(solver, SMTStream.DEFAULT_CAPACITY, tee);
+            	            solverResponse = smttrans.convert(program,smt,methodDecl.usedBitVectors,stream);
+            	        } catch (SMTTranslator.JmlBVException e) {
+            	            // The solver has already been sent a preamble for
+            	            // integer arithmetic, so start over with a fresh solver
+            	            solver.exit();
+            	            solver = null;
+            	            if (JmlOption.value(context, JmlOption.ESC_BV).equals("false")) {
+            	                return factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.ERROR,new Date());
+            	            }
+            	            if (!Utils.testingMode && utils.jmlverbose >= Utils.PROGRESS) {
+            	                log.note("jml.message", "Switching to bit-vector arithmetic");
+            	            }
+            	            solver = startSolver(smt,proverToUse,exec);
+            	            if (solver == null) {
+            	                JCDiagnostic d = log.factory().error(log.currentSource(), null, "jml.solver.failed.to.start",exec);
+            	                log.report(d);
+            	                return factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.ERROR,start).setOtherInfo(d);
+            	            }
+            	            smttrans = new SMTTranslator(context, methodDecl.sym.toString());
+            	            stream = new SMTStream(solver, SMTStream.DEFAULT_CAPACITY, tee);
+            	            solverResponse = smttrans.convert(program,smt,true,stream);
+            	        }
+            	        if (tee != null) {
+            	            log.getWriter(WriterKind.NOTICE).println();
+            	            log.getWriter(WriterKind.NOTICE).println();
+            	        }
+            	    }
             	} catch (Exception e) {
+            	    if (retry(solver, smt, methodDecl, splitkey)) {
+            	        solver = null;
+            	        splitsToDo.addFirst(splitkey);
+            	        continue;
+            	    }
             		// Not sure there is anything to worry about, but just in case
             		//log.error("jml.esc.badscript", methodDecl.getName(), e.toString()); //$NON-NLS-1$
-            	    solver.exit();
+            	    if (solver != null) solver.exit();
             	    solver = null;
                     JCDiagnostic d = log.factory().error(log.currentSource(), null, "jml.esc.badscript", methodDecl.getName(), e.toString());
                     log.report(d);
@@ -424,29 +1012,40 @@ public class MethodProverSMT {
                     	throw new Main.JmlCanceledException("Aborted by user");
                     }
                     duration = (System.currentTimeMillis() - start.getTime())/1000.0;
+                    timings.record("solver", timingName, "method", phaseStart);
             	}
             }
 
         }
         
         // Now assemble and report the result
+        if (!solverResponse.isError() && solver != null) recordStatistics(stats, "proof", solver);
 
         if (verbose) {
             log.getWriter(WriterKind.NOTICE).println("Proof result is " + smt.smtConfig.defaultPrinter.toString(solverResponse));
         }
 
-        {
+        Unrepeated unrepeated = new Unrepeated(log, reportedBySplit.computeIfAbsent(splitkey, k -> new HashSet<String>()));
+        try {
             IResponse unsatResponse = smt.smtConfig.responseFactory.unsat();
             if (solverResponse.isError()) {
                 if (aborted) {
                     throw new Main.JmlCanceledException("Aborted by user");
                 }
+                if (retry(solver, smt, methodDecl, splitkey)) {
+                    solver = null;
+                    splitsToDo.addFirst(splitkey);
+                    continue;
+                }
                 solver.exit();
                 //log.error("jml.esc.badscript", methodDecl.getName(), smt.smtConfig.defaultPrinter.toString(solverResponse)); //$NON-NLS-1$
                 String msg = smt.smtConfig.defaultPrinter.toString(solverResponse);
                 String key = "line ";
                 int k = msg.indexOf(key);
-                if (k >= 0) {
+                if (stream != null) {
+                    // The streamed commands are not retained, but the one the solver rejected is
+                    if (stream.failedCommand() != null) msg += "\n>>>" + stream.failedCommand().toString();
+                } else if (k >= 0) {
                     k += key.length();
                     int kk = msg.indexOf(" ",k);
                     try {
@@ -470,11 +1069,7 @@ public class MethodProverSMT {
                 if (verbose) log.getWriter(WriterKind.NOTICE).println("Method checked OK");
                 proofResult = factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.UNSAT,start);
                 
-                boolean doit = false;
-                if (Strings.feas_preOnly.equals(splitkey) && Strings.feasibilityContains(Strings.feas_preOnly,context)) {
-                    doit = true;
-                }
-                if (doit || !Strings.feasibilityContains(Strings.feas_none,context)) {
+                if (checkFeasibility) {
                     boolean allFeasibilities = Strings.feasibilityContains(Strings.feas_all,context) || Strings.feasibilityContains(Strings.feas_debug,context);
                     if (usePushPop) {
                         solver.pop(1); // Pop off previous check_sat
@@ -497,7 +1092,7 @@ public class MethodProverSMT {
                         if (feasibilityCheckNumber != stat.associatedPos) {
                             log.note("jml.message", "XXX");
                         }
-                        if (feasibilityCheckNumber < startFeasibilityCheck) continue;
+                        if (feasibilityCheckNumber < utils.startFeasibilityCheck) continue;
                         if (prevErrors != log.nerrors) break;
                         
                         // Only do the feasibility check if called for by the feasibility option
@@ -506,8 +1101,8 @@ public class MethodProverSMT {
                                 && !(doit && stat.description.contains(Strings.feas_pre))) continue;
                             
                         if (!usePushPop) {
-                            solver2 = smt.startSolver(smt.smtConfig,proverToUse,exec);
-                            if (JmlAssertionAdder.useAssertCount) {
+                            solver2 = startSolver(smt,proverToUse,exec);
+                            if (jmlesc.assertionAdder.useAssertCount) {
                                 List<ICommand> commands = script.commands();
                                 commands.remove(commands.size()-1);
                                 ICommand c = commands.remove(commands.size()-1);
@@ -547,8 +1142,11 @@ public class MethodProverSMT {
                                     treeutils.makeIdent(Position.NOPOS,jmlesc.assertionAdder.assumeCheckSym),
                                     treeutils.makeIntLiteral(Position.NOPOS, feasibilityCheckNumber));
                             solver.assertExpr(smttrans.convertExpr(bin));
+                            long phaseStart = timings.start();
                             solverResponse = solver.check_sat();
+                            timings.record("solver", timingName, "method", phaseStart);
                             duration = (System.currentTimeMillis() - duration)/1000.0;
+                            recordStatistics(stats, "feasibility #" + feasibilityCheckNumber, solver);
                         }
                         String description = stat.description; // + " " + stat;
                         String fileLocation = utils.locationString(stat.pos, log.currentSourceFile());
@@ -570,6 +1168,11 @@ public class MethodProverSMT {
                                 if (Strings.feasibilityContains(stat.description,context)) proofResult = factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.INFEASIBLE,start);
                             }
                         } else if (solverResponse.isError()) {
+                            if (usePushPop && retry(solver, smt, methodDecl, splitkey)) {
+                                solver = null;
+                                splitsToDo.addFirst(splitkey);
+                                continue attempts;
+                            }
                             if (usePushPop) solver.exit();
                             //log.error("jml.esc.badscript", methodDecl.getName(), smt.smtConfig.defaultPrinter.toString(solverResponse)); //$NON-NLS-1$
                             JCDiagnostic d = log.factory().error(log.currentSource(), null, "jml.esc.badscript", methodDecl.getName(), smt.smtConfig.defaultPrinter.toString(solverResponse));
@@ -614,11 +1217,13 @@ public class MethodProverSMT {
             } else b: { // Proof was not UNSAT, so there may be a counterexample
                 if (!Utils.testingMode) utils.progress(0,1,loc + " Method assertions are INVALID");
                 int count = Utils.instance(context).maxWarnings;
+                boolean verdictOnly = JmlOption.isOption(context, JmlOption.ESC_VERDICT_ONLY);
                 boolean byPath = JmlOption.isOption(context, JmlOption.MAXWARNINGSPATH);
                 ProverResult pr = (ProverResult)factory.makeProverResult(methodDecl.sym,proverToUse,
-                        solverResponse.toString().equals("sat") ? IProverResult.SAT : IProverResult.POSSIBLY_SAT,start);
+                        solverResponse.equals(smt.smtConfig.responseFactory.sat()) ? IProverResult.SAT : IProverResult.POSSIBLY_SAT,start);
                 proofResult = pr;
                 boolean haveFailedAssertion = false;
+                int recheck = 0;
                 while (prevErrors == log.nerrors) {
                     if (aborted) {
                     	throw new Main.JmlCanceledException("Aborted by user");
@@ -647,7 +1252,7 @@ public class MethodProverSMT {
                                 unknownReason = smt.smtConfig.responseFactory.error(msg);
                                 boolean timeout = msg.contains("timeout");
                                 if (timeout) {
-                                	log.warning(methodDecl,"esc.resourceout",": " + msg);
+                                	if (!mayResplit) log.warning(methodDecl,"esc.resourceout",": " + msg);
                                 	if (!haveFailedAssertion) proofResult = factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.TIMEOUT,start);
                                     break b;
                                 }
@@ -661,9 +1266,14 @@ public class MethodProverSMT {
                         // Instead, try to get a simple value and see if there is a model
                         IResponse r = solver.get_value(smt.smtConfig.exprFactory.symbol("NULL"));
                         if (r.isError()) {
+                            if (retry(solver, smt, methodDecl, splitkey)) {
+                                solver = null;
+                                splitsToDo.addFirst(splitkey);
+                                continue attempts;
+                            }
                             String msg = ": ";
                             if (JmlOption.value(context,JmlOption.TIMEOUT) != null) msg = " (possible timeout): ";
-                            log.warning(methodDecl,"esc.nomodel","method " + utils.qualifiedName(methodDecl.sym) + " - " + msg + r);
+                            if (!mayResplit) log.warning(methodDecl,"esc.nomodel","method " + utils.qualifiedName(methodDecl.sym) + " - " + msg + r);
                             if (!haveFailedAssertion) proofResult = factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.UNKNOWN,start);
                             break b;
                         }
@@ -673,9 +1283,14 @@ public class MethodProverSMT {
                     // If we don't clearly know the prover failed, we try to get a simple value and see if there is a model
                     IResponse r = solver.get_value(smt.smtConfig.exprFactory.symbol("NULL"));
                     if (r.isError()) {
+                        if (retry(solver, smt, methodDecl, splitkey)) {
+                            solver = null;
+                            splitsToDo.addFirst(splitkey);
+                            continue attempts;
+                        }
                         String msg = ": ";
                         if (JmlOption.value(context,JmlOption.TIMEOUT) != null) msg = " (possible timeout): ";
-                        log.warning(methodDecl,"esc.nomodel",msg + r);
+                        if (!mayResplit) log.warning(methodDecl,"esc.nomodel",msg + r);
                         if (!haveFailedAssertion) proofResult = factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.UNKNOWN,start);
                         break b;
                     }
@@ -684,7 +1299,22 @@ public class MethodProverSMT {
                     if (print) log.getWriter(WriterKind.NOTICE).println("Some assertion is not valid");
                     haveFailedAssertion = true;
                     
+                    if (verdictOnly) {
+                        // Find and report just the first invalid assertion: the values of
+                        // the counterexample are not collected and other failures are
+                        // not looked for, so the solver is released straight away
+                        Map<JCTree,String> none = new HashMap<JCTree,String>();
+                        tracer = tracerFactory.makeTracer(context,smt,solver,none,new BiMap<JCTree,JCExpression>());
+                        path = new ArrayList<IProverResult.Span>();
+                        JCExpression pathCondition = reportInvalidAssertion(
+                                program,smt,solver,methodDecl,none,new BiMap<JCTree,JCExpression>(),
+                                jmlesc.assertionAdder.pathMap, basicBlocker.pathmap);
+                        if (pathCondition != null) pr.add(new Counterexample(tracer.text(),none,path));
+                        break;
+                    }
+
                     // FIXME - decide how to show counterexamples when there is no tracing
+                    long phaseStart = timings.start();
                     Map<JCTree,String> cemap = constructCounterexample(jmlesc.assertionAdder,basicBlocker,smttrans,smt,solver);
                     BiMap<JCTree,JCExpression> jmap = jmlesc.assertionAdder.exprBiMap.compose(basicBlocker.bimap);
                     tracer = tracerFactory.makeTracer(context,smt,solver,cemap,jmap);
@@ -699,6 +1329,13 @@ public class MethodProverSMT {
                     JCExpression pathCondition = reportInvalidAssertion(
                             program,smt,solver,methodDecl,cemap,jmap,
                             jmlesc.assertionAdder.pathMap, basicBlocker.pathmap);
+                    timings.record("counterexample", timingName, "method", phaseStart);
+                    // The values asked for are not to be trusted if the solver failed meanwhile
+                    if (retry(solver, smt, methodDecl, splitkey)) {
+                        solver = null;
+                        splitsToDo.addFirst(splitkey);
+                        continue attempts;
+                    }
                     
                     //if (showTrace && pathCondition != null) log.getWriter(WriterKind.NOTICE).println("PATH CONDITION " + pathCondition.toString());
                     if (showTrace) log.getWriter(WriterKind.NOTICE).println(tracer.text());
@@ -726,7 +1363,11 @@ public class MethodProverSMT {
                     
 
                     if (pathCondition != null) {
-                        Counterexample ce = new Counterexample(tracer.text(),cemap,path);
+                        // With -escBoundedMemory the values by tree are kept only if asked for,
+                        // since they hold on to the translated trees of the method
+                        Map<JCTree,String> kept = boundedMemory && !showCounterexample && !showSubexpressions
+                                ? new HashMap<JCTree,String>() : cemap;
+                        Counterexample ce = new Counterexample(tracer.text(),kept,path);
                         pr.add(ce); // TODO - make more abstract
                     }
                     
@@ -739,9 +1380,17 @@ public class MethodProverSMT {
                     solver.pop(1); // pops off all of the previous check_sat
                     solver.assertExpr(smttrans.convertExpr(pathCondition));
                     solver.push(1); // mark the top again
+                    phaseStart = timings.start();
                     solverResponse = solver.check_sat();
+                    timings.record("solver", timingName, "method", phaseStart);
+                    if (!solverResponse.isError()) recordStatistics(stats, "recheck #" + (++recheck), solver);
 
                     if (solverResponse.isError()) {
+                        if (retry(solver, smt, methodDecl, splitkey)) {
+                            solver = null;
+                            splitsToDo.addFirst(splitkey);
+                            continue attempts;
+                        }
                         //log.error("jml.esc.badscript", methodDecl.getName(), smt.smtConfig.defaultPrinter.toString(solverResponse)); //$NON-NLS-1$
                         JCDiagnostic d = log.factory().error(log.currentSource(), null, "jml.esc.badscript", methodDecl.getName(), smt.smtConfig.defaultPrinter.toString(solverResponse));
                         log.report(d);
@@ -752,8 +1401,36 @@ public class MethodProverSMT {
                 }
                 //pr.accumulateDuration((new Date().getTime() - pr.timestamp().getTime())/1000.);
             }
+        } finally {
+            log.popDiagnosticHandler(unrepeated);
+        }
+        if (groups != null) {
+            // Report the other groups with invalid assertions, and the time each group took
+            AssertionTimes times = new AssertionTimes();
+            IResponse sat = smt.smtConfig.responseFactory.sat();
+            for (AssertionGroup g: groups) {
+                times.put(g.name, g.seconds);
+                if (utils.jmlverbose >= Utils.PROGRESS) {
+                    log.getWriter(WriterKind.NOTICE).println(String.format("Assertions of kinds %s checked [%4.2f secs]", g.name, g.seconds));
+                }
+                if (g.solver != null && proofResult instanceof ProverResult && proofResult.isSat()
+                        && prevErrors == log.nerrors && g.response.equals(sat)) {
+                    reportGroup(g, (ProverResult)proofResult, basicBlocker, smt, methodDecl, methodIsStatic, showTrace,
+                            !boundedMemory || showCounterexample || showSubexpressions);
+                }
+            }
+            closeGroups(groups);
+            if (proofResult instanceof ProverResult) ((ProverResult)proofResult).add(times);
+            groups = null;
+        }
+        if (stats != null && !stats.queries().isEmpty() && proofResult instanceof ProverResult) {
+            ((ProverResult)proofResult).add(stats);
+            if (utils.jmlverbose >= Utils.PROGRESS) {
+                log.getWriter(WriterKind.NOTICE).println("Solver statistics for " + utils.qualifiedMethodSig(methodDecl.sym) + ": "
+                        + summarize(stats));
+            }
         }
-        if (usePushPop) {
+        if (usePushPop && solver != null) {
             solver.exit();
             solver = null;
         }
@@ -768,12 +1445,33 @@ public class MethodProverSMT {
             if (!splitkey.isEmpty()) log.getWriter(WriterKind.NOTICE).println("Result of split "  + splitkey + " is " + proofResult.result());
             //else if (translations.splits.size() > 1) log.getWriter(WriterKind.NOTICE).println("Result of full program analysis is " + proofResult.result());
         }
+        if (mayResplit && proofResult.result() == IProverResult.TIMEOUT) {
+            List<String> subkeys = autoSplitter.split(methodDecl, autoSplits, jmlesc.assertionAdder, translations, splitkey);
+            if (subkeys.isEmpty()) {
+                // No split point is reached in this split, so try again with all the time there is
+                fullTimeout.add(splitkey);
+                splitsToDo.addFirst(splitkey);
+            } else {
+                if (utils.jmlverbose >= Utils.PROGRESS) {
+                    log.getWriter(WriterKind.NOTICE).println("Proof attempt " + (splitkey.isEmpty() ? "" : "for split " + splitkey + " ") + "ran out of time; splitting into " + subkeys);
+                }
+                for (int i = subkeys.size()-1; i >= 0; --i) splitsToDo.addFirst(subkeys.get(i));
+            }
+            continue;
+        }
         numberAccumulated++;
         if (proofResultAccumulated == null) proofResultAccumulated = proofResult;
         else if (proofResultAccumulated.result() == IProverResult.UNSAT) {
             proofResultAccumulated = proofResult;
         }
         } // end of splitkey
+        } finally {
+            if (autoSplitter != null) autoSplitter.save();
+            if (groups != null) {
+                closeGroups(groups);
+                groups = null;
+            }
+        }
         if (utils.jmlverbose >= Utils.PROGRESS && numberAccumulated > 1) {
             log.getWriter(WriterKind.NOTICE).println("Composite result " + proofResultAccumulated.result());
         }
@@ -837,6 +1535,9 @@ public class MethodProverSMT {
         public BiMap<JCTree,JCExpression> jmap;
         public BiMap<JCTree,JCTree> aaPathMap;
         public BiMap<JCTree,JCTree> bbPathMap;
+        /** True if only the invalid assertion is to be reported, without
+         * the details of which conjunct of a precondition is false */
+        public boolean verdictOnly;
     }
     
     /** Iterates through the basic blocks to find and report the invalid assertion
@@ -857,6 +1558,7 @@ public class MethodProverSMT {
         info.jmap = jmap;
         info.aaPathMap = aaPathMap;
         info.bbPathMap = bbPathMap;
+        info.verdictOnly = JmlOption.isOption(context, JmlOption.ESC_VERDICT_ONLY);
         JCExpression pathCondition = reportInvalidAssertion2(program.startBlock(),info,0, JmlTreeUtils.instance(context).falseLit);
         if (pathCondition == null) {
             log.warning("jml.internal.notsobad","Could not find an invalid assertion even though the proof result was satisfiable: " + decl.sym); //$NON-NLS-1$ //$NON-NLS-2$
@@ -1145,7 +1847,7 @@ public class MethodProverSMT {
                             }
                         }
 
-                        if (label == Label.PRECONDITION || label == Label.UNDEFINED_PRECONDITION) {
+                        if (!info.verdictOnly && (label == Label.PRECONDITION || label == Label.UNDEFINED_PRECONDITION)) {
                             //BiMap<JCTree,JCTree> bimap = jmlesc.assertionAdder.exprBiMap;
                             //for (int pdetail=1; pdetail <= jmlesc.assertionAdder.preconditionDetail; pdetail++) 
                             {
@@ -2143,6 +2845,35 @@ public class MethodProverSMT {
     }
     
     /** Allows other extending classes to implement a different type of proof **/
+    /** Asks the solver for its statistics, after the named query, and records
+     * them in stats, if stats is not null and the solver gives them */
+    protected void recordStatistics(/*@ nullable */ SolverStatistics stats, String query, /*@ nullable */ ISolver solver) {
+        if (stats == null || solver == null) return;
+        IResponse r = solver.get_info(org.smtlib.Utils.ALL_STATISTICS);
+        if (!(r instanceof IResponse.IAttributeList)) return; // Unsupported or an error
+        Map<String,String> m = new LinkedHashMap<String,String>();
+        for (IExpr.IAttribute<?> a: ((IResponse.IAttributeList)r).attributes()) {
+            String name = a.keyword().value();
+            if (name.startsWith(":")) name = name.substring(1);
+            m.put(name, a.attrValue() == null ? "" : a.attrValue().toString());
+        }
+        stats.put(query, m);
+    }
+
+    /** The statistics most useful for finding slow proofs (those z3 reports
+     * under these names), in a line of text */
+    public static String summarize(IProverResult.ISolverStatistics stats) {
+        StringBuilder sb = new StringBuilder();
+        for (String name: new String[]{"quant-instantiations","conflicts","max-memory","time"}) {
+            double v = stats.max(name);
+            if (v < 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(name).append(' ').append(v == Math.rint(v) ? Long.toString((long)v) : Double.toString(v));
+        }
+        if (sb.length() == 0) sb.append(stats.queries().size()).append(" queries, no recognized statistics");
+        return sb.toString();
+    }
+
     public SMTTranslator getTranslator(Context context, String def){
         return new SMTTranslator(context, def);
     }
@@ -0,0 +1,169 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.esc;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import org.smtlib.ICommand;
+import org.smtlib.IExpr;
+import org.smtlib.IExpr.IBinding;
+import org.smtlib.IExpr.IDeclaration;
+import org.smtlib.IExpr.IFcnExpr;
+import org.smtlib.IExpr.ISymbol;
+import org.smtlib.command.C_assert;
+import org.smtlib.command.C_define_fun;
+import org.smtlib.impl.Factory;
+
+/** This class implements an (optional) common-subexpression pass over a
+ * translated SMT script: within each assertion (and each parameterless
+ * define-fun body), any function application that occurs more than once is
+ * bound once by a 'let' and referred to by the bound name thereafter.
+ * <P>
+ * Repeated terms are recognized by object identity, so the pass is only
+ * effective on scripts built with a hash-consing factory (SMTTermFactory).
+ * Quantified expressions, let expressions and attributed (e.g. named)
+ * expressions are treated as opaque: they are neither shared nor searched,
+ * so no bound variable ever escapes its binder.
+ */
+public class SMTCommonSubexpressions {
+
+    /** Prefix of the let-bound names; must not conflict with names produced
+     * from the Java program */
+    public static final String prefix = "_JMLCSE_";
+
+    /** The factory used to create the rewritten terms */
+    final protected Factory F;
+
+    /** Counter used to make the bound names unique within a script */
+    protected int count = 0;
+
+    /** The number of let bindings introduced so far */
+    public int bindings = 0;
+
+    // Per-expression working state
+
+    /** The number of distinct parents (or top-level occurrences) of each subterm */
+    final private Map<IExpr,Integer> occurrences = new IdentityHashMap<IExpr,Integer>();
+
+    /** Shared subterms, in an order in which each term follows all the shared
+     * terms it contains */
+    final private List<IFcnExpr> shared = new ArrayList<IFcnExpr>();
+
+    /** The rewritten form of each subterm visited so far */
+    final private Map<IExpr,IExpr> rewritten = new IdentityHashMap<IExpr,IExpr>();
+
+    public SMTCommonSubexpressions(Factory F) {
+        this.F = F;
+    }
+
+    /** Rewrites, in place, the assertions and constant definitions in the given
+     * list of commands */
+    public void apply(List<ICommand> commands) {
+        ListIterator<ICommand> iter = commands.listIterator();
+        while (iter.hasNext()) {
+            ICommand c = iter.next();
+            if (c instanceof C_assert) {
+                IExpr e = ((C_assert)c).expr();
+                IExpr ne = apply(e);
+                if (ne != e) iter.set(new C_assert(ne));
+            } else if (c instanceof C_define_fun) {
+                C_define_fun d = (C_define_fun)c;
+                if (!d.parameters().isEmpty()) continue; // Parameters would be captured by the let
+                IExpr e = d.expression();
+                IExpr ne = apply(e);
+                if (ne != e) iter.set(new C_define_fun(d.symbol(), new LinkedList<IDeclaration>(), d.resultSort(), ne));
+            }
+        }
+    }
+
+    /** Returns an expression equivalent to the argument in which every compound
+     * subterm occurring more than once is let-bound; returns the argument itself
+     * if there is nothing to share. */
+    public IExpr apply(IExpr expr) {
+        occurrences.clear();
+        shared.clear();
+        rewritten.clear();
+        try {
+            count(expr);
+            order(expr, new IdentityHashMap<IExpr,IExpr>());
+            if (shared.isEmpty()) return expr;
+            List<ISymbol> names = new ArrayList<ISymbol>(shared.size());
+            List<IExpr> definitions = new ArrayList<IExpr>(shared.size());
+            for (IFcnExpr t: shared) {
+                // The definition of a shared term refers to the shared terms within it
+                definitions.add(rewriteArgs(t));
+                ISymbol sym = F.symbol(prefix + (++count));
+                names.add(sym);
+                rewritten.put(t, sym);
+            }
+            IExpr body = rewrite(expr);
+            // let binds in parallel, so nest one binding per let, innermost last
+            for (int i = shared.size()-1; i >= 0; --i) {
+                List<IBinding> b = new LinkedList<IBinding>();
+                b.add(F.binding(names.get(i), definitions.get(i)));
+                body = F.let(b, body);
+            }
+            bindings += shared.size();
+            return body;
+        } finally {
+            occurrences.clear();
+            shared.clear();
+            rewritten.clear();
+        }
+    }
+
+    /** Counts occurrences of compound subterms, descending into each distinct
+     * subterm only once, so that a term repeated only as part of a larger
+     * repeated term is not itself shared. */
+    private void count(IExpr e) {
+        if (!(e instanceof IFcnExpr)) return;
+        Integer n = occurrences.get(e);
+        if (n != null) {
+            occurrences.put(e, n+1);
+            return;
+        }
+        occurrences.put(e, 1);
+        for (IExpr a: ((IFcnExpr)e).args()) count(a);
+    }
+
+    /** Fills 'shared' with the terms occurring more than once, in post-order,
+     * so that each shared term is bound after the shared terms it contains. */
+    private void order(IExpr e, Map<IExpr,IExpr> visited) {
+        if (!(e instanceof IFcnExpr) || visited.put(e, e) != null) return;
+        for (IExpr a: ((IFcnExpr)e).args()) order(a, visited);
+        if (occurrences.get(e) > 1) shared.add((IFcnExpr)e);
+    }
+
+    /** Returns the rewritten form of e, in which shared terms are replaced by
+     * their bound names */
+    private IExpr rewrite(IExpr e) {
+        IExpr r = rewritten.get(e);
+        if (r != null) return r;
+        if (!(e instanceof IFcnExpr)) return e;
+        r = rewriteArgs((IFcnExpr)e);
+        rewritten.put(e, r);
+        return r;
+    }
+
+    private IExpr rewriteArgs(IFcnExpr e) {
+        List<IExpr> args = e.args();
+        List<IExpr> newargs = null;
+        for (int i = 0; i < args.size(); i++) {
+            IExpr a = args.get(i);
+            IExpr na = rewrite(a);
+            if (na != a && newargs == null) {
+                newargs = new ArrayList<IExpr>(args.size());
+                newargs.addAll(args.subList(0, i));
+            }
+            if (newargs != null) newargs.add(na);
+        }
+        return newargs == null ? e : F.fcn(e.head(), newargs);
+    }
+}
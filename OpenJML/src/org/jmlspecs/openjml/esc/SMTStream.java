@@ -0,0 +1,136 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.esc;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.smtlib.ICommand;
+import org.smtlib.IResponse;
+import org.smtlib.ISolver;
+import org.smtlib.IVisitor.VisitorException;
+
+/** An SMTStream receives the commands of an SMT script, in order, as
+ * SMTTranslator produces them and forwards them to a running solver, so that
+ * the script as a whole is never held in memory. At most 'capacity' commands
+ * are held before they are sent on; the translator additionally hands over
+ * its commands after each basic block.
+ * <P>
+ * If a PrintWriter is supplied, each command is also printed to it as it is
+ * sent, in the same numbered format as org.smtlib.sexpr.Printer.WithLines, so
+ * that -show smt output is a copy of what the solver receives rather than a
+ * separate traversal of the script.
+ * <P>
+ * Once the solver reports an error, no further commands are sent; the error
+ * response and the offending command are retained for reporting.
+ */
+public class SMTStream {
+
+    /** The default number of commands held before they are sent to the solver */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** The solver receiving the commands */
+    final protected ISolver solver;
+
+    /** The maximum number of commands held before they are sent */
+    final protected int capacity;
+
+    /** Commands received but not yet sent */
+    final protected List<ICommand> buffer;
+
+    /** Where to echo the commands, or null */
+    final protected PrintWriter tee;
+
+    /** The printer used for the echo, or null */
+    final protected org.smtlib.sexpr.Printer printer;
+
+    /** The number of commands sent so far */
+    protected int count = 0;
+
+    /** The response to the most recently sent command */
+    protected IResponse response = null;
+
+    /** The command that produced an error response, if any */
+    protected ICommand failed = null;
+
+    /** The 1-based index of the failed command, or 0 */
+    protected int failedIndex = 0;
+
+    public SMTStream(ISolver solver, int capacity, /*@ nullable */ PrintWriter tee) {
+        this.solver = solver;
+        this.capacity = capacity < 1 ? 1 : capacity;
+        this.buffer = new ArrayList<ICommand>(this.capacity);
+        this.tee = tee;
+        this.printer = tee == null ? null : new org.smtlib.sexpr.Printer(tee);
+        if (tee != null) tee.println("(");
+    }
+
+    /** Accepts the next command of the script, sending the buffered commands
+     * on if the buffer is full; returns false if the solver has already
+     * reported an error, in which case the command is discarded. */
+    public boolean add(ICommand c) {
+        if (failed != null) return false;
+        buffer.add(c);
+        if (buffer.size() >= capacity) flush();
+        return failed == null;
+    }
+
+    /** Sends all buffered commands to the solver, stopping at the first error */
+    public IResponse flush() {
+        for (ICommand c: buffer) {
+            ++count;
+            if (tee != null) {
+                try {
+                    tee.print(count + ":");
+                    c.accept(printer);
+                    tee.println();
+                } catch (VisitorException e) {
+                    tee.println("Exception while printing SMT command: " + e); //$NON-NLS-1$
+                }
+            }
+            response = c.execute(solver);
+            if (response.isError()) {
+                failed = c;
+                failedIndex = count;
+                break;
+            }
+        }
+        buffer.clear();
+        if (tee != null) tee.flush();
+        return response;
+    }
+
+    /** Sends any remaining commands and returns the final response (that of
+     * the last command sent, or the error response) */
+    public IResponse close() {
+        IResponse r = flush();
+        if (tee != null) {
+            tee.println(")");
+            tee.flush();
+        }
+        return r;
+    }
+
+    /** True if the solver has reported an error */
+    public boolean isError() {
+        return failed != null;
+    }
+
+    /** The command that produced an error response, or null */
+    public /*@ nullable */ ICommand failedCommand() {
+        return failed;
+    }
+
+    /** The 1-based position in the stream of the failed command, or 0 */
+    public int failedIndex() {
+        return failedIndex;
+    }
+
+    /** The number of commands sent to the solver so far */
+    public int count() {
+        return count;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.esc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.smtlib.IExpr;
+import org.smtlib.IExpr.IIdentifier;
+import org.smtlib.IExpr.IQualifiedIdentifier;
+import org.smtlib.IExpr.ISymbol;
+import org.smtlib.ISort;
+import org.smtlib.impl.Factory;
+import org.smtlib.impl.SMTExpr;
+import org.smtlib.impl.Sort;
+
+/** A factory for SMT-LIB terms that hash-conses (interns) the terms it creates:
+ * asking twice for the same symbol, numeral, sort application or function
+ * application returns the identical object. This keeps the memory used by a
+ * translated script proportional to the number of distinct subterms and lets
+ * later passes (such as SMTCommonSubexpressions) recognize repeated terms by
+ * object identity.
+ * <P>
+ * Since the interned objects are shared, clients must not mutate them (e.g. by
+ * setting positions); the argument lists handed to fcn() are copied, so a
+ * client may reuse or modify its list after the call.
+ * <P>
+ * The caches live as long as the factory; SMTTranslator creates one factory
+ * per translated BasicProgram.
+ */
+public class SMTTermFactory extends Factory {
+
+    /** The key used for interning compound terms: a head and a list of
+     * arguments, all compared by identity (the components are themselves
+     * interned, so identity coincides with structural equality). */
+    static private final class Key {
+        final Object head;
+        final Object[] args;
+        final int hash;
+
+        Key(Object head, Object[] args) {
+            this.head = head;
+            this.args = args;
+            int h = System.identityHashCode(head);
+            for (Object a: args) h = 31*h + System.identityHashCode(a);
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key)o;
+            if (k.head != head || k.args.length != args.length) return false;
+            for (int i = 0; i < args.length; i++) {
+                if (k.args[i] != args[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /** Interned symbols, by their (unparsed) string */
+    final protected Map<String,ISymbol> symbols = new HashMap<String,ISymbol>();
+
+    /** Interned numerals */
+    final protected Map<Long,SMTExpr.Numeral> numerals = new HashMap<Long,SMTExpr.Numeral>();
+
+    /** Interned function applications */
+    final protected Map<Key,IExpr.IFcnExpr> applications = new HashMap<Key,IExpr.IFcnExpr>();
+
+    /** Interned sort applications */
+    final protected Map<Key,Sort.Application> sorts = new HashMap<Key,Sort.Application>();
+
+    /** The number of requests that were satisfied from one of the caches */
+    public int hits = 0;
+
+    @Override
+    public ISymbol symbol(String v) {
+        ISymbol s = symbols.get(v);
+        if (s == null) {
+            s = super.symbol(v);
+            symbols.put(v,s);
+        } else {
+            hits++;
+        }
+        return s;
+    }
+
+    @Override
+    public SMTExpr.Numeral numeral(long v) {
+        SMTExpr.Numeral n = numerals.get(v);
+        if (n == null) {
+            n = super.numeral(v);
+            numerals.put(v,n);
+        } else {
+            hits++;
+        }
+        return n;
+    }
+
+    @Override
+    public IExpr.IFcnExpr fcn(IQualifiedIdentifier id, List<IExpr> args) {
+        Object[] a = args.toArray();
+        Key k = new Key(id,a);
+        IExpr.IFcnExpr e = applications.get(k);
+        if (e == null) {
+            // Copy the list so that later changes to the caller's list
+            // cannot alter the interned term
+            e = super.fcn(id, new ArrayList<IExpr>(args));
+            applications.put(k,e);
+        } else {
+            hits++;
+        }
+        return e;
+    }
+
+    @Override
+    public IExpr.IFcnExpr fcn(IQualifiedIdentifier id, IExpr... args) {
+        return fcn(id, Arrays.asList(args));
+    }
+
+    @Override
+    public Sort.Application createSortExpression(IIdentifier id, List<ISort> params) {
+        Object[] a = params.toArray();
+        Key k = new Key(id,a);
+        Sort.Application s = sorts.get(k);
+        if (s == null) {
+            s = super.createSortExpression(id, new ArrayList<ISort>(params));
+            sorts.put(k,s);
+        } else {
+            hits++;
+        }
+        return s;
+    }
+
+    @Override
+    public Sort.Application createSortExpression(IIdentifier id, ISort... params) {
+        return createSortExpression(id, Arrays.asList(params));
+    }
+
+    /** The number of distinct compound terms created */
+    public int distinctTerms() {
+        return applications.size();
+    }
+}
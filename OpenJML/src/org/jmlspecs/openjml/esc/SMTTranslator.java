@@ -17,9 +17,11 @@ import org.jmlspecs.openjml.JmlTree.*;
 import org.jmlspecs.openjml.ext.QuantifiedExpressions;
 import org.jmlspecs.openjml.vistors.JmlTreeScanner;
 import org.smtlib.ICommand;
+import org.smtlib.IParser;
 import org.smtlib.ICommand.IScript;
 import org.smtlib.IExpr;
 import org.smtlib.IExpr.*;
+import org.smtlib.IResponse;
 import org.smtlib.ISort;
 import org.smtlib.SMT;
 import org.smtlib.SMT.Configuration;
@@ -155,7 +157,20 @@ public class SMTTranslator extends JmlTreeScanner {
     
     /** The list of initial commands */
     protected List<ICommand> startCommands;
-    
+
+    /** When non-null, commands are sent to this stream as each basic block is
+     * translated, rather than being collected into 'script' */
+    protected SMTStream stream = null;
+
+    /** In streaming mode, the type symbols and sorts already declared to the solver */
+    final protected Set<String> streamedTypeSymbols = new HashSet<String>();
+
+    /** The common-subexpression pass, if enabled */
+    protected SMTCommonSubexpressions cse = null;
+
+    /** True once the helper functions for Real arithmetic have been added */
+    protected boolean realFunctionsAdded = false;
+
     /** A collection of all newly defined sorts */
     final protected Map<Type,Integer> newSorts = new HashMap<>();
     
@@ -199,7 +214,7 @@ public class SMTTranslator extends JmlTreeScanner {
         jmltypes = JmlTypes.instance(context);
         
         // SMT factory and commonly used objects
-        F = new org.smtlib.impl.Factory();
+        F = new SMTTermFactory();
         boolSort = F.createSortExpression(F.symbol("Bool")); // From SMT
         intSort = F.createSortExpression(F.symbol("Int")); // From SMT
         {
@@ -470,27 +485,7 @@ public class SMTTranslator extends JmlTreeScanner {
         List<ICommand> saved = commands;
         commands = tcommands;
 
-        for (Type t: newSorts.keySet()) {
-            Integer n = newSorts.get(t);
-            tcommands.add(new C_declare_sort(
-                    sortId(t),
-                    F.numeral(n)));
-        }
-        for (Type ti: javaTypes) {
-            if (ti.getTag() == TypeTag.TYPEVAR) {
-                if (ti instanceof Type.CapturedType) continue; 
-                tcommands.add(new C_declare_fun(
-                        (ISymbol)jmlTypeSymbol(ti),
-                        emptyList,
-                        jmlTypeSort));
-            }
-            // Remove the following whe we fix parameterized use primitive types
-            if (utils.isExtensionValueType(ti)) {
-                tcommands.add(new C_declare_sort(
-                        (ISymbol)jmlTypeSymbol(ti),
-                        F.numeral(0))); //ti.tsym.type.getTypeArguments().size())));
-            }
-        }
+        addTypeDeclarations(tcommands);
         for (Type ti: javaTypes) {
             if (ti.getTag() == TypeTag.WILDCARD) continue;  // Did these already, so they are done before they are used
             if (ti.getTag() == TypeTag.TYPEVAR) continue; // Did these already, so they are done before they are used
@@ -499,20 +494,14 @@ public class SMTTranslator extends JmlTreeScanner {
             // (declare-fun tjml () JMLTypeSort)
             // (assert (= (erasure tjml) tjava))
             ISymbol tisym = (ISymbol)javaTypeSymbol(ti);
-            tcommands.add(new C_declare_fun(
-                    tisym,
-                    emptyList,
-                    javaTypeSort));
+            declareTypeSymbol(tcommands,tisym,javaTypeSort);
             typesymbols.add(tisym);
             if (!ti.tsym.type.isParameterized()) {
                 // Note: ti.isParameterized() is true if the type name has actual parameters
                 // ti.tsym.type.isParameterized() is true if the declaration has parameters
                 // e.g.  java.util.Set is false on the first, but true on the second
                 ISymbol tjsym = (ISymbol)jmlTypeSymbol(ti);
-                tcommands.add(new C_declare_fun(
-                        tjsym,
-                        emptyList,
-                        jmlTypeSort));
+                declareTypeSymbol(tcommands,tjsym,jmlTypeSort);
                 jmltypesymbols.add(tjsym);
             }
         }
@@ -551,10 +540,7 @@ public class SMTTranslator extends JmlTreeScanner {
                 // the code below is copied directly from the if branch
                 IExpr tjsym = jmlTypeSymbol(ti);
                 if (tjsym instanceof ISymbol) {
-                    tcommands.add(new C_declare_fun(
-                            (ISymbol)tjsym,
-                            emptyList,
-                            jmlTypeSort));
+                    declareTypeSymbol(tcommands,(ISymbol)tjsym,jmlTypeSort);
                 }
                 tcommands.add(new C_assert(F.fcn(notSym,F.fcn(F.symbol("_isJMLArrayType"), tjsym)) ));
                 tcommands.add(new C_assert(F.fcn(
@@ -575,6 +561,7 @@ public class SMTTranslator extends JmlTreeScanner {
             if (ti instanceof ArrayType) tcommands.add(new C_assert(F.fcn(
                     F.symbol(JAVASUBTYPE), javaTypeSymbol(ti), F.symbol("T_java_lang_Object"))));
         }
+        TypeHierarchyAxioms cache = TypeHierarchyAxioms.instance(context);
         int counti = 0;
         for (Type ti: javaTypes) {
             if (ti.getTag() == TypeTag.TYPEVAR) continue; 
@@ -587,47 +574,18 @@ public class SMTTranslator extends JmlTreeScanner {
                 if (tj.getTag() == TypeTag.WILDCARD) continue; 
                 if (utils.isExtensionValueType(tj)) continue;
                 countj++;
-                // (assert (javaSubType t1 t2)) - or assert the negation
-                // (assert (jmlSubType t1jml t2jml)) - or assert the negation
-                
-                boolean b;
-                if (ti.isPrimitive() && tj.isPrimitive()) b = types.isSameType(ti, tj);
-                else b = types.isSubtype(types.erasure(ti),types.erasure(tj));
-                
-                IExpr comp = F.fcn(F.symbol(JAVASUBTYPE), javaTypeSymbol(ti), javaTypeSymbol(tj));
-                if (!b) comp = F.fcn(notSym,comp);
-                tcommands.add(new C_assert(comp));
-                comp = F.fcn(F.symbol(JAVASUBTYPE), F.fcn(F.symbol("_makeArrayType"),javaTypeSymbol(ti)), F.fcn(F.symbol("_makeArrayType"),javaTypeSymbol(tj)));
-                if (!b) comp = F.fcn(notSym,comp);
-                tcommands.add(new C_assert(comp));
-                
-                if (!ti.tsym.type.isParameterized() && !tj.tsym.type.isParameterized() ) {
-                    if (ti.isPrimitive() && tj.isPrimitive()) b = types.isSameType(ti, tj);
-                    else b = types.isSubtype(ti,tj);
-
-                    comp = F.fcn(F.symbol(JMLSUBTYPE), jmlTypeSymbol(ti), jmlTypeSymbol(tj));
-                    if (!b) comp = F.fcn(notSym,comp);
-                    tcommands.add(new C_assert(comp));
-                    comp = F.fcn(F.symbol(JMLSUBTYPE), F.fcn(F.symbol("_makeJMLArrayType"),jmlTypeSymbol(ti)), F.fcn(F.symbol("_makeJMLArrayType"),jmlTypeSymbol(tj)));
-                    if (!b) comp = F.fcn(notSym,comp);
-                    tcommands.add(new C_assert(comp));
+                // The relation of a pair of types whose encoding does not
+                // depend on the method is built once per compilation unit
+                boolean stable = isStableType(ti) && isStableType(tj);
+                TypeHierarchyAxioms.Relation r = stable ? cache.get(typeKey(ti), typeKey(tj)) : null;
+                if (r == null) {
+                    r = new TypeHierarchyAxioms.Relation(subtypeAssertions(ti, tj));
+                    if (stable) cache.put(typeKey(ti), typeKey(tj), r);
                 }
+                tcommands.addAll(r.ground);
                 if (countj > counti && !ti.tsym.type.isParameterized() && !tj.tsym.type.isParameterized()) {
-                    boolean bb;
-                    if (ti.isPrimitive() && tj.isPrimitive()) bb = !types.isSameType(ti, tj);
-                    else bb = types.isSubtype(types.erasure(tj),types.erasure(ti));
-                    String sti = "T_" + typeString(ti);
-                    String stj = "T_" + typeString(tj);
-                    if (b) {
-                        // forall Exception e; e instanceof ti ==> e instanceof tj
-                        addCommand(smt,"(assert (forall ((e REF)) (=> (javaSubType (javaTypeOf e) "+sti+") (javaSubType (javaTypeOf e) "+stj+")) )))");
-                    } else if (bb) {
-                        // forall Exception e; e instanceof tj ==> e instanceof ti
-                        addCommand(smt,"(assert (forall ((e REF)) (=> (javaSubType (javaTypeOf e) "+stj+") (javaSubType (javaTypeOf e) "+sti+")) )))");
-                    } else if (!ti.isInterface() && !tj.isInterface()) {
-                        // forall Exception e; !(e instanceof ti) || !(e instanceof tj)
-                        addCommand(smt,"(assert (forall ((e REF)) (or (not (javaSubType (javaTypeOf e) "+sti+")) (not (javaSubType (javaTypeOf e) "+stj+")) )))");
-                    }
+                    if (r.axioms == null) r.axioms = subtypeAxioms(ti, tj, smt);
+                    tcommands.addAll(r.axioms);
                 }
             }
         }
@@ -700,7 +658,9 @@ public class SMTTranslator extends JmlTreeScanner {
 
         for (int i=1; i<=wildcardCount; ++i) {
             ISymbol sym = F.symbol("JMLTV_"+"WILD"+i);
-            tcommands.add(0,new C_declare_fun(sym,emptyList,jmlTypeSort));
+            if (stream == null || streamedTypeSymbols.add(sym.toString())) {
+                tcommands.add(0,new C_declare_fun(sym,emptyList,jmlTypeSort));
+            }
         }
 
         // Add all the type definitions into the command script before all the uses
@@ -710,6 +670,187 @@ public class SMTTranslator extends JmlTreeScanner {
 
     }
     
+    /** Returns the ground assertions stating whether ti is a subtype of tj,
+     * as Java (erased) types and, when neither is generic, as JML types */
+    protected List<ICommand> subtypeAssertions(Type ti, Type tj) {
+        List<ICommand> list = new ArrayList<ICommand>(4);
+        // (assert (javaSubType t1 t2)) - or assert the negation
+        // (assert (jmlSubType t1jml t2jml)) - or assert the negation
+        
+        boolean b;
+        if (ti.isPrimitive() && tj.isPrimitive()) b = types.isSameType(ti, tj);
+        else b = types.isSubtype(types.erasure(ti),types.erasure(tj));
+        
+        IExpr comp = F.fcn(F.symbol(JAVASUBTYPE), javaTypeSymbol(ti), javaTypeSymbol(tj));
+        if (!b) comp = F.fcn(notSym,comp);
+        list.add(new C_assert(comp));
+        comp = F.fcn(F.symbol(JAVASUBTYPE), F.fcn(F.symbol("_makeArrayType"),javaTypeSymbol(ti)), F.fcn(F.symbol("_makeArrayType"),javaTypeSymbol(tj)));
+        if (!b) comp = F.fcn(notSym,comp);
+        list.add(new C_assert(comp));
+        
+        if (!ti.tsym.type.isParameterized() && !tj.tsym.type.isParameterized() ) {
+            if (ti.isPrimitive() && tj.isPrimitive()) b = types.isSameType(ti, tj);
+            else b = types.isSubtype(ti,tj);
+
+            comp = F.fcn(F.symbol(JMLSUBTYPE), jmlTypeSymbol(ti), jmlTypeSymbol(tj));
+            if (!b) comp = F.fcn(notSym,comp);
+            list.add(new C_assert(comp));
+            comp = F.fcn(F.symbol(JMLSUBTYPE), F.fcn(F.symbol("_makeJMLArrayType"),jmlTypeSymbol(ti)), F.fcn(F.symbol("_makeJMLArrayType"),jmlTypeSymbol(tj)));
+            if (!b) comp = F.fcn(notSym,comp);
+            list.add(new C_assert(comp));
+        }
+        return list;
+    }
+    
+    /** Returns the quantified axioms relating the objects of two types that
+     * are not generic: those of a subtype are also of the supertype, and no
+     * object is of two unrelated classes. These are needed for objects whose
+     * dynamic type is not one of the types named in the method (e.g. an
+     * exception thrown by a callee), so they cannot be replaced by ground facts. */
+    protected List<ICommand> subtypeAxioms(Type ti, Type tj, SMT smt) {
+        List<ICommand> list = new ArrayList<ICommand>(1);
+        boolean b, bb;
+        if (ti.isPrimitive() && tj.isPrimitive()) b = types.isSameType(ti, tj);
+        else b = types.isSubtype(ti,tj);
+        if (ti.isPrimitive() && tj.isPrimitive()) bb = !types.isSameType(ti, tj);
+        else bb = types.isSubtype(types.erasure(tj),types.erasure(ti));
+        String sti = "T_" + typeString(ti);
+        String stj = "T_" + typeString(tj);
+        if (b) {
+            // forall Exception e; e instanceof ti ==> e instanceof tj
+            list.add(command(smt,"(assert (forall ((e REF)) (=> (javaSubType (javaTypeOf e) "+sti+") (javaSubType (javaTypeOf e) "+stj+")) )))"));
+        } else if (bb) {
+            // forall Exception e; e instanceof tj ==> e instanceof ti
+            list.add(command(smt,"(assert (forall ((e REF)) (=> (javaSubType (javaTypeOf e) "+stj+") (javaSubType (javaTypeOf e) "+sti+")) )))"));
+        } else if (!ti.isInterface() && !tj.isInterface()) {
+            // forall Exception e; !(e instanceof ti) || !(e instanceof tj)
+            list.add(command(smt,"(assert (forall ((e REF)) (or (not (javaSubType (javaTypeOf e) "+sti+")) (not (javaSubType (javaTypeOf e) "+stj+")) )))"));
+        }
+        return list;
+    }
+    
+    /** True if the SMT encoding of the type and of its subtype relations does
+     * not depend on the method being translated: primitive types, classes that
+     * are not generic, and arrays of these. (The encoding of a generic type
+     * may introduce fresh wildcard variables.) */
+    protected boolean isStableType(Type t) {
+        if (t.isPrimitive()) return true;
+        if (t.getTag() == TypeTag.ARRAY) return isStableType(((Type.ArrayType)t).getComponentType());
+        return t.getTag() == TypeTag.CLASS && !t.tsym.type.isParameterized()
+                && !jmltypes.isArray(t) && !utils.isExtensionValueType(t);
+    }
+    
+    /** The key of a stable type in TypeHierarchyAxioms: its symbol, or for an
+     * array, a list of the key of its component type and a marker */
+    protected Object typeKey(Type t) {
+        if (t.getTag() == TypeTag.ARRAY) return Arrays.asList(typeKey(((Type.ArrayType)t).getComponentType()), "[]");
+        return t.tsym;
+    }
+    
+    /** Adds declarations of the sorts, type variables and extension types
+     * recorded so far; in streaming mode, those already sent are skipped. */
+    protected void addTypeDeclarations(List<ICommand> tcommands) {
+        for (Type t: newSorts.keySet()) {
+            Integer n = newSorts.get(t);
+            ISymbol sym = sortId(t);
+            if (stream == null || streamedTypeSymbols.add(sym.toString())) {
+                tcommands.add(new C_declare_sort(
+                        sym,
+                        F.numeral(n)));
+            }
+        }
+        for (Type ti: javaTypes) {
+            if (ti.getTag() == TypeTag.TYPEVAR) {
+                if (ti instanceof Type.CapturedType) continue; 
+                declareTypeSymbol(tcommands,(ISymbol)jmlTypeSymbol(ti),jmlTypeSort);
+            }
+            // Remove the following whe we fix parameterized use primitive types
+            if (utils.isExtensionValueType(ti)) {
+                ISymbol sym = (ISymbol)jmlTypeSymbol(ti);
+                if (stream == null || streamedTypeSymbols.add(sym.toString())) {
+                    tcommands.add(new C_declare_sort(
+                            sym,
+                            F.numeral(0))); //ti.tsym.type.getTypeArguments().size())));
+                }
+            }
+        }
+    }
+    
+    /** Adds the declaration of a type constant; in streaming mode, constants
+     * already sent are skipped. */
+    protected void declareTypeSymbol(List<ICommand> tcommands, ISymbol sym, ISort sort) {
+        if (stream == null || streamedTypeSymbols.add(sym.toString())) {
+            tcommands.add(new C_declare_fun(sym, emptyList, sort));
+        }
+    }
+    
+    /** In streaming mode, declares every type constant recorded so far that
+     * has not yet been sent, so that the commands that follow may use it. The
+     * axioms relating the types are added by addTypeRelationships, after all
+     * the basic blocks; they need not precede the assertions that use them. */
+    protected void addStreamedTypeDeclarations(List<ICommand> list) {
+        addTypeDeclarations(list);
+        for (Type ti: javaTypes) {
+            if (ti.getTag() == TypeTag.WILDCARD) continue;
+            if (ti.getTag() == TypeTag.TYPEVAR) continue;
+            if (utils.isExtensionValueType(ti)) continue;
+            declareTypeSymbol(list,(ISymbol)javaTypeSymbol(ti),javaTypeSort);
+            IExpr tjsym = jmlTypeSymbol(ti);
+            if (tjsym instanceof ISymbol) declareTypeSymbol(list,(ISymbol)tjsym,jmlTypeSort);
+        }
+        for (int i=1; i<=wildcardCount; ++i) {
+            declareTypeSymbol(list,F.symbol("JMLTV_"+"WILD"+i),jmlTypeSort);
+        }
+    }
+    
+    /** In streaming mode, hands the commands produced so far to the stream,
+     * preceded by declarations of any newly used types, and clears them.
+     * The declarations are placed before position 'loc' of 'commands' (the
+     * end of the type model), or at the front if loc is negative.
+     * Returns false if the solver has reported an error.
+     */
+    protected boolean streamCommands(int loc, SMT smt) {
+        if (realSort != null) addRealFunctions(smt);
+        int k = loc < 0 ? 0 : loc;
+        List<ICommand> pending = new ArrayList<ICommand>(startCommands.size() + commands.size() + 16);
+        pending.addAll(startCommands);
+        pending.addAll(commands.subList(0,k));
+        addStreamedTypeDeclarations(pending);
+        pending.addAll(commands.subList(k,commands.size()));
+        startCommands.clear();
+        commands.clear();
+        if (cse != null) cse.apply(pending);
+        for (ICommand c: pending) {
+            if (!stream.add(c)) return false;
+        }
+        return true;
+    }
+    
+    /** Adds the helper functions used with Real arithmetic (once) */
+    protected void addRealFunctions(SMT smt) {
+        if (realFunctionsAdded) return;
+        realFunctionsAdded = true;
+        ICommand cc = command(smt, "(define_fun toward_zero ((r Real)) Int (ite (>= r (/ (to_real 0) (to_real 1))) (to_int r) (- 0 (to_int (- 0.0 r)))))"); 
+        startCommands.add(cc);
+    }
+    
+    /** Translates the program exactly as convert(program,smt,useBV) does, but
+     * sends the script to the given stream as it is produced: the preamble
+     * once the declarations and definitions are translated, and then the
+     * commands of each basic block in turn. The translator therefore holds at
+     * most one block's commands at a time. Returns the solver's response to
+     * the final check-sat, or the first error response.
+     */
+    public IResponse convert(BasicProgram program, SMT smt, boolean useBV, SMTStream stream) {
+        this.stream = stream;
+        try {
+            convert(program, smt, useBV);
+            return stream.close();
+        } finally {
+            this.stream = null;
+        }
+    }
+    
     /** This is called by visit methods, and super.scan calls accept methods;
      * clients should call scan instead of accept so that there is a common
      * processing point as well as the type-specific processing in accept methods.
@@ -743,6 +884,7 @@ public class SMTTranslator extends JmlTreeScanner {
         ICommand c;
         startCommands = new LinkedList<ICommand>();
         commands = new LinkedList<ICommand>();
+        cse = JmlOption.isOption(context,JmlOption.ESC_CSE) ? new SMTCommonSubexpressions(F) : null;
         
         // FIXME - use factory for the commands?
         // set any options
@@ -755,10 +897,8 @@ public class SMTTranslator extends JmlTreeScanner {
         c = new C_set_logic(F.symbol(s));
         startCommands.add(c);
         
-        if (JmlOption.isOption(context,JmlOption.ESC_TRIGGERS)) {
-            startCommands.add(command(smt,"(set-option :AUTO_CONFIG false)"));
-            startCommands.add(command(smt,"(set-option :smt.MBQI false)"));
-        }
+        String profile = SolverProfiles.instance(context).commands(JmlEsc.instance(context).pickProver());
+        if (profile != null) startCommands.addAll(commands(smt,profile));
         String strseed = JmlOption.value(context, JmlOption.SEED);
         if (strseed != null && !strseed.isEmpty()) try {
             int seed = Integer.parseInt(strseed);
@@ -978,16 +1118,18 @@ public class SMTTranslator extends JmlTreeScanner {
             commands.add(cc);
         }
         
+        // In streaming mode, send everything so far; the type declarations
+        // go after the type model, as they would in the full script
+        boolean ok = stream == null || streamCommands(loc,smt);
+        
         // add blocks
         for (BasicProgram.BasicBlock b: program.blocks()) {
+            if (!ok) return script; // The solver has already reported an error
             convertBasicBlock(b);
+            if (stream != null) ok = streamCommands(-1,smt);
         }
         
-        if (realSort != null) {
-            ICommand cc = command(smt, "(define_fun toward_zero ((r Real)) Int (ite (>= r (/ (to_real 0) (to_real 1))) (to_int r) (- 0 (to_int (- 0.0 r)))))"); 
-            startCommands.add(cc);
-
-        }
+        if (realSort != null) addRealFunctions(smt);
         {
             // Add an assertion that negates the start block id
             LinkedList<IExpr> argss = new LinkedList<IExpr>();
@@ -1004,12 +1146,16 @@ public class SMTTranslator extends JmlTreeScanner {
             IExpr f = F.fcn(distinctSym, dargs);
             commands.add(new C_assert(f));
         }
-        addTypeRelationships(loc,smt);
+        addTypeRelationships(stream == null ? loc : 0, smt);
         
         script.commands().addAll(startCommands);
         script.commands().addAll(commands);
         commands = script.commands();
         
+        if (cse != null) {
+            cse.apply(commands);
+        }
+        
         // (push 1)
         ICommand cc = new C_push(F.numeral(1));
         commands.add(cc);
@@ -1024,6 +1170,12 @@ public class SMTTranslator extends JmlTreeScanner {
         cc = new C_check_sat();
         commands.add(cc);
         
+        if (stream != null) {
+            for (ICommand command: commands) {
+                if (!stream.add(command)) break;
+            }
+            commands.clear();
+        }
         return script;
     }
     
@@ -1080,6 +1232,26 @@ public class SMTTranslator extends JmlTreeScanner {
             throw new RuntimeException(e);
         }
     }
+
+    /** Parses a sequence of commands, such as those of a solver profile */
+    protected List<ICommand> commands(SMT smt, String commands) {
+        try {
+            Configuration cf = smt.smtConfig;
+            IParser p = cf.smtFactory.createParser(cf,cf.smtFactory.createSource(commands,null));
+            List<ICommand> list = new LinkedList<ICommand>();
+            while (!p.isEOD()) {
+                ICommand c = p.parseCommand();
+                if (c == null) {
+                    log.warning("jml.message","Could not parse the solver profile commands: " + commands);
+                    break;
+                }
+                list.add(c);
+            }
+            return list;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
     
     /** Adds a command expressed as a string */
     protected void addCommand(SMT smt, String command) {
@@ -0,0 +1,111 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.esc;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jmlspecs.openjml.JmlOption;
+import org.jmlspecs.openjml.Strings;
+
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+
+/** Named solver tuning profiles: each is a sequence of SMT-LIB commands
+ * (usually set-option commands) sent to the solver before the translation of
+ * a method. The profile is chosen with -solverProfile, which, like other
+ * options, may be set for a class or method with an Options annotation.
+ * <P>
+ * A profile is looked up first in the property
+ * openjml.solverProfile.&lt;prover&gt;.&lt;name&gt; (e.g.
+ * openjml.solverProfile.z3_4_7.mine), then in
+ * openjml.solverProfile.&lt;family&gt;.&lt;name&gt; (the family being z3 or
+ * cvc4), then among the built-in profiles below. The built-in triggers
+ * profile, used when -triggers is on and no profile is named, turns off z3's
+ * model-based quantifier instantiation, as OpenJML has always done.
+ */
+public class SolverProfiles {
+
+    /** The key used to register an instance of SolverProfiles in the compilation context */
+    protected static final Context.Key<SolverProfiles> solverProfilesKey =
+        new Context.Key<SolverProfiles>();
+
+    /** The method used to obtain the singleton instance of SolverProfiles for this compilation context */
+    public static SolverProfiles instance(Context context) {
+        SolverProfiles instance = context.get(solverProfilesKey);
+        if (instance == null) {
+            instance = new SolverProfiles(context);
+            context.put(solverProfilesKey,instance);
+        }
+        return instance;
+    }
+
+    /** The name of the profile used when -triggers is on and no profile is named */
+    public static final String triggers = "triggers";
+
+    /** The built-in profiles, by prover family and then by name; those of
+     * family "*" apply to any prover */
+    static protected final Map<String,Map<String,String>> builtin = new HashMap<String,Map<String,String>>();
+    static {
+        String noMBQI = "(set-option :AUTO_CONFIG false)(set-option :smt.MBQI false)";
+        define("*", triggers, noMBQI);
+        define("z3", triggers, noMBQI);
+        define("z3", "mbqi", "(set-option :AUTO_CONFIG false)(set-option :smt.MBQI true)");
+        define("z3", "lazy-qi", noMBQI + "(set-option :smt.qi.eager_threshold 5.0)");
+        define("z3", "auto", "");
+        define("cvc4", "saturate", "(set-option :full-saturate-quant true)");
+        define("cvc4", "auto", "");
+    }
+
+    static protected void define(String family, String name, String commands) {
+        Map<String,String> m = builtin.get(family);
+        if (m == null) builtin.put(family, m = new HashMap<String,String>());
+        m.put(name, commands);
+    }
+
+    final protected Context context;
+
+    /** The profile names already reported as unknown, so each is reported once */
+    final protected Set<String> warned = new HashSet<String>();
+
+    protected SolverProfiles(Context context) {
+        this.context = context;
+    }
+
+    /** The family of a prover: z3 or cvc4 for versions of those, otherwise the prover name itself */
+    public static String family(String prover) {
+        if (prover.startsWith("z3")) return "z3";
+        if (prover.startsWith("cvc4")) return "cvc4";
+        return prover;
+    }
+
+    /** The name of the profile in effect: the value of -solverProfile, or
+     * triggers if that is not set and -triggers is on, or null for none */
+    //@ nullable
+    public String profileName() {
+        String name = JmlOption.value(context, JmlOption.SOLVER_PROFILE);
+        if (name != null && !name.isEmpty()) return name;
+        return JmlOption.isOption(context, JmlOption.ESC_TRIGGERS) ? triggers : null;
+    }
+
+    /** The SMT-LIB commands of the profile in effect for the given prover, or
+     * null if there is none (an unknown profile is reported as a warning) */
+    //@ nullable
+    public String commands(String prover) {
+        String name = profileName();
+        if (name == null) return null;
+        String family = family(prover);
+        String s = JmlOption.value(context, Strings.solverProfilePropertyPrefix + prover + "." + name);
+        if (s == null) s = JmlOption.value(context, Strings.solverProfilePropertyPrefix + family + "." + name);
+        if (s == null && builtin.containsKey(family)) s = builtin.get(family).get(name);
+        if (s == null) s = builtin.get("*").get(name);
+        if (s == null && warned.add(prover + "." + name)) {
+            Log.instance(context).warning("jml.message", "Unknown solver profile " + name + " for prover " + prover);
+        }
+        return s;
+    }
+}
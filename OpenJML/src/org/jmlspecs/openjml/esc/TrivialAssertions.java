@@ -0,0 +1,225 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.esc;
+
+import static org.jmlspecs.openjml.ext.StatementExprExtensions.*;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.jmlspecs.openjml.JmlTree.JmlBinary;
+import org.jmlspecs.openjml.JmlTree.JmlStatementExpr;
+import org.jmlspecs.openjml.ext.Operators;
+
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCBinary;
+import com.sun.tools.javac.tree.JCTree.JCConditional;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCLiteral;
+import com.sun.tools.javac.tree.JCTree.JCParens;
+import com.sun.tools.javac.tree.JCTree.JCStatement;
+import com.sun.tools.javac.tree.JCTree.JCUnary;
+import com.sun.tools.javac.util.Name;
+
+/** Removes from a BasicProgram, before it is translated to SMT, the
+ * assertions that hold trivially: those that evaluate to true by constant
+ * folding, once the identifiers in them are replaced by what the program's
+ * definitions and the assumptions earlier in the same block say they equal.
+ * Assumptions of the form id == e, id, !id and conjunctions of these are
+ * used; anything else (heap and array accesses, method calls, quantifiers,
+ * floating point) is left to the solver. If no assertions remain, the
+ * method is valid without consulting a solver (feasibility checks aside).
+ * <P>
+ * The trees of the program are not changed, only the lists of statements of
+ * its blocks. An assertion that holds where it occurs does not constrain
+ * what follows it either, so removing it leaves the meaning of the program
+ * unchanged.
+ */
+public class TrivialAssertions {
+
+    /** The value of the null literal, as distinct from an unknown value */
+    static final protected Object NULL = new Object();
+
+    /** The greatest depth of definitions followed when evaluating an expression */
+    static final protected int maxDepth = 50;
+
+    /** What is known of identifiers, in the block being simplified: an
+     * expression the identifier equals, or its value */
+    protected Map<Name,Object> known;
+
+    /** The number of assertions removed by the most recent call of simplify */
+    public int removed;
+
+    /** If true, the assume-check variable is taken to be 0, as it
+     * is in the query for the assertions, so that the assertions made for
+     * the feasibility checks hold trivially; this may be set only if no
+     * feasibility check is to be made with the program, since those give
+     * the variable other values. */
+    public boolean noFeasibilityChecks;
+
+    /** Creates a simplifier; see noFeasibilityChecks */
+    public TrivialAssertions(boolean noFeasibilityChecks) {
+        this.noFeasibilityChecks = noFeasibilityChecks;
+    }
+
+    /** Removes the trivially valid assertions from the blocks of the program,
+     * returning the number of assertions (and checks) that remain */
+    public int simplify(BasicProgram program) {
+        Map<Name,Object> definitions = new HashMap<Name,Object>();
+        for (BasicProgram.Definition d: program.definitions()) {
+            if (d.value != null) definitions.put(d.id.name, d.value);
+        }
+        removed = 0;
+        int remaining = 0;
+        for (BasicProgram.BasicBlock block: program.blocks()) {
+            known = new HashMap<Name,Object>(definitions);
+            Iterator<JCStatement> iter = block.statements().iterator();
+            while (iter.hasNext()) {
+                JCStatement st = iter.next();
+                if (!(st instanceof JmlStatementExpr)) continue;
+                JmlStatementExpr s = (JmlStatementExpr)st;
+                if (s.clauseType == assumeClause) {
+                    learn(s.expression);
+                } else if (s.clauseType == assertClause || s.clauseType == checkClause) {
+                    if (Boolean.TRUE.equals(eval(s.expression,0))) {
+                        iter.remove();
+                        removed++;
+                    } else {
+                        remaining++;
+                    }
+                }
+            }
+        }
+        known = null;
+        return remaining;
+    }
+
+    /** Records what an assumed expression says about identifiers */
+    protected void learn(JCExpression e) {
+        if (e instanceof JCParens) {
+            learn(((JCParens)e).expr);
+        } else if (e instanceof JCIdent) {
+            known.putIfAbsent(((JCIdent)e).name, Boolean.TRUE);
+        } else if (e instanceof JCUnary && e.getTag() == JCTree.Tag.NOT && ((JCUnary)e).arg instanceof JCIdent) {
+            known.putIfAbsent(((JCIdent)((JCUnary)e).arg).name, Boolean.FALSE);
+        } else if (e instanceof JCBinary && e.getTag() == JCTree.Tag.AND) {
+            learn(((JCBinary)e).lhs);
+            learn(((JCBinary)e).rhs);
+        } else if (e instanceof JCBinary && e.getTag() == JCTree.Tag.EQ && ((JCBinary)e).lhs instanceof JCIdent) {
+            known.putIfAbsent(((JCIdent)((JCBinary)e).lhs).name, ((JCBinary)e).rhs);
+        }
+    }
+
+    /** The value of a literal: a Boolean, a Long for the integral types, NULL
+     * for null, or null if the literal is of some other type */
+    protected Object value(JCLiteral lit) {
+        switch (lit.typetag) {
+            case BOOLEAN:
+                if (lit.value instanceof Boolean) return lit.value;
+                return lit.value instanceof Integer ? (Integer)lit.value != 0 : null;
+            case BYTE: case SHORT: case CHAR: case INT: case LONG:
+                return lit.value instanceof Number ? ((Number)lit.value).longValue() : null;
+            case BOT:
+                return NULL;
+            default:
+                return null;
+        }
+    }
+
+    /** Evaluates an expression, returning its value as value() does, or null
+     * if it cannot be determined */
+    protected Object eval(JCExpression e, int depth) {
+        if (depth > maxDepth || e == null) return null;
+        if (e instanceof JCLiteral) return value((JCLiteral)e);
+        if (e instanceof JCParens) return eval(((JCParens)e).expr, depth);
+        if (e instanceof JCIdent) {
+            Name n = ((JCIdent)e).name;
+            Object v = known.get(n);
+            if (v == null && noFeasibilityChecks && n.toString().equals(JmlAssertionAdder.assumeCheckVar)) return 0L;
+            return v instanceof JCExpression ? eval((JCExpression)v, depth+1) : v;
+        }
+        if (e instanceof JCConditional) {
+            JCConditional c = (JCConditional)e;
+            Object cond = eval(c.cond, depth);
+            if (!(cond instanceof Boolean)) return null;
+            return eval((Boolean)cond ? c.truepart : c.falsepart, depth);
+        }
+        if (e instanceof JCUnary) {
+            JCUnary u = (JCUnary)e;
+            Object v = eval(u.arg, depth);
+            if (u.getTag() == JCTree.Tag.NOT && v instanceof Boolean) return !(Boolean)v;
+            return null;
+        }
+        if (e instanceof JmlBinary) {
+            JmlBinary b = (JmlBinary)e;
+            if (b.op == Operators.impliesKind) return implies(b.lhs, b.rhs, depth);
+            if (b.op == Operators.reverseimpliesKind) return implies(b.rhs, b.lhs, depth);
+            if (b.op == Operators.equivalenceKind || b.op == Operators.inequivalenceKind) {
+                Object l = eval(b.lhs, depth);
+                Object r = eval(b.rhs, depth);
+                if (!(l instanceof Boolean) || !(r instanceof Boolean)) return null;
+                return l.equals(r) == (b.op == Operators.equivalenceKind);
+            }
+            return null;
+        }
+        if (e instanceof JCBinary) {
+            JCBinary b = (JCBinary)e;
+            JCTree.Tag tag = b.getTag();
+            if (tag == JCTree.Tag.AND || tag == JCTree.Tag.OR) {
+                boolean shortValue = tag == JCTree.Tag.OR;
+                Object l = eval(b.lhs, depth);
+                if (Boolean.valueOf(shortValue).equals(l)) return shortValue;
+                Object r = eval(b.rhs, depth);
+                if (Boolean.valueOf(shortValue).equals(r)) return shortValue;
+                if (l instanceof Boolean && r instanceof Boolean) return !shortValue;
+                return null;
+            }
+            if (tag == JCTree.Tag.EQ || tag == JCTree.Tag.NE) {
+                boolean eq = tag == JCTree.Tag.EQ;
+                if (sameIdent(b.lhs, b.rhs)) return eq;
+                Object l = eval(b.lhs, depth);
+                Object r = eval(b.rhs, depth);
+                if (l == null || r == null || l.getClass() != r.getClass()) return null;
+                return l.equals(r) == eq;
+            }
+            if (tag == JCTree.Tag.LT || tag == JCTree.Tag.LE || tag == JCTree.Tag.GT || tag == JCTree.Tag.GE) {
+                Object l = eval(b.lhs, depth);
+                Object r = eval(b.rhs, depth);
+                if (!(l instanceof Long) || !(r instanceof Long)) return null;
+                int c = ((Long)l).compareTo((Long)r);
+                switch (tag) {
+                    case LT: return c < 0;
+                    case LE: return c <= 0;
+                    case GT: return c > 0;
+                    default: return c >= 0;
+                }
+            }
+            return null;
+        }
+        return null;
+    }
+
+    /** The value of lhs ==> rhs */
+    protected Object implies(JCExpression lhs, JCExpression rhs, int depth) {
+        Object l = eval(lhs, depth);
+        if (Boolean.FALSE.equals(l)) return true;
+        Object r = eval(rhs, depth);
+        if (Boolean.TRUE.equals(r)) return true;
+        if (Boolean.TRUE.equals(l) && Boolean.FALSE.equals(r)) return false;
+        return null;
+    }
+
+    /** True if both expressions are the same identifier, of a type for which
+     * x == x always holds (not floating point, because of NaN) */
+    protected boolean sameIdent(JCExpression a, JCExpression b) {
+        if (!(a instanceof JCIdent) || !(b instanceof JCIdent)) return false;
+        if (((JCIdent)a).name != ((JCIdent)b).name || a.type == null) return false;
+        TypeTag t = a.type.getTag();
+        return t != TypeTag.FLOAT && t != TypeTag.DOUBLE;
+    }
+}
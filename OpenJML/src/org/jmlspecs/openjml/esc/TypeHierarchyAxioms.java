@@ -0,0 +1,80 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.esc;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.smtlib.ICommand;
+
+import com.sun.tools.javac.util.Context;
+
+/** Holds, for the compilation unit being checked, the SMT commands that
+ * state the subtype relationship between each pair of types, so that the
+ * translation of each method reuses them instead of deciding the relationship
+ * and building (and, for the quantified axioms, parsing) the commands again.
+ * <P>
+ * Only the pairs of types whose SMT encoding does not depend on the method
+ * are held (see SMTTranslator.isStableType); the pairs are keyed by the type
+ * symbols, not by name, since distinct local classes may share a name. The
+ * commands are never modified once built, so one translation's script may
+ * share them with another's. JmlEsc clears the cache at the start of each
+ * compilation unit (or class) it checks.
+ */
+public class TypeHierarchyAxioms {
+
+    /** The key used to register an instance of TypeHierarchyAxioms in the compilation context */
+    protected static final Context.Key<TypeHierarchyAxioms> typeHierarchyAxiomsKey =
+        new Context.Key<TypeHierarchyAxioms>();
+
+    /** The method used to obtain the singleton instance of TypeHierarchyAxioms for this compilation context */
+    public static TypeHierarchyAxioms instance(Context context) {
+        TypeHierarchyAxioms instance = context.get(typeHierarchyAxiomsKey);
+        if (instance == null) {
+            instance = new TypeHierarchyAxioms();
+            context.put(typeHierarchyAxiomsKey,instance);
+        }
+        return instance;
+    }
+
+    /** The commands relating one (ordered) pair of types */
+    static public class Relation {
+        /** The ground assertions of the Java and JML subtype relations of the pair */
+        final public List<ICommand> ground;
+        /** The quantified axioms relating the objects of the two types, or
+         * null if they have not been built yet (they are needed for only one
+         * of the two orders of a pair within a method) */
+        public List<ICommand> axioms;
+
+        public Relation(List<ICommand> ground) {
+            this.ground = ground;
+        }
+    }
+
+    /** The relations built so far, by the keys of the two types */
+    final protected Map<List<Object>,Relation> relations = new HashMap<List<Object>,Relation>();
+
+    /** The number of lookups that found, and did not find, a relation */
+    public int hits, misses;
+
+    /** Returns the relation of the types with the given keys, or null if it has not been built */
+    //@ nullable
+    public synchronized Relation get(Object ti, Object tj) {
+        Relation r = relations.get(Arrays.asList(ti, tj));
+        if (r == null) misses++; else hits++;
+        return r;
+    }
+
+    public synchronized void put(Object ti, Object tj, Relation r) {
+        relations.put(Arrays.asList(ti, tj), r);
+    }
+
+    /** Forgets all relations, since the types they were built for may change */
+    public synchronized void clear() {
+        relations.clear();
+    }
+}
@@ -78,8 +78,6 @@ abstract public class Arithmetic extends ExpressionExtension {
         codeBigintMath = classReader.enterClass(names.fromString(Strings.jmlAnnotationPackage + ".CodeBigintMath"));
     }
     
-    public static boolean rac;
-    
     public IArithmeticMode defaultArithmeticMode(Symbol sym, boolean jml) {
         initModeSymbols();
         if (!jml) {
@@ -97,7 +95,6 @@ abstract public class Arithmetic extends ExpressionExtension {
             if (sym.attribute(specSafeMath) != null) return Safe.instance(context);
             if (sym.attribute(specJavaMath) != null) return Java.instance(context);
             sym = sym.owner;
-            Arithmetic.Math.instance(context).rac = rac; // FIXME - HACK FOR NOW
             if (!(sym instanceof Symbol.PackageSymbol)) return defaultArithmeticMode(sym,jml);
             String v = JmlOption.value(context,JmlOption.SPEC_MATH);
             if ("java".equals(v)) return Java.instance(context);
@@ -283,7 +280,7 @@ abstract public class Arithmetic extends ExpressionExtension {
         }
         
         
-        if (!(rac && alreadyConverted)) {
+        if (!(rewriter.rac && alreadyConverted)) {
             lhs = rewriter.addImplicitConversion(lhs,newtype,lhs);
             rhs = rewriter.addImplicitConversion(rhs,newtype,rhs);
         }
@@ -591,7 +588,7 @@ abstract public class Arithmetic extends ExpressionExtension {
     private void assertIt(JmlAssertionAdder rewriter, JCBinary that, String str,
             JCExpression x) {
         x = condition(rewriter, x);
-        if (!rac) {
+        if (!rewriter.rac) {
             JCTree.JCIdent id = rewriter.newTemp(x);
             rewriter.saveMapping(x,id);
         }
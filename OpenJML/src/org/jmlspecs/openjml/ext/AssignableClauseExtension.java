@@ -57,10 +57,9 @@ public class AssignableClauseExtension extends JmlExtension {
         @Override
         public JmlMethodClause parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             if (mods != null) {
-                error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
+                parser.log.error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
                 return null;
             }
-            init(parser);
             this.keyword = keyword;
             
             int pp = parser.pos();
@@ -89,7 +88,7 @@ public class AssignableClauseExtension extends JmlExtension {
                     parser.nextToken();
                 }
             }
-            return toP(parser.maker().at(pp).JmlMethodClauseStoreRef(keyword, clauseType, list.toList()));
+            return parser.toP(parser.maker().at(pp).JmlMethodClauseStoreRef(keyword, clauseType, list.toList()));
         }
         
         @Override
@@ -40,7 +40,6 @@ public class CallableClauseExtension extends JmlExtension {
         public JmlMethodClauseCallable parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             int pp = parser.pos();
             int pe = parser.endPos();
-            init(parser);
             
             parser.warnNotImplemented(pp, keyword, "JmlParser");
             parser.nextToken();
@@ -48,16 +47,16 @@ public class CallableClauseExtension extends JmlExtension {
             JmlStoreRefKeyword refkeyword = parser.parseOptStoreRefKeyword();
             List<JmlMethodSig> sigs = null;
             if (refkeyword == null) {
-                sigs = parseMethodNameList();
+                sigs = parseMethodNameList(parser);
             }
             int endpos = parser.pos();
             parser.accept(SEMI);
             JmlMethodClauseCallable ec;
             if (refkeyword != null) {
-                ec = toP(parser.maker().at(pp).JmlMethodClauseCallable(
+                ec = parser.toP(parser.maker().at(pp).JmlMethodClauseCallable(
                         refkeyword));
             } else {
-                ec = toP(parser.maker().at(pp).JmlMethodClauseCallable(sigs));
+                ec = parser.toP(parser.maker().at(pp).JmlMethodClauseCallable(sigs));
             }
             return ec;
         }
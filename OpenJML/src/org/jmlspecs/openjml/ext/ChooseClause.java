@@ -49,12 +49,11 @@ public class ChooseClause extends JmlExtension {
         @Override
         public JmlAbstractStatement parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             if (mods != null) {
-                error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
+                parser.log.error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
                 return null;
             }
             int pp = parser.pos();
             int pe = parser.endPos();
-            init(parser);
             parser.nextToken(); // skip over choose token
             ListBuffer<JCBlock> orBlocks = new ListBuffer<JCBlock>();
             JCBlock elseBlock = null;
@@ -74,7 +73,7 @@ public class ChooseClause extends JmlExtension {
             } finally {
                 parser.inModelProgram = saved;
             }
-            return toP(parser.maker().at(pp).JmlChoose(keyword, clauseType, orBlocks.toList(), elseBlock));
+            return parser.toP(parser.maker().at(pp).JmlChoose(keyword, clauseType, orBlocks.toList(), elseBlock));
         }
         
         @Override
@@ -61,15 +61,14 @@ public class EndStatement extends JmlExtension {
         
         @Override
         public JmlAbstractStatement parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
 
             int pp = parser.pos();
             int pe = parser.endPos();
 
             parser.nextToken();
 
-            JmlStatement st = toP(parser.maker().at(pp).JmlStatement(clauseType, null));
-            wrapup(st,clauseType,true,false);
+            JmlStatement st = parser.toP(parser.maker().at(pp).JmlStatement(clauseType, null));
+            wrapup(parser, st,clauseType,true,false);
             return st;
 
         }
@@ -110,7 +109,6 @@ public class EndStatement extends JmlExtension {
         public RefiningStatement(String id) { super(id); }
         
         public JCStatement parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int pos = parser.pos();
             JmlStatementSpec ste;
             ListBuffer<JCIdent> exports = new ListBuffer<>();
@@ -139,7 +137,7 @@ public class EndStatement extends JmlExtension {
                 }
             } else {
                 //if (JmlOption.langJML.equals(JmlOption.value(context, JmlOption.LANG))) {
-                    log.warning(pos,"jml.refining.required");
+                    parser.log.warning(pos,"jml.refining.required");
                 //}
             }
             if (!parser.isNone(mods)) {
@@ -176,7 +174,7 @@ public class EndStatement extends JmlExtension {
                     }
                     stat = parser.blockStatement();
                     if (stat.isEmpty()) {
-                        log.error(begin, "jml.message", "Expected an 'end' statement to match the begin statement before the end of block");
+                        parser.log.error(begin, "jml.message", "Expected an 'end' statement to match the begin statement before the end of block");
                         break;
                     } else {
                         stats.addAll(stat);
@@ -185,10 +183,10 @@ public class EndStatement extends JmlExtension {
             } else {
                 stat = parser.blockStatement();
                 if (stat == null || stat.isEmpty()) {
-                    log.error(ste, "jml.message", "Statement specs found at the end of a block (or before an erroneous statement)");
+                    parser.log.error(ste, "jml.message", "Statement specs found at the end of a block (or before an erroneous statement)");
                     return null;
                 } else if (stat.head instanceof JmlAbstractStatement && stat.head.toString() == EndStatement.beginID) {
-                    log.error(stat.head, "jml.message", "Statement specs may not precede a JML statement clause");
+                    parser.log.error(stat.head, "jml.message", "Statement specs may not precede a JML statement clause");
                     return stat.head;
                 }
                 stats.addAll(stat);
@@ -47,7 +47,6 @@ public class FrameExpressions extends ExpressionExtension {
         @Override
         public JCExpression parse(JCModifiers mods, String keyword,
                 IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int p = parser.pos();
             JmlTokenKind jt = parser.jmlTokenKind();
             parser.nextToken();
@@ -58,7 +57,7 @@ public class FrameExpressions extends ExpressionExtension {
             }
             int pp = parser.pos();
             List<JCExpression> args = parser.arguments();
-            JmlMethodInvocation t = toP(parser.maker().at(pp).JmlMethodInvocation(jt, args));
+            JmlMethodInvocation t = parser.toP(parser.maker().at(pp).JmlMethodInvocation(jt, args));
             t.startpos = p;
             t.kind = this;
             return parser.primarySuffix(t, null);
@@ -66,12 +65,11 @@ public class FrameExpressions extends ExpressionExtension {
 
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            syms = Symtab.instance(context);
             JmlMethodInvocation tree = (JmlMethodInvocation)that;
             ListBuffer<Type> argtypesBuf = new ListBuffer<>();
             attr.attribArgs(VAL, tree.args, localEnv, argtypesBuf);
             if (!attr.postClauses.contains(attr.currentClauseType)) {
-                log.error(tree.pos, "jml.misplaced.token", tree.kind != null ? tree.kind.name() : tree.token.internedName(), attr.currentClauseType == null ? "jml declaration" : attr.currentClauseType.name());
+                attr.log.error(tree.pos, "jml.misplaced.token", tree.kind != null ? tree.kind.name() : tree.token.internedName(), attr.currentClauseType == null ? "jml declaration" : attr.currentClauseType.name());
             }
             return attr.syms.booleanType;
         }
@@ -92,7 +90,6 @@ public class FrameExpressions extends ExpressionExtension {
         @Override
         public JCExpression parse(JCModifiers mods, String keyword,
                 IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int p = parser.pos();
             JmlTokenKind jt = parser.jmlTokenKind();
             parser.nextToken();
@@ -102,20 +99,19 @@ public class FrameExpressions extends ExpressionExtension {
 //                return parser.syntaxError(p, null, "jml.no.typeargs.allowed", jt.internedName());
             }
             int pp = parser.pos();
-            List<JmlTree.JmlMethodSig> args = parseMethodNameList();
+            List<JmlTree.JmlMethodSig> args = parseMethodNameList(parser);
             // FIXME - not implemented
-            return toP(parser.maker().at(p).Erroneous());
+            return parser.toP(parser.maker().at(p).Erroneous());
         }
         
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            syms = Symtab.instance(context);
             JmlMethodInvocation tree = (JmlMethodInvocation)that;
 // FIXME - needs implementation
 //            ListBuffer<Type> argtypesBuf = new ListBuffer<>();
 //            attr.attribArgs(VAL, tree.args, localEnv, argtypesBuf);
             if (!attr.postClauses.contains(attr.currentClauseType)) {
-                log.error(tree.pos+1, "jml.misplaced.token", tree.token.internedName(), attr.currentClauseType == null ? "jml declaration" : attr.currentClauseType.name());
+                attr.log.error(tree.pos+1, "jml.misplaced.token", tree.token.internedName(), attr.currentClauseType == null ? "jml declaration" : attr.currentClauseType.name());
             }
             return attr.syms.booleanType;
         }
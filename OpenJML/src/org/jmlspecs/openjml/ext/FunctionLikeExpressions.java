@@ -16,7 +16,6 @@ import org.jmlspecs.openjml.JmlTree.JmlMethodInvocation;
 import org.jmlspecs.openjml.JmlTree.JmlSingleton;
 
 import com.sun.tools.javac.code.JmlTypes;
-import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.TypeTag;
 import com.sun.tools.javac.code.Types;
@@ -34,7 +33,6 @@ import com.sun.tools.javac.tree.JCTree.JCLiteral;
 import com.sun.tools.javac.tree.JCTree.JCModifiers;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.ListBuffer;
-import com.sun.tools.javac.util.Log;
 
 /** This class handles expression extensions that take an argument list of JCExpressions.
  * Even if there are constraints on the number of arguments, it
@@ -72,19 +70,18 @@ public class FunctionLikeExpressions extends ExpressionExtension {
             //attr.attribTypes(tree.typeargs, localEnv);
             int n = tree.args.size();
             if (n != 1) {  // FIXME _ incorrect for BSOLD
-                error(tree.pos(),"jml.one.arg",keyword,n);
+                attr.log.error(tree.pos(),"jml.one.arg",keyword,n);
             }
-            syms = Symtab.instance(context);
-            Type t = syms.errType;
+            Type t = attr.syms.errType;
             if (n > 0) {
                 Type tt = tree.args.get(0).type;
-                if (tt == JmlTypes.instance(context).TYPE) {
-                    t = JmlTypes.instance(context).TYPE;
-                } else if (tree.args.get(0).type.tsym == syms.classType.tsym) {  // FIXME - syms.classType is a parameterized type which is not equal to the argumet (particularly coming from \\typeof - using tsym works, but we ought to figure this out
-                    t = syms.classType;
+                if (tt == JmlTypes.instance(attr.context).TYPE) {
+                    t = JmlTypes.instance(attr.context).TYPE;
+                } else if (tree.args.get(0).type.tsym == attr.syms.classType.tsym) {  // FIXME - syms.classType is a parameterized type which is not equal to the argumet (particularly coming from \\typeof - using tsym works, but we ought to figure this out
+                    t = attr.syms.classType;
                 } else {
-                    error(tree.args.get(0).pos(),"jml.elemtype.expects.classtype",tree.args.get(0).type.toString());
-                    t = JmlTypes.instance(context).TYPE;
+                    attr.log.error(tree.args.get(0).pos(),"jml.elemtype.expects.classtype",tree.args.get(0).type.toString());
+                    t = JmlTypes.instance(attr.context).TYPE;
                 }
             }
             return t;
@@ -103,7 +100,7 @@ public class FunctionLikeExpressions extends ExpressionExtension {
             JmlMethodInvocation tree = (JmlMethodInvocation)expr;
             ListBuffer<Type> argtypesBuf = new ListBuffer<>();
             attr.attribArgs(VAL, tree.args, localEnv, argtypesBuf);
-            return JmlTypes.instance(context).TYPE;
+            return JmlTypes.instance(attr.context).TYPE;
         }
 
         @Override
@@ -160,7 +157,7 @@ public class FunctionLikeExpressions extends ExpressionExtension {
                     }
                 }
             }
-            return Symtab.instance(attr.context).booleanType;
+            return attr.syms.booleanType;
         }
 
         @Override
@@ -180,10 +177,10 @@ public class FunctionLikeExpressions extends ExpressionExtension {
             for (JCExpression arg: tree.args) {
                 Type argtype = attr.attribExpr(arg, localEnv);
                 if (!argtype.isNullOrReference() && !argtype.isErroneous()) {
-                    log.error(arg.pos(),"jml.ref.arg.required",keyword);
+                    attr.log.error(arg.pos(),"jml.ref.arg.required",keyword);
                 }
             }
-            return syms.booleanType;
+            return attr.syms.booleanType;
         }
 
         @Override
@@ -232,7 +229,7 @@ public class FunctionLikeExpressions extends ExpressionExtension {
         @Override
         public Type typecheck(JmlAttr attr, JCTree expr, Env<AttrContext> localEnv) {
             super.typecheck(attr, expr, localEnv);
-            return Symtab.instance(context).booleanType;
+            return attr.syms.booleanType;
         }
     }
 
@@ -260,9 +257,9 @@ public class FunctionLikeExpressions extends ExpressionExtension {
             super.typecheck(attr, tree, localEnv);
             if (!attr.postClauses.contains(attr.currentClauseType)) {
                 JmlMethodInvocation expr = (JmlMethodInvocation)tree;
-                log.error(tree.pos, "jml.misplaced.token", expr.kind != null ? expr.kind.name() : expr.token.internedName(), attr.currentClauseType == null ? "jml declaration" : attr.currentClauseType.name());
+                attr.log.error(tree.pos, "jml.misplaced.token", expr.kind != null ? expr.kind.name() : expr.token.internedName(), attr.currentClauseType == null ? "jml declaration" : attr.currentClauseType.name());
             }
-            return Symtab.instance(context).booleanType;
+            return attr.syms.booleanType;
         }
     };
     
@@ -293,7 +290,7 @@ public class FunctionLikeExpressions extends ExpressionExtension {
             // The argument expression may contain JML constructs
             int n = tree.args.size();
             if (n != 1) {
-                error(tree.pos(),"jml.one.arg",name(),n);
+                attr.log.error(tree.pos(),"jml.one.arg",name(),n);
             } else {
                 JCExpression e = tree.args.get(0);
                 if (e instanceof JmlMethodInvocation && ((JmlMethodInvocation)e).kind == MiscExpressions.typelcKind) {
@@ -317,18 +314,18 @@ public class FunctionLikeExpressions extends ExpressionExtension {
         public Type typecheck(JmlAttr attr, JCTree tree, Env<AttrContext> localEnv) {
             JmlMethodInvocation expr = (JmlMethodInvocation)tree;
             int n = expr.args.size();
-            if (n != 1 && requireStrictJML()) {
-                Log.instance(context).error(tree.pos(), "jml.one.arg", name(), n);
+            if (n != 1 && requireStrictJML(attr.context)) {
+                attr.log.error(tree.pos(), "jml.one.arg", name(), n);
             }
             for (JCExpression arg: expr.args) {
                 attr.attribTree(arg, localEnv, attr.new ResultInfo(TYP|VAL, Infer.anyPoly));
                 if (arg.type.isPrimitive()) {
-                    Log.instance(context).error(arg.pos(),"jml.ref.arg.required",name());
-                } else if (requireStrictJML() && attr.treeutils.isATypeTree(arg)) {
-                    Log.instance(context).error(arg.pos(),"jml.ref.arg.required",name());
+                    attr.log.error(arg.pos(),"jml.ref.arg.required",name());
+                } else if (requireStrictJML(attr.context) && attr.treeutils.isATypeTree(arg)) {
+                    attr.log.error(arg.pos(),"jml.ref.arg.required",name());
                 }
             }
-            return Symtab.instance(context).booleanType;
+            return attr.syms.booleanType;
         }
     };
     
@@ -338,12 +335,12 @@ public class FunctionLikeExpressions extends ExpressionExtension {
         public Type typecheck(JmlAttr attr, JCTree tree, Env<AttrContext> localEnv) {
             JmlMethodInvocation expr = (JmlMethodInvocation)tree;
             super.typecheck(attr, expr, localEnv);
-            if (expr.args.size() != 1 && requireStrictJML()) Log.instance(context).error(tree.pos(),"jml.one.arg",name(),expr.args.size());
+            if (expr.args.size() != 1 && requireStrictJML(attr.context)) attr.log.error(tree.pos(),"jml.one.arg",name(),expr.args.size());
             for (JCExpression arg: expr.args) {
                 Type argtype = arg.type;
                 // FIXME - argtype is null when there is a DeferredType, in which case no checking is done
                 if (argtype != null && !(argtype instanceof Type.ArrayType) && !argtype.isErroneous()) {
-                    Log.instance(context).error(arg.pos(),"jml.arraytype.required",name(),argtype.toString(),arg.toString());
+                    attr.log.error(arg.pos(),"jml.arraytype.required",name(),argtype.toString(),arg.toString());
                 }
             }
             return attr.syms.booleanType;
@@ -408,9 +405,9 @@ public class FunctionLikeExpressions extends ExpressionExtension {
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
             if (attr.currentClauseType != requiresClauseKind &&
                     attr.currentClauseType != recommendsClauseKind) {
-                Log.instance(context).error(((JmlSingleton)that).pos,"jml.misplaced.same");
+                attr.log.error(((JmlSingleton)that).pos,"jml.misplaced.same");
             }
-            return Symtab.instance(context).booleanType;
+            return attr.syms.booleanType;
         }
     };
     
@@ -425,12 +422,12 @@ public class FunctionLikeExpressions extends ExpressionExtension {
             for (JCExpression arg: expr.args) {
                 if (arg instanceof JCLiteral) {
                     String key = ((JCLiteral)arg).getValue().toString();
-                    value = value && Utils.instance(context).commentKeys.contains(key);
+                    value = value && Utils.instance(parser.context).commentKeys.contains(key);
                 } else if (arg instanceof JCIdent) {
                     String key = ((JCIdent)arg).name.toString();
-                    value = value && Utils.instance(context).commentKeys.contains(key);
+                    value = value && Utils.instance(parser.context).commentKeys.contains(key);
                 } else {
-                    error(arg.pos(), "jml.message", "An argument to \\key must be an identifier or a string literal");
+                    parser.log.error(arg.pos(), "jml.message", "An argument to \\key must be an identifier or a string literal");
                     return parser.maker().at(pos).Erroneous();
                 }
             }
@@ -18,7 +18,6 @@ import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Symbol.TypeVariableSymbol;
 import com.sun.tools.javac.code.Symbol.VarSymbol;
-import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Type.TypeVar;
 import com.sun.tools.javac.comp.AttrContext;
@@ -97,25 +96,25 @@ public class Functional extends ExpressionExtension {
         public Type typecheck(JmlAttr attr, JCTree expr, Env<AttrContext> localEnv) {
             JmlMethodInvocation tree = (JmlMethodInvocation)expr;
             IJmlClauseKind kind = tree.kind;
-            JmlTypes jmltypes = JmlTypes.instance(context);
+            JmlTypes jmltypes = JmlTypes.instance(attr.context);
             {
                     // Arbitrary number of arguments. The first argument
                     // is a Functional interface; the rest have to agree
                     // with its formal arguments.
                     if (tree.args.size() == 0) {
-                        error(tree, kind.name() + " must have at least one argument");
+                        attr.log.error(tree, kind.name() + " must have at least one argument");
                     }
                     ListBuffer<Type> argtypesBuf = new ListBuffer<>();
                     attr.attribArgs(tree.args, localEnv, argtypesBuf);
                     Type func = argtypesBuf.first();
                     MethodSymbol msym = findFunctional(func);
                     if (msym == null) {
-                        error(tree.args.head, "Argument is not a functional");
+                        attr.log.error(tree.args.head, "Argument is not a functional");
                     } else {
                         int nn = msym.params().size() + 1;
                         if (kind == ensuresExprKind) ++nn;
                         if (nn != tree.args.size()) {
-                            error(tree, "jml.message", "Expected " + nn + " arguments, not " + tree.args.size());
+                            attr.log.error(tree, "jml.message", "Expected " + nn + " arguments, not " + tree.args.size());
                         }
                         Iterator<Type> iter = argtypesBuf.iterator(); iter.next();
                         Iterator<VarSymbol> viter = msym.params().iterator();
@@ -125,7 +124,7 @@ public class Functional extends ExpressionExtension {
                             Type t = iter.next();
                             Type returnType = resolve(msym.getReturnType(), func);
                             if (!jmltypes.isSameType(t, returnType)) {
-                                error(tree.args.get(n), "jml.message", "Second argument must match return type: " + t + " vs. " + returnType);
+                                attr.log.error(tree.args.get(n), "jml.message", "Second argument must match return type: " + t + " vs. " + returnType);
                             }
                             ++n;
                         }
@@ -134,21 +133,18 @@ public class Functional extends ExpressionExtension {
                             VarSymbol vs = viter.next();
                             Type paramType = resolve(vs.type, func);
                             if (!jmltypes.isSameType(t, paramType)) {
-                                error(tree.args.get(n), "jml.message", "Argument types do not match: " + t + " vs. " + paramType);
+                                attr.log.error(tree.args.get(n), "jml.message", "Argument types do not match: " + t + " vs. " + paramType);
                             }
                             ++n;
                         }
                     }
-                    if (kind == requiresExprKind || kind == ensuresExprKind) return Symtab.instance(context).booleanType;
-                    else return locset().type;
+                    if (kind == requiresExprKind || kind == ensuresExprKind) return attr.syms.booleanType;
+                    else return locset(attr).type;
             }
         }
         
-        private ClassSymbol _locset = null;
-        
-        private ClassSymbol locset() {
-            if (_locset == null) _locset = ClassReader.instance(context).loadClass(Names.instance(context).fromString("org.jmlspecs.openjml.locset"));
-            return _locset;
+        private ClassSymbol locset(JmlAttr attr) {
+            return ClassReader.instance(attr.context).loadClass(Names.instance(attr.context).fromString("org.jmlspecs.openjml.locset"));
         }
 
     };
@@ -35,7 +35,6 @@ public class MatchExt extends ExpressionExtension {
 
         @Override
         public JCExpression parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int p = parser.pos();
             parser.nextToken();
             JCExpression expr = parser.parseExpression();
@@ -47,7 +46,7 @@ public class MatchExt extends ExpressionExtension {
                 // Must start with an identifier
                 boolean saved = parser.underscoreOK;
                 parser.underscoreOK = true;
-                JCExpression id = toP(parser.jmlF.at(parser.token().pos).Ident(parser.ident())); // FIXME -  - is the position OK
+                JCExpression id = parser.toP(parser.jmlF.at(parser.token().pos).Ident(parser.ident())); // FIXME -  - is the position OK
                 JCExpression caseExpression = parser.primarySuffix(id,List.<JCExpression>nil());
                 parser.underscoreOK = saved;
                 parser.accept(TokenKind.ARROW);
@@ -29,24 +29,23 @@ public class MethodClauseExprType extends IJmlClauseKind.MethodSpecClauseKind {
     public 
     JmlMethodClauseExpr parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
         if (mods != null) {
-            error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
+            parser.log.error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
             return null;
         }
-        init(parser);
         
         int pp = parser.pos();
         int pe = parser.endPos();
         
         parser.nextToken();
         JCExpression e = parser.parsePredicateOrNotSpecified();
-        if (scanner.token().kind != SEMI) {
+        if (parser.getScanner().token().kind != SEMI) {
             parser.syntaxError(parser.pos(), null, "jml.invalid.expression.or.missing.semi");
             parser.skipThroughSemi();
         } else {
             parser.nextToken(); // skip SEMI
         }
         JmlMethodClauseExpr cl = parser.maker().at(pp).JmlMethodClauseExpr(keyword, clauseType, e);
-        return toP(cl);
+        return parser.toP(cl);
 
     }
     
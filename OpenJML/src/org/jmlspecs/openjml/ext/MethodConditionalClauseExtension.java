@@ -46,7 +46,6 @@ public class MethodConditionalClauseExtension extends JmlExtension {
         @Override
         public 
         JmlMethodClauseConditional parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
 
             int pp = parser.pos();
             int pe = parser.endPos();
@@ -41,7 +41,6 @@ public class MethodDeclClauseExtension extends JmlExtension  {
         @Override
         public 
         JmlMethodClauseDecl parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             // TODO: Warning if mods is not null or empty
             mods = parser.maker().Modifiers(0L);
             
@@ -53,8 +52,8 @@ public class MethodDeclClauseExtension extends JmlExtension  {
             // non_null and nullable and perhaps other type modifiers in the
             // future are allowed
             JCModifiers mods2 = parser.modifiersOpt();
-            Utils.instance(context).setJML(mods2);
-            Utils.instance(context).setJMLTop(mods2);
+            Utils.instance(parser.context).setJML(mods2);
+            Utils.instance(parser.context).setJMLTop(mods2);
             JCExpression t = parser.parseType();
             boolean prev = parser.setInJmlDeclaration(true); // allows non-ghost declarations
             ListBuffer<JCTree.JCVariableDecl> decls = parser.variableDeclarators(mods2, t,
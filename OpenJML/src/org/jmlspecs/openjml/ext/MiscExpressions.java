@@ -21,7 +21,6 @@ import org.jmlspecs.openjml.ext.FunctionLikeExpressions.AnyArgBooleanExpressions
 
 import com.sun.tools.javac.code.JmlTypes;
 import com.sun.tools.javac.code.Kinds;
-import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.TypeTag;
 import com.sun.tools.javac.code.Types;
@@ -40,7 +39,6 @@ import com.sun.tools.javac.tree.JCTree.JCModifiers;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.util.ListBuffer;
-import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Name;
 
 /** This class handles expression extensions that take an argument list of JCExpressions.
@@ -69,7 +67,6 @@ public class MiscExpressions extends ExpressionExtension {
 
         @Override
         public JCExpression parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int start = parser.pos();
             parser.nextToken();
             int p = parser.pos();
@@ -93,7 +90,7 @@ public class MiscExpressions extends ExpressionExtension {
                 } else
                     parser.nextToken();
                 // FIXME - this should be a type literal
-                JmlMethodInvocation ee = toP(parser.maker().at(p).JmlMethodInvocation(typelcKind, List.of(e)));
+                JmlMethodInvocation ee = parser.toP(parser.maker().at(p).JmlMethodInvocation(typelcKind, List.of(e)));
                 ee.startpos = start;
                 return parser.primaryTrailers(ee, null);
             }
@@ -117,7 +114,7 @@ public class MiscExpressions extends ExpressionExtension {
                 if (!expr.javaType) attr.checkForWildcards(arg,arg);
             }
             Type t = attr.jmltypes.TYPE;
-            if (expr.javaType) t = syms.classType;
+            if (expr.javaType) t = attr.syms.classType;
             attr.addTodo(attr.utilsClass);
             return t;
         }
@@ -130,22 +127,22 @@ public class MiscExpressions extends ExpressionExtension {
             JmlMethodInvocation expr = (JmlMethodInvocation)tree;
             int n = expr.args.size();
             if (n != 1 && n != 2) {
-                Log.instance(context).error(tree.pos(),"jml.wrong.number.args",name(),"1 or 2",n);
+                attr.log.error(tree.pos(),"jml.wrong.number.args",name(),"1 or 2",n);
             }
             if (n > 0) {
                 if (n > 1) attr.checkLabel(expr.args.get(1));
                 JCExpression arg = expr.args.get(0);
                 Type tt = attr.attribExpr(arg, localEnv);
                 if (tt.isPrimitive()) {
-                    Log.instance(context).error(arg.pos(),"jml.ref.arg.required", name());
+                    attr.log.error(arg.pos(),"jml.ref.arg.required", name());
                 }
                 if (!attr.freshClauses.contains(attr.currentClauseType)) {
                     // The +1 is to fool the error reporting mechanism into 
                     // allowing other error reports about the same token
-                    Log.instance(context).error(tree.pos+1, "jml.misplaced.token", name(), attr.currentClauseType == null ? "jml declaration" : attr.currentClauseType.name());
+                    attr.log.error(tree.pos+1, "jml.misplaced.token", name(), attr.currentClauseType == null ? "jml declaration" : attr.currentClauseType.name());
                 }
             }
-            return Symtab.instance(context).booleanType;
+            return attr.syms.booleanType;
         }
     };
 
@@ -156,17 +153,17 @@ public class MiscExpressions extends ExpressionExtension {
             JmlMethodInvocation expr = (JmlMethodInvocation)tree;
             int n = expr.args.size();
             if (n != 1 && n != 2) {
-                Log.instance(context).error(tree.pos(),"jml.wrong.number.args",name(),"1 or 2",n);
+                attr.log.error(tree.pos(),"jml.wrong.number.args",name(),"1 or 2",n);
             }
             if (n > 0) {
                 if (n > 1) attr.checkLabel(expr.args.get(1));
                 JCExpression arg = expr.args.get(0);
                 Type tt = attr.attribExpr(arg, localEnv);
                 if (tt.isPrimitive()) {
-                    Log.instance(context).error(arg.pos(),"jml.ref.arg.required", name());
+                    attr.log.error(arg.pos(),"jml.ref.arg.required", name());
                 }
             }
-            return Symtab.instance(context).booleanType;
+            return attr.syms.booleanType;
         }
     };
 
@@ -175,7 +172,6 @@ public class MiscExpressions extends ExpressionExtension {
 
         @Override
         public JCExpression parse(JCModifiers mods, String keyword, IJmlClauseKind kind, JmlParser parser) {
-            init(parser);
             int startx = parser.pos();
             if (parser.getScanner().token(1).kind != LPAREN) {
                 return (JCExpression)QuantifiedExpressions.qmaxKind.parse(mods,keyword,QuantifiedExpressions.qmaxKind,parser);
@@ -188,7 +184,7 @@ public class MiscExpressions extends ExpressionExtension {
                         bsmaxKind, args);
                 te.startpos = startx;
                 te.kind = bsmaxKind;
-                te = toP(te);
+                te = parser.toP(te);
                 return parser.primaryTrailers(te, null);
             }
         }
@@ -203,10 +199,10 @@ public class MiscExpressions extends ExpressionExtension {
             attr.attribArgs(VAL, expr.args, localEnv, argtypesBuf);  // We can't send in Lock as the requested type because Types does not know what to do with it - FIXME: perhaps make a JmlTypes that can handle the new primitives
             int n = expr.args.size();
             if (n != 1) {
-                log.error(tree.pos(),"jml.one.arg",name(),n);
+                attr.log.error(tree.pos(),"jml.one.arg",name(),n);
             }
             Type t;
-            if (n == 0) t = syms.errType;
+            if (n == 0) t = attr.syms.errType;
             else {
                 // FIXME - use type.sameType to compare types?
                 if (!expr.args.get(0).type.equals(attr.JMLSetType)) {  // FIXME - use isSameType or check?  what about errors?
@@ -223,33 +219,32 @@ public class MiscExpressions extends ExpressionExtension {
 
         @Override
         public JCExpression parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int pos = parser.pos();
             parser.nextToken(); // skip over the keyword
             // pos is the position of the \lbl token
             int labelPos = parser.pos();
             if (parser.token().kind == TokenKind.LPAREN) {
-                if (requireStrictJML()) {
-                    log.warning(pos,"jml.not.strict","functional form of lbl expression");
+                if (requireStrictJML(parser.context)) {
+                    parser.log.warning(pos,"jml.not.strict","functional form of lbl expression");
                 }
                 parser.nextToken();
                 List<JCExpression> args = parser.parseExpressionList();
                 if (parser.token().kind != TokenKind.RPAREN) {
-                    log.error(parser.pos(),"jml.message", "Expected a comma or right parenthesis here");
+                    parser.log.error(parser.pos(),"jml.message", "Expected a comma or right parenthesis here");
                 } else if (args.length() != 2) {
-                    log.error(labelPos, "jml.message", "Expected two arguments to a lbl experession");
+                    parser.log.error(labelPos, "jml.message", "Expected two arguments to a lbl experession");
                 } else if (!(args.get(0) instanceof JCIdent)) {
-                    log.error(args.get(0).pos, "jml.message", "The first argument of a lbl expression must be an identifier");
+                    parser.log.error(args.get(0).pos, "jml.message", "The first argument of a lbl expression must be an identifier");
                 } else {
                     parser.nextToken(); // skip the RPAREN
                     Name id = ((JCIdent)args.get(0)).name;
-                    return toP(parser.maker().at(pos).JmlLblExpression(args.get(0).pos, this, id, args.get(1)));
+                    return parser.toP(parser.maker().at(pos).JmlLblExpression(args.get(0).pos, this, id, args.get(1)));
                 }
-                return toP(parser.maker().at(labelPos).Erroneous());
+                return parser.toP(parser.maker().at(labelPos).Erroneous());
             } else {
                 Name n = parser.ident();
                 JCExpression e = parser.parseExpression();
-                e = toP(parser.maker().at(pos).JmlLblExpression(labelPos,this, n, e));
+                e = parser.toP(parser.maker().at(pos).JmlLblExpression(labelPos,this, n, e));
                 if (this == lblanyKind ) strictCheck(parser, e);
                 return e;
             }
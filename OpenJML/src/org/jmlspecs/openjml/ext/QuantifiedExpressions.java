@@ -52,7 +52,6 @@ public class QuantifiedExpressions extends ExpressionExtension {
         @Override
         public JCExpression parse(JCModifiers mods, String keyword,
                 IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int pos = parser.pos();
             parser.nextToken();
             mods = parser.modifiersOpt();
@@ -68,18 +67,18 @@ public class QuantifiedExpressions extends ExpressionExtension {
             ListBuffer<JCVariableDecl> decls = new ListBuffer<JCVariableDecl>();
             int idpos = parser.pos();
             Name id = parser.ident(); // FIXME JML allows dimensions after the ident
-            decls.append(toP(parser.maker().at(idpos).VarDef(mods, id, t, null)));
+            decls.append(parser.toP(parser.maker().at(idpos).VarDef(mods, id, t, null)));
             while (parser.token().kind == COMMA) {
                 parser.nextToken();
                 idpos = parser.pos();
                 id = parser.ident(); // FIXME JML allows dimensions after the ident
-                decls.append(toP(parser.maker().at(idpos).VarDef(mods, id, t, null)));
+                decls.append(parser.toP(parser.maker().at(idpos).VarDef(mods, id, t, null)));
             }
             if (parser.token().kind != SEMI) {
-                error(parser.pos(), parser.endPos(), "jml.expected.semicolon.quantified");
+                parser.jmlerror(parser.pos(), parser.endPos(), "jml.expected.semicolon.quantified");
                 int p = parser.pos();
                 parser.skipThroughRightParen();
-                return toP(parser.maker().at(p).Erroneous());
+                return parser.toP(parser.maker().at(p).Erroneous());
             }
             parser.nextToken();
             JCExpression range = null;
@@ -101,11 +100,11 @@ public class QuantifiedExpressions extends ExpressionExtension {
                     pred = range;
                     range = null;
                 } else {
-                    error(parser.pos(), parser.endPos(),
+                    parser.jmlerror(parser.pos(), parser.endPos(),
                             "jml.expected.semicolon.quantified");
                     int p = parser.pos();
                     parser.skipThroughRightParen();
-                    return toP(parser.maker().at(p).Erroneous());
+                    return parser.toP(parser.maker().at(p).Erroneous());
                 }
             }
             List<JCExpression> triggers = null;
@@ -116,7 +115,7 @@ public class QuantifiedExpressions extends ExpressionExtension {
                     triggers = parser.parseExpressionList();
                 }
             }
-            JmlQuantifiedExpr q = toP(parser.maker().at(pos).JmlQuantifiedExpr(this, decls.toList(),
+            JmlQuantifiedExpr q = parser.toP(parser.maker().at(pos).JmlQuantifiedExpr(this, decls.toList(),
                     range, pred));
             q.triggers = triggers;
             return parser.primarySuffix(q, null);
@@ -124,14 +123,13 @@ public class QuantifiedExpressions extends ExpressionExtension {
 
         @Override
         public Type typecheck(JmlAttr attr, JCTree tree, Env<AttrContext> env) {
-            syms = attr.syms;
             JmlQuantifiedExpr that = (JmlQuantifiedExpr)tree;
             Env<AttrContext> localEnv = attr.envForExpr(that,env);
             
             boolean b = ((JmlMemberEnter)attr.memberEnter).setInJml(true);
             for (JCVariableDecl decl: that.decls) {
                 JCModifiers mods = decl.getModifiers();
-                if (attr.utils.hasOnly(mods,0)!=0) log.error(mods.pos,"jml.no.java.mods.allowed","quantified expression");
+                if (attr.utils.hasOnly(mods,0)!=0) attr.log.error(mods.pos,"jml.no.java.mods.allowed","quantified expression");
                 attr.attribAnnotationTypes(mods.annotations,env);
                 attr.allAllowed(mods.annotations, attr.typeModifiers, "quantified expression");
                 attr.utils.setExprLocal(mods);
@@ -150,16 +148,16 @@ public class QuantifiedExpressions extends ExpressionExtension {
                 attr.log.warning(that.triggers.get(0),"jml.message","Triggers only recognized in \\forall or \\exists quantified expressions");
                 that.triggers = null;
             }
-            Type resultType = syms.errType;
+            Type resultType = attr.syms.errType;
             try {
                 
-                if (that.range != null) attr.attribExpr(that.range, localEnv, syms.booleanType);
+                if (that.range != null) attr.attribExpr(that.range, localEnv, attr.syms.booleanType);
 
                 switch (this.name()) {
                     case qexistsID:
                     case qforallID:
-                        attr.attribExpr(that.value, localEnv, syms.booleanType);
-                        resultType = syms.booleanType;
+                        attr.attribExpr(that.value, localEnv, attr.syms.booleanType);
+                        resultType = attr.syms.booleanType;
                         if (that.triggers != null) {
                             ListBuffer<Type> argtypesBuf = new ListBuffer<Type>();
                             attr.attribArgs(that.triggers, localEnv, argtypesBuf);
@@ -168,8 +166,8 @@ public class QuantifiedExpressions extends ExpressionExtension {
                         break;
 
                     case qnumofID:
-                        attr.attribExpr(that.value, localEnv, syms.booleanType);
-                        resultType = syms.intType; // FIXME - int? long? bigint?
+                        attr.attribExpr(that.value, localEnv, attr.syms.booleanType);
+                        resultType = attr.syms.intType; // FIXME - int? long? bigint?
                         break;
 
                     case qmaxID:
@@ -188,7 +186,7 @@ public class QuantifiedExpressions extends ExpressionExtension {
                         attr.attribExpr(that.value, localEnv, Type.noType); // FIXME - int? long? numeric? bigint? double?
                         resultType = that.value.type;
                         if (!attr.jmltypes.isNumeric(attr.jmltypes.unboxedTypeOrType(resultType))) {
-                            log.error(that.value,"jml.bad.quantifer.expression", resultType.toString());
+                            attr.log.error(that.value,"jml.bad.quantifer.expression", resultType.toString());
                             resultType = attr.jmltypes.createErrorType(resultType);
                         }
                         break;
@@ -246,7 +244,6 @@ public class QuantifiedExpressions extends ExpressionExtension {
         
         public JCExpression parse(JCModifiers mods, String keyword,
                 IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             ListBuffer<JCVariableDecl> vdefs = new ListBuffer<JCVariableDecl>();
             int pos = parser.pos();
             parser.nextToken();
@@ -262,14 +259,14 @@ public class QuantifiedExpressions extends ExpressionExtension {
                 Name name = parser.ident();
                 JCVariableDecl decl = parser.variableDeclaratorRest(p,mods,type,name,true,null);
                 decl.pos = p;
-                if (decl.init == null) toP(decl);
+                if (decl.init == null) parser.toP(decl);
                 vdefs.add(decl);
                 if (parser.token().kind != COMMA) break;
                 parser.accept(COMMA);
             } while (true);
             parser.accept(SEMI);
             JCExpression expr = parser.parseExpression();
-            return toP(parser.jmlF.at(pos).LetExpr(vdefs.toList(),expr));
+            return parser.toP(parser.jmlF.at(pos).LetExpr(vdefs.toList(),expr));
         }
     };
 
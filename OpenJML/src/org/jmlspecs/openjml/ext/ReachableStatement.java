@@ -63,15 +63,14 @@ public class ReachableStatement extends JmlExtension {
         // FIXME - string literal is not used
         @Override
         public JCTree parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int pp = parser.pos();
             int pe = parser.endPos();
-            int p = scanner.currentPos();
+            int p = parser.getScanner().currentPos();
             boolean noExpression = keyword.equals(splitID) || keyword.equals(haltID);
-            boolean semiWarning = !noExpression && JmlOption.langJML.equals(JmlOption.value(context, JmlOption.LANG));
+            boolean semiWarning = !noExpression && JmlOption.langJML.equals(JmlOption.value(parser.context, JmlOption.LANG));
             parser.nextToken();
             JmlStatementExpr st = parser.maker().at(pp).JmlExpressionStatement(keyword,clauseType,null,null);
-            if (!noExpression) st.expression = JmlTreeUtils.instance(context).makeBooleanLiteral(pp,true);
+            if (!noExpression) st.expression = JmlTreeUtils.instance(parser.context).makeBooleanLiteral(pp,true);
             if (parser.token().kind == TokenKind.SEMI) {
                 parser.nextToken();
             } else if (parser.token().ikind == JmlTokenKind.ENDJMLCOMMENT) {
@@ -107,7 +106,7 @@ public class ReachableStatement extends JmlExtension {
                 } else if (stt instanceof IJmlLoop) {
                     ((IJmlLoop)stt).setSplit(true);
                 } else {
-                    log.warning(st, "jml.message", "Ignoring out of place split statement");
+                    parser.log.warning(st, "jml.message", "Ignoring out of place split statement");
                 }
                 tree = stt;
             }
@@ -32,10 +32,9 @@ public class RecommendsClause extends JmlExtension {
         public 
         JmlMethodClauseExpr parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             if (mods != null) {
-                error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
+                parser.log.error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
                 return null;
             }
-            init(parser);
             
             int pp = parser.pos();
             int pe = parser.endPos();
@@ -43,21 +42,21 @@ public class RecommendsClause extends JmlExtension {
             parser.nextToken();
             JCExpression e = parser.parsePredicateOrNotSpecified();
             JCExpression ex = null;
-            if (scanner.token().kind == ELSE) {
+            if (parser.getScanner().token().kind == ELSE) {
                 parser.nextToken();
                 ex = parser.parseType();
             } else {
                 parser.syntaxError(parser.pos(), null, "jml.message", "A recommends clause must include an exception (recommends <expr> else <exception>;");
                 parser.skipToSemi();
             }
-            if (scanner.token().kind != SEMI) {
+            if (parser.getScanner().token().kind != SEMI) {
                 parser.syntaxError(parser.pos(), null, "jml.invalid.expression.or.missing.semi");
                 parser.skipThroughSemi();
             } else {
                 parser.nextToken(); // skip SEMI
             }
             Node cl = new Node(pp, e, ex);
-            return toP(cl);
+            return parser.toP(cl);
 
         }
         
@@ -65,7 +64,7 @@ public class RecommendsClause extends JmlExtension {
         public Type typecheck(JmlAttr attr, JCTree clause, Env<AttrContext> env) {
             if (!(clause instanceof Node)) throw new RuntimeException(); // FIXME - a better exception and message
             Node that = (Node)clause;
-            Type t = attr.attribExpr(that.expression, env, syms.booleanType);
+            Type t = attr.attribExpr(that.expression, env, attr.syms.booleanType);
             if (that.exceptionType != null) {
                 t = attr.attribType(that.exceptionType, env);
                 that.exceptionType.type = t;
@@ -51,7 +51,6 @@ public class SetStatement extends JmlExtension {
         public boolean preOrOldWithLabelAllowed() { return true; }
 
         public JmlAbstractStatement parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             
             int pp = parser.pos();
             int pe = parser.endPos();
@@ -70,10 +69,10 @@ public class SetStatement extends JmlExtension {
                 //          t = null;
                 //      }
                 //      JmlAbstractStatement st = toP(jmlF.at(pp).JmlStatement(clauseType, (JCExpressionStatement)t));
-                JmlAbstractStatement st = toP(parser.maker().at(pp).JmlStatement(clauseType, t));
+                JmlAbstractStatement st = parser.toP(parser.maker().at(pp).JmlStatement(clauseType, t));
 
 
-                wrapup(st, clauseType, false);
+                wrapup(parser, st, clauseType, false);
                 return st;
             } finally {
                 parser.setInJmlDeclaration(saved);
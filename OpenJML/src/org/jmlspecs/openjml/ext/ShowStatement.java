@@ -54,9 +54,8 @@ public class ShowStatement extends JmlExtension {
         public JmlAbstractStatement parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             int pp = parser.pos();
             int pe = parser.endPos();
-            init(parser);
-            if (JmlOption.langJML.equals(JmlOption.value(context, JmlOption.LANG))) {
-                log.warning(pp,"jml.not.strict","show statement");
+            if (JmlOption.langJML.equals(JmlOption.value(parser.context, JmlOption.LANG))) {
+                parser.log.warning(pp,"jml.not.strict","show statement");
             }
             
             
@@ -68,7 +67,7 @@ public class ShowStatement extends JmlExtension {
                 // but JML constructs are allowed.
                 //inJmlDeclaration = true;
                 if (!expressions.isEmpty()) {
-                    error(parser.pos(), parser.pos()+1, "jml.bad.expression.list.in.show");
+                    parser.jmlerror(parser.pos(), parser.pos()+1, "jml.bad.expression.list.in.show");
                     parser.skipToSemi();
                     break;
                 }
@@ -80,14 +79,14 @@ public class ShowStatement extends JmlExtension {
                     expressions.add(t);
                 }
             }
-            JmlStatementShow st = toP(parser.maker().at(pp).JmlStatementShow(showClause,expressions.toList()));
-            wrapup(st, clauseType, false);
+            JmlStatementShow st = parser.toP(parser.maker().at(pp).JmlStatementShow(showClause,expressions.toList()));
+            wrapup(parser, st, clauseType, false);
             if (parser.token().kind == TokenKind.SEMI) {
                 parser.accept(TokenKind.SEMI);
             } else if (parser.token().ikind == JmlTokenKind.ENDJMLCOMMENT) {
-                warning(parser.pos()-1, parser.pos(), "jml.missing.semi","show");
+                parser.jmlwarning(parser.pos()-1, parser.pos(), "jml.missing.semi","show");
             } else {
-                error(parser.pos(), parser.pos()+1, "jml.bad.expression.list.in.show");
+                parser.jmlerror(parser.pos(), parser.pos()+1, "jml.bad.expression.list.in.show");
                 parser.skipThroughSemi();
             }
             return st;
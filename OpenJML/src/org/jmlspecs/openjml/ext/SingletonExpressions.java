@@ -12,7 +12,6 @@ import org.jmlspecs.openjml.JmlTree.JmlMethodInvocation;
 import org.jmlspecs.openjml.JmlTree.JmlSingleton;
 
 import com.sun.tools.javac.code.JmlTypes;
-import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.comp.AttrContext;
 import com.sun.tools.javac.comp.Env;
@@ -22,7 +21,6 @@ import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
 import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
 import com.sun.tools.javac.util.Context;
-import com.sun.tools.javac.util.Log;
 
 /** This class handles expression extensions that take an argument list of JCExpressions.
  * Even if there are constraints on the number of arguments, it
@@ -48,24 +46,23 @@ public class SingletonExpressions extends ExpressionExtension {
         
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            syms = Symtab.instance(context);
             JCTree.JCMethodDecl md = attr.enclosingMethodEnv.enclMethod;
             JCTree res = md.getReturnType();
             Type t;
-            if (res == null || (!res.type.isErroneous() && JmlTypes.instance(context).isSameType(res.type,syms.voidType))) {
-                Log.instance(context).error(that.pos+1, "jml.void.result");
-                t = syms.errType;
+            if (res == null || (!res.type.isErroneous() && JmlTypes.instance(attr.context).isSameType(res.type,attr.syms.voidType))) {
+                attr.log.error(that.pos+1, "jml.void.result");
+                t = attr.syms.errType;
             } else {
                 t = res.type;
             }
             if (attr.currentEnvLabel != null) {
-                Log.instance(context).error(that.pos, "jml.no.result.in.old");
+                attr.log.error(that.pos, "jml.no.result.in.old");
             }
             if (!attr.resultClauses.contains(attr.currentClauseType)) {
                 // The +1 is to fool the error reporting mechanism into 
                 // allowing other error reports about the same token
-                Log.instance(context).error(that.pos+1, "jml.misplaced.result", attr.currentClauseType.name());
-                t = syms.errType;
+                attr.log.error(that.pos+1, "jml.misplaced.result", attr.currentClauseType.name());
+                t = attr.syms.errType;
             }
             return t;
         }
@@ -77,8 +74,7 @@ public class SingletonExpressions extends ExpressionExtension {
         
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            syms = Symtab.instance(context);
-            return syms.booleanType;
+            return attr.syms.booleanType;
         }
         
         @Override
@@ -92,10 +88,9 @@ public class SingletonExpressions extends ExpressionExtension {
         
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            syms = Symtab.instance(context);
-            Type t = syms.intType;
+            Type t = attr.syms.intType;
             if (attr.loopStack.isEmpty()) {
-                Log.instance(context).error(that.pos,"jml.outofscope", name());
+                attr.log.error(that.pos,"jml.outofscope", name());
             } else {
                 ((JmlSingleton)that).info = attr.loopStack.get(0).sym;
             }
@@ -115,14 +110,13 @@ public class SingletonExpressions extends ExpressionExtension {
         
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            syms = Symtab.instance(context);
             Type t = attr.JMLValuesType;
             if (attr.foreachLoopStack.isEmpty()) {
-                Log.instance(context).error(that.pos,"jml.outofscope", name());
+                attr.log.error(that.pos,"jml.outofscope", name());
             } else {
                 JCVariableDecl d = attr.foreachLoopStack.get(0).valuesDecl;
                 if (d == null) {
-                    Log.instance(context).error(that.pos,"jml.notforthisloop", name());
+                    attr.log.error(that.pos,"jml.notforthisloop", name());
                 } else {
                     ((JmlSingleton)that).info = d.sym;
                 }
@@ -141,7 +135,7 @@ public class SingletonExpressions extends ExpressionExtension {
         
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            return Symtab.instance(attr.context).booleanType;
+            return attr.syms.booleanType;
         }
 
         @Override
@@ -155,13 +149,12 @@ public class SingletonExpressions extends ExpressionExtension {
         
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            syms = Symtab.instance(context);
             Type t;
             if (!attr.exceptionClauses.contains(attr.currentClauseType)) {
                 // The +1 is to fool the error reporting mechanism into 
                 // allowing other error reports about the same token
-                Log.instance(context).error(that.pos+1, "jml.misplaced.exception", attr.currentClauseType.name());
-                t = syms.errType;
+                attr.log.error(that.pos+1, "jml.misplaced.exception", attr.currentClauseType.name());
+                t = attr.syms.errType;
             } else {
                 t = attr.currentExceptionType;
             }
@@ -48,7 +48,6 @@ public class StateExpressions extends ExpressionExtension {
         @Override
         public JCExpression parse(JCModifiers mods, String keyword,
                 IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int p = parser.pos();
             JmlTokenKind jt = parser.jmlTokenKind();
             parser.nextToken();
@@ -59,7 +58,7 @@ public class StateExpressions extends ExpressionExtension {
             }
             int pp = parser.pos();
             List<JCExpression> args = parser.arguments();
-            JmlMethodInvocation t = toP(parser.maker().at(pp).JmlMethodInvocation(this, args));
+            JmlMethodInvocation t = parser.toP(parser.maker().at(pp).JmlMethodInvocation(this, args));
             t.startpos = p;
             t.token = jt;
             return parser.primarySuffix(t, null);
@@ -67,14 +66,13 @@ public class StateExpressions extends ExpressionExtension {
 
         @Override
         public Type typecheck(JmlAttr attr, JCTree that, Env<AttrContext> localEnv) {
-            syms = attr.syms;
             JmlMethodInvocation tree = (JmlMethodInvocation)that;
             Name savedLabel = attr.currentEnvLabel;
             int n = tree.args.size();
             if (!(n == 1 || (tree.token != JmlTokenKind.BSPRE && n == 2))) {
-                if (tree.token != JmlTokenKind.BSPRE) log.error(tree.pos(),"jml.wrong.number.args",name(),
+                if (tree.token != JmlTokenKind.BSPRE) attr.log.error(tree.pos(),"jml.wrong.number.args",name(),
                         "1 or 2",n);
-                else log.error(tree.pos(),"jml.one.arg",name(),
+                else attr.log.error(tree.pos(),"jml.one.arg",name(),
                         n);
             }
             IJmlClauseKind currentClauseType = attr.currentClauseType;
@@ -82,28 +80,28 @@ public class StateExpressions extends ExpressionExtension {
             if (tree.token == BSPRE) {
                 // pre
                 if (!currentClauseType.preAllowed()) {
-                    log.error(tree.pos+1, "jml.misplaced.old", "\\pre token", currentClauseType.name());
-                    t = syms.errType;
+                    attr.log.error(tree.pos+1, "jml.misplaced.old", "\\pre token", currentClauseType.name());
+                    t = attr.syms.errType;
                 }
             } else if (n == 1) {
                 // old with no label
                 if (attr.currentClauseType == null) {
                     // OK
                 } else if (!currentClauseType.oldNoLabelAllowed() && currentClauseType != MethodSimpleClauseExtensions.declClause) {
-                    log.error(tree.pos+1, "jml.misplaced.old", "\\old token with no label", currentClauseType.name());
-                    t = syms.errType;
+                    attr.log.error(tree.pos+1, "jml.misplaced.old", "\\old token with no label", currentClauseType.name());
+                    t = attr.syms.errType;
                 } else if (currentClauseType == MethodSimpleClauseExtensions.declClause && localEnv.enclMethod == null) {
-                    log.error(tree.pos+1, "jml.misplaced.old", "\\old token with no label", currentClauseType.name());
-                    t = syms.errType;
+                    attr.log.error(tree.pos+1, "jml.misplaced.old", "\\old token with no label", currentClauseType.name());
+                    t = attr.syms.errType;
                 }
             } else {
                 // old with label
                 if (!currentClauseType.preOrOldWithLabelAllowed() && currentClauseType != MethodSimpleClauseExtensions.declClause) {
                     attr.log.error(tree.pos+1, "jml.misplaced.old", "\\old token with a label", currentClauseType.name());
-                    t = syms.errType;
+                    t = attr.syms.errType;
                 } else if (currentClauseType == MethodSimpleClauseExtensions.declClause && localEnv.enclMethod == null) {
                     attr.log.error(tree.pos+1, "jml.misplaced.old", "\\old token with a label", currentClauseType.name());
-                    t = syms.errType;
+                    t = attr.syms.errType;
                 }
             }
             Name label = null;
@@ -112,7 +110,7 @@ public class StateExpressions extends ExpressionExtension {
                 labelarg = tree.args.get(1);
                 label = attr.checkLabel(labelarg);
                 if (label == null) {
-                    t = syms.errType;
+                    t = attr.syms.errType;
                 }
             }
             
@@ -120,8 +118,8 @@ public class StateExpressions extends ExpressionExtension {
             
             // label == empty ==> pre state; label == null ==> current state
             attr.currentEnvLabel = label == null ? attr.names.empty : label;
-            if (n == 0 || t == syms.errType) {
-                t = syms.errType;
+            if (n == 0 || t == attr.syms.errType) {
+                t = attr.syms.errType;
             } else if (localEnv.enclMethod == null) { // FIXME - what about types declared within methods
                 // In an type clause
                 attr.attribExpr(tree.args.get(0), localEnv, Type.noType);
@@ -49,7 +49,6 @@ public class StatementExprType extends IJmlClauseKind.Statement {
     
     @Override
     public JmlAbstractStatement parse(JCModifiers mods, String id, IJmlClauseKind clauseType, JmlParser parser) {
-        init(parser);
         int pp = parser.pos();
         int pe = parser.endPos();
 
@@ -85,7 +84,7 @@ public class StatementExprType extends IJmlClauseKind.Statement {
             }
             ste = st;
         }
-        wrapup(ste,clauseType,true);
+        wrapup(parser, ste,clauseType,true);
         return ste;
     }
     
@@ -46,10 +46,9 @@ public class StatementLocationsExtension extends JmlExtension {
         @Override
         public JmlAbstractStatement parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             if (mods != null) {
-                error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
+                parser.log.error(mods, "jml.message", "A " + keyword + " clause may not have modifiers");
                 return null;
             }
-            init(parser);
             
             int pp = parser.pos();
             int pe = parser.endPos();
@@ -77,8 +76,8 @@ public class StatementLocationsExtension extends JmlExtension {
                     parser.nextToken();
                 }
             }
-            if (keyword.equals(havocID)) return toP(parser.maker().at(pp).JmlHavocStatement(list.toList()));
-            return toP(parser.maker().at(pp).JmlStatementLoopModifies(clauseType, list.toList()));
+            if (keyword.equals(havocID)) return parser.toP(parser.maker().at(pp).JmlHavocStatement(list.toList()));
+            return parser.toP(parser.maker().at(pp).JmlStatementLoopModifies(clauseType, list.toList()));
         }
         
         @Override
@@ -35,7 +35,6 @@ public class TypeDeclClauseExtension extends JmlExtension {
         
         public 
         JmlTypeClauseExpr parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             
             int pp = parser.pos();
             int pe = parser.endPos();
@@ -53,7 +52,7 @@ public class TypeDeclClauseExtension extends JmlExtension {
             Maker M = parser.maker().at(pp);
             if (mods == null) mods = M.Modifiers(0);
             JmlTypeClauseExpr tcl = parser.to(M.JmlTypeClauseExpr(mods, keyword, clauseType, e));
-            tcl.source = log.currentSourceFile();
+            tcl.source = parser.log.currentSourceFile();
             return tcl;
         }
         
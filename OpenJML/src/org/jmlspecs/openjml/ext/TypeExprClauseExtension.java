@@ -66,15 +66,14 @@ public class TypeExprClauseExtension extends JmlExtension {
         
         public 
         JmlTypeClause parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             
             int pp = parser.pos();
             int pe = parser.endPos();
             
             
             if (clauseType == constraintClause) {
-                JmlTree.JmlTypeClauseConstraint tcl = parseConstraint(mods);
-                tcl.source = log.currentSourceFile();
+                JmlTree.JmlTypeClauseConstraint tcl = parseConstraint(parser, mods);
+                tcl.source = parser.log.currentSourceFile();
                 return tcl;
             } else {
                 parser.nextToken();
@@ -89,13 +88,13 @@ public class TypeExprClauseExtension extends JmlExtension {
                 Maker M = parser.maker().at(pp);
                 if (mods == null) mods = M.Modifiers(0);
                 JmlTypeClauseExpr tcl = parser.to(M.JmlTypeClauseExpr(mods, keyword, clauseType, e));
-                tcl.source = log.currentSourceFile();
+                tcl.source = parser.log.currentSourceFile();
                 return tcl;
             }
         }
         
         /** Parses a constraint clause */
-        public JmlTypeClauseConstraint parseConstraint(JCModifiers mods) {
+        public JmlTypeClauseConstraint parseConstraint(JmlParser parser, JCModifiers mods) {
             int pos = parser.pos();
             parser.nextToken();
             JCExpression e = parser.parseExpression();
@@ -118,14 +117,14 @@ public class TypeExprClauseExtension extends JmlExtension {
                     notlist = false;
                     // Here we just have an empty list
                 } else {
-                    sigs = parseMethodNameList();
+                    sigs = parseMethodNameList(parser);
                 }
             }
             if (mods == null) mods = parser.jmlF.at(pos).Modifiers(0);
             JmlTypeClauseConstraint tcl = parser.to(parser.jmlF.at(pos).JmlTypeClauseConstraint(
                     mods, e, sigs));
             tcl.notlist = notlist;
-            tcl.source = log.currentSourceFile();
+            tcl.source = parser.log.currentSourceFile();
             if (parser.token().kind != SEMI) {
                 parser.jmlerror(parser.pos(), parser.endPos(), "jml.bad.construct",
                         "constraint declaration");
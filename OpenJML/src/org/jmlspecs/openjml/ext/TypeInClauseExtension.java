@@ -37,8 +37,7 @@ public class TypeInClauseExtension extends JmlExtension {
         JmlTypeClauseIn parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             int pp = parser.pos();
             if (!parser.isNone(mods))
-                error(mods, "jml.no.mods.allowed", inClause.name());
-            init(parser);
+                parser.log.error(mods, "jml.no.mods.allowed", inClause.name());
             parser.nextToken(); // skip over the in token
             ListBuffer<JmlGroupName> list = parser.parseGroupNameList();
             parser.accept(SEMI);
@@ -37,20 +37,19 @@ public class TypeMapsClauseExtension extends JmlExtension {
         public 
         JmlTypeClauseMaps parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             int pp = parser.pos();
-            init(parser);
-            JmlTypeClauseMaps mapsClause = parseMaps(pp, mods, null);
+            JmlTypeClauseMaps mapsClause = parseMaps(parser, pp, mods, null);
             return mapsClause;
         }
         
         /** Parses a maps clause */
-        public JmlTypeClauseMaps parseMaps(int pos, JCModifiers mods,
+        public JmlTypeClauseMaps parseMaps(JmlParser parser, int pos, JCModifiers mods,
                 ListBuffer<JCTree> list) {
             if (!parser.isNone(mods))
                 parser.jmlerror(mods.getStartPosition(), mods.getPreferredPosition(),
                         parser.getEndPos(mods), "jml.no.mods.allowed",
                         mapsClause.name());
             parser.nextToken(); // skip over the maps token
-            JCExpression e = parseMapsTarget();
+            JCExpression e = parseMapsTarget(parser);
             ListBuffer<JmlGroupName> glist;
             if (parser.jmlTokenClauseKind() != intoKind) {
                 parser.jmlerror(parser.pos(), parser.endPos(), "jml.expected",
@@ -68,16 +67,16 @@ public class TypeMapsClauseExtension extends JmlExtension {
                     parser.nextToken();
                 }
             }
-            return toP(parser.jmlF.at(pos).JmlTypeClauseMaps(e, glist.toList()));
+            return parser.toP(parser.jmlF.at(pos).JmlTypeClauseMaps(e, glist.toList()));
         }
 
         /** Parses the target portion (before the \\into) of a maps clause */
-        public JCExpression parseMapsTarget() {
+        public JCExpression parseMapsTarget(JmlParser parser) {
             int p = parser.pos();
             if (parser.token().kind != IDENTIFIER) {
                 parser.jmlerror(parser.pos(), parser.endPos(), "jml.expected", "an identifier");
                 parser.skipThroughSemi();
-                return toP(parser.jmlF.at(p).Erroneous());
+                return parser.toP(parser.jmlF.at(p).Erroneous());
             }
             Name n = parser.ident();
             JCExpression result = parser.to(parser.jmlF.at(p).Ident(n));
@@ -94,7 +93,7 @@ public class TypeMapsClauseExtension extends JmlExtension {
                 } else {
                     parser.jmlerror(parser.pos(), parser.endPos(), "jml.ident.or.star.after.dot");
                     parser.skipThroughSemi();
-                    return toP(parser.jmlF.at(p).Erroneous());
+                    return parser.toP(parser.jmlF.at(p).Erroneous());
                 }
                 // Caution: Java will not expect n to be null
                 // It is null to denote a wildcard selector
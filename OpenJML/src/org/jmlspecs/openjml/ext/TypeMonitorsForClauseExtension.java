@@ -41,19 +41,18 @@ public class TypeMonitorsForClauseExtension extends JmlExtension {
         public 
         JmlTree.JmlTypeClauseMonitorsFor parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             int pp = parser.pos();
-            init(parser);
             parser.nextToken();
             List<JCExpression> elist = List.<JCExpression>nil();
             Name n;
             int identPos = parser.pos();
             ITokenKind tk = parser.token().kind;
             if (tk != IDENTIFIER) {
-                error(parser.pos(), parser.endPos(), "jml.expected", "an identifier");
+                parser.jmlerror(parser.pos(), parser.endPos(), "jml.expected", "an identifier");
                 n = parser.names.asterisk; // place holder for an error situation
             } else {
                 n = parser.ident(); // Advances to next token
                 if (parser.token().kind != TokenKind.EQ && parser.jmlTokenKind() != JmlTokenKind.LEFT_ARROW) {
-                    error(parser.pos(), parser.endPos(), "jml.expected",
+                    parser.jmlerror(parser.pos(), parser.endPos(), "jml.expected",
                             "an = or <- token");
                 } else {
                     parser.nextToken();
@@ -66,7 +65,7 @@ public class TypeMonitorsForClauseExtension extends JmlExtension {
             } else {
                 parser.nextToken();
             }
-            return toP(parser.maker().at(pp).JmlTypeClauseMonitorsFor(mods, id, elist));
+            return parser.toP(parser.maker().at(pp).JmlTypeClauseMonitorsFor(mods, id, elist));
         }
         
         public Type typecheck(JmlAttr attr, JCTree expr, Env<AttrContext> env) {
@@ -45,7 +45,6 @@ public class TypeRWClauseExtension extends JmlExtension {
         public 
         JmlTree.JmlTypeClauseConditional parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
             int pp = parser.pos();
-            init(parser);
             parser.nextToken(); // skip over readable/writable token; current token should now be the identifier
             Name n;
             JCExpression e;
@@ -53,7 +52,7 @@ public class TypeRWClauseExtension extends JmlExtension {
             int identPos = parser.pos();
             Maker M = parser.maker();
             if (parser.token().kind != TokenKind.IDENTIFIER) {
-                error(parser.pos(), parser.endPos(), "jml.expected", "an identifier");
+                parser.jmlerror(parser.pos(), parser.endPos(), "jml.expected", "an identifier");
                 n = parser.names.asterisk; // place holder for an error situation
                 id = parser.to(M.at(identPos).Ident(n));
                 e = M.at(identPos).Erroneous();
@@ -61,7 +60,7 @@ public class TypeRWClauseExtension extends JmlExtension {
                 n = parser.ident(); // reads name and advances scanner
                 id = parser.toP(M.at(identPos).Ident(n));
                 if (parser.token().kind != IF) {
-                    error(parser.pos(), parser.endPos(), "jml.expected", "an if token");
+                    parser.jmlerror(parser.pos(), parser.endPos(), "jml.expected", "an if token");
                     e = M.Erroneous();
                 } else {
                     parser.accept(TokenKind.IF); // check that current token is 'if' and advace scanner
@@ -73,7 +72,7 @@ public class TypeRWClauseExtension extends JmlExtension {
             } else {
                 parser.accept(TokenKind.SEMI); // skip over semicolon
             }
-            return toP(M.at(pp).JmlTypeClauseConditional(mods, clauseType, id, e));
+            return parser.toP(M.at(pp).JmlTypeClauseConditional(mods, clauseType, id, e));
         }
         
         @Override
@@ -49,7 +49,6 @@ public class TypeRepresentsClauseExtension extends JmlExtension {
         
         public 
         JmlTypeClauseRepresents parse(JCModifiers mods, String keyword, IJmlClauseKind clauseType, JmlParser parser) {
-            init(parser);
             int pp = parser.pos();
             parser.nextToken();
             JCExpression id = parser.parseStoreRef(true);
@@ -60,8 +59,8 @@ public class TypeRepresentsClauseExtension extends JmlExtension {
                 parser.nextToken();
                 e = parser.parseExpression();
             } else if (parser.jmlTokenKind() == JmlTokenKind.LEFT_ARROW) {
-                if (parser.isDeprecationSet() || JmlOption.langJML.equals(JmlOption.value(context, JmlOption.LANG))) {
-                    log.warning(parser.pos(), "jml.deprecated.left.arrow.in.represents");
+                if (parser.isDeprecationSet() || JmlOption.langJML.equals(JmlOption.value(parser.context, JmlOption.LANG))) {
+                    parser.log.warning(parser.pos(), "jml.deprecated.left.arrow.in.represents");
                 }
                 suchThat = false;
                 parser.nextToken();
@@ -71,7 +70,7 @@ public class TypeRepresentsClauseExtension extends JmlExtension {
                 parser.nextToken();
                 e = parser.parseExpression();
             } else {
-                if (id != null) error(parser.pos(), parser.endPos(), "jml.bad.represents.token");
+                if (id != null) parser.jmlerror(parser.pos(), parser.endPos(), "jml.bad.represents.token");
                 e = null;
                 parser.skipToSemi();
                 suchThat = false;
@@ -90,7 +89,7 @@ public class TypeRepresentsClauseExtension extends JmlExtension {
             if (mods == null) mods = M.Modifiers(0);
             JmlTypeClauseRepresents tcl = parser.to(M.JmlTypeClauseRepresents(
                     mods, id, suchThat, e));
-            tcl.source = log.currentSourceFile();
+            tcl.source = parser.log.currentSourceFile();
             return tcl;
             }
         
@@ -0,0 +1,29 @@
+/*
+ * This file is part of the OpenJML project. 
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.proverinterface;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** This class records the time taken to check each group of assertions of a
+ * method, when the groups are checked as separate solver queries.
+ */
+public class AssertionTimes implements IProverResult.IAssertionTimes {
+    protected Map<String,Double> times = new LinkedHashMap<String,Double>();
+
+    /** Records the time, in seconds, taken for the named group */
+    public void put(String group, double seconds) {
+        times.put(group, seconds);
+    }
+
+    @Override
+    public Map<String,Double> times() {
+        return times;
+    }
+
+    public String toString() {
+        return times.toString();
+    }
+}
@@ -116,6 +116,28 @@ public interface IProverResult {
     //@ nullable
     public ICoreIds coreIds();
 
+    /** Returns the times taken to check the groups of assertions of the
+     * method, if they were checked separately, or null otherwise
+     * @return an item holding the time for each group
+     */
+    //@ nullable
+    public IAssertionTimes assertionTimes();
+
+    /** Returns the statistics the solver reported for the proof of the
+     * method, if they were asked for (-solverStatistics), or null otherwise
+     * @return an item holding the statistics of each query
+     */
+    //@ nullable
+    public ISolverStatistics solverStatistics();
+
+    /** The number of times the proof was retried on a fresh solver because
+     * its solver was killed or died */
+    public int retries();
+
+    /** The number of solvers killed, for waiting too long or using too much
+     * memory, during the proof */
+    public int kills();
+
     /** A marker interface for additional details produced by the prover -
      * these may be prover-dependent
      *
@@ -180,4 +202,25 @@ public interface IProverResult {
     public static interface ICoreIds extends Item {
         public Collection<Integer> coreIds();
     }
+
+    /** An interface for a class holding the time taken to check each group
+     * of assertions, when the assertions of a method are checked separately. */
+    public static interface IAssertionTimes extends Item {
+        /** The time in seconds for each group, by group name, in the order
+         * of the groups' first assertions in the method */
+        public Map<String,Double> times();
+    }
+
+    /** An interface for a class holding the statistics reported by the
+     * solver, such as the number of quantifier instantiations and conflicts,
+     * the memory used and the time taken. */
+    public static interface ISolverStatistics extends Item {
+        /** The statistics given after each query, by the name of the query;
+         * each is a map from statistic name (without the colon) to value */
+        public Map<String,Map<String,String>> queries();
+
+        /** The largest numeric value of the named statistic over all the
+         * queries, or -1 if the solver did not report it */
+        public double max(String name);
+    }
 }
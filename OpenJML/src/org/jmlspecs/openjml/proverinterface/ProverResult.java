@@ -43,6 +43,10 @@ public class ProverResult implements IProverResult {
     @Nullable
     protected Object otherInfo;
     
+    /** The number of retries after a solver was killed or died, and the
+     * number of solvers killed */
+    protected int retries, kills;
+    
     /** The details of the result produced by the prover, if any */
     @Nullable
     protected List<IProverResult.Item> details = null;
@@ -163,6 +167,45 @@ public class ProverResult implements IProverResult {
         return null;
     }
     
+    /** Returns the times taken to check groups of assertions separately,
+     * if available
+     * @return an object holding the time for each group
+     */
+    @Nullable
+    public IAssertionTimes assertionTimes() {
+        if (details == null) return null;
+        for (IProverResult.Item i: details) {
+            if (i instanceof IAssertionTimes) {
+                return (IAssertionTimes)i;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the statistics reported by the solver, if they were asked for
+     * @return an object holding the statistics of each query
+     */
+    @Nullable
+    public ISolverStatistics solverStatistics() {
+        if (details == null) return null;
+        for (IProverResult.Item i: details) {
+            if (i instanceof ISolverStatistics) {
+                return (ISolverStatistics)i;
+            }
+        }
+        return null;
+    }
+    
+    public int retries() { return retries; }
+    
+    public int kills() { return kills; }
+    
+    /** Sets the number of retries and of solvers killed */
+    public void setSupervision(int retries, int kills) {
+        this.retries = retries;
+        this.kills = kills;
+    }
+    
     /** Informational string */
     public String toString() {
         return result() + " [" + prover() + "]";
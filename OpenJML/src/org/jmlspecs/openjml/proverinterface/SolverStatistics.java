@@ -0,0 +1,46 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.proverinterface;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** This class records the statistics a solver gave, in answer to
+ * (get-info :all-statistics), after each of the queries made in the proof of
+ * a method.
+ */
+public class SolverStatistics implements IProverResult.ISolverStatistics {
+    protected Map<String,Map<String,String>> queries = new LinkedHashMap<String,Map<String,String>>();
+
+    /** Records the statistics (by name, without the leading colon) given
+     * after the named query */
+    public void put(String query, Map<String,String> statistics) {
+        queries.put(query, statistics);
+    }
+
+    @Override
+    public Map<String,Map<String,String>> queries() {
+        return queries;
+    }
+
+    @Override
+    public double max(String name) {
+        double max = -1;
+        for (Map<String,String> m: queries.values()) {
+            String v = m.get(name);
+            if (v == null) continue;
+            try {
+                max = Math.max(max, Double.parseDouble(v));
+            } catch (NumberFormatException e) {
+                // Not a number, so not counted
+            }
+        }
+        return max;
+    }
+
+    public String toString() {
+        return queries.toString();
+    }
+}
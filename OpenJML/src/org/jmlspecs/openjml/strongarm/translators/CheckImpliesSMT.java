@@ -93,8 +93,8 @@ public class CheckImpliesSMT extends MethodProverSMT {
 
     public IProverResult prove(JmlMethodDecl methodDecl, String proverToUse,
             JmlMethodDecl p, JmlMethodDecl q) {
-        escdebug = escdebug || utils.jmlverbose >= Utils.JMLDEBUG;
-        boolean verbose = escdebug || JmlOption.isOption(context, "-verbose") // The
+        boolean debug = escdebug || utils.jmlverbose >= Utils.JMLDEBUG;
+        boolean verbose = debug || JmlOption.isOption(context, "-verbose") // The
                                                                               // Java
                                                                               // verbose
                                                                               // option
@@ -105,7 +105,7 @@ public class CheckImpliesSMT extends MethodProverSMT {
                 || JmlOption.isOption(context, JmlOption.TRACE);
         boolean showCounterexample = showTrace
                 || JmlOption.isOption(context, JmlOption.COUNTEREXAMPLE);
-        boolean showBBTrace = escdebug;
+        boolean showBBTrace = debug;
 
         boolean printPrograms = JmlOption.isOption(context, JmlOption.SHOW);
         boolean print = printPrograms;
@@ -143,7 +143,7 @@ public class CheckImpliesSMT extends MethodProverSMT {
 
         Date start = new Date();
         setBenchmark(proverToUse, methodDecl.name.toString(), smt.smtConfig);
-        solver = smt.startSolver(smt.smtConfig, proverToUse, exec);
+        solver = startSolver(smt,proverToUse,exec);
         if (solver == null) {
             log.error("jml.solver.failed.to.start", exec);
             return factory.makeProverResult(methodDecl.sym, proverToUse,
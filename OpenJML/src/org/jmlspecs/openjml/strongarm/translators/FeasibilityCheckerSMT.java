@@ -95,13 +95,13 @@ public class FeasibilityCheckerSMT extends MethodProverSMT {
     }
     
     public IProverResult prove(JmlMethodDecl methodDecl, String proverToUse, Set<JmlMethodClauseExpr> filters) {
-        escdebug = escdebug || utils.jmlverbose >= Utils.JMLDEBUG;
-        boolean verbose = escdebug || JmlOption.isOption(context,"-verbose") // The Java verbose option
+        boolean debug = escdebug || utils.jmlverbose >= Utils.JMLDEBUG;
+        boolean verbose = debug || JmlOption.isOption(context,"-verbose") // The Java verbose option
                 || utils.jmlverbose >= Utils.JMLVERBOSE;
         boolean showSubexpressions = verbose || JmlOption.isOption(context,JmlOption.SUBEXPRESSIONS);
         boolean showTrace = this.showSubexpressions || JmlOption.isOption(context,JmlOption.TRACE);
         boolean showCounterexample = showTrace || JmlOption.isOption(context,JmlOption.COUNTEREXAMPLE);
-        boolean showBBTrace = escdebug;
+        boolean showBBTrace = debug;
         
         log.useSource(methodDecl.sourcefile);
 
@@ -203,7 +203,7 @@ public class FeasibilityCheckerSMT extends MethodProverSMT {
                 // Starts the solver (and it waits for input)
                 start = new Date();
                 setBenchmark(proverToUse,methodDecl.name.toString(),smt.smtConfig);
-                solver = smt.startSolver(smt.smtConfig,proverToUse,exec);
+                solver = startSolver(smt,proverToUse,exec);
                 if (solver == null) { 
                     log.error("jml.solver.failed.to.start",exec);
                     return factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.ERROR,start);
@@ -121,13 +121,13 @@ public class SubstitutionEQProverSMT extends MethodProverSMT {
     }
     
     public IProverResult prove(JmlMethodDecl methodDecl, String proverToUse, Set<JmlMethodClauseExpr> filters, JmlMethodClauseExpr q) {
-        escdebug = escdebug || utils.jmlverbose >= Utils.JMLDEBUG;
-        boolean verbose = escdebug || JmlOption.isOption(context,"-verbose") // The Java verbose option
+        boolean debug = escdebug || utils.jmlverbose >= Utils.JMLDEBUG;
+        boolean verbose = debug || JmlOption.isOption(context,"-verbose") // The Java verbose option
                 || utils.jmlverbose >= Utils.JMLVERBOSE;
         boolean showSubexpressions = verbose || JmlOption.isOption(context,JmlOption.SUBEXPRESSIONS);
         boolean showTrace = showSubexpressions || JmlOption.isOption(context,JmlOption.TRACE);
         boolean showCounterexample = showTrace || JmlOption.isOption(context,JmlOption.COUNTEREXAMPLE);
-        boolean showBBTrace = escdebug;
+        boolean showBBTrace = debug;
         
         log.useSource(methodDecl.sourcefile);
 
@@ -230,7 +230,7 @@ public class SubstitutionEQProverSMT extends MethodProverSMT {
                 // Starts the solver (and it waits for input)
                 start = new Date();
                 setBenchmark(proverToUse,methodDecl.name.toString(),smt.smtConfig);
-                solver = smt.startSolver(smt.smtConfig,proverToUse,exec);
+                solver = startSolver(smt,proverToUse,exec);
                 if (solver == null) { 
                     log.error("jml.solver.failed.to.start",exec);
                     return factory.makeProverResult(methodDecl.sym,proverToUse,IProverResult.ERROR,start);
@@ -4,15 +4,11 @@
  */
 package org.jmlspecs.openjml.utils;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.io.Reader;
 import java.io.Writer;
 
-import org.jmlspecs.annotation.NonNull;
 import org.jmlspecs.annotation.Nullable;
 import org.jmlspecs.openjml.Strings;
 import org.jmlspecs.openjml.proverinterface.ProverException;
@@ -21,81 +17,13 @@ import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Log.WriterKind;
 
+/** An IExternalProcess whose regular and error output are read by
+ * ProcessPump's reader threads. Both outputs must be read at once, since
+ * otherwise the process can deadlock, blocked writing to a full buffer that
+ * is not being read.
+ */
 public class ExternalProcess implements IExternalProcess  {
 
-    /** This class reads an input Reader into a StringBuilder on a separate
-     * thread. If prompt is null, the thread will read to end of file; if prompt 
-     * is non-empty, the thread will read until that string is at the end of the
-     * text read; if prompt is an empty string, text is read until halt() is
-     * called or end-of-file is reached. Threads are used to read the
-     * regular and error output because otherwise the process can deadlock,
-     * with reading or writing methods blocked because buffers are full but
-     * not being read; also, both the regular and error output need to be read
-     * simultaneously.
-     */
-    static class ThreadedReader extends Thread {
-        /** The input to be read. */
-        protected Reader is;
-
-        /** The StringBuilder that accumulates the text that was read. */
-        protected StringBuilder output;
-        
-        /** The string that will terminate reading the output, 
-         * or null to read to end-of-file */
-        protected @Nullable String prompt;
-
-        /** Creates a class instance (but does not start it) for reading
-         * the given input into the specified StringBuilder.
-         */
-        public ThreadedReader(@NonNull Reader is, @Nullable String prompt, @NonNull StringBuilder output) {
-            this.is = is;
-            this.prompt = prompt;
-            this.output = output;
-        }
-        
-        /** A buffer used simply to receive characters read, trying to do as
-         * little copying and conversion as possible, within run().
-         */
-        // There is no magic about the size of this buffer - enough for a gulp
-        // of reading, but not huge.
-        private char[] cbuf = new char[4096];
-
-        /** The method that is run in the new thread, when start is called;
-         * don't call it directly. */
-        public void run() {
-            try {
-                int numRead = 0;
-                while (!stop && numRead != -1) {
-                    if (!is.ready()) Thread.sleep(1);
-                    while ((prompt == null || is.ready()) && (numRead = is.read(cbuf)) != -1) {
-                        output.append(cbuf,0,numRead);
-                    }
-                    if (prompt != null && !prompt.isEmpty() && output.length() >= prompt.length()) {
-                        if (output.indexOf(prompt,output.length()-prompt.length()) != -1) return;
-                    }
-                }
-            } catch (Exception x) {
-                output.append("Exception in thread: ");
-                output.append(x.getMessage());
-                output.append(System.getProperty("line.separator"));
-                throw new RuntimeException("Exception in executable process reader",x);
-                // FIXME - what error reporting mechanism should be used here and elsewhere (ProverException)
-            }
-            stop = false;
-        }
-        
-        /** Flag that will halt the read loop */
-        private boolean stop = false;
-        
-        /** Call this to cause the thread to cleanly exit without yet having 
-         * seen an end-of-file.
-         */ // FIXME - do we have concurrency/memory-model issues if this is written from a different thread?
-        public void halt() {
-            stop = true;
-        }
-    }
-
-      
     /** If non-zero then log communication:
      * <UL>
      * <LI> =0 : no communication written
@@ -110,6 +38,11 @@ public class ExternalProcess implements IExternalProcess  {
     /** The OpenJML log, for notification and warning and error messages */
     protected Log log;
     
+    /** How long, in milliseconds, readToCompletion waits for the outputs to
+     * end once the process has ended: a process that has ended may leave a
+     * descendant that holds its outputs open */
+    static public long drainMillis = 2000;
+
     /** The executable and its options. */
     protected String[] app;
     
@@ -133,25 +66,17 @@ public class ExternalProcess implements IExternalProcess  {
     //@ invariant process != null ==> toProver != null;
     protected Writer toProver;
     
-    /** The stream connection to read information from the process. */
-    //@ invariant process != null ==> fromProver != null;
-    protected Reader fromProver;
-    
-    /** The error stream connection to read information from the process. */
-    //@ invariant process != null ==> errors != null;
-    protected Reader errors;
-    
     /** The StringBuilder that collects output text */
     public StringBuilder outputString = new StringBuilder();
     
     /** The StringBuilder that collects error text */
     public StringBuilder errorString = new StringBuilder();
     
-    /** The thread used for the error output. */
-    private ThreadedReader errorReader;
+    /** The reading of the error output. */
+    private ProcessPump.Output errorReader;
     
-    /** The thread used for the usual output. */
-    private ThreadedReader outputReader;
+    /** The reading of the usual output. */
+    private ProcessPump.Output outputReader;
 
     /* (non-Javadoc)
      * @see org.jmlspecs.openjml.utils.IExternalProcess#app()
@@ -183,14 +108,9 @@ public class ExternalProcess implements IExternalProcess  {
         }
         // TODO: assess performance of using buffered readers/writers
         toProver = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
-        fromProver = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        errors = new InputStreamReader(process.getErrorStream());
-        
-        errorReader = new ThreadedReader(errors, prompt==null? null : "", errorString);
-        outputReader = new ThreadedReader(fromProver, prompt, outputString);
-     
-        errorReader.start();
-        outputReader.start();
+        ProcessPump pump = ProcessPump.instance();
+        errorReader = pump.read(process.getErrorStream(), prompt==null? null : "", errorString);
+        outputReader = pump.read(process.getInputStream(), prompt, outputString);
     }  
     
 //    @Override
@@ -255,8 +175,12 @@ public class ExternalProcess implements IExternalProcess  {
         int exitVal = -1;
         try {
             exitVal = process.waitFor();
-            errorReader.join();   // Handle condition where the
-            outputReader.join();  // process ends before the threads finish
+            // Handle condition where the process ends before all its output is read
+            long end = System.currentTimeMillis() + drainMillis;
+            errorReader.await(Math.max(1, end - System.currentTimeMillis()));
+            outputReader.await(Math.max(1, end - System.currentTimeMillis()));
+            errorReader.halt();
+            outputReader.halt();
         } catch (InterruptedException e) {
             throw new ProverException("readToCompletion was interrupted",e);
         }
@@ -270,16 +194,14 @@ public class ExternalProcess implements IExternalProcess  {
     @Override
     public String eatPrompt() throws ProverException {
         try {
-            outputReader.join();
+            outputReader.await();
             errorReader.halt();
-            errorReader.join();
+            errorReader.await();
             String err = errorString.toString();
             String out = outputString.toString();
             showCommunication(out,err);
-            errorReader = new ThreadedReader(errors, prompt==null? null : "", errorString);
-            outputReader = new ThreadedReader(fromProver, prompt, outputString);
-            errorReader.start();
-            outputReader.start();
+            errorReader.restart();
+            outputReader.restart();
             return out;
         } catch (InterruptedException e) {
             return null;
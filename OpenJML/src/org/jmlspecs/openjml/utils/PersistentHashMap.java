@@ -0,0 +1,400 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/** An immutable (persistent) hash map implemented as a hash array mapped trie
+ * (HAMT). The 'put' and 'remove' operations return a new map that shares
+ * all unchanged structure with the receiver, so taking a 'copy' of a map is
+ * free and each modification costs O(log32 n) allocation rather than O(n).
+ * <P>
+ * Keys are compared with equals() and hashCode(); null keys are not permitted,
+ * but null values are (though get() then does not distinguish an absent key
+ * from a key mapped to null - use containsKey for that).
+ */
+public final class PersistentHashMap<K,V> implements Iterable<Map.Entry<K,V>> {
+
+    /** Number of hash bits consumed at each level of the trie */
+    static private final int BITS = 5;
+
+    /** Mask for extracting BITS bits from a hash */
+    static private final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings("rawtypes")
+    static private final PersistentHashMap EMPTY = new PersistentHashMap<Object,Object>(null, 0);
+
+    /** The root of the trie; null for the empty map */
+    final private Node root;
+
+    /** The number of entries in the map */
+    final private int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /** Returns the (shared) empty map */
+    @SuppressWarnings("unchecked")
+    public static <K,V> PersistentHashMap<K,V> empty() {
+        return (PersistentHashMap<K,V>)EMPTY;
+    }
+
+    /** The number of entries in the map */
+    public int size() {
+        return size;
+    }
+
+    /** True if the map has no entries */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Returns the value associated with the key, or null if there is none */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (root == null) return null;
+        Leaf leaf = root.find(key, spread(key.hashCode()), 0);
+        return leaf == null ? null : (V)leaf.value;
+    }
+
+    /** Returns true if the map contains the given key */
+    public boolean containsKey(Object key) {
+        return root != null && root.find(key, spread(key.hashCode()), 0) != null;
+    }
+
+    /** Returns a map that is the same as the receiver except that the given key
+     * is mapped to the given value; the receiver is returned if it already
+     * holds that (identical) value for the key. */
+    public PersistentHashMap<K,V> put(K key, V value) {
+        int hash = spread(key.hashCode());
+        if (root == null) return new PersistentHashMap<K,V>(new Leaf(hash, key, value), 1);
+        boolean[] added = new boolean[1];
+        Node newroot = root.put(key, value, hash, 0, added);
+        if (newroot == root) return this;
+        return new PersistentHashMap<K,V>(newroot, added[0] ? size + 1 : size);
+    }
+
+    /** Returns a map that is the same as the receiver except that it has no
+     * mapping for the given key; the receiver is returned if the key is
+     * not present. */
+    public PersistentHashMap<K,V> remove(Object key) {
+        if (root == null) return this;
+        Node newroot = root.remove(key, spread(key.hashCode()), 0);
+        if (newroot == root) return this;
+        return newroot == null ? PersistentHashMap.<K,V>empty() : new PersistentHashMap<K,V>(newroot, size - 1);
+    }
+
+    /** Returns a map containing all the entries of the receiver, overridden by
+     * all the entries of the argument. */
+    public PersistentHashMap<K,V> putAll(PersistentHashMap<K,V> other) {
+        if (other.size == 0 || other == this) return this;
+        if (this.size == 0) return other;
+        PersistentHashMap<K,V> result = this;
+        for (Map.Entry<K,V> e: other) result = result.put(e.getKey(), e.getValue());
+        return result;
+    }
+
+    /** Returns an iterator over the entries of the map, in no particular order */
+    @Override
+    public Iterator<Map.Entry<K,V>> iterator() {
+        return new EntryIterator<K,V>(root);
+    }
+
+    /** Returns an unmodifiable Set view of the keys of the map */
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                final Iterator<Map.Entry<K,V>> it = PersistentHashMap.this.iterator();
+                return new Iterator<K>() {
+                    public boolean hasNext() { return it.hasNext(); }
+                    public K next() { return it.next().getKey(); }
+                    public void remove() { throw new UnsupportedOperationException(); }
+                };
+            }
+            @Override
+            public boolean contains(Object o) {
+                return o != null && containsKey(o);
+            }
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append("{");
+        boolean first = true;
+        for (Map.Entry<K,V> e: this) {
+            if (!first) s.append(", ");
+            first = false;
+            s.append(e.getKey()).append("=").append(e.getValue());
+        }
+        s.append("}");
+        return s.toString();
+    }
+
+    /** Mixes the high bits of the hash into the low bits, since the trie consumes
+     * low bits first and identity hash codes are often poorly distributed. */
+    static private int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    static private int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /** The abstract class of trie nodes; all nodes are immutable */
+    static private abstract class Node {
+        /** Returns the leaf holding the key, or null */
+        abstract Leaf find(Object key, int hash, int shift);
+        /** Returns the node with the key mapped to value; sets added[0] if the key was new */
+        abstract Node put(Object key, Object value, int hash, int shift, boolean[] added);
+        /** Returns the node without the key, or null if the resulting node is empty */
+        abstract Node remove(Object key, int hash, int shift);
+    }
+
+    /** A single entry */
+    static private final class Leaf extends Node implements Map.Entry<Object,Object> {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        Leaf find(Object k, int h, int shift) {
+            return (h == hash && key.equals(k)) ? this : null;
+        }
+
+        @Override
+        Node put(Object k, Object v, int h, int shift, boolean[] added) {
+            if (h == hash && key.equals(k)) {
+                return value == v ? this : new Leaf(h, k, v);
+            }
+            added[0] = true;
+            Leaf other = new Leaf(h, k, v);
+            if (h == hash) return new Collision(h, new Leaf[]{ this, other });
+            return Branch.of(this, other, shift);
+        }
+
+        @Override
+        Node remove(Object k, int h, int shift) {
+            return (h == hash && key.equals(k)) ? null : this;
+        }
+
+        public Object getKey() { return key; }
+        public Object getValue() { return value; }
+        public Object setValue(Object v) { throw new UnsupportedOperationException(); }
+        public String toString() { return key + "=" + value; }
+    }
+
+    /** A set of entries whose keys have identical (spread) hash codes */
+    static private final class Collision extends Node {
+        final int hash;
+        final Leaf[] leaves;
+
+        Collision(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object k) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(k)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        Leaf find(Object k, int h, int shift) {
+            if (h != hash) return null;
+            int i = indexOf(k);
+            return i < 0 ? null : leaves[i];
+        }
+
+        @Override
+        Node put(Object k, Object v, int h, int shift, boolean[] added) {
+            if (h != hash) {
+                added[0] = true;
+                return Branch.of(this, new Leaf(h, k, v), shift);
+            }
+            int i = indexOf(k);
+            if (i >= 0) {
+                if (leaves[i].value == v) return this;
+                Leaf[] nl = leaves.clone();
+                nl[i] = new Leaf(h, k, v);
+                return new Collision(h, nl);
+            }
+            added[0] = true;
+            Leaf[] nl = new Leaf[leaves.length+1];
+            System.arraycopy(leaves, 0, nl, 0, leaves.length);
+            nl[leaves.length] = new Leaf(h, k, v);
+            return new Collision(h, nl);
+        }
+
+        @Override
+        Node remove(Object k, int h, int shift) {
+            if (h != hash) return this;
+            int i = indexOf(k);
+            if (i < 0) return this;
+            if (leaves.length == 2) return leaves[1-i];
+            Leaf[] nl = new Leaf[leaves.length-1];
+            System.arraycopy(leaves, 0, nl, 0, i);
+            System.arraycopy(leaves, i+1, nl, i, leaves.length-i-1);
+            return new Collision(h, nl);
+        }
+
+    }
+
+    /** An interior node holding a compressed array of children, indexed
+     * by a 32-bit occupancy bitmap */
+    static private final class Branch extends Node {
+        final int bitmap;
+        final Node[] children;
+
+        Branch(int bitmap, Node[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        /** The hash of any entry in a Leaf or Collision node */
+        static private int hashOf(Node n) {
+            return n instanceof Leaf ? ((Leaf)n).hash : ((Collision)n).hash;
+        }
+
+        /** Makes a node containing two Leaf/Collision nodes with different hashes */
+        static Node of(Node a, Node b, int shift) {
+            int ha = hashOf(a);
+            int hb = hashOf(b);
+            int ba = bitpos(ha, shift);
+            int bb = bitpos(hb, shift);
+            if (ba == bb) {
+                return new Branch(ba, new Node[]{ of(a, b, shift + BITS) });
+            }
+            return ((ha >>> shift) & MASK) < ((hb >>> shift) & MASK)
+                    ? new Branch(ba | bb, new Node[]{ a, b })
+                    : new Branch(ba | bb, new Node[]{ b, a });
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Leaf find(Object k, int h, int shift) {
+            int bit = bitpos(h, shift);
+            if ((bitmap & bit) == 0) return null;
+            return children[index(bit)].find(k, h, shift + BITS);
+        }
+
+        @Override
+        Node put(Object k, Object v, int h, int shift, boolean[] added) {
+            int bit = bitpos(h, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Node[] nc = new Node[children.length+1];
+                System.arraycopy(children, 0, nc, 0, idx);
+                nc[idx] = new Leaf(h, k, v);
+                System.arraycopy(children, idx, nc, idx+1, children.length-idx);
+                return new Branch(bitmap | bit, nc);
+            }
+            Node child = children[idx];
+            Node newchild = child.put(k, v, h, shift + BITS, added);
+            if (newchild == child) return this;
+            Node[] nc = children.clone();
+            nc[idx] = newchild;
+            return new Branch(bitmap, nc);
+        }
+
+        @Override
+        Node remove(Object k, int h, int shift) {
+            int bit = bitpos(h, shift);
+            if ((bitmap & bit) == 0) return this;
+            int idx = index(bit);
+            Node child = children[idx];
+            Node newchild = child.remove(k, h, shift + BITS);
+            if (newchild == child) return this;
+            if (newchild == null) {
+                if (children.length == 1) return null;
+                if (children.length == 2 && !(children[1-idx] instanceof Branch)) {
+                    // Collapse a lone Leaf/Collision into the parent
+                    return children[1-idx];
+                }
+                Node[] nc = new Node[children.length-1];
+                System.arraycopy(children, 0, nc, 0, idx);
+                System.arraycopy(children, idx+1, nc, idx, children.length-idx-1);
+                return new Branch(bitmap & ~bit, nc);
+            }
+            if (children.length == 1 && !(newchild instanceof Branch)) return newchild;
+            Node[] nc = children.clone();
+            nc[idx] = newchild;
+            return new Branch(bitmap, nc);
+        }
+    }
+
+    /** A depth-first iterator over the leaves of the trie */
+    static private final class EntryIterator<K,V> implements Iterator<Map.Entry<K,V>> {
+        private final ArrayList<Node> stack = new ArrayList<Node>();
+        private Leaf[] pendingLeaves = null;
+        private int pendingIndex = 0;
+
+        EntryIterator(Node root) {
+            if (root != null) stack.add(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (pendingLeaves != null && pendingIndex < pendingLeaves.length) || !stack.isEmpty();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K,V> next() {
+            while (true) {
+                if (pendingLeaves != null) {
+                    if (pendingIndex < pendingLeaves.length) {
+                        Leaf leaf = pendingLeaves[pendingIndex++];
+                        return new AbstractMap.SimpleImmutableEntry<K,V>((K)leaf.key, (V)leaf.value);
+                    }
+                    pendingLeaves = null;
+                }
+                if (stack.isEmpty()) throw new NoSuchElementException();
+                Node n = stack.remove(stack.size()-1);
+                if (n instanceof Leaf) {
+                    Leaf leaf = (Leaf)n;
+                    return new AbstractMap.SimpleImmutableEntry<K,V>((K)leaf.key, (V)leaf.value);
+                } else if (n instanceof Collision) {
+                    pendingLeaves = ((Collision)n).leaves;
+                    pendingIndex = 0;
+                } else {
+                    Node[] ch = ((Branch)n).children;
+                    for (int i = ch.length-1; i >= 0; --i) stack.add(ch[i]);
+                }
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
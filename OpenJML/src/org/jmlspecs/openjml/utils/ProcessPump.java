@@ -0,0 +1,190 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jmlspecs.annotation.NonNull;
+import org.jmlspecs.annotation.Nullable;
+
+/** Reads the output and error streams of external processes, each stream
+ * with a blocking read on a thread of its own, taken from a pool of daemon
+ * threads shared by all the processes of the JVM. A reader is woken as soon
+ * as its stream has output, and a stream that stays open - as when a process
+ * that has ended leaves a descendant holding its pipe - holds up only its
+ * own thread. The threads of streams that have ended are reused.
+ * <P>
+ * The bytes read are decoded as they arrive, through buffers kept for the
+ * life of the stream.
+ */
+public class ProcessPump {
+
+    /** The single instance, created when first needed */
+    static private @Nullable ProcessPump instance;
+
+    /** Returns the pump */
+    public static synchronized ProcessPump instance() {
+        if (instance == null) instance = new ProcessPump();
+        return instance;
+    }
+
+    /** The threads that read the streams */
+    final protected ExecutorService readers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "OpenJML process output");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** One stream being read into a StringBuilder. If prompt is null, the
+     * stream is read to end of file; if prompt is non-empty, it is read until
+     * the text read ends with the prompt; if prompt is empty, it is read until
+     * halt() is called or end of file is reached. Once done, the stream may be
+     * read again, up to the next prompt, by restart(); what arrives in the
+     * meantime is held until then.
+     */
+    public static class Output implements Runnable {
+        final protected InputStream in;
+        final protected @Nullable String prompt;
+
+        /** The StringBuilder that accumulates the text that was read */
+        final public StringBuilder output;
+
+        /** The text read but not yet added to output, because the stream is done */
+        final protected StringBuilder pending = new StringBuilder();
+
+        final protected ByteBuffer bytes = ByteBuffer.allocate(4096);
+        final protected CharBuffer chars = CharBuffer.allocate(4096);
+        final protected CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /** True once the prompt or end of file has been read, or the stream halted */
+        protected boolean done;
+        protected boolean eof;
+
+        protected Output(@NonNull InputStream in, @Nullable String prompt, @NonNull StringBuilder output) {
+            this.in = in;
+            this.prompt = prompt;
+            this.output = output;
+        }
+
+        /** Reads the stream to end of file, blocking until each piece arrives */
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    // Only this thread uses the buffers
+                    int k = in.read(bytes.array(), bytes.position(), bytes.remaining());
+                    synchronized (this) {
+                        if (k < 0) {
+                            decode(true);
+                            eof = true;
+                        } else {
+                            bytes.position(bytes.position() + k);
+                            decode(false);
+                        }
+                        deliver();
+                        if (eof) return;
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    pending.append("Exception in reading process output: ");
+                    pending.append(e.getMessage());
+                    pending.append(System.getProperty("line.separator"));
+                    eof = true;
+                    deliver();
+                }
+            }
+        }
+
+        /** Decodes the bytes in the buffer into pending, leaving an incomplete character for the next read */
+        protected void decode(boolean endOfInput) {
+            bytes.flip();
+            CoderResult r;
+            do {
+                r = decoder.decode(bytes, chars, endOfInput);
+                chars.flip();
+                pending.append(chars);
+                chars.clear();
+            } while (r.isOverflow());
+            if (endOfInput) {
+                decoder.flush(chars);
+                chars.flip();
+                pending.append(chars);
+                chars.clear();
+            }
+            bytes.compact();
+        }
+
+        /** Adds the pending text to output, unless the stream is done, and
+         * notes whether that finishes the stream */
+        protected void deliver() {
+            if (done) return;
+            boolean added = pending.length() > 0;
+            output.append(pending);
+            pending.setLength(0);
+            if (eof || (added && prompt != null && !prompt.isEmpty() && output.length() >= prompt.length()
+                    && output.indexOf(prompt, output.length() - prompt.length()) != -1)) {
+                finish();
+            }
+        }
+
+        protected void finish() {
+            done = true;
+            notifyAll();
+        }
+
+        /** Stops reading, keeping what has been read so far */
+        public synchronized void halt() {
+            if (!done) finish();
+        }
+
+        /** Waits until the stream is done */
+        public synchronized void await() throws InterruptedException {
+            while (!done) wait();
+        }
+
+        /** Waits until the stream is done, or the given time has passed;
+         * returns true if it is done */
+        public synchronized boolean await(long millis) throws InterruptedException {
+            long end = System.currentTimeMillis() + millis;
+            long left = millis;
+            while (!done && left > 0) {
+                wait(left);
+                left = end - System.currentTimeMillis();
+            }
+            return done;
+        }
+
+        /** True if end of file has been read */
+        public synchronized boolean atEnd() {
+            return eof;
+        }
+
+        /** Resumes reading, up to the next prompt, after the stream is done */
+        public synchronized void restart() {
+            if (eof && pending.length() == 0) return;
+            done = false;
+            deliver();
+        }
+    }
+
+    /** Starts reading the given stream */
+    public Output read(@NonNull InputStream in, @Nullable String prompt, @NonNull StringBuilder output) {
+        Output o = new Output(in, prompt, output);
+        readers.execute(o);
+        return o;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.utils;
+
+/** Recognizes, incrementally as bytes arrive, the end of a response from an
+ * SMT solver: the text read so far ends with a line break that is outside any
+ * S-expression, string literal or quoted symbol. Each byte is looked at once,
+ * however many reads a response takes.
+ * <P>
+ * The scanner works on the raw bytes, before they are decoded: the characters
+ * it looks for are ASCII, and in UTF-8 (and the other ASCII-compatible
+ * encodings) their bytes never occur within the encoding of another character.
+ * Unlike counting parentheses alone, it is not misled by a parenthesis within
+ * a string, as in an error message that quotes the text it could not parse.
+ */
+public class ResponseScanner {
+
+    /** The nesting depth of parentheses, outside strings, quoted symbols and comments */
+    protected int depth;
+
+    /** True when within a string literal */
+    protected boolean inString;
+
+    /** True when within a |-quoted symbol */
+    protected boolean inSymbol;
+
+    /** True when within a ;-comment, which ends at the line break */
+    protected boolean inComment;
+
+    /** When true, parentheses are not counted: a response ends at any line
+     * break outside a string or quoted symbol (for solvers whose output is
+     * not well-formed; see org.smtlib.SolverProcess.badFormat) */
+    public boolean ignoreDepth;
+
+    /** Prepares to scan a new response */
+    public void reset() {
+        depth = 0;
+        inString = false;
+        inSymbol = false;
+        inComment = false;
+    }
+
+    /** Scans the bytes buf[from..to), which continue the text scanned since
+     * the last reset(), and returns true if the text now ends a response.
+     */
+    public boolean scan(byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            if (inString) {
+                // A doubled quote, SMT-LIB's escape for a quote, leaves and re-enters the string
+                if (b == '"') inString = false;
+            } else if (inSymbol) {
+                if (b == '|') inSymbol = false;
+            } else if (inComment) {
+                if (b == '\n') inComment = false;
+            } else if (b == '(') {
+                depth++;
+            } else if (b == ')') {
+                if (depth > 0) depth--;
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '|') {
+                inSymbol = true;
+            } else if (b == ';') {
+                inComment = true;
+            }
+        }
+        return to > from && buf[to-1] == '\n'
+                && !inString && !inSymbol
+                && (depth == 0 || ignoreDepth);
+    }
+}
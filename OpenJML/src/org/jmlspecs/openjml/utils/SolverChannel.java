@@ -0,0 +1,318 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.jmlspecs.annotation.Nullable;
+import org.smtlib.AbstractSolver;
+import org.smtlib.IResponse;
+import org.smtlib.ISolver;
+import org.smtlib.SMT;
+import org.smtlib.SolverProcess;
+
+/** The connection to a solver process, used in place of jSMTLIB's
+ * SolverProcess. The solver's responses are read on the calling thread, as
+ * raw bytes into a buffer kept for the life of the process; a
+ * ResponseScanner finds the end of each response as the bytes arrive, and the
+ * response is decoded into a String once, when it is complete. The error
+ * output is read only as far as it is available, so it never blocks.
+ * <P>
+ * Compared with SolverProcess (used with its multithreading off, as OpenJML
+ * does), this does not share a synchronized pool of buffers among all the
+ * solvers of the JVM, does not decode the output a character at a time, and
+ * does not pause for a second after launching each solver. The responses
+ * returned, and what is written to the solver log, are the same.
+ */
+public class SolverChannel extends SolverProcess {
+
+    /** The initial size of the response buffer; it doubles as needed */
+    static final int initialBufferSize = 8192;
+
+    /** A buffer that has grown beyond this size (to hold a large model, say)
+     * is replaced by a new one of the initial size once the response is decoded */
+    static final int retainedBufferSize = 1 << 20;
+
+    /** The solver's standard output */
+    protected @Nullable InputStream output;
+
+    /** The solver's error output */
+    protected @Nullable InputStream errorOutput;
+
+    /** The bytes of the response being read */
+    protected byte[] buffer = new byte[initialBufferSize];
+
+    /** Finds the end of each response */
+    final protected ResponseScanner scanner = new ResponseScanner();
+
+    /** The encoding of the solver's output, the platform default as with SolverProcess */
+    final protected Charset charset = Charset.defaultCharset();
+
+    /** The time (System.nanoTime) at which the channel began waiting for the
+     * response now being read, or 0 if it is not waiting */
+    protected volatile long waitingSince;
+
+    /** Why the process was killed, or null if it was not */
+    protected volatile @Nullable String killed;
+
+    /** True once the end of the standard output has been read */
+    protected volatile boolean ended;
+
+    /** Creates a channel (but does not launch the process) for the given
+     * command line, logging to the given writer, if not null */
+    public SolverChannel(String[] app, String endMarker, @Nullable java.io.Writer log) {
+        super(app, endMarker, null);
+        this.log = log;
+    }
+
+    @Override
+    public void start(boolean listen) throws ProverException {
+        try {
+            process = new ProcessBuilder(app).start();
+        } catch (IOException e) {
+            throw new ProverException(e.getMessage());
+        }
+        toProcess = new OutputStreamWriter(process.getOutputStream());
+        output = process.getInputStream();
+        errorOutput = process.getErrorStream();
+        if (listen) {
+            try {
+                listen();
+            } catch (IOException e) {
+                throw new ProverException(e.getMessage());
+            }
+        }
+    }
+
+    /** Reads the next response; if the solver reported an error on its
+     * error output, returns that instead, as SolverProcess does */
+    @Override
+    public String listen() throws IOException {
+        String err = readAvailable(errorOutput);
+        String out = readResponse();
+        err = err + readAvailable(errorOutput);
+        if (log != null) {
+            if (!out.isEmpty()) {
+                log.write(";OUT: ");
+                log.write(out);
+                log.write(eol);
+                log.flush();
+            }
+            if (!err.isEmpty()) {
+                log.write(";ERR: ");
+                log.write(err);
+            }
+        }
+        if (err.endsWith("\n") || out.isEmpty()) {
+            return (err.isEmpty() || err.charAt(0) == ';') ? out : err;
+        }
+        return out;
+    }
+
+    /** Reads from the standard output until the end of a response (or of the output) */
+    protected String readResponse() throws IOException {
+        if (output == null) throw new ProverException("The solver has not been started");
+        scanner.reset();
+        scanner.ignoreDepth = badFormat;
+        int length = 0;
+        waitingSince = System.nanoTime();
+        try {
+            while (true) {
+                if (length == buffer.length) buffer = Arrays.copyOf(buffer, 2*length);
+                int n = output.read(buffer, length, buffer.length - length);
+                if (n == -1) {
+                    ended = true;
+                    break;
+                }
+                boolean done = scanner.scan(buffer, length, length + n);
+                length += n;
+                if (done) break;
+            }
+        } finally {
+            waitingSince = 0;
+        }
+        if (killed != null) throw new IOException("The solver was killed: " + killed);
+        String s = new String(buffer, 0, length, charset);
+        if (buffer.length > retainedBufferSize) buffer = new byte[initialBufferSize];
+        return s;
+    }
+
+    /** Reads whatever the stream has available without blocking */
+    protected String readAvailable(@Nullable InputStream in) throws IOException {
+        if (in == null) return "";
+        int n = in.available();
+        if (n <= 0) return "";
+        StringBuilder sb = new StringBuilder(n);
+        byte[] b = new byte[Math.min(n, initialBufferSize)];
+        while (n > 0) {
+            int k = in.read(b, 0, Math.min(n, b.length));
+            if (k <= 0) break;
+            sb.append(new String(b, 0, k, charset));
+            n = in.available();
+        }
+        return sb.toString();
+    }
+
+    /** When the channel began waiting for the response now being read (as
+     * System.nanoTime), or 0 if it is not waiting */
+    public long waitingSince() {
+        return waitingSince;
+    }
+
+    /** True if the process has been started and has not ended */
+    public boolean isAlive() {
+        Process p = process;
+        return p != null && p.isAlive();
+    }
+
+    /** The process, or null if it has not been started or has been exited */
+    public @Nullable Process process() {
+        return process;
+    }
+
+    /** Kills the process; the response being waited for, if any, and any
+     * later ones are errors. The processes it started are killed too (where
+     * the JVM can find them, from Java 9), since a solver run by a script
+     * leaves the output open as long as the solver lives. */
+    public void kill(String reason) {
+        killed = reason;
+        Process p = process;
+        if (p == null) return;
+        try {
+            Method destroy = Class.forName("java.lang.ProcessHandle").getMethod("destroyForcibly");
+            ((Stream<?>)Process.class.getMethod("descendants").invoke(p)).forEach(h -> {
+                try {
+                    destroy.invoke(h);
+                } catch (ReflectiveOperationException e) {
+                    // Leave it
+                }
+            });
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8: only the process itself can be killed
+        }
+        p.destroyForcibly();
+    }
+
+    /** How the process failed - it was killed, or it ended while still in
+     * use - as a phrase to follow "The solver", or null if it has not failed;
+     * to be asked before exit() */
+    public @Nullable String failure() {
+        if (killed != null) return "was killed (" + killed + ")";
+        Process p = process;
+        if (p == null || !(ended || !p.isAlive())) return null;
+        try {
+            // The output may close just before the process is seen to end
+            p.waitFor(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            // Report what is known
+        }
+        return p.isAlive() ? "ended unexpectedly" : "ended unexpectedly, with exit code " + p.exitValue();
+    }
+
+    /** True if the process was killed */
+    public boolean wasKilled() {
+        return killed != null;
+    }
+
+    @Override
+    public void exit() {
+        output = null;
+        errorOutput = null;
+        super.exit();
+    }
+
+    /** Creates and starts the solver named by prover, with the given
+     * executable, as SMT.startSolver does, but connected through a
+     * SolverChannel. Returns null if the solver fails to start (the failure
+     * is logged). If the solver cannot be given a SolverChannel (a command
+     * line set by the openjml.solver_&lt;prover&gt;.command property, or a
+     * solver adapter that does not keep its process in AbstractSolver's
+     * field) it is left to SMT.startSolver.
+     */
+    public static @Nullable ISolver startSolver(SMT smt, String prover, String exec) {
+        ISolver solver = create(smt, prover, exec);
+        if (solver == null) return smt.startSolver(smt.smtConfig, prover, exec);
+        IResponse r = solver.start();
+        if (r.isError()) {
+            smt.smtConfig.log.logError(prover + " failed to start: " + ((IResponse.IError)r).errorMsg());
+            return null;
+        }
+        return solver;
+    }
+
+    /** Constructs, but does not start, the solver, with its SolverProcess
+     * replaced by a SolverChannel; returns null if the solver is not one that
+     * can be given a SolverChannel. Throws a RuntimeException if jSMTLIB's
+     * solver objects are not as expected, rather than quietly falling back. */
+    public static @Nullable ISolver create(SMT smt, String prover, String exec) {
+        Properties props = smt.props;
+        String prefix = "org.smtlib.solver_" + prover;
+        if (props != null) {
+            String command = props.getProperty(prefix + ".command");
+            if (command != null && !command.isEmpty()) return null;
+            if (exec == null) exec = props.getProperty(prefix + ".exec");
+        }
+        if (exec == null || exec.trim().isEmpty()) return null;
+        try {
+            Class<?> c = null;
+            String adapter = props == null ? null : props.getProperty(prefix + ".adapter");
+            if (adapter != null) {
+                try { c = Class.forName(adapter); } catch (ClassNotFoundException e) { c = null; }
+            }
+            if (c == null) {
+                try {
+                    c = Class.forName("org.smtlib.solvers.Solver_" + prover.replace('-','_').replace('.','_'));
+                } catch (ClassNotFoundException e) {
+                    c = org.smtlib.solvers.Solver_smt.class;
+                }
+            }
+            Object o = c.getConstructor(SMT.Configuration.class, String.class).newInstance(smt.smtConfig, exec);
+            if (!(o instanceof AbstractSolver)) return null;
+            Field f = AbstractSolver.class.getDeclaredField("solverProcess");
+            f.setAccessible(true);
+            SolverProcess p = (SolverProcess)f.get(o);
+            if (p == null || p.getClass() != SolverProcess.class) return null;
+            f.set(o, new SolverChannel((String[])field("app").get(p), (String)field("endMarker").get(p), p.log));
+            return (ISolver)o;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw unreachable(e);
+        }
+    }
+
+    /** The SolverChannel of the given solver, or null if it has none */
+    public static @Nullable SolverChannel of(@Nullable ISolver solver) {
+        if (!(solver instanceof AbstractSolver)) return null;
+        try {
+            Field f = AbstractSolver.class.getDeclaredField("solverProcess");
+            f.setAccessible(true);
+            Object p = f.get(solver);
+            return p instanceof SolverChannel ? (SolverChannel)p : null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw unreachable(e);
+        }
+    }
+
+    /** The exception for a failure to reach the process of a jSMTLIB solver */
+    static RuntimeException unreachable(Exception e) {
+        return new RuntimeException("-solverChannel cannot reach the solver process of this version of jSMTLIB"
+                + " (run without -solverChannel): " + e, e);
+    }
+
+    /** A field of SolverProcess, made accessible */
+    static Field field(String name) throws ReflectiveOperationException {
+        Field f = SolverProcess.class.getDeclaredField(name);
+        f.setAccessible(true);
+        return f;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * This file is part of the OpenJML project.
+ * Author: David R. Cok
+ */
+package org.jmlspecs.openjml.utils;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jmlspecs.annotation.Nullable;
+
+/** Watches solver processes - those of all the compilation contexts of the
+ * JVM - on a single daemon thread, killing any that waits too long for a
+ * response (a hard limit, for solvers that do not keep to their own timeout)
+ * or whose resident memory grows too large. A killed solver's outstanding
+ * and later responses are errors; whether the proof is retried is up to the
+ * caller (see SolverChannel.failure()).
+ * <P>
+ * Resident memory is read from /proc, so the memory limit is enforced only
+ * on Linux.
+ */
+public class SolverSupervisor {
+
+    /** The interval, in milliseconds, between checks of the watched processes */
+    static final long period = 200;
+
+    static final long mb = 1024*1024;
+
+    /** The single instance, created (and its thread started) when first needed */
+    static private @Nullable SolverSupervisor instance;
+
+    /** Returns the supervisor, starting its thread if need be */
+    public static synchronized SolverSupervisor instance() {
+        if (instance == null) {
+            instance = new SolverSupervisor();
+            Thread t = new Thread(instance::run, "OpenJML solver supervisor");
+            t.setDaemon(true);
+            t.start();
+        }
+        return instance;
+    }
+
+    /** The limits on one solver process */
+    static protected class Watch {
+        final SolverChannel channel;
+        /** The longest wait for a response, in nanoseconds, or 0 for no limit */
+        final long deadline;
+        /** The largest resident memory, in bytes, or 0 for no limit */
+        final long memoryLimit;
+        /** The operating system's id of the process, or -1 if not known */
+        final long pid;
+
+        Watch(SolverChannel channel, long deadline, long memoryLimit, long pid) {
+            this.channel = channel;
+            this.deadline = deadline;
+            this.memoryLimit = memoryLimit;
+            this.pid = pid;
+        }
+    }
+
+    /** The processes being watched */
+    final protected List<Watch> watched = new ArrayList<Watch>();
+
+    /** Watches the (started) process of the given channel, killing it if it
+     * waits longer than deadline seconds for a response or uses more than
+     * memoryMB megabytes of resident memory; a limit of 0 is no limit */
+    public void watch(SolverChannel channel, double deadline, long memoryMB) {
+        if (deadline <= 0 && memoryMB <= 0) return;
+        Process p = channel.process();
+        if (p == null) return;
+        Watch w = new Watch(channel, deadline <= 0 ? 0 : (long)(deadline*1e9), memoryMB <= 0 ? 0 : memoryMB*mb, pid(p));
+        synchronized (this) {
+            watched.add(w);
+            notifyAll();
+        }
+    }
+
+    /** The loop of the supervisor's thread */
+    protected void run() {
+        while (true) {
+            Watch[] active;
+            synchronized (this) {
+                while (watched.isEmpty()) {
+                    try { wait(); } catch (InterruptedException e) { /* keep watching */ }
+                }
+                active = watched.toArray(new Watch[watched.size()]);
+            }
+            for (Watch w: active) {
+                if (!w.channel.isAlive()) {
+                    synchronized (this) { watched.remove(w); }
+                } else {
+                    check(w);
+                }
+            }
+            try { Thread.sleep(period); } catch (InterruptedException e) { /* keep watching */ }
+        }
+    }
+
+    /** Kills the process if it is over either of its limits */
+    protected void check(Watch w) {
+        long since = w.channel.waitingSince();
+        if (w.deadline > 0 && since != 0 && System.nanoTime() - since > w.deadline) {
+            w.channel.kill(String.format("no response within %.0f secs", w.deadline/1e9));
+            return;
+        }
+        if (w.memoryLimit > 0 && w.pid > 0) {
+            long rss = residentMemory(w.pid);
+            if (rss > w.memoryLimit) {
+                w.channel.kill("resident memory of " + (rss/mb) + " MB is over the limit of " + (w.memoryLimit/mb) + " MB");
+            }
+        }
+    }
+
+    /** The resident memory of the process, in bytes, or -1 if it cannot be found */
+    static long residentMemory(long pid) {
+        try (BufferedReader r = new BufferedReader(new FileReader("/proc/" + pid + "/status"))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    String[] parts = line.substring(6).trim().split("\\s+");
+                    return Long.parseLong(parts[0])*1024; // in kB
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // The process has ended, or there is no /proc
+        }
+        return -1;
+    }
+
+    /** The operating system's id of the process, or -1 if it cannot be found:
+     * Process.pid() is not in Java 8, whose Unix Process keeps the id in a field */
+    static long pid(Process p) {
+        try {
+            return ((Number)Process.class.getMethod("pid").invoke(p)).longValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Fall through
+        }
+        try {
+            Field f = p.getClass().getDeclaredField("pid");
+            f.setAccessible(true);
+            return ((Number)f.get(p)).longValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
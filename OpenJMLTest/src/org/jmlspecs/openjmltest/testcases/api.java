@@ -423,6 +423,33 @@ public class api extends JmlTestCase {
         }
     }
 
+    /** Clearing the types of a unit lets a new version of it be checked in the same context */
+    @Test
+    public void testClearTypes() {
+        start(true);
+        try {
+            IAPI m = Factory.makeAPI("-no-purityCheck");
+            String s1 = "public class A { /*@ ensures X;*/ int f() { return true; } }";
+            String s2 = "public class A { /*@ ensures \\result == 1;*/ int f() { return 1; } }";
+            JmlCompilationUnit ast1 = m.parseSingleFile(m.makeJFOfromString("A.java",s1));
+            int n = m.typecheck(ast1);
+            assertEquals(2, n);
+            java.util.List<JmlCompilationUnit> old = new LinkedList<JmlCompilationUnit>();
+            old.add(ast1);
+            m.clearTypes(old);
+            JmlCompilationUnit ast2 = m.parseSingleFile(m.makeJFOfromString("A.java",s2));
+            n = m.typecheck(ast2);
+            endCapture();
+            assertEquals(0, n);
+            assertTrue(ast2.defs.head instanceof JmlClassDecl);
+            assertTrue(((JmlClassDecl)ast2.defs.head).sym != null);
+        } catch (Exception e) {
+            System.out.println(e);
+            e.printStackTrace(System.out);
+            assertTrue(false);
+        }
+    }
+
 //    @Test
 //    public void testAttach3() {
 //        start(true);
@@ -0,0 +1,176 @@
+package org.jmlspecs.openjmltest.testcases;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.Factory;
+import org.jmlspecs.openjml.IAPI;
+import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
+import org.jmlspecs.openjml.JmlTree.JmlCompilationUnit;
+import org.jmlspecs.openjml.esc.JmlAssertionAdder;
+import org.jmlspecs.openjml.proverinterface.IProverResult;
+import org.jmlspecs.openjmltest.JmlTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.tree.JCTree;
+
+/** Runs several API sessions, each with its own compilation context, in
+ * parallel threads, checking that each gets the same results as it would
+ * alone. */
+public class apiconcurrent extends JmlTestCase {
+
+    /** The number of sessions run at once */
+    static final int sessions = 4;
+
+    /** The number of times each session checks the program */
+    static final int rounds = 3;
+
+    @Before
+    public void setUp() throws Exception {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /** One session: parses, checks and proves api.program in a new API
+     * object; returns a description of anything unexpected, or null */
+    protected String session(int n) throws Exception {
+        StringWriter out = new StringWriter();
+        DiagnosticCollector<JavaFileObject> diags = new DiagnosticCollector<JavaFileObject>();
+        IAPI m = Factory.makeAPI(new PrintWriter(out), diags, null, "-no-purityCheck");
+        m.addOptions("openjml.defaultProver","z3_4_3");
+        for (int r = 0; r < rounds; r++) {
+            String name = "A" + n + "_" + r;
+            JmlCompilationUnit jcu = m.parseString(name + ".java", api.program.replace("class A ", "class " + name + " "));
+            int errors = m.typecheck(jcu);
+            if (errors != 0) return name + ": " + errors + " type errors: " + diags.getDiagnostics();
+            ClassSymbol csym = m.getClassSymbol(name);
+            MethodSymbol msym = m.getMethodSymbol(csym,"m");
+            MethodSymbol mmsym = m.getMethodSymbol(csym,"mm");
+            int before = diags.getDiagnostics().size();
+            IProverResult res = m.doESC(msym);
+            if (res == null || res.result() != IProverResult.UNSAT) return name + ".m: " + res;
+            res = m.doESC(mmsym);
+            if (res == null || !(res.result() == IProverResult.SAT || res.result() == IProverResult.POSSIBLY_SAT)) return name + ".mm: " + res;
+            int reported = diags.getDiagnostics().size() - before;
+            if (reported != 3) {
+                StringBuilder sb = new StringBuilder(name + ": expected 3 diagnostics, got " + reported + ":");
+                for (Diagnostic<? extends JavaFileObject> d: diags.getDiagnostics()) sb.append("\n  ").append(d.getMessage(null));
+                return sb.toString();
+            }
+        }
+        return null;
+    }
+
+    /** A program whose arithmetic is translated differently for RAC and for ESC */
+    static final String arithmetic = "public class B {\n"
+            + "  //@ requires i < 1000 && i > -1000;\n"
+            + "  //@ ensures \\result == i * 2 + 1;\n"
+            + "  public int k(int i) {\n"
+            + "    int j = i * 2 + 1;\n"
+            + "    //@ assert j - 1 == i + i;\n"
+            + "    return j;\n"
+            + "  }\n"
+            + "}\n";
+
+    /** Translates the arithmetic program for RAC or for ESC in a new API
+     * object, returning the printed translation */
+    protected String translate(boolean rac) throws Exception {
+        IAPI m = Factory.makeAPI("-no-purityCheck");
+        JmlCompilationUnit jcu = m.parseString("B.java", arithmetic);
+        int errors = m.typecheck(jcu);
+        if (errors != 0) return errors + " type errors";
+        JmlClassDecl cd = (JmlClassDecl)jcu.defs.last();
+        JCTree t = new JmlAssertionAdder(m.context(), !rac, rac).convert(cd);
+        return m.prettyPrint(t);
+    }
+
+    /** Runs the given number of tasks at once, each calling task with its
+     * number and expecting null */
+    protected void runAll(int count, TaskBody task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < count; i++) {
+                final int n = i;
+                results.add(pool.submit(new Callable<String>() {
+                    public String call() throws Exception { return task.run(n); }
+                }));
+            }
+            for (Future<String> f: results) {
+                String problem = f.get(10, TimeUnit.MINUTES);
+                assertEquals(null, problem);
+            }
+        } finally {
+            pool.shutdownNow();
+            assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    protected interface TaskBody {
+        String run(int n) throws Exception;
+    }
+
+    /** RAC and ESC translations made side by side, in separate contexts,
+     * are those made alone: whether a translation is for RAC is not shared
+     * between contexts */
+    @Test
+    public void testParallelRACAndESC() throws Exception {
+        String rac = translate(true);
+        String esc = translate(false);
+        assertTrue(rac, !rac.equals(esc));
+        runAll(2*sessions, n -> {
+            for (int r = 0; r < 2*rounds; r++) {
+                boolean forRac = (n + r) % 2 == 0;
+                String t = translate(forRac);
+                if (!t.equals(forRac ? rac : esc)) return (forRac ? "RAC" : "ESC") + " translation " + n + "_" + r + " differs:\n" + t;
+            }
+            return null;
+        });
+    }
+
+    /** Two contexts used in turn on one thread: a JML expression parsed in
+     * one and typechecked after a parse in the other reports its errors to
+     * the context that typechecks it */
+    @Test
+    public void testContextsOnOneThread() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagsA = new DiagnosticCollector<JavaFileObject>();
+        DiagnosticCollector<JavaFileObject> diagsB = new DiagnosticCollector<JavaFileObject>();
+        IAPI a = Factory.makeAPI(new PrintWriter(new StringWriter()), diagsA, null, "-no-purityCheck");
+        IAPI b = Factory.makeAPI(new PrintWriter(new StringWriter()), diagsB, null, "-no-purityCheck");
+        JmlCompilationUnit jcuA = a.parseString("C.java", "public class C {\n"
+                + "  //@ ghost boolean k = \\elemtype(1) == null;\n"
+                + "}\n");
+        JmlCompilationUnit jcuB = b.parseString("D.java", "public class D {\n"
+                + "  //@ ghost boolean k = \\elemtype(int[].class) == null;\n"
+                + "}\n");
+        int errors = a.typecheck(jcuA);
+        assertEquals(0, b.typecheck(jcuB));
+        assertEquals(errors, diagsA.getDiagnostics().size());
+        assertTrue(diagsA.getDiagnostics().toString(), diagsA.getDiagnostics().get(0).getMessage(null).contains("\\elemtype"));
+        assertEquals(0, diagsB.getDiagnostics().size());
+    }
+
+    @Test
+    public void testParallelESC() throws Exception {
+        runAll(sessions, n -> session(n));
+    }
+}
@@ -0,0 +1,221 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.jmlspecs.openjml.ext.StatementExprExtensions.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.jmlspecs.openjml.JmlTree;
+import org.jmlspecs.openjml.JmlTree.JmlStatementExpr;
+import org.jmlspecs.openjml.esc.BasicProgram;
+import org.jmlspecs.openjml.esc.BasicProgramSlicer;
+import org.jmlspecs.openjml.esc.Label;
+import org.jmlspecs.openjmltest.JmlTestCase;
+import org.junit.Test;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCBinary;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCStatement;
+import com.sun.tools.javac.tree.JCTree.JCUnary;
+import com.sun.tools.javac.util.Names;
+
+/** Tests the groups of assertions checked by separate queries with
+ * -escAssertionThreads: the groups, each checked on the slice of the program
+ * made for it, give the verdict of the single query for the whole program */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class assertiongroups extends JmlTestCase {
+
+    static final String[] VARS = {"p","q","r","s"};
+
+    /** A basic program over boolean variables, built by hand */
+    class TestProgram extends BasicProgram {
+        JmlTree.Maker M = JmlTree.Maker.instance(context);
+        Names names = Names.instance(context);
+
+        TestProgram() {
+            super(assertiongroups.this.context);
+        }
+
+        JCIdent id(String n) {
+            return M.Ident(names.fromString(n));
+        }
+
+        BasicProgram.BasicBlock block(String n) {
+            BasicBlock bb = newBlock(id(n));
+            if (blocks.isEmpty()) startId = bb.id();
+            blocks.add(bb);
+            return bb;
+        }
+
+        void link(BasicProgram.BasicBlock from, BasicProgram.BasicBlock to) {
+            from.followers().add(to);
+            to.preceders().add(from);
+        }
+
+        JmlStatementExpr assume(JCExpression e) {
+            return M.JmlExpressionStatement(assumeID, assumeClause, Label.EXPLICIT_ASSUME, e);
+        }
+
+        JmlStatementExpr assertion(Label label, JCExpression e) {
+            return M.JmlExpressionStatement(assertID, assertClause, label, e);
+        }
+
+        JCExpression formula(Random rand, int depth) {
+            int k = depth == 0 ? 0 : rand.nextInt(4);
+            switch (k) {
+                case 1: return M.Unary(JCTree.Tag.NOT, formula(rand, depth-1));
+                case 2: return M.Binary(JCTree.Tag.AND, formula(rand, depth-1), formula(rand, depth-1));
+                case 3: return M.Binary(JCTree.Tag.OR, formula(rand, depth-1), formula(rand, depth-1));
+                default: return id(VARS[rand.nextInt(VARS.length)]);
+            }
+        }
+
+        /** Makes this a random acyclic program: each block goes to some of the later ones */
+        TestProgram random(Random rand) {
+            int n = 2 + rand.nextInt(7);
+            List<BasicProgram.BasicBlock> blocks = new ArrayList<BasicProgram.BasicBlock>();
+            for (int i = 0; i < n; i++) blocks.add(block("B" + i));
+            for (int i = 0; i < n; i++) {
+                for (int j = i+1; j < n; j++) {
+                    if (j == i+1 ? rand.nextInt(4) != 0 : rand.nextInt(3) == 0) link(blocks.get(i), blocks.get(j));
+                }
+                int m = rand.nextInt(4);
+                for (int k = 0; k < m; k++) {
+                    JCExpression e = formula(rand, 2);
+                    blocks.get(i).statements().add(rand.nextInt(5) < 2 ? assume(e)
+                            : assertion(rand.nextBoolean() ? Label.EXPLICIT_ASSERT : Label.POSTCONDITION, e));
+                }
+            }
+            return this;
+        }
+    }
+
+    static boolean eval(JCExpression e, Map<String,Boolean> values) {
+        if (e instanceof JCIdent) return values.get(((JCIdent)e).name.toString());
+        if (e instanceof JCUnary) return !eval(((JCUnary)e).arg, values);
+        JCBinary b = (JCBinary)e;
+        return b.getTag() == JCTree.Tag.AND ? eval(b.lhs, values) && eval(b.rhs, values)
+                : eval(b.lhs, values) || eval(b.rhs, values);
+    }
+
+    /** True if no assertion can fail on a path on which the assumptions and
+     * the assertions before it hold, for any values of the variables */
+    static boolean valid(BasicProgram p) {
+        for (int bits = 0; bits < (1 << VARS.length); bits++) {
+            Map<String,Boolean> values = new java.util.HashMap<String,Boolean>();
+            for (int i = 0; i < VARS.length; i++) values.put(VARS[i], (bits & (1 << i)) != 0);
+            if (!valid(p.startBlock(), values)) return false;
+        }
+        return true;
+    }
+
+    static boolean valid(BasicProgram.BasicBlock b, Map<String,Boolean> values) {
+        for (JCStatement st: b.statements()) {
+            JmlStatementExpr s = (JmlStatementExpr)st;
+            if (!eval(s.expression, values)) return s.clauseType != assertClause;
+        }
+        for (BasicProgram.BasicBlock f: b.followers()) if (!valid(f, values)) return false;
+        return true;
+    }
+
+    static List<JmlStatementExpr> assertions(BasicProgram p) {
+        List<JmlStatementExpr> list = new ArrayList<JmlStatementExpr>();
+        for (BasicProgram.BasicBlock b: p.blocks()) {
+            for (JCStatement st: b.statements()) {
+                if (((JmlStatementExpr)st).clauseType == assertClause) list.add((JmlStatementExpr)st);
+            }
+        }
+        return list;
+    }
+
+    /** On random programs, the groups partition the assertions, the program
+     * is not changed, and the program is valid just when every group is
+     * valid on its slice */
+    @Test
+    public void testVerdicts() {
+        Random rand = new Random(20261019);
+        int invalid = 0;
+        for (int trial = 0; trial < 400; trial++) {
+            BasicProgram program = new TestProgram().random(rand);
+            List<JmlStatementExpr> asserts = assertions(program);
+            if (asserts.isEmpty()) continue;
+            boolean expected = valid(program);
+            if (!expected) invalid++;
+            for (int count = 2; count <= 4; count++) {
+                List<List<JmlStatementExpr>> groups = BasicProgramSlicer.partition(program, count);
+                assertEquals(Math.min(count, asserts.size()), groups.size());
+                Set<JmlStatementExpr> seen = Collections.newSetFromMap(new IdentityHashMap<JmlStatementExpr,Boolean>());
+                boolean allValid = true;
+                for (List<JmlStatementExpr> g: groups) {
+                    assertTrue(!g.isEmpty());
+                    for (JmlStatementExpr s: g) assertTrue("assertion in two groups", seen.add(s));
+                    BasicProgram slice = new BasicProgramSlicer(false).sliceFor(context, program, g);
+                    allValid &= valid(slice);
+                }
+                assertEquals(asserts.size(), seen.size());
+                assertEquals("trial " + trial + " with " + count + " groups:\n" + program, expected, allValid);
+                assertEquals(asserts, assertions(program));
+            }
+        }
+        assertTrue(invalid > 0 && invalid < 400);
+    }
+
+    /** Assertions on separate branches go to separate groups; the one
+     * after the join, whose cone holds both branches, joins one of them */
+    @Test
+    public void testBranches() {
+        TestProgram m = new TestProgram();
+        BasicProgram.BasicBlock start = m.block("START"), t = m.block("T"), e = m.block("E"), j = m.block("J");
+        m.link(start, t);
+        m.link(start, e);
+        m.link(t, j);
+        m.link(e, j);
+        JmlStatementExpr at = m.assertion(Label.EXPLICIT_ASSERT, m.id("p"));
+        JmlStatementExpr ae = m.assertion(Label.EXPLICIT_ASSERT, m.id("q"));
+        JmlStatementExpr aj = m.assertion(Label.POSTCONDITION, m.id("r"));
+        t.statements().add(at);
+        e.statements().add(ae);
+        j.statements().add(aj);
+        List<List<JmlStatementExpr>> groups = BasicProgramSlicer.partition(m, 2);
+        assertEquals(2, groups.size());
+        assertEquals(1, groups.get(0).size());
+        assertSame(at, groups.get(0).get(0));
+        assertEquals(2, groups.get(1).size());
+        assertSame(ae, groups.get(1).get(0));
+        assertSame(aj, groups.get(1).get(1));
+    }
+
+    /** Assertions in one block are spread over the groups */
+    @Test
+    public void testOneBlock() {
+        TestProgram m = new TestProgram();
+        BasicProgram.BasicBlock start = m.block("START");
+        for (String v: VARS) start.statements().add(m.assertion(Label.EXPLICIT_ASSERT, m.id(v)));
+        List<List<JmlStatementExpr>> groups = BasicProgramSlicer.partition(m, 3);
+        assertEquals(3, groups.size());
+        assertEquals(2, groups.get(0).size());
+        assertEquals(1, groups.get(1).size());
+        assertEquals(1, groups.get(2).size());
+    }
+
+    /** Programs with check statements are not divided */
+    @Test
+    public void testCheck() {
+        TestProgram m = new TestProgram();
+        BasicProgram.BasicBlock start = m.block("START");
+        start.statements().add(m.assertion(Label.EXPLICIT_ASSERT, m.id("p")));
+        start.statements().add(m.M.JmlExpressionStatement(checkID, checkClause, Label.EXPLICIT_ASSERT, m.id("q")));
+        assertNull(BasicProgramSlicer.partition(m, 2));
+    }
+}
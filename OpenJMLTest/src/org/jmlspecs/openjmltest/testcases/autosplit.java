@@ -0,0 +1,100 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.Factory;
+import org.jmlspecs.openjml.IAPI;
+import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
+import org.jmlspecs.openjml.JmlTree.JmlCompilationUnit;
+import org.jmlspecs.openjml.JmlTree.JmlIfStatement;
+import org.jmlspecs.openjml.JmlTree.JmlMethodDecl;
+import org.jmlspecs.openjml.Utils;
+import org.jmlspecs.openjml.esc.AutoSplitter;
+import org.junit.Test;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCStatement;
+
+/** Tests the choice of split points by -escAutoSplit, which must not change
+ * the method's AST */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class autosplit {
+
+    String program = "public class A {\n"
+            + "  void m(int i) {\n"
+            + "    if (i > 0) { i--; } else { i++; }\n"
+            + "    { switch (i) { case 0: i = 1; break; default: } }\n"
+            + "    //@ split\n"
+            + "    if (i > 5) { i = 5; }\n"
+            + "  }\n"
+            + "}";
+
+    /** Parses and type-checks the program, with a record saying that the
+     * first split point was needed before, and returns the method m */
+    JmlMethodDecl setup(IAPI api, File record) throws Exception {
+        JavaFileObject f = api.makeJFOfromString("A.java", program);
+        JmlCompilationUnit cu = api.parseSingleFile(f);
+        assertEquals(0, api.typecheck(cu));
+        JmlMethodDecl m = null;
+        for (JCTree d: ((JmlClassDecl)cu.defs.head).defs) {
+            if (d instanceof JmlMethodDecl && ((JmlMethodDecl)d).name.toString().equals("m")) m = (JmlMethodDecl)d;
+        }
+        Properties p = new Properties();
+        p.setProperty(Utils.instance(api.context()).qualifiedMethodSig(m.sym), "0");
+        try (OutputStream out = new FileOutputStream(record)) {
+            p.store(out, null);
+        }
+        return m;
+    }
+
+    @Test
+    public void testSplitPoints() throws Exception {
+        IAPI api = Factory.makeAPI("-no-purityCheck");
+        File record = File.createTempFile("splits", ".properties");
+        record.deleteOnExit();
+        JmlMethodDecl m = setup(api, record);
+        List<JCStatement> points = AutoSplitter.splitPoints(m);
+        assertEquals(3, points.size());
+        assertTrue(points.get(1) instanceof com.sun.tools.javac.tree.JCTree.JCSwitch);
+        assertTrue(((JmlIfStatement)points.get(2)).split);
+    }
+
+    @Test
+    public void testRestoreLeavesTreeAlone() throws Exception {
+        IAPI api = Factory.makeAPI("-no-purityCheck");
+        File record = File.createTempFile("splits", ".properties");
+        record.deleteOnExit();
+        JmlMethodDecl m = setup(api, record);
+        api.addOptions("-escAutoSplit", "0.5");
+        api.addOptions("-escAutoSplitFile", record.getPath());
+        AutoSplitter splitter = AutoSplitter.instance(api.context());
+        List<JCStatement> points = AutoSplitter.splitPoints(m);
+
+        Set<JCStatement> first = AutoSplitter.newSplits();
+        assertTrue(splitter.restore(m, first));
+        assertTrue(AutoSplitter.isSplit(points.get(0), first));
+        assertFalse(AutoSplitter.isSplit(points.get(1), first));
+        assertTrue(AutoSplitter.isSplit(points.get(2), first)); // marked in the source
+        assertTrue(splitter.canSplit(m, first));
+        // The AST still has only the split written in the source
+        assertFalse(((JmlIfStatement)points.get(0)).split);
+
+        // Another proof of the same method starts afresh
+        Set<JCStatement> second = AutoSplitter.newSplits();
+        assertFalse(AutoSplitter.isSplit(points.get(0), second));
+        first.add(points.get(1));
+        assertFalse(splitter.canSplit(m, first));
+        assertTrue(splitter.canSplit(m, second));
+    }
+}
@@ -0,0 +1,140 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jmlspecs.openjml.Daemon;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/** Tests the verification daemon, which keeps one compilation context
+ * across requests */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class daemon {
+
+    static class TestDaemon extends Daemon {
+        TestDaemon(String... options) throws Exception {
+            super(options);
+            newContext();
+        }
+
+        /** Serves the given requests, returning the events sent */
+        List<JsonObject> run(String... requests) throws IOException {
+            StringWriter w = new StringWriter();
+            serve(new BufferedReader(new StringReader(String.join("\n", requests))), w);
+            List<JsonObject> events = new ArrayList<JsonObject>();
+            for (String line: w.toString().split("\n")) {
+                if (!line.trim().isEmpty()) events.add(new JsonParser().parse(line).getAsJsonObject());
+            }
+            return events;
+        }
+    }
+
+    File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("daemon").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f: files) f.delete();
+        dir.delete();
+    }
+
+    File write(String name, String content, Charset cs, long time) throws IOException {
+        File f = new File(dir, name);
+        Files.write(f.toPath(), content.getBytes(cs));
+        f.setLastModified(time);
+        return f;
+    }
+
+    String check(File... files) {
+        StringBuilder sb = new StringBuilder("{\"id\":1, \"command\":\"check\", \"files\":[");
+        for (int i = 0; i < files.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(files[i].getPath().replace("\\", "\\\\")).append('"');
+        }
+        return sb.append("]}").toString();
+    }
+
+    /** The number of errors in the done event, which ends the events */
+    int errors(List<JsonObject> events) {
+        JsonObject done = events.get(events.size()-1);
+        assertEquals(events.toString(), "done", done.get("event").getAsString());
+        return done.get("errors").getAsInt();
+    }
+
+    List<String> messages(List<JsonObject> events) {
+        List<String> list = new ArrayList<String>();
+        for (JsonObject e: events) {
+            if (e.get("event").getAsString().equals("diagnostic")) list.add(e.get("message").getAsString());
+        }
+        return list;
+    }
+
+    /** A file is checked again once it changes, and the diagnostics follow the new content */
+    @Test
+    public void testEdit() throws Exception {
+        TestDaemon d = new TestDaemon();
+        long time = System.currentTimeMillis() - 100000;
+        File a = write("A.java", "public class A { int m() { return true; } }", Charset.forName("UTF-8"), time);
+        File b = write("B.java", "public class B { int n(A a) { return a.m(); } }", Charset.forName("UTF-8"), time);
+        List<JsonObject> events = d.run(check(a, b));
+        assertEquals(events.toString(), 1, errors(events));
+        assertTrue(messages(events).get(0).contains("boolean"));
+
+        // Unchanged: nothing is parsed or checked again, but the errors still count
+        events = d.run(check(a, b));
+        assertEquals(events.toString(), 1, errors(events));
+        assertEquals(0, messages(events).size());
+
+        write("A.java", "public class A { /*@ requires x; */ int m() { return 1; } }", Charset.forName("UTF-8"), time + 10000);
+        events = d.run(check(a, b));
+        assertEquals(events.toString(), 1, errors(events));
+        assertTrue(messages(events).toString(), messages(events).get(0).contains("x"));
+
+        write("A.java", "public class A { int m() { return 1; } }", Charset.forName("UTF-8"), time + 20000);
+        events = d.run(check(a, b));
+        assertEquals(events.toString(), 0, errors(events));
+        assertEquals(messages(events).toString(), 0, messages(events).size());
+    }
+
+    /** A file with errors is not proved, even when it was checked by an earlier request */
+    @Test
+    public void testNoProofAfterErrors() throws Exception {
+        TestDaemon d = new TestDaemon();
+        File a = write("A.java", "public class A { int m() { return true; } }", Charset.forName("UTF-8"), System.currentTimeMillis() - 100000);
+        List<JsonObject> events = d.run(check(a));
+        assertEquals(events.toString(), 1, errors(events));
+        events = d.run(check(a).replace("\"check\"", "\"esc\""));
+        assertEquals(events.toString(), 1, errors(events));
+        for (JsonObject e: events) assertTrue(events.toString(), !e.get("event").getAsString().equals("proof"));
+    }
+
+    /** Files are read with the encoding given by -encoding */
+    @Test
+    public void testEncoding() throws Exception {
+        Charset latin1 = Charset.forName("ISO-8859-1");
+        TestDaemon d = new TestDaemon("-encoding", "ISO-8859-1");
+        File a = write("C.java", "public class C { int été = 1; }", latin1, System.currentTimeMillis() - 100000);
+        List<JsonObject> events = d.run(check(a));
+        assertEquals(events.toString(), 0, errors(events));
+    }
+}
@@ -0,0 +1,101 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+import org.jmlspecs.openjmltest.EscBase;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized.Parameters;
+import org.openjml.runners.ParameterizedWithNames;
+
+/** Checks that releasing each method's translations once its result is
+ * reported (-escBoundedMemory) changes no results, and that the outputs
+ * that need the counterexample values (-counterexample, -subexpressions)
+ * still have them: each test expects the same output with and without the
+ * option */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+@RunWith(ParameterizedWithNames.class)
+public class escboundedmemory extends EscBase {
+
+    @Parameters
+    static public Collection<String[]> parameters() {
+        String[] options = {"-no-escBoundedMemory","-escBoundedMemory"};
+        return optionsAndSolvers(options,solvers);
+    }
+
+    public escboundedmemory(String options, String solver) {
+        super(options,solver);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        captureOutput = true;
+        super.setUp();
+    }
+
+    @Test
+    public void testResults() {
+        helpTCX("tt.TestJava","package tt; \n"
+                +"public class TestJava { \n"
+                +"  //@ requires i>0;\n"
+                +"  public void m1good(int i) {\n"
+                +"    //@ assert i>=0 ;\n"
+                +"  }\n"
+                +"  //@ requires i>=0;\n"
+                +"  public void m1bad(int i) {\n"
+                +"    //@ assert i>0 ;\n"
+                +"  }\n"
+                +"  //@ ensures \\result > 0;\n"
+                +"  public int m2bad(int i) {\n"
+                +"    return i;\n"
+                +"  }\n"
+                +"  //@ requires i>0;\n"
+                +"  //@ ensures \\result > 0;\n"
+                +"  public int m2good(int i) {\n"
+                +"    return i;\n"
+                +"  }\n"
+                +"}"
+                ,"/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                ,"/tt/TestJava.java:13: warning: The prover cannot establish an assertion (Postcondition) in method m2bad",5
+                ,"/tt/TestJava.java:11: warning: Associated declaration",7
+                );
+    }
+
+    @Test
+    public void testCounterexample() {
+        main.addOptions("-counterexample");
+        helpTCX("tt.TestJava","package tt; \n"
+                +"public class TestJava { \n"
+                +"  //@ requires k == 3;\n"
+                +"  public void m1(int k) {\n"
+                +"    //@ assert k == 0;\n"
+                +"  }\n"
+                +"}"
+                ,"/tt/TestJava.java:5: warning: The prover cannot establish an assertion (Assert) in method m1",9
+                );
+        String output = output();
+        Assert.assertTrue(output, output.contains("COUNTEREXAMPLE"));
+        Assert.assertTrue(output, Pattern.compile("^k\\S* = 3$", Pattern.MULTILINE).matcher(output).find());
+    }
+
+    @Test
+    public void testSubexpressions() {
+        main.addOptions("-subexpressions","-method=m1");
+        helpTCX("tt.TestJava","package tt; \n"
+                +"/*@ code_java_math */ public class TestJava { \n"
+                +"  public void m1(int i) {\n"
+                +"       int j = 5;\n"
+                +"       j = j + i;\n"
+                +"       //@ assert j != 7;\n"
+                +"  }\n"
+                +"}"
+                ,"/tt/TestJava.java:6: warning: The prover cannot establish an assertion (Assert) in method m1",12
+                );
+        String output = output();
+        Assert.assertTrue(output, output.contains("TRACE of tt.TestJava.m1(int)"));
+        Assert.assertTrue(output, output.contains("VALUE: i\t === 2"));
+        Assert.assertTrue(output, output.contains("VALUE: j != 7\t === false"));
+    }
+}
@@ -0,0 +1,74 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import java.util.Collection;
+
+import org.jmlspecs.openjmltest.EscBase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized.Parameters;
+import org.openjml.runners.ParameterizedWithNames;
+
+/** Checks that ESC class by class (-escPipeline) reports just what ESC after
+ * all classes are attributed does: each test expects the same output with
+ * and without the option */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+@RunWith(ParameterizedWithNames.class)
+public class escpipeline extends EscBase {
+
+    @Parameters
+    static public Collection<String[]> parameters() {
+        String[] options = {"-no-escPipeline","-escPipeline"};
+        return optionsAndSolvers(options,solvers);
+    }
+
+    public escpipeline(String options, String solver) {
+        super(options,solver);
+    }
+
+    @Test
+    public void testClasses() {
+        helpTCX("tt.TestJava","package tt; \n"
+                +"public class TestJava { \n"
+                +"  //@ requires i>0;\n"
+                +"  public void m1good(int i) {\n"
+                +"    //@ assert i>0 ;\n"
+                +"  }\n"
+                +"  public void m1bad(int i) {\n"
+                +"    //@ assert i>0 ;\n"
+                +"  }\n"
+                +"}\n"
+                +"class Other { \n"
+                +"  //@ requires i>=0;\n"
+                +"  public void m2bad(int i) {\n"
+                +"    //@ assert i>0 ;\n"
+                +"  }\n"
+                +"  //@ requires i>=0;\n"
+                +"  public void m2good(int i) {\n"
+                +"    //@ assert i>=0 ;\n"
+                +"  }\n"
+                +"}"
+                ,"/tt/TestJava.java:8: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                ,"/tt/TestJava.java:14: warning: The prover cannot establish an assertion (Assert) in method m2bad",9
+                );
+    }
+
+    /** A type error in a later class: no class is checked, not even the
+     * classes attributed before it */
+    @Test
+    public void testErrorInLaterClass() {
+        expectedExit = 1;
+        helpTCX("tt.TestJava","package tt; \n"
+                +"public class TestJava { \n"
+                +"  public void m1bad(int i) {\n"
+                +"    //@ assert i>0 ;\n"
+                +"  }\n"
+                +"}\n"
+                +"class Other { \n"
+                +"  public void m2(int i) {\n"
+                +"    int j = true;\n"
+                +"  }\n"
+                +"}"
+                ,"/tt/TestJava.java:9: incompatible types: boolean cannot be converted to int",13
+                );
+    }
+}
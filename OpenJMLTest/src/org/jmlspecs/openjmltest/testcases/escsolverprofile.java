@@ -0,0 +1,205 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.esc.SMTTranslator;
+import org.jmlspecs.openjml.esc.SolverProfiles;
+import org.jmlspecs.openjmltest.EscBase;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized.Parameters;
+import org.openjml.runners.ParameterizedWithNames;
+import org.smtlib.ICommand;
+import org.smtlib.SMT;
+
+/** Tests the solver tuning profiles (-solverProfile), their definition by
+ * properties, and the solver statistics (-solverStatistics) */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+@RunWith(ParameterizedWithNames.class)
+public class escsolverprofile extends EscBase {
+
+    @Parameters
+    static public Collection<String[]> parameters() {
+        return EscBase.parameters();
+    }
+
+    public escsolverprofile(String options, String solver) {
+        super(options,solver);
+    }
+
+    /** Only the statistics tests look at the output; the others check
+     * SolverProfiles directly, without compiling anything */
+    @Override
+    public void setUp() throws Exception {
+        captureOutput = testname.getMethodName().contains("Statistics");
+        super.setUp();
+    }
+
+    /** Gives the tests access to the parsing of profile commands */
+    static class Translator extends SMTTranslator {
+        Translator(com.sun.tools.javac.util.Context context) {
+            super(context, null);
+        }
+        List<ICommand> parse(String commands) {
+            return commands(new SMT(), commands);
+        }
+    }
+
+    /** The messages of the warnings reported so far */
+    String warnings() {
+        StringBuilder sb = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> d: collector.getDiagnostics()) {
+            sb.append(d.getMessage(null)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** With -triggers on and no profile named, the triggers profile is used */
+    @Test
+    public void testDefaultProfile() {
+        SolverProfiles p = SolverProfiles.instance(context);
+        Assert.assertEquals(SolverProfiles.triggers, p.profileName());
+        Assert.assertTrue(p.commands("z3_4_3").contains(":smt.MBQI false"));
+        Assert.assertTrue(p.commands("yices2").contains(":smt.MBQI false"));
+        main.addOptions("-no-triggers");
+        Assert.assertNull(p.profileName());
+        Assert.assertNull(p.commands("z3_4_3"));
+    }
+
+    /** A built-in profile is found by the family of the prover */
+    @Test
+    public void testBuiltinProfile() {
+        main.addOptions("-solverProfile=lazy-qi");
+        SolverProfiles p = SolverProfiles.instance(context);
+        Assert.assertEquals("lazy-qi", p.profileName());
+        Assert.assertTrue(p.commands("z3_4_3").contains(":smt.qi.eager_threshold 5.0"));
+        Assert.assertTrue(p.commands("z3_4_7").contains(":smt.qi.eager_threshold 5.0"));
+        Assert.assertEquals("", warnings());
+    }
+
+    /** An unknown profile gives null, and is reported once per prover */
+    @Test
+    public void testUnknownProfile() {
+        main.addOptions("-solverProfile=lazy-qi");
+        SolverProfiles p = SolverProfiles.instance(context);
+        Assert.assertNull(p.commands("cvc4"));
+        Assert.assertNull(p.commands("cvc4"));
+        Assert.assertEquals("Unknown solver profile lazy-qi for prover cvc4\n", warnings());
+    }
+
+    /** A property for the family overrides a built-in profile, and a
+     * property for the prover overrides both */
+    @Test
+    public void testPropertyOverride() {
+        main.addOptions("-solverProfile=mbqi");
+        main.addUncheckedOption("openjml.solverProfile.z3.mbqi=(set-option :smt.mbqi true)");
+        SolverProfiles p = SolverProfiles.instance(context);
+        Assert.assertEquals("(set-option :smt.mbqi true)", p.commands("z3_4_3"));
+        main.addUncheckedOption("openjml.solverProfile.z3_4_7.mbqi=(set-option :smt.mbqi.max_iterations 10)");
+        Assert.assertEquals("(set-option :smt.mbqi.max_iterations 10)", p.commands("z3_4_7"));
+        Assert.assertEquals("(set-option :smt.mbqi true)", p.commands("z3_4_3"));
+    }
+
+    /** A profile defined only by a property, for a prover without built-in profiles */
+    @Test
+    public void testPropertyProfile() {
+        main.addOptions("-solverProfile=mine");
+        main.addUncheckedOption("openjml.solverProfile.yices2.mine=(set-option :produce-unsat-cores true)");
+        SolverProfiles p = SolverProfiles.instance(context);
+        Assert.assertEquals("(set-option :produce-unsat-cores true)", p.commands("yices2"));
+        Assert.assertEquals("", warnings());
+    }
+
+    /** The commands of a profile are parsed one by one; a malformed
+     * profile is reported, keeping the commands before the error */
+    @Test
+    public void testProfileParsing() {
+        Translator t = new Translator(context);
+        List<ICommand> list = t.parse("(set-option :AUTO_CONFIG false) (set-option :smt.MBQI false)\n(set-option :smt.qi.eager_threshold 5.0)");
+        Assert.assertEquals(3, list.size());
+        Assert.assertEquals("(set-option :AUTO_CONFIG false)", list.get(0).toString());
+        Assert.assertEquals(0, t.parse("").size());
+        Assert.assertEquals("", warnings());
+        list = t.parse("(set-option :AUTO_CONFIG false)(set-option");
+        Assert.assertEquals(1, list.size());
+        Assert.assertTrue(warnings(), warnings().contains("Could not parse the solver profile commands: (set-option :AUTO_CONFIG false)(set-option"));
+    }
+
+    /** The built-in z3 profiles give the verdicts of the default */
+    @Test
+    public void testMbqiVerdicts() {
+        main.addOptions("-solverProfile=mbqi");
+        helpTCX("tt.TestJava",program
+                ,"/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                );
+    }
+
+    @Test
+    public void testLazyQiVerdicts() {
+        main.addOptions("-solverProfile=lazy-qi");
+        helpTCX("tt.TestJava",program
+                ,"/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                );
+    }
+
+    /** A profile defined by a property is sent to the solver */
+    @Test
+    public void testPropertyProfileVerdicts() {
+        main.addOptions("-solverProfile=mine");
+        main.addUncheckedOption("openjml.solverProfile.z3.mine=(set-option :smt.MBQI false)");
+        helpTCX("tt.TestJava",program
+                ,"/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                );
+    }
+
+    /** An unknown profile is reported and the proofs go on without it */
+    @Test
+    public void testUnknownProfileVerdicts() {
+        main.addOptions("-solverProfile=nosuch");
+        helpTCX("tt.TestJava",program
+                ,"warning: Unknown solver profile nosuch for prover " + solver,-1
+                ,"/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                );
+    }
+
+    /** With -solverStatistics and -progress the statistics of each proof are printed */
+    @Test
+    public void testStatistics() {
+        main.addOptions("-solverStatistics","-progress");
+        helpTCX("tt.TestJava",program
+                ,"/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                );
+        String output = output();
+        Assert.assertTrue(output, output.contains("Solver statistics for tt.TestJava.m1good(int): "));
+        Assert.assertTrue(output, output.contains("Solver statistics for tt.TestJava.m1bad(int): "));
+        Assert.assertFalse(output, output.contains("no recognized statistics"));
+    }
+
+    /** Without -solverStatistics no statistics are printed */
+    @Test
+    public void testNoStatistics() {
+        main.addOptions("-progress");
+        helpTCX("tt.TestJava",program
+                ,"/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                );
+        String output = output();
+        Assert.assertFalse(output, output.contains("Solver statistics"));
+    }
+
+    static final String program = "package tt; \n"
+            +"public class TestJava { \n"
+            +"  //@ requires i>0;\n"
+            +"  public void m1good(int i) {\n"
+            +"    //@ assert i>=0 ;\n"
+            +"  }\n"
+            +"  //@ requires i>=0;\n"
+            +"  public void m1bad(int i) {\n"
+            +"    //@ assert i>0 ;\n"
+            +"  }\n"
+            +"}";
+}
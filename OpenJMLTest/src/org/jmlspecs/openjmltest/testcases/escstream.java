@@ -0,0 +1,76 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import java.util.Collection;
+
+import org.jmlspecs.openjmltest.EscBase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized.Parameters;
+import org.openjml.runners.ParameterizedWithNames;
+
+/** Checks that sending the SMT translation to the solver as it is produced
+ * (-escStreamSMT) gives the verdicts of sending it whole: each test expects
+ * the same output with and without the option */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+@RunWith(ParameterizedWithNames.class)
+public class escstream extends EscBase {
+
+    @Parameters
+    static public Collection<String[]> parameters() {
+        String[] options = {"-no-escStreamSMT","-escStreamSMT"};
+        return optionsAndSolvers(options,solvers);
+    }
+
+    public escstream(String options, String solver) {
+        super(options,solver);
+    }
+
+    @Test
+    public void testValidInvalidInfeasible() {
+        helpTCX("tt.TestJava","package tt; \n"
+                +"public class TestJava { \n"
+                +"  //@ requires i>0;\n"
+                +"  public void m1good(int i) {\n"
+                +"    //@ assert i>=0 ;\n"
+                +"  }\n"
+                +"  //@ requires i>=0;\n"
+                +"  public void m1bad(int i) {\n"
+                +"    //@ assert i>0 ;\n"
+                +"  }\n"
+                +"  //@ requires i>0;\n"
+                +"  //@ requires i<0;\n"
+                +"  //@ ensures false;\n"
+                +"  public void m1infeasible(int i) {\n"
+                +"  }\n"
+                +"}"
+                ,"/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",9
+                ,"/tt/TestJava.java:14: warning: Invariants+Preconditions appear to be contradictory in method tt.TestJava.m1infeasible(int)",15
+                );
+    }
+
+    /** Methods with branches and loops, whose translations have many blocks */
+    @Test
+    public void testBlocks() {
+        helpTCX("tt.TestJava","package tt; \n"
+                +"public class TestJava { \n"
+                +"  //@ requires n >= 0 && n < 1000;\n"
+                +"  //@ ensures \\result == n;\n"
+                +"  public int m2good(int n) {\n"
+                +"    int k = 0;\n"
+                +"    //@ loop_invariant 0 <= k && k <= n;\n"
+                +"    //@ decreases n - k;\n"
+                +"    while (k < n) { k++; }\n"
+                +"    return k;\n"
+                +"  }\n"
+                +"  //@ ensures \\result > 0;\n"
+                +"  public int m2bad(int i) {\n"
+                +"    if (i > 0) return i;\n"
+                +"    else if (i < 0) return -i;\n"
+                +"    return 0;\n"
+                +"  }\n"
+                +"}"
+                ,"/tt/TestJava.java:16: warning: The prover cannot establish an assertion (Postcondition) in method m2bad",5
+                ,"/tt/TestJava.java:12: warning: Associated declaration",7
+                );
+    }
+}
@@ -0,0 +1,141 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.esc.SMTTranslator;
+import org.jmlspecs.openjml.esc.TypeHierarchyAxioms;
+import org.jmlspecs.openjmltest.EscBase;
+import org.jmlspecs.openjmltest.TestJavaFileObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized.Parameters;
+import org.openjml.runners.ParameterizedWithNames;
+
+import com.sun.tools.javac.util.Log;
+
+/** Tests the reuse of the subtype commands of each pair of types across the
+ * methods of a compilation unit (TypeHierarchyAxioms) */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+@RunWith(ParameterizedWithNames.class)
+public class esctypeaxioms extends EscBase {
+
+    @Parameters
+    static public Collection<String[]> parameters() {
+        return EscBase.parameters();
+    }
+
+    public esctypeaxioms(String options, String solver) {
+        super(options,solver);
+    }
+
+    /** The translation tests look at the printed SMT translations */
+    @Override
+    public void setUp() throws Exception {
+        captureOutput = testname.getMethodName().contains("Translation");
+        super.setUp();
+    }
+
+    /** Several methods, each relating the same classes and arrays */
+    static final String program = "package tt; \n"
+            +"class A {} \n"
+            +"class B extends A {} \n"
+            +"class C extends A {} \n"
+            +"public class TestJava { \n"
+            +"  public boolean m1good(B b) {\n"
+            +"    A a = b;\n"
+            +"    //@ assert a == null || a instanceof B;\n"
+            +"    return a instanceof C;\n"
+            +"  }\n"
+            +"  //@ requires a != null && a instanceof B;\n"
+            +"  public void m2bad(A a) {\n"
+            +"    //@ assert a instanceof C;\n"
+            +"  }\n"
+            +"  //@ requires b != null && b.length > 0;\n"
+            +"  public void m3good(B[] b) {\n"
+            +"    A[] a = b;\n"
+            +"    Object o = a;\n"
+            +"    //@ assert o instanceof A[];\n"
+            +"    //@ assert !(o instanceof C[]) || b[0] == null;\n"
+            +"  }\n"
+            +"  //@ requires a != null && a instanceof C;\n"
+            +"  public void m4bad(A a) {\n"
+            +"    //@ assert a instanceof B;\n"
+            +"  }\n"
+            +"  public boolean m5good(B b) {\n"
+            +"    A a = b;\n"
+            +"    //@ assert a == null || a instanceof B;\n"
+            +"    return a instanceof C;\n"
+            +"  }\n"
+            +"}";
+
+    /** The methods checked after the first, which reuse its commands, get
+     * the verdicts they get when checked alone */
+    @Test
+    public void testVerdicts() {
+        helpTCX("tt.TestJava",program
+                ,"/tt/TestJava.java:13: warning: The prover cannot establish an assertion (Assert) in method m2bad",9
+                ,"/tt/TestJava.java:24: warning: The prover cannot establish an assertion (Assert) in method m4bad",9
+                );
+        Assert.assertTrue(TypeHierarchyAxioms.instance(context).hits > 0);
+    }
+
+    /** Translates program (with a solver that does not start, so that no
+     * solver is needed) printing the SMT translation of each method, and
+     * returns, by method, the assertions that state subtype relations */
+    Map<String,String> subtypeCommands(String program) throws Exception {
+        main.addOptions("-exec","/bin/true","-show=smt");
+        JavaFileObject f = new TestJavaFileObject("tt/TestJava.java",program);
+        Log.instance(context).useSource(f);
+        main.compile(args, null, context, com.sun.tools.javac.util.List.of(f), null);
+        collectOutput(false);
+        Map<String,String> methods = new LinkedHashMap<String,String>();
+        String[] parts = output().split("SMT TRANSLATION OF ");
+        for (int i = 1; i < parts.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            String[] lines = parts[i].split("\n");
+            for (String line: lines) {
+                line = line.trim();
+                if (line.startsWith("(assert ") && (line.contains(SMTTranslator.JAVASUBTYPE) || line.contains(SMTTranslator.JMLSUBTYPE))) {
+                    sb.append(line).append('\n');
+                }
+            }
+            methods.put(lines[0].trim(), sb.toString());
+        }
+        captureOutput = false;
+        return methods;
+    }
+
+    /** A method translated with the commands built for an earlier method
+     * states the same subtype relations as one translated first: m1good
+     * and m5good mention the same types */
+    @Test
+    public void testSameTranslation() throws Exception {
+        TypeHierarchyAxioms cache = TypeHierarchyAxioms.instance(context);
+        Map<String,String> methods = subtypeCommands(program);
+        // The default constructors of the four classes and the five methods
+        Assert.assertEquals(methods.keySet().toString(), 9, methods.size());
+        Assert.assertTrue(cache.misses > 0);
+        Assert.assertTrue(cache.hits > 0);
+        String m1 = methods.get("tt.TestJava.m1good(tt.B)");
+        String m5 = methods.get("tt.TestJava.m5good(tt.B)");
+        Assert.assertTrue(m1, m1.contains("(" + SMTTranslator.JAVASUBTYPE + " T_tt_B T_tt_A)"));
+        Assert.assertEquals(m1, m5);
+    }
+
+    /** Checking a compilation unit starts with an empty cache */
+    @Test
+    public void testClearedTranslation() throws Exception {
+        TypeHierarchyAxioms cache = TypeHierarchyAxioms.instance(context);
+        Object stale = new Object();
+        cache.put(stale, stale, new TypeHierarchyAxioms.Relation(new ArrayList<org.smtlib.ICommand>()));
+        Map<String,String> methods = subtypeCommands(program);
+        Assert.assertEquals(methods.keySet().toString(), 9, methods.size());
+        Assert.assertNull(cache.get(stale, stale));
+    }
+}
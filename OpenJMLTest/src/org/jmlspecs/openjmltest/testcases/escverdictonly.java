@@ -0,0 +1,70 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import java.util.Collection;
+
+import org.jmlspecs.openjmltest.EscBase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized.Parameters;
+import org.openjml.runners.ParameterizedWithNames;
+
+/** Tests -escVerdictOnly, which reports only the first invalid assertion
+ * found in a method */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+@RunWith(ParameterizedWithNames.class)
+public class escverdictonly extends EscBase {
+
+    @Parameters
+    static public Collection<String[]> parameters() {
+        return EscBase.parameters();
+    }
+
+    public escverdictonly(String options, String solver) {
+        super(options,solver);
+    }
+
+    /** A method with two assertions that fail on different paths, and valid methods */
+    static final String program = "package tt; \n"
+            +"public class TestJava { \n"
+            +"  //@ requires i>0;\n"
+            +"  public void m1good(int i) {\n"
+            +"    //@ assert i>=0 ;\n"
+            +"  }\n"
+            +"  public void m1bad(boolean b, int i) {\n"
+            +"    if (b) {\n"
+            +"      //@ assert i>0 ;\n"
+            +"    } else {\n"
+            +"      //@ assert i<0 ;\n"
+            +"    }\n"
+            +"  }\n"
+            +"  //@ requires i<0;\n"
+            +"  //@ ensures \\result > 0;\n"
+            +"  public int m2good(int i) {\n"
+            +"    return -i;\n"
+            +"  }\n"
+            +"}";
+
+    /** Without the option both failures are reported */
+    @Test
+    public void testAllFailures() {
+        helpTCX("tt.TestJava",program
+                ,anyorder(
+                  seq("/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",11),
+                  seq("/tt/TestJava.java:11: warning: The prover cannot establish an assertion (Assert) in method m1bad",11)
+                 )
+                );
+    }
+
+    /** With the option only the first failure found is reported; the valid
+     * methods are still valid */
+    @Test
+    public void testFirstFailure() {
+        main.addOptions("-escVerdictOnly");
+        helpTCX("tt.TestJava",program
+                ,oneof(
+                  seq("/tt/TestJava.java:9: warning: The prover cannot establish an assertion (Assert) in method m1bad",11),
+                  seq("/tt/TestJava.java:11: warning: The prover cannot establish an assertion (Assert) in method m1bad",11)
+                 )
+                );
+    }
+}
@@ -0,0 +1,123 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.Dependencies;
+import org.jmlspecs.openjml.DependencyIndex;
+import org.jmlspecs.openjml.Factory;
+import org.jmlspecs.openjml.IAPI;
+import org.jmlspecs.openjml.Main;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.util.Log;
+
+/** Tests the choice of the files to process again with -incremental */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class incremental {
+
+    File dir, a, b, c;
+    long time = System.currentTimeMillis() - 100000;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("incremental").toFile();
+        a = write("A.java", "public class A { public int m(int i) { return i; } }");
+        b = write("B.java", "public class B { public int n() { return 1; } }");
+        c = write("C.java", "public class C { public static int k = 1; }");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f: files) f.delete();
+        dir.delete();
+    }
+
+    File write(String name, String content) throws IOException {
+        File f = new File(dir, name);
+        Files.write(f.toPath(), content.getBytes("UTF-8"));
+        f.setLastModified(time += 10000);
+        return f;
+    }
+
+    /** Runs the given command incrementally on the files, returning how many
+     * of them were processed */
+    int run(String command, File... files) {
+        String[] args = new String[10 + files.length];
+        int i = 0;
+        for (String s: new String[]{"-" + command, "-incremental", "-progress", "-no-purityCheck", "-d", dir.getPath(), "-sourcepath", dir.getPath(), "-specspath", dir.getPath()}) args[i++] = s;
+        for (File f: files) args[i++] = f.getPath();
+        StringWriter sw = new StringWriter();
+        Main.execute(new PrintWriter(sw), null, null, args);
+        for (String line: sw.toString().split("\n")) {
+            if (line.startsWith("Processing ") && line.endsWith("(-incremental)")) {
+                return Integer.parseInt(line.split(" ")[1]);
+            }
+        }
+        return files.length; // Nothing selected is reported as nothing to do
+    }
+
+    /** The stamp of a check does not stand for esc, nor one of esc with other options */
+    @Test
+    public void testCommandSwitch() throws Exception {
+        assertEquals(2, run("check", a, b));
+        assertEquals(0, run("check", a, b));
+        IAPI api = Factory.makeAPI("-check", "-incremental", "-no-purityCheck", "-d", dir.getPath(), "-sourcepath", dir.getPath(), "-specspath", dir.getPath());
+        assertEquals(0, DependencyIndex.instance(api.context()).select(Arrays.asList(a, b)).size());
+        api = Factory.makeAPI("-esc", "-incremental", "-no-purityCheck", "-d", dir.getPath(), "-sourcepath", dir.getPath(), "-specspath", dir.getPath());
+        assertEquals(Arrays.asList(a, b), DependencyIndex.instance(api.context()).select(Arrays.asList(a, b)));
+        api = Factory.makeAPI("-check", "-incremental", "-no-purityCheck", "-d", dir.getPath(), "-sourcepath", dir.getPath(), "-specspath", dir.getPath(), "-nullableByDefault");
+        assertEquals(Arrays.asList(a, b), DependencyIndex.instance(api.context()).select(Arrays.asList(a, b)));
+        // Options that only change what is shown do not count
+        assertEquals(0, run("check", a, b));
+    }
+
+    /** A file against which a proof failed is processed again, the others are not */
+    @Test
+    public void testFailedProof() throws Exception {
+        IAPI api = Factory.makeAPI("-esc", "-incremental", "-d", dir.getPath());
+        DependencyIndex index = DependencyIndex.instance(api.context());
+        JavaFileObject fa = api.makeJFOfromFile(a);
+        index.attributed(fa);
+        index.attributed(api.makeJFOfromFile(b));
+        Log log = Log.instance(api.context());
+        JavaFileObject prev = log.useSource(fa);
+        log.warning(10, "jml.message", "The prover cannot establish an assertion");
+        log.useSource(prev);
+        index.save(Dependencies.instance(api.context()), true);
+
+        api = Factory.makeAPI("-esc", "-incremental", "-d", dir.getPath());
+        List<File> selected = DependencyIndex.instance(api.context()).select(Arrays.asList(a, b));
+        assertEquals(Arrays.asList(a), selected);
+    }
+
+    /** The dependencies of a specification file are recorded, and a change
+     * to it processes the source file again */
+    @Test
+    public void testSpecsFile() throws Exception {
+        File as = write("A.jml", "public class A { //@ requires i > C.k;\n public int m(int i); }");
+        assertEquals(3, run("check", a, b, c));
+        assertEquals(0, run("check", a, b, c));
+        write("A.jml", "public class A { //@ requires i >= C.k;\n public int m(int i); }");
+        assertEquals(1, run("check", a, b, c));
+        assertEquals(0, run("check", a, b, c));
+        // A uses C only through its specifications
+        write("C.java", "public class C { public static int k = 2; }");
+        assertEquals(2, run("check", a, b, c));
+        assertEquals(0, run("check", a, b, c));
+        as.delete();
+        assertEquals(1, run("check", a, b, c));
+    }
+}
@@ -0,0 +1,68 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.Factory;
+import org.jmlspecs.openjml.IAPI;
+import org.jmlspecs.openjml.Nowarns;
+import org.junit.Test;
+
+import com.sun.tools.javac.util.Log;
+
+/** Tests the record of nowarn annotations, including when a file is parsed again */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class nowarnindex {
+
+    String v1 = "public class A {\n  void m() {\n    //@ assert true; //@ nowarn Assert;\n    //@ assert true;\n  }\n}\n";
+    String v2 = "public class A {\n  void m() {\n    //@ assert true;\n    //@ assert true; //@ nowarn;\n  }\n}\n";
+
+    /** The position of the start of the given (1-based) line */
+    static int line(String s, int n) {
+        int pos = 0;
+        while (--n > 0) pos = s.indexOf('\n', pos) + 1;
+        return pos + 4;
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        IAPI api = Factory.makeAPI("-no-purityCheck");
+        Nowarns nowarns = Nowarns.instance(api.context());
+        JavaFileObject f1 = api.makeJFOfromString("A.java", v1);
+        api.parseSingleFile(f1);
+        assertTrue(nowarns.suppress(f1, line(v1,3), "Assert"));
+        assertFalse(nowarns.suppress(f1, line(v1,3), "Postcondition"));
+        assertFalse(nowarns.suppress(f1, line(v1,4), "Assert"));
+        // By source object, as the translation for ESC looks them up
+        Log log = Log.instance(api.context());
+        JavaFileObject prev = log.useSource(f1);
+        try {
+            assertTrue(nowarns.suppress(log.currentSource(), line(v1,3), "Assert"));
+            assertFalse(nowarns.suppress(log.currentSource(), line(v1,4), "Assert"));
+        } finally {
+            log.useSource(prev);
+        }
+        // A different file object for the same file
+        assertTrue(nowarns.suppress(api.makeJFOfromString("A.java", v1), line(v1,3), "Assert"));
+        assertFalse(nowarns.suppress(api.makeJFOfromString("B.java", v1), line(v1,3), "Assert"));
+    }
+
+    /** Parsing a new version of a file replaces its annotations */
+    @Test
+    public void testReparse() throws Exception {
+        IAPI api = Factory.makeAPI("-no-purityCheck");
+        Nowarns nowarns = Nowarns.instance(api.context());
+        JavaFileObject f1 = api.makeJFOfromString("A.java", v1);
+        api.parseSingleFile(f1);
+        assertTrue(nowarns.suppress(f1, line(v1,3), "Assert"));
+
+        JavaFileObject f2 = api.makeJFOfromString("A.java", v2);
+        api.parseSingleFile(f2);
+        assertFalse(nowarns.suppress(f2, line(v2,3), "Assert"));
+        assertTrue(nowarns.suppress(f2, line(v2,4), "Assert"));
+        assertTrue(nowarns.suppress(f2, line(v2,4), "Postcondition"));
+        assertFalse(nowarns.suppress(f1, line(v1,3), "Assert"));
+    }
+}
@@ -0,0 +1,85 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.Factory;
+import org.jmlspecs.openjml.IAPI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.JmlCompiler;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+
+/** Tests that reading source files ahead of the parser (-parseThreads)
+ * gives the same trees and diagnostics as a sequential run */
+public class parsethreads {
+
+    /** The number of source files parsed, more than the read-ahead window */
+    static final int count = 20;
+
+    File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("parsethreads").toFile();
+        for (int i = 0; i < count; i++) {
+            String body = i == 5 ? "  int m( { return 0; }\n"                   // a Java syntax error
+                        : i == 11 ? "  //@ ensures \\result > ;\n  int m() { return 0; }\n" // a JML syntax error
+                        : "  //@ ensures \\result == " + i + ";\n  int m() { return " + i + "; }\n";
+            Files.write(new File(dir, "P" + i + ".java").toPath(), ("public class P" + i + " {\n" + body + "}\n").getBytes("UTF-8"));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f: files) f.delete();
+        dir.delete();
+    }
+
+    /** Parses the files with the given options, returning the printed trees
+     * followed by the diagnostics */
+    String parse(String... options) throws Exception {
+        DiagnosticCollector<JavaFileObject> diags = new DiagnosticCollector<JavaFileObject>();
+        IAPI api = Factory.makeAPI(new PrintWriter(new StringWriter()), diags, null, options);
+        File[] files = new File[count];
+        for (int i = 0; i < count; i++) files[i] = new File(dir, "P" + i + ".java");
+        List<JavaFileObject> fobjects = new ArrayList<JavaFileObject>();
+        for (JavaFileObject f: ((JavacFileManager)api.context().get(JavaFileManager.class)).getJavaFileObjects(files)) fobjects.add(f);
+        JmlCompiler c = (JmlCompiler)JavaCompiler.instance(api.context());
+        StringBuilder sb = new StringBuilder();
+        for (JCCompilationUnit cu: c.parseFiles(fobjects)) sb.append(api.prettyPrint(cu)).append('\n');
+        for (Diagnostic<? extends JavaFileObject> d: diags.getDiagnostics()) {
+            sb.append(d.getSource().getName()).append(':').append(d.getLineNumber()).append(':')
+              .append(d.getColumnNumber()).append(' ').append(d.getMessage(null)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testSameAsSequential() throws Exception {
+        String sequential = parse();
+        assertTrue(sequential, sequential.contains("P19"));
+        assertTrue(sequential, sequential.contains("P5.java:2"));
+        assertTrue(sequential, sequential.contains("P11.java:2"));
+        assertEquals(sequential, parse("-parseThreads", "3"));
+        assertEquals(sequential, parse("-parseThreads", "16"));
+    }
+}
@@ -0,0 +1,79 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jmlspecs.openjml.utils.PersistentHashMap;
+import org.junit.Test;
+
+/** Tests the persistent map used for the DSA variable maps in BasicBlocker2 */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class persistentmap {
+
+    /** A key with a deliberately poor hash code, to exercise collision nodes */
+    static class Collider {
+        final int k;
+        Collider(int k) { this.k = k; }
+        public int hashCode() { return k % 3; }
+        public boolean equals(Object o) { return o instanceof Collider && ((Collider)o).k == k; }
+    }
+
+    @Test
+    public void testEmpty() {
+        PersistentHashMap<String,Integer> m = PersistentHashMap.empty();
+        assertEquals(0, m.size());
+        assertNull(m.get("a"));
+        assertFalse(m.iterator().hasNext());
+        assertTrue(m.remove("a") == m);
+    }
+
+    @Test
+    public void testSharing() {
+        PersistentHashMap<String,Integer> m1 = PersistentHashMap.<String,Integer>empty().put("a",1).put("b",2);
+        PersistentHashMap<String,Integer> m2 = m1.put("a",3);
+        PersistentHashMap<String,Integer> m3 = m1.remove("b");
+        assertEquals(Integer.valueOf(1), m1.get("a"));
+        assertEquals(Integer.valueOf(2), m1.get("b"));
+        assertEquals(Integer.valueOf(3), m2.get("a"));
+        assertEquals(2, m2.size());
+        assertNull(m3.get("b"));
+        assertEquals(1, m3.size());
+        assertTrue(m1.put("a",m1.get("a")) == m1);
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Random r = new Random(42);
+        HashMap<Object,Integer> h = new HashMap<Object,Integer>();
+        PersistentHashMap<Object,Integer> p = PersistentHashMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            int k = r.nextInt(2000);
+            Object key = (k % 5 == 0) ? new Collider(k) : (Object)Integer.valueOf(k);
+            if (r.nextInt(3) == 0) {
+                h.remove(key);
+                p = p.remove(key);
+            } else {
+                int v = r.nextInt();
+                h.put(key,v);
+                p = p.put(key,v);
+            }
+        }
+        assertEquals(h.size(), p.size());
+        for (Map.Entry<Object,Integer> e: h.entrySet()) {
+            assertEquals(e.getValue(), p.get(e.getKey()));
+        }
+        int count = 0;
+        for (Map.Entry<Object,Integer> e: p) {
+            assertEquals(h.get(e.getKey()), e.getValue());
+            count++;
+        }
+        assertEquals(h.size(), count);
+        assertEquals(h.keySet(), p.keySet());
+    }
+}
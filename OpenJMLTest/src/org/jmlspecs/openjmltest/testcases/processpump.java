@@ -0,0 +1,74 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+
+import org.jmlspecs.openjml.utils.ExternalProcess;
+import org.jmlspecs.openjml.utils.ProcessPump;
+import org.junit.Test;
+
+import com.sun.tools.javac.util.Context;
+
+/** Tests the reading of the outputs of external processes (ProcessPump) */
+public class processpump {
+
+    /** A process that prints hi and ends, leaving a descendant that holds
+     * its output open for the given number of seconds */
+    static Process lingering(int seconds) throws Exception {
+        return new ProcessBuilder("/bin/sh", "-c", "sleep " + seconds + " & echo hi").start();
+    }
+
+    /** The output of one process is read while another's stream stays open */
+    @Test
+    public void testIndependentStreams() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        Process held = lingering(10);
+        StringBuilder heldOut = new StringBuilder();
+        ProcessPump.instance().read(held.getInputStream(), null, heldOut);
+        held.waitFor();
+
+        long start = System.currentTimeMillis();
+        Process p = new ProcessBuilder("/bin/sh", "-c", "echo there").start();
+        StringBuilder out = new StringBuilder();
+        ProcessPump.Output reader = ProcessPump.instance().read(p.getInputStream(), null, out);
+        assertTrue(reader.await(5000));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals("there", out.toString().trim());
+        assertTrue(reader.atEnd());
+    }
+
+    /** A prompted stream is read up to each prompt, and what follows is
+     * held until the stream is restarted */
+    @Test
+    public void testPrompt() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        Process p = new ProcessBuilder("/bin/sh", "-c", "printf 'one>'; read x; printf 'two>'").start();
+        StringBuilder out = new StringBuilder();
+        ProcessPump.Output reader = ProcessPump.instance().read(p.getInputStream(), ">", out);
+        assertTrue(reader.await(5000));
+        assertEquals("one>", out.toString());
+        out.setLength(0);
+        p.getOutputStream().write('\n');
+        p.getOutputStream().flush();
+        p.waitFor();
+        reader.restart();
+        assertTrue(reader.await(5000));
+        assertEquals("two>", out.toString());
+    }
+
+    /** readToCompletion does not wait for a descendant that holds the
+     * outputs open after the process has ended */
+    @Test
+    public void testReadToCompletion() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        ExternalProcess p = new ExternalProcess(new Context(), null, "/bin/sh", "-c", "sleep 10 & echo hi; exit 3");
+        long start = System.currentTimeMillis();
+        p.start();
+        assertEquals(3, p.readToCompletion());
+        assertTrue(System.currentTimeMillis() - start < ExternalProcess.drainMillis + 5000);
+        assertEquals("hi", p.outputString.toString().trim());
+    }
+}
@@ -0,0 +1,68 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.jmlspecs.openjml.utils.ResponseScanner;
+import org.junit.Test;
+
+/** Tests the recognition of the end of a solver response used by SolverChannel */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class responsescanner {
+
+    /** Scans the given pieces, as successive reads, and returns whether each ends a response */
+    boolean[] scan(String... pieces) {
+        ResponseScanner s = new ResponseScanner();
+        boolean[] ends = new boolean[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            byte[] b = pieces[i].getBytes(StandardCharsets.UTF_8);
+            ends[i] = s.scan(b, 0, b.length);
+        }
+        return ends;
+    }
+
+    @Test
+    public void testAtom() {
+        assertTrue(scan("unsat\n")[0]);
+        boolean[] e = scan("uns", "at", "\n");
+        assertFalse(e[0]);
+        assertFalse(e[1]);
+        assertTrue(e[2]);
+    }
+
+    @Test
+    public void testNested() {
+        boolean[] e = scan("(model\n", "  (define-fun x () Int\n", "    3)\n", ")\n");
+        assertFalse(e[0]);
+        assertFalse(e[1]);
+        assertFalse(e[2]);
+        assertTrue(e[3]);
+    }
+
+    @Test
+    public void testStrings() {
+        assertTrue(scan("(error \"line 3: '(' expected\")\n")[0]);
+        assertFalse(scan("(error \"a\nb\")")[0]);
+        assertTrue(scan("(:reason-unknown \"say \"\"(\"\"\")\n")[0]);
+        boolean[] e = scan("(error \"a\n", "b\")\n");
+        assertFalse(e[0]);
+        assertTrue(e[1]);
+    }
+
+    @Test
+    public void testSymbolsAndComments() {
+        assertTrue(scan("(|a ) b| 1)\n")[0]);
+        assertTrue(scan("; a comment (\n")[0]);
+        assertFalse(scan("(x ; )\n")[0]);
+    }
+
+    @Test
+    public void testBadFormat() {
+        ResponseScanner s = new ResponseScanner();
+        s.ignoreDepth = true;
+        byte[] b = "(unbalanced\n".getBytes(StandardCharsets.UTF_8);
+        assertTrue(s.scan(b, 0, b.length));
+    }
+}
@@ -0,0 +1,166 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.jmlspecs.openjml.ext.StatementExprExtensions.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.jmlspecs.openjml.JmlTree;
+import org.jmlspecs.openjml.JmlTree.JmlStatementExpr;
+import org.jmlspecs.openjml.esc.BasicProgram;
+import org.jmlspecs.openjml.esc.BasicProgramSlicer;
+import org.jmlspecs.openjml.esc.Label;
+import org.jmlspecs.openjmltest.JmlTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Names;
+
+/** Tests the cone-of-influence slicing of basic programs (-escSlice) */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class slicer extends JmlTestCase {
+
+    /** A program built by hand:
+     * <PRE>
+     * START: assume x > zero; assume z > w; goto A, B, E
+     * A:     assert y > x; assert x != v   (y is defined as x + one)
+     * B:     assert z > w
+     * E:     assume q
+     * D:     assert q                      (not reachable)
+     * </PRE>
+     * with definitions y := x + one and u := v, background assertions
+     * x >= zero and k == k, and declarations of all the names.
+     */
+    static class TestProgram extends BasicProgram {
+        JmlTree.Maker M;
+        Names names;
+        BasicBlock start, a, b, d, e;
+        JmlStatementExpr assertY, assertV, assertZ;
+
+        TestProgram(Context context) {
+            super(context);
+            M = JmlTree.Maker.instance(context);
+            names = Names.instance(context);
+            for (String n: new String[]{"x","y","z","u","v","w","q","k","one","zero"}) declarations.add(id(n));
+            startId = id("START");
+            start = block(startId);
+            a = block(id("A"));
+            b = block(id("B"));
+            e = block(id("E"));
+            d = block(id("D"));
+            start.statements().add(assume(op(JCTree.Tag.GT, "x", "zero")));
+            start.statements().add(assume(op(JCTree.Tag.GT, "z", "w")));
+            a.statements().add(assertY = assertion(op(JCTree.Tag.GT, "y", "x")));
+            a.statements().add(assertV = assertion(op(JCTree.Tag.NE, "x", "v")));
+            b.statements().add(assertZ = assertion(op(JCTree.Tag.GT, "z", "w")));
+            e.statements().add(assume(id("q")));
+            d.statements().add(assertion(id("q")));
+            link(start, a);
+            link(start, b);
+            link(start, e);
+            definitions.add(new Definition(0, id("y"), op(JCTree.Tag.PLUS, "x", "one")));
+            definitions.add(new Definition(0, id("u"), id("v")));
+            background.add(op(JCTree.Tag.GE, "x", "zero"));
+            background.add(op(JCTree.Tag.EQ, "k", "k"));
+        }
+
+        JCIdent id(String n) {
+            return M.Ident(names.fromString(n));
+        }
+
+        JCExpression op(JCTree.Tag tag, String lhs, String rhs) {
+            return M.Binary(tag, id(lhs), id(rhs));
+        }
+
+        JmlStatementExpr assume(JCExpression e) {
+            return M.JmlExpressionStatement(assumeID, assumeClause, Label.EXPLICIT_ASSUME, e);
+        }
+
+        JmlStatementExpr assertion(JCExpression e) {
+            return M.JmlExpressionStatement(assertID, assertClause, Label.EXPLICIT_ASSERT, e);
+        }
+
+        BasicBlock block(JCIdent id) {
+            BasicBlock bb = newBlock(id);
+            blocks.add(bb);
+            return bb;
+        }
+
+        void link(BasicBlock from, BasicBlock to) {
+            from.followers().add(to);
+            to.preceders().add(from);
+        }
+
+        BasicBlock find(BasicProgram p, String name) {
+            for (BasicBlock bb: p.blocks()) if (bb.id().name.toString().equals(name)) return bb;
+            return null;
+        }
+    }
+
+    TestProgram program;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        program = new TestProgram(context);
+    }
+
+    /** Slicing for all assertions keeps every assumption but drops the
+     * blocks, definitions, declarations and background that nothing checked depends on */
+    @Test
+    public void testSliceAll() {
+        BasicProgramSlicer s = new BasicProgramSlicer(false);
+        s.slice(program);
+        assertEquals(2, s.removedBlocks); // D is unreachable, E reaches no assertion
+        assertEquals(3, program.blocks().size());
+        assertEquals(null, program.find(program, "E"));
+        assertEquals(2, program.start.followers().size());
+        assertEquals(1, s.removedDefinitions); // u
+        assertEquals(1, s.removedBackground); // k == k
+        assertEquals(3, s.removedDeclarations); // u, q, k
+        assertEquals(0, s.removedAssumptions);
+        assertEquals(2, program.start.statements().size());
+    }
+
+    /** Slicing for one assertion makes the others assumptions, drops the
+     * blocks that lead only to them, and prunes unrelated assumptions */
+    @Test
+    public void testSliceFor() {
+        BasicProgramSlicer s = new BasicProgramSlicer(true);
+        BasicProgram p = s.sliceFor(context, program, Arrays.asList(program.assertY));
+        assertEquals(3, s.removedBlocks); // B, D, E
+        assertEquals(2, p.blocks().size());
+        assertEquals(1, s.removedAssumptions); // z > w
+        assertEquals(1, p.startBlock().statements().size());
+        BasicProgram.BasicBlock a = program.find(p, "A");
+        assertSame(program.assertY, a.statements().get(0));
+        assertSame(assumeClause, ((JmlStatementExpr)a.statements().get(1)).clauseType);
+        assertEquals(1, s.removedDefinitions); // u
+        assertEquals(1, s.removedBackground);
+        // The program sliced from is unchanged
+        assertEquals(5, program.blocks().size());
+        assertEquals(2, program.start.statements().size());
+        assertSame(assertClause, program.assertV.clauseType);
+        assertSame(program.assertV, program.a.statements().get(1));
+        assertEquals(2, program.definitions().size());
+    }
+
+    /** Without pruning, the assumptions of the kept blocks stay, as they may
+     * make the path to the assertion infeasible */
+    @Test
+    public void testSliceForKeepsAssumptions() {
+        BasicProgramSlicer s = new BasicProgramSlicer(false);
+        BasicProgram p = s.sliceFor(context, program, Arrays.asList(program.assertZ));
+        assertEquals(2, p.blocks().size());
+        assertEquals(null, program.find(p, "A"));
+        assertEquals(0, s.removedAssumptions);
+        assertEquals(2, p.startBlock().statements().size());
+        assertEquals(2, s.removedDefinitions); // y is not needed once A is gone
+    }
+}
@@ -0,0 +1,114 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jmlspecs.openjml.esc.SMTCommonSubexpressions;
+import org.jmlspecs.openjml.esc.SMTTermFactory;
+import org.junit.Test;
+import org.smtlib.ICommand;
+import org.smtlib.IExpr;
+import org.smtlib.IExpr.IDeclaration;
+import org.smtlib.ISort;
+import org.smtlib.command.C_assert;
+import org.smtlib.command.C_define_fun;
+import org.smtlib.sexpr.Printer;
+
+/** Tests the hash-consing term factory and the common-subexpression pass used
+ * by SMTTranslator */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class smtterms {
+
+    SMTTermFactory F = new SMTTermFactory();
+
+    IExpr app(String f, IExpr... args) {
+        return F.fcn(F.symbol(f), args);
+    }
+
+    /** The printed form, without the space the printer leaves after a list of let bindings */
+    static String write(org.smtlib.IAccept e) {
+        return Printer.write(e).replace(") )", "))");
+    }
+
+    @Test
+    public void testInterning() {
+        assertSame(F.symbol("x"), F.symbol("x"));
+        assertNotSame(F.symbol("x"), F.symbol("y"));
+        assertSame(F.numeral(3), F.numeral(3));
+        IExpr a = app("+", F.symbol("x"), F.numeral(1));
+        IExpr b = app("+", F.symbol("x"), F.numeral(1));
+        assertSame(a, b);
+        assertNotSame(a, app("+", F.numeral(1), F.symbol("x")));
+        assertEquals(2, F.distinctTerms());
+        ISort s1 = F.createSortExpression(F.symbol("Array"), F.createSortExpression(F.symbol("Int")), F.createSortExpression(F.symbol("Bool")));
+        ISort s2 = F.createSortExpression(F.symbol("Array"), F.createSortExpression(F.symbol("Int")), F.createSortExpression(F.symbol("Bool")));
+        assertSame(s1, s2);
+    }
+
+    @Test
+    public void testArgumentsCopied() {
+        List<IExpr> args = new ArrayList<IExpr>();
+        args.add(F.symbol("x"));
+        args.add(F.symbol("y"));
+        IExpr a = F.fcn(F.symbol("f"), args);
+        args.set(1, F.symbol("z"));
+        assertEquals("(f x y)", write(a));
+        assertNotSame(a, F.fcn(F.symbol("f"), args));
+    }
+
+    @Test
+    public void testLetIntroduced() {
+        IExpr t = app("select", F.symbol("a"), F.symbol("i"));
+        IExpr e = app("and", app(">", t, F.numeral(0)), app("<", t, F.numeral(10)));
+        SMTCommonSubexpressions cse = new SMTCommonSubexpressions(F);
+        IExpr r = cse.apply(e);
+        assertEquals("(let ((_JMLCSE_1 (select a i))) (and (> _JMLCSE_1 0) (< _JMLCSE_1 10)))", write(r));
+        assertEquals(1, cse.bindings);
+    }
+
+    @Test
+    public void testNestedShared() {
+        IExpr inner = app("f", F.symbol("x"));
+        IExpr outer = app("g", inner, inner);
+        IExpr e = app("and", app("p", outer), app("q", outer));
+        IExpr r = new SMTCommonSubexpressions(F).apply(e);
+        // inner occurs twice only within outer, which is itself shared, so it is bound inside it
+        assertEquals("(let ((_JMLCSE_1 (f x))) (let ((_JMLCSE_2 (g _JMLCSE_1 _JMLCSE_1))) (and (p _JMLCSE_2) (q _JMLCSE_2))))", write(r));
+    }
+
+    @Test
+    public void testNothingShared() {
+        IExpr e = app("and", app("p", F.symbol("x")), app("q", F.symbol("x")));
+        assertSame(e, new SMTCommonSubexpressions(F).apply(e));
+    }
+
+    @Test
+    public void testQuantifiersOpaque() {
+        IExpr t = app("f", F.symbol("k"));
+        List<IDeclaration> decls = new LinkedList<IDeclaration>();
+        decls.add(F.declaration(F.symbol("k"), F.createSortExpression(F.symbol("Int"))));
+        IExpr q = F.forall(decls, app("=", t, t));
+        IExpr e = app("and", q, app("p", F.symbol("y")));
+        assertSame(e, new SMTCommonSubexpressions(F).apply(e));
+    }
+
+    @Test
+    public void testScript() {
+        IExpr t = app("f", F.symbol("x"));
+        List<ICommand> commands = new ArrayList<ICommand>();
+        commands.add(new C_assert(app("=", t, t)));
+        commands.add(new C_define_fun(F.symbol("c"), new LinkedList<IDeclaration>(), F.createSortExpression(F.symbol("Int")), app("+", t, t)));
+        commands.add(new C_assert(app("p", t)));
+        SMTCommonSubexpressions cse = new SMTCommonSubexpressions(F);
+        cse.apply(commands);
+        assertEquals("(assert (let ((_JMLCSE_1 (f x))) (= _JMLCSE_1 _JMLCSE_1)))", write(commands.get(0)));
+        assertEquals("(define-fun c () Int (let ((_JMLCSE_2 (f x))) (+ _JMLCSE_2 _JMLCSE_2)))", write(commands.get(1)));
+        assertEquals("(assert (p (f x)))", write(commands.get(2)));
+        assertEquals(2, cse.bindings);
+    }
+}
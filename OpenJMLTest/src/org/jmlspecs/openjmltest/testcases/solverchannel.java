@@ -0,0 +1,173 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+import org.jmlspecs.openjml.Factory;
+import org.jmlspecs.openjml.IAPI;
+import org.jmlspecs.openjml.JmlOption;
+import org.jmlspecs.openjml.JmlTree.JmlCompilationUnit;
+import org.jmlspecs.openjml.proverinterface.IProverResult;
+import org.jmlspecs.openjml.proverinterface.ProverResult;
+import org.jmlspecs.openjml.utils.SolverChannel;
+import org.junit.Test;
+import org.smtlib.ISolver;
+import org.smtlib.SMT;
+
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+
+/** Tests the connection of solvers through a SolverChannel (-solverChannel) */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class solverchannel {
+
+    /** The channel reaches into jSMTLIB's solver objects, so it is off unless asked for */
+    @Test
+    public void testOffByDefault() throws Exception {
+        IAPI api = Factory.makeAPI("-esc");
+        assertFalse(JmlOption.isOption(api.context(), JmlOption.SOLVER_CHANNEL));
+    }
+
+    /** The jSMTLIB in use keeps its solver process where SolverChannel looks
+     * for it; if it did not, create and of would throw */
+    @Test
+    public void testReflection() throws Exception {
+        SMT smt = new SMT();
+        smt.processCommandLine(new String[]{}, smt.smtConfig);
+        ISolver solver = SolverChannel.create(smt, "z3_4_3", "/bin/true");
+        assertNotNull(solver);
+        SolverChannel c = SolverChannel.of(solver);
+        assertNotNull(c);
+        assertNull(c.process());
+        assertNull(c.failure());
+        assertEquals(0, c.waitingSince());
+        assertNull(SolverChannel.of(null));
+    }
+
+    /** A solver that answers success to every command but never answers (check-sat) */
+    static final String hungSolver = "#!/bin/sh\n"
+            + "while read -r line; do\n"
+            + "  case \"$line\" in\n"
+            + "    *check-sat*) while read -r line; do :; done; exit 0;;\n"
+            + "    *) echo success;;\n"
+            + "  esac\n"
+            + "done\n";
+
+    /** A solver that finds the proof valid but never answers the
+     * feasibility check that follows */
+    static final String hungFeasibilitySolver = "#!/bin/sh\n"
+            + "n=0\n"
+            + "while read -r line; do\n"
+            + "  case \"$line\" in\n"
+            + "    *check-sat*) if [ $n -gt 0 ]; then while read -r line; do :; done; exit 0; fi; n=1; echo unsat;;\n"
+            + "    *) echo success;;\n"
+            + "  esac\n"
+            + "done\n";
+
+    /** A solver that finds the proof invalid but never gives the values of
+     * the counterexample */
+    static final String hungCounterexampleSolver = "#!/bin/sh\n"
+            + "while read -r line; do\n"
+            + "  case \"$line\" in\n"
+            + "    *check-sat*) echo sat;;\n"
+            + "    *get-value*) while read -r line; do :; done; exit 0;;\n"
+            + "    *) echo success;;\n"
+            + "  esac\n"
+            + "done\n";
+
+    static final String program = "public class B {\n"
+            + "  //@ requires i > 0;\n"
+            + "  //@ ensures \\result > 0;\n"
+            + "  public int m(int i) {\n"
+            + "    //@ assert i != 0;\n"
+            + "    int j = i;\n"
+            + "    //@ assert j > 0;\n"
+            + "    return j;\n"
+            + "  }\n"
+            + "}\n";
+
+    /** Proves B.m with the hung solver and the given options; returns the
+     * result, which is an error since no solver ever answers */
+    ProverResult proveHung(String... options) throws Exception {
+        ProverResult r = prove(hungSolver, options);
+        assertEquals(IProverResult.ERROR, r.result());
+        return r;
+    }
+
+    /** Proves B.m with the given solver script and options; returns the result */
+    ProverResult prove(String solver, String... options) throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        File script = File.createTempFile("hungsolver", ".sh");
+        try {
+            Files.write(script.toPath(), solver.getBytes("UTF-8"));
+            assumeTrue(script.setExecutable(true));
+            String[] args = new String[options.length + 5];
+            args[0] = "-no-purityCheck";
+            args[1] = "-exec";
+            args[2] = script.getPath();
+            args[3] = "-solverDeadline";
+            args[4] = "2";
+            System.arraycopy(options, 0, args, 5, options.length);
+            IAPI api = Factory.makeAPI(new PrintWriter(new StringWriter()), null, null, args);
+            api.addOptions("openjml.defaultProver","z3_4_3");
+            JmlCompilationUnit jcu = api.parseString("B.java", program);
+            assertEquals(0, api.typecheck(jcu));
+            ClassSymbol csym = api.getClassSymbol("B");
+            IProverResult res = api.doESC(api.getMethodSymbol(csym, "m"));
+            return (ProverResult)res;
+        } finally {
+            script.delete();
+        }
+    }
+
+    /** A solver that does not answer is killed at the deadline, and the
+     * proof is tried once more (the default -solverRetries) */
+    @Test
+    public void testHungSolver() throws Exception {
+        ProverResult r = proveHung();
+        assertEquals(1, r.retries());
+        assertEquals(2, r.kills());
+    }
+
+    /** With -solverRetries 0 the proof is not tried again */
+    @Test
+    public void testHungSolverNoRetry() throws Exception {
+        ProverResult r = proveHung("-solverRetries", "0");
+        assertEquals(0, r.retries());
+        assertEquals(1, r.kills());
+    }
+
+    /** The solvers of groups of assertions are watched and retried too */
+    @Test
+    public void testHungGroupSolvers() throws Exception {
+        ProverResult r = proveHung("-escAssertionThreads", "2");
+        assertEquals(1, r.retries());
+        assertEquals(4, r.kills());
+    }
+
+    /** A solver that does not answer a feasibility check is killed, and the
+     * proof is tried once more, feasibility checks and all */
+    @Test
+    public void testHungFeasibilityCheck() throws Exception {
+        ProverResult r = prove(hungFeasibilitySolver);
+        assertEquals(IProverResult.ERROR, r.result());
+        assertEquals(1, r.retries());
+        assertEquals(2, r.kills());
+    }
+
+    /** A solver that does not give the values of a counterexample is killed,
+     * and the proof is tried once more */
+    @Test
+    public void testHungCounterexample() throws Exception {
+        ProverResult r = prove(hungCounterexampleSolver);
+        assertEquals(1, r.retries());
+        assertEquals(2, r.kills());
+    }
+}
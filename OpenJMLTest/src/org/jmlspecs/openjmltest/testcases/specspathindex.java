@@ -0,0 +1,132 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import org.jmlspecs.openjml.JmlSpecs;
+import org.jmlspecs.openjml.JmlSpecs.Dir;
+import org.jmlspecs.openjml.SpecsPathIndex;
+import org.jmlspecs.openjmltest.JmlTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.util.Log;
+
+/** Tests the lazily built index of the specs path */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class specspathindex extends JmlTestCase {
+
+    /** Exposes the packages listed so far */
+    static class Index extends SpecsPathIndex {
+        Index(List<Dir> dirs, File saved, Log log) {
+            super(dirs, saved, log);
+        }
+        List<String> listed() {
+            List<String> list = new ArrayList<String>(packages.keySet());
+            java.util.Collections.sort(list);
+            return list;
+        }
+    }
+
+    File root, a, b;
+    List<Dir> dirs;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        root = Files.createTempDirectory("specspath").toFile();
+        a = new File(root, "a");
+        b = new File(root, "b");
+        write(a, "p/X.jml");
+        write(b, "p/X.jml");
+        write(b, "p/Y.jml");
+        write(a, "q/sub/Z.java");
+        JmlSpecs specs = JmlSpecs.instance(context);
+        dirs = Arrays.<Dir>asList(specs.new FileSystemDir(a), specs.new FileSystemDir(b));
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        delete(root);
+        super.tearDown();
+    }
+
+    void write(File dir, String path) throws IOException {
+        File f = new File(dir, path);
+        f.getParentFile().mkdirs();
+        try (FileWriter w = new FileWriter(f)) {
+            w.write("// " + path);
+        }
+    }
+
+    void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) for (File ff: files) delete(ff);
+        f.delete();
+    }
+
+    String where(JavaFileObject f) {
+        return new File(f.toUri()).getParentFile().getParentFile().getName();
+    }
+
+    @Test
+    public void testLookup() {
+        Index index = new Index(dirs, null, Log.instance(context));
+        assertEquals("a", where(index.findFile("p/X.jml")));
+        assertEquals("b", where(index.findFile("p/Y.jml")));
+        assertNull(index.findFile("p/Missing.jml"));
+        // Only the package looked up has been listed
+        assertEquals(Arrays.asList("p/"), index.listed());
+        assertNull(index.findFile("q/Z.java"));
+        assertNotNull(index.findFile("q/sub/Z.java"));
+        assertEquals(Arrays.asList("p/", "q/", "q/sub/"), index.listed());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        Index index = new Index(dirs, null, Log.instance(context));
+        assertNull(index.findFile("p/W.jml"));
+        write(a, "p/W.jml");
+        assertNull(index.findFile("p/W.jml")); // the listing is kept
+        index.invalidate("p");
+        assertEquals("a", where(index.findFile("p/W.jml")));
+        new File(a, "p/X.jml").delete();
+        index.invalidate();
+        assertEquals("b", where(index.findFile("p/X.jml")));
+    }
+
+    @Test
+    public void testSaved() throws Exception {
+        File saved = new File(root, "index.properties");
+        Index index = new Index(dirs, saved, Log.instance(context));
+        assertNotNull(index.findFile("p/Y.jml"));
+        index.save();
+        assertTrue(saved.exists());
+        // A new file in an unchanged directory is not seen through the saved listing
+        File p = new File(b, "p");
+        long time = p.lastModified();
+        write(b, "p/V.jml");
+        assertTrue(p.setLastModified(time));
+        index = new Index(dirs, saved, Log.instance(context));
+        assertNull(index.findFile("p/V.jml"));
+        // but is once the directory's time changes
+        assertTrue(p.setLastModified(time + 10000));
+        index = new Index(dirs, saved, Log.instance(context));
+        assertEquals("b", where(index.findFile("p/V.jml")));
+    }
+}
@@ -0,0 +1,85 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.jmlspecs.openjml.Main;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/** Tests the file of per-phase timings and heap use written for -timings */
+public class timings {
+
+    File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("timings").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f: files) f.delete();
+        dir.delete();
+    }
+
+    /** Checks that o has a phase of the given name, run at least once */
+    void checkPhase(JsonObject phases, String name) {
+        JsonObject p = phases.getAsJsonObject(name);
+        assertNotNull(name + " in " + phases, p);
+        assertTrue(p.toString(), p.get("count").getAsInt() >= 1);
+        assertTrue(p.toString(), p.get("millis").getAsDouble() >= 0);
+    }
+
+    @Test
+    public void testStructure() throws Exception {
+        File src = new File(dir, "C.java");
+        Files.write(src.toPath(), ("public class C {\n"
+                + "  //@ ensures \\result == i + 1;\n"
+                + "  public int m(int i) { return i + 1; }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+        File out = new File(dir, "timings.json");
+        StringWriter sw = new StringWriter();
+        int ex = Main.execute(new PrintWriter(sw), null, null,
+                new String[]{"-check", "-no-purityCheck", "-timings", out.getPath(), src.getPath()});
+        assertEquals(sw.toString(), 0, ex);
+
+        JsonObject root = new JsonParser().parse(new String(Files.readAllBytes(out.toPath()), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(1, root.get("version").getAsInt());
+        assertTrue(root.get("startupMillis").getAsLong() >= 0);
+        assertTrue(root.get("wallMillis").getAsDouble() > 0);
+        long peak = root.get("peakHeapBytes").getAsLong();
+        assertTrue(root.toString(), peak > 0);
+
+        JsonObject phases = root.getAsJsonObject("phases");
+        for (String p: new String[]{"parse", "enter", "attribute", "flow"}) checkPhase(phases, p);
+
+        JsonArray subjects = root.getAsJsonArray("subjects");
+        JsonObject c = null;
+        for (JsonElement e: subjects) {
+            JsonObject s = e.getAsJsonObject();
+            assertNotNull(s.toString(), s.get("kind"));
+            assertTrue(s.toString(), s.get("peakHeapBytes").getAsLong() <= peak);
+            if (s.get("name").getAsString().equals("C")) c = s;
+        }
+        assertNotNull(subjects.toString(), c);
+        assertEquals("class", c.get("kind").getAsString());
+        assertTrue(c.toString(), c.get("peakHeapBytes").getAsLong() > 0);
+        checkPhase(c.getAsJsonObject("phases"), "attribute");
+        checkPhase(c.getAsJsonObject("phases"), "flow");
+    }
+}
@@ -0,0 +1,150 @@
+package org.jmlspecs.openjmltest.testcases;
+
+import static org.jmlspecs.openjml.ext.StatementExprExtensions.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.jmlspecs.openjml.JmlTree;
+import org.jmlspecs.openjml.JmlTree.JmlStatementExpr;
+import org.jmlspecs.openjml.esc.BasicProgram;
+import org.jmlspecs.openjml.esc.JmlAssertionAdder;
+import org.jmlspecs.openjml.esc.Label;
+import org.jmlspecs.openjml.esc.TrivialAssertions;
+import org.jmlspecs.openjmltest.JmlTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Names;
+
+/** Tests the removal of trivially valid assertions (-escTrivial) */
+@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)
+public class trivialassertions extends JmlTestCase {
+
+    /** A program built by hand, a block at a time */
+    static class TestProgram extends BasicProgram {
+        JmlTree.Maker M;
+        Names names;
+        Symtab syms;
+
+        TestProgram(Context context) {
+            super(context);
+            M = JmlTree.Maker.instance(context);
+            names = Names.instance(context);
+            syms = Symtab.instance(context);
+            startId = id("START");
+        }
+
+        JCIdent id(String n) {
+            return M.Ident(names.fromString(n));
+        }
+
+        JCIdent id(String n, Type t) {
+            JCIdent i = id(n);
+            i.type = t;
+            return i;
+        }
+
+        JCExpression lit(int i) {
+            return M.Literal(TypeTag.INT, i);
+        }
+
+        JCExpression op(JCTree.Tag tag, JCExpression lhs, JCExpression rhs) {
+            return M.Binary(tag, lhs, rhs);
+        }
+
+        JmlStatementExpr assume(JCExpression e) {
+            return M.JmlExpressionStatement(assumeID, assumeClause, Label.EXPLICIT_ASSUME, e);
+        }
+
+        JmlStatementExpr assertion(JCExpression e) {
+            return M.JmlExpressionStatement(assertID, assertClause, Label.EXPLICIT_ASSERT, e);
+        }
+
+        BasicBlock block(String name, JmlStatementExpr... statements) {
+            BasicBlock bb = newBlock(blocks.isEmpty() ? startId : id(name));
+            for (JmlStatementExpr s: statements) bb.statements().add(s);
+            if (!blocks.isEmpty()) {
+                BasicBlock last = blocks.get(blocks.size()-1);
+                last.followers().add(bb);
+                bb.preceders().add(last);
+            }
+            blocks.add(bb);
+            return bb;
+        }
+    }
+
+    TestProgram p;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        p = new TestProgram(context);
+    }
+
+    /** Constant assertions, and those that follow from the assumptions
+     * before them in the block, are removed; the others are kept */
+    @Test
+    public void testAssumptions() {
+        JmlStatementExpr unknown = p.assertion(p.op(JCTree.Tag.GT, p.id("y"), p.lit(3)));
+        JmlStatementExpr before = p.assertion(p.op(JCTree.Tag.GT, p.id("x"), p.lit(3)));
+        BasicProgram.BasicBlock b = p.block("A",
+                p.assertion(p.M.Literal(true)),
+                p.assertion(p.op(JCTree.Tag.LT, p.lit(1), p.lit(2))),
+                before,
+                p.assume(p.op(JCTree.Tag.AND, p.op(JCTree.Tag.EQ, p.id("x"), p.lit(5)), p.id("c"))),
+                p.assertion(p.op(JCTree.Tag.GT, p.id("x"), p.lit(3))),
+                p.assertion(p.op(JCTree.Tag.OR, p.id("c"), p.id("d"))),
+                p.assertion(p.op(JCTree.Tag.OR, p.M.Unary(JCTree.Tag.NOT, p.id("c")), p.id("d"))),
+                unknown);
+        TrivialAssertions t = new TrivialAssertions(false);
+        assertEquals(3, t.simplify(p));
+        assertEquals(4, t.removed);
+        assertEquals(4, b.statements().size());
+        assertSame(before, b.statements().get(0));
+        assertSame(unknown, b.statements().get(3));
+    }
+
+    /** What is assumed in one block is not used in the next, since the
+     * next may be reached along other paths too; definitions hold everywhere */
+    @Test
+    public void testBlocks() {
+        p.definitions().add(new BasicProgram.Definition(0, p.id("z"), p.lit(7)));
+        p.block("A", p.assume(p.id("c")), p.assertion(p.id("c")));
+        BasicProgram.BasicBlock b = p.block("B", p.assertion(p.id("c")), p.assertion(p.op(JCTree.Tag.GE, p.id("z"), p.lit(7))));
+        TrivialAssertions t = new TrivialAssertions(false);
+        assertEquals(1, t.simplify(p));
+        assertEquals(2, t.removed);
+        assertEquals(1, b.statements().size());
+    }
+
+    /** x == x holds for integers but not for floating point values (NaN) */
+    @Test
+    public void testSelfEquality() {
+        BasicProgram.BasicBlock b = p.block("A",
+                p.assertion(p.op(JCTree.Tag.EQ, p.id("i", p.syms.intType), p.id("i", p.syms.intType))),
+                p.assertion(p.op(JCTree.Tag.EQ, p.id("d", p.syms.doubleType), p.id("d", p.syms.doubleType))));
+        TrivialAssertions t = new TrivialAssertions(false);
+        assertEquals(1, t.simplify(p));
+        assertEquals(1, b.statements().size());
+    }
+
+    /** The assertions made for the feasibility checks hold only if no
+     * feasibility check is to be made, when the assume-check variable is 0 */
+    @Test
+    public void testAssumeChecks() {
+        BasicProgram.BasicBlock b = p.block("A",
+                p.assertion(p.op(JCTree.Tag.NE, p.id(JmlAssertionAdder.assumeCheckVar), p.lit(1))));
+        assertEquals(1, new TrivialAssertions(false).simplify(p));
+        assertEquals(1, b.statements().size());
+        assertEquals(0, new TrivialAssertions(true).simplify(p));
+        assertEquals(0, b.statements().size());
+    }
+}
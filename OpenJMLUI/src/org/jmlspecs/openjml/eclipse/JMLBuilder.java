@@ -5,6 +5,7 @@
  */
 package org.jmlspecs.openjml.eclipse;
 
+import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -17,11 +18,13 @@ import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.IResourceRuleFactory;
 import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
@@ -30,10 +33,10 @@ import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.JavaCore;
 import org.jmlspecs.annotation.NonNull;
 import org.jmlspecs.annotation.Nullable;
+import org.jmlspecs.openjml.DependencyIndex;
 import org.jmlspecs.openjml.Main;
 import org.jmlspecs.openjml.Main.Cmd;
 
-// FIXME - we need to handle dependencies when doing incremental compilation
 // FIXME - needs review - JMLBuilder
 // FIXME - if there are multiple projects being run, they need to 
 // be run in the right order 
@@ -143,6 +146,39 @@ public class JMLBuilder extends IncrementalProjectBuilder {
         IProject p = getProject();
         Activator.utils().deleteMarkers(p,null);
         Activator.utils().cleanRacbin(p);
+        deleteDependencyIndex(JavaCore.create(p));
+    }
+
+    /** The directory holding the dependency index that the builder's
+     * -incremental runs keep: the RAC output folder if RAC is enabled, and
+     * otherwise the project's working area.
+     */
+    static File dependencyIndexDir(IJavaProject jproject) {
+        if (Options.isOption(Options.enableRacKey)) {
+            return jproject.getProject().getLocation().append(Activator.utils().getRacDir()).toFile();
+        }
+        return jproject.getProject().getWorkingLocation(Env.PLUGIN_ID).toFile();
+    }
+
+    /** Deletes the dependency index, so that the next build processes every file */
+    static void deleteDependencyIndex(IJavaProject jproject) {
+        new File(dependencyIndexDir(jproject), DependencyIndex.fileName).delete();
+    }
+
+    /** Returns the given (changed) resources together with the files of the
+     * project that depend on them, according to the dependency index */
+    static List<IResource> withDependents(IJavaProject jproject, List<IResource> changed) {
+        List<File> files = new LinkedList<File>();
+        for (IResource r: changed) {
+            if (r instanceof IFile && r.getLocation() != null) files.add(r.getLocation().toFile());
+        }
+        List<IResource> result = new LinkedList<IResource>(changed);
+        IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+        for (String p: DependencyIndex.dependents(dependencyIndexDir(jproject), files)) {
+            IFile f = root.getFileForLocation(new Path(p));
+            if (f != null && f.exists() && !result.contains(f)) result.add(f);
+        }
+        return result;
     }
 
     /** Called during tree walking; it records the java files visited.
@@ -184,7 +220,8 @@ public class JMLBuilder extends IncrementalProjectBuilder {
         list.addAll(resourcesToBuild);
         boolean done = false;
         if (Options.isOption(Options.enableRacKey)) {
-            Activator.utils().racMarked(jproject);
+            if (full) Activator.utils().racMarked(jproject);
+            else Activator.utils().doBuildRac(jproject, resourcesToBuild, monitor);
             done = true;
         } 
         if (Options.isOption(Options.enableESCKey)) {
@@ -236,6 +273,7 @@ public class JMLBuilder extends IncrementalProjectBuilder {
 
         Timer.timer.markTime();
         Activator.utils().deleteMarkers(project,null);
+        deleteDependencyIndex(jproject); // Everything is to be checked again
         if (monitor.isCanceled() || isInterrupted()) {
             if (Options.uiverboseness) Log.log("Build interrupted"); //$NON-NLS-1$
             return;
@@ -278,8 +316,9 @@ public class JMLBuilder extends IncrementalProjectBuilder {
         Timer.timer.markTime();
         DeltaVisitor v = new DeltaVisitor();
         delta.accept(v);  // collects all changed files
-        Activator.utils().deleteMarkers(v.resourcesToBuild,null);
-        doAction(jproject,v.resourcesToBuild,monitor,false);
+        List<IResource> resourcesToBuild = withDependents(jproject, v.resourcesToBuild);
+        Activator.utils().deleteMarkers(resourcesToBuild,null);
+        doAction(jproject,resourcesToBuild,monitor,false);
         v.resourcesToBuild.clear(); // Empties the list
         if (Options.uiverboseness) Log.log(Timer.timer.getTimeString() + " Build complete " + project.getName()); //$NON-NLS-1$
 
@@ -222,6 +222,9 @@ public class OpenJMLInterface implements IAPI.IProofResultListener {
      * @param command either CHECK or RAC
      * @param files the set of files (or containers) to check
      * @param monitor the progress monitor the UI is using
+     * @param auto true if called by the builder, in which case the run is
+     *  -incremental, keeping its dependency index in the output folder (for
+     *  RAC) or in the project's working area (for CHECK)
      */
     public void executeExternalCommand(Main.Cmd command, Collection<IResource> files, @Nullable IProgressMonitor monitor, boolean auto) {
         boolean verboseProgress = utils.openjmlVerbose() >= Utils.NORMAL;
@@ -256,6 +259,13 @@ public class OpenJMLInterface implements IAPI.IProofResultListener {
                 args.add(Strings.outputOptionName);
                 args.add(jp.getProject().getLocation().append(racdir).toString());
             }
+            if (auto) {
+                args.add(JmlOption.INCREMENTAL.optionName());
+                if (command == Main.Cmd.CHECK) {
+                    args.add(Strings.outputOptionName);
+                    args.add(jp.getProject().getWorkingLocation(Env.PLUGIN_ID).toString());
+                }
+            }
 
             boolean addedSomething = false;
             for (IResource r : files) {
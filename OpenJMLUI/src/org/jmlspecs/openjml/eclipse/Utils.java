@@ -779,8 +779,9 @@ public class Utils {
         j.schedule();
     }
 
-    // TODO - document doBuildRac - put in a Job - or not - because called from
-    // a computation thread anyway
+    /** Compiles runtime assertions for those of the given resources that are
+     * enabled for RAC; used by the builder, so the run is -incremental.
+     * Called from a computation thread. */
     protected void doBuildRac(IJavaProject jproject,
                             List<IResource> resourcesToBuild, IProgressMonitor monitor) {
         Set<IResource> enabledForRac = getRacFiles(jproject);
@@ -794,7 +795,7 @@ public class Utils {
                 if (Options.uiverboseness)
                     Log.log("Starting RAC " + newlist.size() + " files");
                 getInterface(jproject).executeExternalCommand(Cmd.RAC, newlist,
-                                        monitor,false);
+                                        monitor,true);
                 if (Options.uiverboseness)
                     Log.log("Completed RAC");
             } catch (Exception e) {